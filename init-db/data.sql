@@ -228,6 +228,7 @@ SELECT
   r.phone AS resident_phone,
   r.identity_card AS resident_identity_card,
   r.email AS resident_email,
+  -- days_left chỉ để hiển thị: lọc theo khoảng end_date (không theo days_left) để dùng được index
   DATEDIFF(c.end_date, CURDATE()) AS days_left,
   c.created_at,
   c.updated_at
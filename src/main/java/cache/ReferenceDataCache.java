@@ -0,0 +1,254 @@
+package cache;
+
+import model.Apartment;
+import model.Building;
+import model.Floor;
+import model.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Reference Data Cache (Singleton)
+ * Cache trong bộ nhớ cho dữ liệu ít thay đổi nhưng bị đọc liên tục
+ * (combo box tòa nhà / tầng / dịch vụ, thẻ căn hộ, form hợp đồng...).
+ *
+ * - Mỗi vùng (region) có TTL + giới hạn số entry (LRU), TTL để nhận thay đổi từ máy khác
+ * - Write-through invalidation: các DAO gọi invalidate*() ngay sau khi ghi thành công
+ * - Loader chạy ngoài lock; nếu dữ liệu bị invalidate trong lúc đang query thì kết quả không được lưu
+ * - Loader trả về null (lỗi SQL / không tìm thấy) -> không cache, lần sau query lại
+ * - Đếm hit / miss / eviction / expired theo từng vùng (getStats())
+ *
+ * ⚠️ Danh sách trả ra là bản sao, nhưng các entity bên trong dùng chung:
+ * chỉ đọc, muốn sửa thì đi qua DAO update (sẽ tự invalidate).
+ */
+public class ReferenceDataCache {
+
+    private static final String ALL = "ALL";
+
+    private static ReferenceDataCache instance;
+
+    private final Region<String, List<Building>> buildings = new Region<>("buildings", 5 * 60_000, 1);
+    private final Region<Long, List<Floor>> floorsByBuilding = new Region<>("floorsByBuilding", 5 * 60_000, 256);
+    private final Region<String, List<Service>> services = new Region<>("services", 5 * 60_000, 1);
+    // Trạng thái căn hộ đổi theo hợp đồng (kể cả từ máy khác) -> TTL ngắn hơn
+    private final Region<Long, Apartment> apartments = new Region<>("apartments", 60_000, 5_000);
+
+    private ReferenceDataCache() {
+    }
+
+    public static synchronized ReferenceDataCache getInstance() {
+        if (instance == null) {
+            instance = new ReferenceDataCache();
+        }
+        return instance;
+    }
+
+    // ===== READ =====
+
+    public List<Building> getAllBuildings(Supplier<List<Building>> loader) {
+        return copyOf(buildings.get(ALL, () -> freeze(loader.get())));
+    }
+
+    public List<Floor> getFloorsByBuildingId(Long buildingId, Supplier<List<Floor>> loader) {
+        return copyOf(floorsByBuilding.get(buildingId, () -> freeze(loader.get())));
+    }
+
+    public List<Service> getAllServices(Supplier<List<Service>> loader) {
+        return copyOf(services.get(ALL, () -> freeze(loader.get())));
+    }
+
+    public Apartment getApartmentById(Long id, Supplier<Apartment> loader) {
+        return apartments.get(id, loader);
+    }
+
+    // ===== WRITE-THROUGH INVALIDATION (gọi từ DAO sau khi ghi thành công) =====
+
+    public void invalidateBuildings() {
+        buildings.clear();
+    }
+
+    public void invalidateFloors(Long buildingId) {
+        floorsByBuilding.invalidate(buildingId);
+    }
+
+    public void invalidateAllFloors() {
+        floorsByBuilding.clear();
+    }
+
+    public void invalidateServices() {
+        services.clear();
+    }
+
+    public void invalidateApartment(Long apartmentId) {
+        apartments.invalidate(apartmentId);
+    }
+
+    public void invalidateAllApartments() {
+        apartments.clear();
+    }
+
+    public void invalidateAll() {
+        buildings.clear();
+        floorsByBuilding.clear();
+        services.clear();
+        apartments.clear();
+    }
+
+    // ===== STATS =====
+
+    /**
+     * Số liệu của một vùng cache tại thời điểm gọi
+     */
+    public static class RegionStats {
+        public String name;
+        public int size;
+        public int maxEntries;
+        public long hits;
+        public long misses;
+        public long evictions;   // bị đẩy ra do vượt maxEntries
+        public long expirations; // hết TTL
+        public long invalidations;
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: size=%d/%d, hits=%d, misses=%d (%.0f%% hit), evictions=%d, expired=%d, invalidations=%d",
+                    name, size, maxEntries, hits, misses, getHitRate() * 100, evictions, expirations, invalidations);
+        }
+    }
+
+    public List<RegionStats> getStats() {
+        List<RegionStats> stats = new ArrayList<>();
+        stats.add(buildings.stats());
+        stats.add(floorsByBuilding.stats());
+        stats.add(services.stats());
+        stats.add(apartments.stats());
+        return stats;
+    }
+
+    public void logStats() {
+        for (RegionStats s : getStats()) {
+            System.out.println("ℹ️ Cache " + s);
+        }
+    }
+
+    // ===== HELPERS =====
+
+    private static <T> List<T> freeze(List<T> list) {
+        return list == null ? null : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    private static <T> List<T> copyOf(List<T> list) {
+        return list == null ? null : new ArrayList<>(list);
+    }
+
+    /**
+     * Một vùng cache: LinkedHashMap theo thứ tự truy cập (LRU) + TTL cho từng entry
+     */
+    private static final class Region<K, V> {
+
+        private final String name;
+        private final long ttlMs;
+        private final int maxEntries;
+        private final LinkedHashMap<K, CacheEntry<V>> entries;
+
+        // Tăng mỗi lần invalidate, kết quả load bắt đầu trước đó sẽ bị bỏ (guarded by this)
+        private long version = 0;
+
+        private long hits = 0;
+        private long misses = 0;
+        private long evictions = 0;
+        private long expirations = 0;
+        private long invalidations = 0;
+
+        Region(String name, long ttlMs, int maxEntries) {
+            this.name = name;
+            this.ttlMs = ttlMs;
+            this.maxEntries = maxEntries;
+            this.entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                    if (size() > Region.this.maxEntries) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        V get(K key, Supplier<V> loader) {
+            long loadVersion;
+            synchronized (this) {
+                CacheEntry<V> entry = entries.get(key);
+                if (entry != null) {
+                    if (System.currentTimeMillis() - entry.loadedAt < ttlMs) {
+                        hits++;
+                        return entry.value;
+                    }
+                    entries.remove(key);
+                    expirations++;
+                }
+                misses++;
+                loadVersion = version;
+            }
+
+            // Query DB ngoài lock để các key khác không phải chờ
+            V value = loader.get();
+            if (value == null) {
+                return null;
+            }
+
+            synchronized (this) {
+                if (loadVersion == version) {
+                    entries.put(key, new CacheEntry<>(value, System.currentTimeMillis()));
+                }
+            }
+            return value;
+        }
+
+        synchronized void invalidate(K key) {
+            entries.remove(key);
+            version++;
+            invalidations++;
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            version++;
+            invalidations++;
+        }
+
+        synchronized RegionStats stats() {
+            RegionStats s = new RegionStats();
+            s.name = name;
+            s.size = entries.size();
+            s.maxEntries = maxEntries;
+            s.hits = hits;
+            s.misses = misses;
+            s.evictions = evictions;
+            s.expirations = expirations;
+            s.invalidations = invalidations;
+            return s;
+        }
+    }
+
+    private static final class CacheEntry<V> {
+        final V value;
+        final long loadedAt;
+
+        CacheEntry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,16 +1,32 @@
 package connection;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import javax.sql.DataSource;
 
 
 public class Db_connection {
-    
+
     private static final String URL = "jdbc:mysql://localhost:3307/DB_QuanLyChungCu?useUnicode=true&characterEncoding=utf-8&autoReconnect=true&useSSL=false";
     private static final String USER = "root";
     private static final String PASSWORD = "root";
-    
+
+    // --- Cấu hình Connection Pool ---
+    private static final int MIN_IDLE = 2;
+    private static final int MAX_POOL_SIZE = 10;
+    private static final long CONNECTION_TIMEOUT_MS = 5_000;      // chờ tối đa khi pool hết kết nối
+    private static final long VALIDATION_TIMEOUT_MS = 3_000;      // kiểm tra kết nối khi mượn
+    private static final long IDLE_TIMEOUT_MS = 5 * 60_000;       // đóng kết nối rảnh quá 5 phút
+    private static final long MAX_LIFETIME_MS = 25 * 60_000;      // < wait_timeout của MySQL
+    private static final long LEAK_DETECTION_MS = 30_000;         // cảnh báo kết nối không được close
+
+    private static final PoolStats poolStats = new PoolStats();
+    private static volatile HikariDataSource dataSource;
+    private static boolean shutdownHookRegistered = false;
+    private static volatile PerformanceProfile profile = PerformanceProfile.fromSystemProperty();
+
     // Load driver một lần duy nhất
     static {
         try {
@@ -21,14 +37,100 @@ public class Db_connection {
             e.printStackTrace();
         }
     }
-    
+
     /**
-     * Get a NEW database connection
-     * IMPORTANT: Caller MUST close this connection!
+     * Get a connection from the pool
+     * IMPORTANT: Caller MUST close this connection (trả về pool)!
      */
     public static Connection getConnection() throws SQLException {
-        Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-        System.out.println("✅ Kết nối thành công!");
-        return conn;
+        return getDataSource().getConnection();
+    }
+
+    /**
+     * Get the pooled DataSource (khởi tạo lazy lần đầu)
+     */
+    public static DataSource getDataSource() {
+        HikariDataSource ds = dataSource;
+        if (ds == null) {
+            synchronized (Db_connection.class) {
+                ds = dataSource;
+                if (ds == null) {
+                    ds = createDataSource();
+                    dataSource = ds;
+                }
+            }
+        }
+        return ds;
+    }
+
+    /**
+     * Get pool metrics (active, idle, waiters, borrow latency)
+     */
+    public static PoolStats getPoolStats() {
+        return poolStats;
+    }
+
+    /**
+     * Get current JDBC performance profile
+     */
+    public static PerformanceProfile getPerformanceProfile() {
+        return profile;
+    }
+
+    /**
+     * Đổi performance profile. Pool hiện tại (nếu có) được đóng,
+     * kết nối tiếp theo sẽ tạo pool mới với profile mới.
+     */
+    public static synchronized void setPerformanceProfile(PerformanceProfile newProfile) {
+        if (newProfile == null || newProfile == profile) {
+            return;
+        }
+        shutdown();
+        profile = newProfile;
+    }
+
+    /**
+     * Close the pool (gọi khi thoát ứng dụng)
+     */
+    public static synchronized void shutdown() {
+        if (dataSource != null) {
+            System.out.println("ℹ️ Closing connection pool: " + poolStats);
+            dataSource.close();
+            dataSource = null;
+            poolStats.attach(null);
+        }
+    }
+
+    private static HikariDataSource createDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("ApartmentPool");
+        config.setJdbcUrl(URL);
+        config.setUsername(USER);
+        config.setPassword(PASSWORD);
+
+        config.setMinimumIdle(MIN_IDLE);
+        config.setMaximumPoolSize(MAX_POOL_SIZE);
+        config.setConnectionTimeout(CONNECTION_TIMEOUT_MS);
+        config.setValidationTimeout(VALIDATION_TIMEOUT_MS);
+        config.setIdleTimeout(IDLE_TIMEOUT_MS);
+        config.setMaxLifetime(MAX_LIFETIME_MS);
+        config.setLeakDetectionThreshold(LEAK_DETECTION_MS);
+        // Kết nối được validate (Connection.isValid) khi mượn ra khỏi pool.
+        // Không fail khi khởi tạo: DAO vẫn nhận SQLException như trước nếu DB chưa sẵn sàng
+        config.setInitializationFailTimeout(-1);
+        config.setMetricsTrackerFactory(poolStats.trackerFactory());
+
+        PerformanceProfile current = profile;
+        current.getDataSourceProperties().forEach(config::addDataSourceProperty);
+
+        HikariDataSource ds = new HikariDataSource(config);
+        poolStats.attach(ds.getHikariPoolMXBean());
+
+        if (!shutdownHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(new Thread(Db_connection::shutdown, "db-pool-shutdown"));
+            shutdownHookRegistered = true;
+        }
+        System.out.println("✅ Connection pool started (" + MIN_IDLE + "-" + MAX_POOL_SIZE + ", profile " + current + ")");
+        return ds;
     }
-}
\ No newline at end of file
+}
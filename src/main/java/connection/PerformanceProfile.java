@@ -0,0 +1,69 @@
+package connection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JDBC Performance Profile
+ * Tập thuộc tính MySQL Connector/J áp dụng cho connection pool.
+ *
+ * - DEFAULT: giữ nguyên hành vi driver (không cache statement)
+ * - TUNED:   cache PreparedStatement phía client + server, gộp batch,
+ *            cache metadata của ResultSet và cấu hình server
+ *
+ * Chọn profile bằng system property: -Ddb.profile=TUNED|DEFAULT
+ * (mặc định TUNED)
+ */
+public enum PerformanceProfile {
+
+    DEFAULT,
+    TUNED;
+
+    public static final String SYSTEM_PROPERTY = "db.profile";
+
+    // Số PreparedStatement được cache trên MỖI kết nối, và độ dài SQL tối đa được cache
+    private static final int PREP_STMT_CACHE_SIZE = 250;
+    private static final int PREP_STMT_CACHE_SQL_LIMIT = 2048;
+
+    /**
+     * Thuộc tính DataSource tương ứng với profile
+     */
+    public Map<String, String> getDataSourceProperties() {
+        Map<String, String> props = new LinkedHashMap<>();
+        if (this == TUNED) {
+            // PreparedStatement được tái sử dụng theo từng kết nối trong pool:
+            // close() trả statement về cache thay vì đóng hẳn
+            props.put("cachePrepStmts", "true");
+            props.put("prepStmtCacheSize", String.valueOf(PREP_STMT_CACHE_SIZE));
+            props.put("prepStmtCacheSqlLimit", String.valueOf(PREP_STMT_CACHE_SQL_LIMIT));
+            props.put("useServerPrepStmts", "true");
+
+            // INSERT batch được gộp thành một câu multi-row
+            props.put("rewriteBatchedStatements", "true");
+
+            // Tránh round-trip lấy metadata / cấu hình server lặp lại
+            props.put("cacheResultSetMetadata", "true");
+            props.put("cacheServerConfiguration", "true");
+            props.put("useLocalSessionState", "true");
+            props.put("elideSetAutoCommits", "true");
+            props.put("maintainTimeStats", "false");
+        }
+        return props;
+    }
+
+    /**
+     * Đọc profile từ system property, mặc định TUNED
+     */
+    public static PerformanceProfile fromSystemProperty() {
+        String value = System.getProperty(SYSTEM_PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            return TUNED;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("⚠️ Unknown db.profile '" + value + "', using TUNED");
+            return TUNED;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package connection;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection Pool Statistics
+ * Theo dõi pool kết nối: active, idle, số thread đang chờ,
+ * và histogram thời gian mượn kết nối (borrow latency).
+ *
+ * Dùng: PoolStats stats = Db_connection.getPoolStats();
+ */
+public class PoolStats {
+
+    // Biên trên (ms) của từng bucket histogram, bucket cuối là "> 1000 ms"
+    private static final long[] BUCKET_BOUNDS_MS = {1, 5, 10, 50, 100, 500, 1000};
+
+    private final AtomicLongArray borrowBuckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowNanosTotal = new LongAdder();
+    private final LongAdder usageMillisTotal = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+
+    private volatile HikariPoolMXBean poolBean;
+
+    PoolStats() {
+    }
+
+    void attach(HikariPoolMXBean bean) {
+        this.poolBean = bean;
+    }
+
+    // === Pool state ===
+
+    public int getActiveConnections() {
+        HikariPoolMXBean bean = poolBean;
+        return bean != null ? bean.getActiveConnections() : 0;
+    }
+
+    public int getIdleConnections() {
+        HikariPoolMXBean bean = poolBean;
+        return bean != null ? bean.getIdleConnections() : 0;
+    }
+
+    public int getTotalConnections() {
+        HikariPoolMXBean bean = poolBean;
+        return bean != null ? bean.getTotalConnections() : 0;
+    }
+
+    /**
+     * Số thread đang chờ mượn kết nối (pool đã hết)
+     */
+    public int getWaiters() {
+        HikariPoolMXBean bean = poolBean;
+        return bean != null ? bean.getThreadsAwaitingConnection() : 0;
+    }
+
+    // === Borrow latency ===
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.sum();
+    }
+
+    public double getAverageBorrowMillis() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0 : borrowNanosTotal.sum() / (double) count / 1_000_000.0;
+    }
+
+    public double getAverageUsageMillis() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0 : usageMillisTotal.sum() / (double) count;
+    }
+
+    /**
+     * Biên trên (ms) của các bucket; bucket cuối cùng không có biên trên
+     */
+    public static long[] getBucketBoundsMillis() {
+        return BUCKET_BOUNDS_MS.clone();
+    }
+
+    /**
+     * Số lần mượn kết nối theo từng bucket (length = bounds + 1)
+     */
+    public long[] getBorrowHistogram() {
+        long[] result = new long[borrowBuckets.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = borrowBuckets.get(i);
+        }
+        return result;
+    }
+
+    public void reset() {
+        for (int i = 0; i < borrowBuckets.length(); i++) {
+            borrowBuckets.set(i, 0);
+        }
+        borrowCount.reset();
+        borrowNanosTotal.reset();
+        usageMillisTotal.reset();
+        timeoutCount.reset();
+        createdCount.reset();
+    }
+
+    private void recordBorrow(long elapsedNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        int bucket = BUCKET_BOUNDS_MS.length;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            if (millis < BUCKET_BOUNDS_MS[i]) {
+                bucket = i;
+                break;
+            }
+        }
+        borrowBuckets.incrementAndGet(bucket);
+        borrowCount.increment();
+        borrowNanosTotal.add(elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("PoolStats{active=").append(getActiveConnections())
+          .append(", idle=").append(getIdleConnections())
+          .append(", waiters=").append(getWaiters())
+          .append(", borrows=").append(getBorrowCount())
+          .append(", timeouts=").append(getTimeoutCount())
+          .append(String.format(", avgBorrow=%.2fms", getAverageBorrowMillis()))
+          .append(", histogram=[");
+
+        long[] histogram = getBorrowHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(i < BUCKET_BOUNDS_MS.length ? "<" + BUCKET_BOUNDS_MS[i] + "ms" : ">=" + BUCKET_BOUNDS_MS[i - 1] + "ms")
+              .append(": ").append(histogram[i]);
+        }
+        return sb.append("]}").toString();
+    }
+
+    // === Hikari integration ===
+
+    MetricsTrackerFactory trackerFactory() {
+        return (poolName, hikariStats) -> new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                createdCount.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                recordBorrow(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillisTotal.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeoutCount.increment();
+            }
+        };
+    }
+}
@@ -0,0 +1,215 @@
+package connection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Schema Migration
+ * Áp dụng các file SQL có đánh số phiên bản trong resources/db/migration khi khởi động.
+ *
+ * - Tên file: V{version}__{mô_tả}.sql, khai báo theo thứ tự trong MIGRATIONS
+ * - Phiên bản đã chạy được ghi vào bảng schema_version, mỗi file chỉ chạy một lần
+ * - Các câu lệnh trong file phân tách bằng ';' (không hỗ trợ DELIMITER / trigger)
+ * - Nhiều máy khởi động cùng lúc: chỉ một máy chạy migration (GET_LOCK trên MySQL),
+ *   các máy khác chờ rồi đọc lại schema_version và bỏ qua phiên bản đã áp dụng
+ */
+public class SchemaMigrator {
+
+    private static final String MIGRATION_PATH = "/db/migration/";
+
+    // Thêm file mới vào CUỐI danh sách, không sửa file đã phát hành
+    private static final String[] MIGRATIONS = {
+        "V1__hot_path_indexes.sql",
+        "V2__expiring_contracts_index.sql",
+        "V3__billing_run_index.sql",
+        "V4__service_usage_period_key.sql",
+        "V5__change_log.sql",
+        "V6__dashboard_summary.sql",
+        "V7__keyset_pagination_indexes.sql"
+    };
+
+    // MySQL: index trùng tên (đã được tạo thủ công trước đó)
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    // Khóa tên (named lock) của MySQL dùng chung cho mọi máy trỏ vào cùng database
+    private static final String LOCK_NAME = "schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 120;
+
+    private static boolean migrated = false;
+
+    /**
+     * Chạy các migration chưa áp dụng. Lỗi được log lại, không chặn ứng dụng khởi động.
+     *
+     * @return true nếu schema đã ở phiên bản mới nhất
+     */
+    public static synchronized boolean migrate() {
+        if (migrated) {
+            return true;
+        }
+
+        try (Connection conn = Db_connection.getConnection()) {
+            acquireLock(conn);
+            try {
+                ensureVersionTable(conn);
+                // Đọc sau khi có khóa: máy giữ khóa trước đó có thể vừa áp dụng xong
+                Set<Integer> applied = loadAppliedVersions(conn);
+
+                for (String script : MIGRATIONS) {
+                    int version = parseVersion(script);
+                    if (applied.contains(version)) {
+                        continue;
+                    }
+
+                    long start = System.currentTimeMillis();
+                    for (String sql : loadStatements(script)) {
+                        execute(conn, sql);
+                    }
+                    long elapsed = System.currentTimeMillis() - start;
+
+                    recordVersion(conn, version, script, elapsed);
+                    System.out.println("✅ Applied migration " + script + " (" + elapsed + " ms)");
+                }
+            } finally {
+                releaseLock(conn);
+            }
+
+            migrated = true;
+            return true;
+
+        } catch (SQLException | IOException e) {
+            System.err.println("❌ Schema migration failed!");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Chờ tối đa LOCK_TIMEOUT_SECONDS để giữ khóa migration (khóa gắn với connection này)
+     */
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                // 1 = đã giữ khóa, 0 = hết thời gian chờ, NULL = lỗi
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for lock '" + LOCK_NAME + "'");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            // Connection trả về pool vẫn giữ khóa; lỗi ở đây thường do connection đã hỏng,
+            // pool bỏ connection đó và MySQL nhả khóa khi session kết thúc
+            e.printStackTrace();
+        }
+    }
+
+    private static void ensureVersionTable(Connection conn) throws SQLException {
+        String sql = "CREATE TABLE IF NOT EXISTS schema_version ("
+                + "  version INT PRIMARY KEY, "
+                + "  script VARCHAR(200) NOT NULL, "
+                + "  execution_ms BIGINT, "
+                + "  applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+                + ") ENGINE=InnoDB";
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static Set<Integer> loadAppliedVersions(Connection conn) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM schema_version")) {
+            while (rs.next()) {
+                versions.add(rs.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    private static void recordVersion(Connection conn, int version, String script, long elapsedMs) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, script, execution_ms) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, version);
+            pstmt.setString(2, script);
+            pstmt.setLong(3, elapsedMs);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ER_DUP_KEYNAME) {
+                System.out.println("ℹ️ Index already exists, skipped: " + sql);
+                return;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * "V12__abc.sql" -> 12
+     */
+    private static int parseVersion(String script) {
+        int end = script.indexOf("__");
+        if (!script.startsWith("V") || end < 2) {
+            throw new IllegalArgumentException("Invalid migration name: " + script);
+        }
+        return Integer.parseInt(script.substring(1, end));
+    }
+
+    /**
+     * Đọc file migration, bỏ comment "--" và tách theo ';'
+     */
+    private static List<String> loadStatements(String script) throws IOException {
+        InputStream in = SchemaMigrator.class.getResourceAsStream(MIGRATION_PATH + script);
+        if (in == null) {
+            throw new IOException("Migration not found on classpath: " + MIGRATION_PATH + script);
+        }
+
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                current.append(line).append('\n');
+
+                if (trimmed.endsWith(";")) {
+                    String sql = current.toString().trim();
+                    statements.add(sql.substring(0, sql.length() - 1));
+                    current.setLength(0);
+                }
+            }
+        }
+
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+}
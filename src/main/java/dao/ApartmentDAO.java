@@ -1,11 +1,16 @@
 package dao;
 
+import cache.ReferenceDataCache;
 import model.Apartment;
+import model.ApartmentCardViewModel;
 import connection.Db_connection;
 import java.awt.Color;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO class for Apartment operations Note: base_price removed - pricing handled
@@ -118,8 +123,15 @@ public class ApartmentDAO {
         return apartments;
     }
 
-    // Get apartment by ID
+    // Get apartment by ID (qua ReferenceDataCache, null nếu không tồn tại)
     public Apartment getApartmentById(Long id) {
+        if (id == null) {
+            return null;
+        }
+        return ReferenceDataCache.getInstance().getApartmentById(id, () -> queryApartmentById(id));
+    }
+
+    private Apartment queryApartmentById(Long id) {
         String sql = "SELECT * FROM apartments WHERE id = ? AND is_deleted = 0";
 
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -136,13 +148,144 @@ public class ApartmentDAO {
         return null;
     }
 
+    // Get apartments by IDs (bulk, 1 query thay vì N lần getApartmentById)
+    public Map<Long, Apartment> getByIds(Collection<Long> ids) {
+        Map<Long, Apartment> apartments = new LinkedHashMap<>();
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : DaoHelper.partitionIds(ids)) {
+                String sql = "SELECT * FROM apartments WHERE is_deleted = 0 AND id IN ("
+                        + DaoHelper.placeholders(chunk.size()) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Apartment apartment = mapResultSetToApartment(rs);
+                            apartments.put(apartment.getId(), apartment);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return apartments;
+    }
+
+    // --- LƯỚI THẺ CĂN HỘ: căn hộ + hợp đồng ACTIVE + người thuê trong 1 query ---
+    // Hợp đồng ACTIVE mới nhất của mỗi căn được chọn bằng subquery tương quan
+    // (dùng index idx_contracts_apartment_status), không gọi getActiveContractByApartmentId cho từng thẻ
+    private static final String CARD_SELECT
+            = "SELECT a.*, "
+            + "       c.id AS contract_id, c.contract_number, c.contract_type, c.end_date, "
+            + "       r.id AS resident_id, r.full_name AS tenant_name, r.phone AS tenant_phone "
+            + "FROM apartments a "
+            + "JOIN floors f ON a.floor_id = f.id "
+            + "LEFT JOIN contracts c ON c.id = ("
+            + "    SELECT c2.id FROM contracts c2 "
+            + "    WHERE c2.apartment_id = a.id AND c2.status = 'ACTIVE' AND c2.is_deleted = 0 "
+            + "    ORDER BY c2.created_at DESC LIMIT 1) "
+            + "LEFT JOIN residents r ON c.resident_id = r.id ";
+
+    // Get apartment cards by floor ID
+    public List<ApartmentCardViewModel> getApartmentCardsByFloor(Long floorId) {
+        String sql = CARD_SELECT
+                + "WHERE a.floor_id = ? AND a.is_deleted = 0 "
+                + "ORDER BY a.room_number";
+        return queryApartmentCards(sql, floorId);
+    }
+
+    // Get apartment cards by building ID (cả tòa nhà trong 1 round trip)
+    public List<ApartmentCardViewModel> getApartmentCardsByBuilding(Long buildingId) {
+        String sql = CARD_SELECT
+                + "WHERE f.building_id = ? AND a.is_deleted = 0 "
+                + "ORDER BY f.floor_number, a.room_number";
+        return queryApartmentCards(sql, buildingId);
+    }
+
+    /**
+     * Thẻ của các căn hộ theo id (làm mới từng thẻ khi nhận change_log)
+     * @return Map id → thẻ, theo thứ tự tầng + số phòng (căn đã xóa không có trong Map)
+     */
+    public Map<Long, ApartmentCardViewModel> getApartmentCardsByIds(Collection<Long> ids) {
+        Map<Long, ApartmentCardViewModel> cards = new LinkedHashMap<>();
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : DaoHelper.partitionIds(ids)) {
+                String sql = CARD_SELECT
+                        + "WHERE a.is_deleted = 0 AND a.id IN (" + DaoHelper.placeholders(chunk.size()) + ") "
+                        + "ORDER BY f.floor_number, a.room_number";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            ApartmentCardViewModel card = mapResultSetToCard(rs);
+                            cards.put(card.getApartment().getId(), card);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return cards;
+    }
+
+    private List<ApartmentCardViewModel> queryApartmentCards(String sql, Long id) {
+        List<ApartmentCardViewModel> cards = new ArrayList<>();
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    cards.add(mapResultSetToCard(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return cards;
+    }
+
+    private ApartmentCardViewModel mapResultSetToCard(ResultSet rs) throws SQLException {
+        ApartmentCardViewModel card = new ApartmentCardViewModel(mapResultSetToApartment(rs));
+
+        long contractId = rs.getLong("contract_id");
+        if (!rs.wasNull()) {
+            card.setContractId(contractId);
+            card.setContractNumber(rs.getString("contract_number"));
+            card.setContractType(rs.getString("contract_type"));
+
+            java.sql.Date endDate = rs.getDate("end_date");
+            if (endDate != null) {
+                card.setContractEndDate(new java.util.Date(endDate.getTime()));
+            }
+
+            long residentId = rs.getLong("resident_id");
+            if (!rs.wasNull()) {
+                card.setResidentId(residentId);
+                card.setTenantName(rs.getString("tenant_name"));
+                card.setTenantPhone(rs.getString("tenant_phone"));
+            }
+        }
+        return card;
+    }
+
     // Insert new apartment (ĐÃ BỎ base_price)
     public boolean insertApartment(Apartment apartment) {
         String sql = "INSERT INTO apartments (floor_id, room_number, area, status, description, "
                 + "apartment_type, bedroom_count, bathroom_count, is_deleted) "
                 + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0)";
 
-        try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setLong(1, apartment.getFloorId());
             pstmt.setString(2, apartment.getRoomNumber());
@@ -155,7 +298,18 @@ public class ApartmentDAO {
             pstmt.setInt(7, apartment.getBedroomCount());
             pstmt.setInt(8, apartment.getBathroomCount());
 
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        apartment.setId(keys.getLong(1));
+                    }
+                }
+                BuildingDAO.invalidateStatsCache();
+                ChangeLogDAO.record(ChangeLogDAO.APARTMENT, apartment.getId(), ChangeLogDAO.INSERT);
+                DashboardDAO.refreshApartmentCounts(DashboardDAO.getBuildingIdOfFloor(apartment.getFloorId()));
+            }
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -168,6 +322,9 @@ public class ApartmentDAO {
                 + "description = ?, apartment_type = ?, bedroom_count = ?, bathroom_count = ? "
                 + "WHERE id = ?";
 
+        // Tòa nhà cũ (căn hộ có thể được chuyển sang tầng của tòa khác) để đếm lại cả 2 tòa trên dashboard
+        Long oldBuildingId = DashboardDAO.getBuildingIdOfApartment(apartment.getId());
+
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, apartment.getFloorId());
@@ -183,7 +340,15 @@ public class ApartmentDAO {
 
             pstmt.setLong(9, apartment.getId()); // ID là tham số cuối cùng
 
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                BuildingDAO.invalidateStatsCache();
+                ReferenceDataCache.getInstance().invalidateApartment(apartment.getId());
+                ChangeLogDAO.record(ChangeLogDAO.APARTMENT, apartment.getId(), ChangeLogDAO.UPDATE);
+                DashboardDAO.refreshApartmentCounts(oldBuildingId,
+                        DashboardDAO.getBuildingIdOfFloor(apartment.getFloorId()));
+            }
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -197,7 +362,14 @@ public class ApartmentDAO {
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                BuildingDAO.invalidateStatsCache();
+                ReferenceDataCache.getInstance().invalidateApartment(id);
+                ChangeLogDAO.record(ChangeLogDAO.APARTMENT, id, ChangeLogDAO.DELETE);
+                DashboardDAO.refreshApartmentCounts(DashboardDAO.getBuildingIdOfApartment(id));
+            }
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
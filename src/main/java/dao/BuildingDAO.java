@@ -1,13 +1,24 @@
 package dao;
 
+import cache.ReferenceDataCache;
 import model.Building;
 import connection.Db_connection;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BuildingDAO {
     
+    // Cache kết quả getAllBuildingsWithStats() (dùng chung cho mọi instance DAO)
+    // Bị xóa khi tòa nhà / tầng / căn hộ / hợp đồng thay đổi, TTL để nhận thay đổi từ máy khác
+    private static final long STATS_CACHE_TTL_MS = 30_000;
+    private static final Object STATS_CACHE_LOCK = new Object();
+    private static Map<Building, BuildingStats> statsCache = null;
+    private static long statsCachedAt = 0;
+    private static long statsCacheVersion = 0;
+    
     private Building mapResultSetToBuilding(ResultSet rs) throws SQLException {
         Building building = new Building();
         building.setId(rs.getLong("id"));
@@ -30,7 +41,22 @@ public class BuildingDAO {
         return building;
     }
 
+    /**
+     * Danh sách tòa nhà (qua ReferenceDataCache), mỗi lần gọi nhận bản sao của các entity
+     */
     public List<Building> getAllBuildings() {
+        List<Building> buildings = ReferenceDataCache.getInstance().getAllBuildings(this::queryAllBuildings);
+        List<Building> result = new ArrayList<>();
+        if (buildings != null) {
+            for (Building building : buildings) {
+                result.add(copyOf(building));
+            }
+        }
+        return result;
+    }
+    
+    // null nếu lỗi để cache không giữ danh sách rỗng
+    private List<Building> queryAllBuildings() {
         List<Building> buildings = new ArrayList<>();
         // [MỚI] JOIN với bảng users để lấy tên người quản lý
         String sql = "SELECT b.*, u.full_name as manager_full_name " +
@@ -42,7 +68,7 @@ public class BuildingDAO {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) buildings.add(mapResultSetToBuilding(rs));
-        } catch (SQLException e) { e.printStackTrace(); }
+        } catch (SQLException e) { e.printStackTrace(); return null; }
         return buildings;
     }
     
@@ -74,7 +100,13 @@ public class BuildingDAO {
             
             pstmt.setString(4, building.getDescription());
             pstmt.setString(5, building.getStatus());
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                invalidateBuildingCaches();
+                ChangeLogDAO.record(ChangeLogDAO.BUILDING, (Long) null, ChangeLogDAO.INSERT);
+                DashboardDAO.refreshBuildingCounts();
+            }
+            return success;
         } catch (SQLException e) { e.printStackTrace(); }
         return false;
     }
@@ -96,7 +128,12 @@ public class BuildingDAO {
             pstmt.setString(4, building.getDescription());
             pstmt.setString(5, building.getStatus());
             pstmt.setLong(6, building.getId());
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                invalidateBuildingCaches();
+                ChangeLogDAO.record(ChangeLogDAO.BUILDING, building.getId(), ChangeLogDAO.UPDATE);
+            }
+            return success;
         } catch (SQLException e) { e.printStackTrace(); }
         return false;
     }
@@ -106,7 +143,14 @@ public class BuildingDAO {
         try (Connection conn = Db_connection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                invalidateBuildingCaches();
+                ReferenceDataCache.getInstance().invalidateFloors(id);
+                ChangeLogDAO.record(ChangeLogDAO.BUILDING, id, ChangeLogDAO.DELETE);
+                DashboardDAO.refreshBuildingCounts();
+            }
+            return success;
         } catch (SQLException e) { e.printStackTrace(); }
         return false;
     }
@@ -115,10 +159,10 @@ public class BuildingDAO {
     
     public List<Building> searchBuildingsByName(String keyword) {
         List<Building> buildings = new ArrayList<>();
-        String sql = "SELECT * FROM buildings WHERE (name LIKE ? OR address LIKE ?) AND is_deleted = 0";
+        String sql = "SELECT * FROM buildings WHERE (name LIKE ? ESCAPE '!' OR address LIKE ? ESCAPE '!') AND is_deleted = 0";
         try (Connection conn = Db_connection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            String query = "%" + keyword + "%";
+            String query = DaoHelper.likeContains(keyword);
             pstmt.setString(1, query); pstmt.setString(2, query);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) buildings.add(mapResultSetToBuilding(rs));
@@ -131,9 +175,14 @@ public class BuildingDAO {
         public int totalFloors = 0;
         public int totalApartments = 0;
         public int rentedApartments = 0;
+        public int ownedApartments = 0;
+        // Căn đang có người ở (đang thuê + đã bán), giống FloorDAO.FloorStats
+        public int getOccupiedApartments() {
+            return rentedApartments + ownedApartments;
+        }
         public int getOccupancyRate() {
             if (totalApartments == 0) return 0;
-            return (rentedApartments * 100) / totalApartments;
+            return (getOccupiedApartments() * 100) / totalApartments;
         }
     }
     
@@ -141,7 +190,7 @@ public class BuildingDAO {
         BuildingStats stats = new BuildingStats();
         String sqlFloors = "SELECT COUNT(*) FROM floors WHERE building_id = ? AND is_deleted = 0";
         String sqlApts = "SELECT COUNT(*) FROM apartments a JOIN floors f ON a.floor_id = f.id WHERE f.building_id = ? AND a.is_deleted = 0";
-        String sqlRented = "SELECT COUNT(DISTINCT c.apartment_id) FROM contracts c JOIN apartments a ON c.apartment_id = a.id JOIN floors f ON a.floor_id = f.id WHERE f.building_id = ? AND c.status = 'ACTIVE' AND c.is_deleted = 0";
+        String sqlRented = "SELECT COALESCE(SUM(a.status = 'RENTED'), 0), COALESCE(SUM(a.status = 'OWNED'), 0) FROM apartments a JOIN floors f ON a.floor_id = f.id WHERE f.building_id = ? AND a.is_deleted = 0";
 
         try (Connection conn = Db_connection.getConnection()) {
             try (PreparedStatement pst1 = conn.prepareStatement(sqlFloors)) {
@@ -154,11 +203,144 @@ public class BuildingDAO {
             }
             try (PreparedStatement pst3 = conn.prepareStatement(sqlRented)) {
                 pst3.setLong(1, buildingId);
-                try (ResultSet rs = pst3.executeQuery()) { if (rs.next()) stats.rentedApartments = rs.getInt(1); }
+                try (ResultSet rs = pst3.executeQuery()) {
+                    if (rs.next()) {
+                        stats.rentedApartments = rs.getInt(1);
+                        stats.ownedApartments = rs.getInt(2);
+                    }
+                }
             }
         } catch (SQLException e) { e.printStackTrace(); }
         return stats;
     }
+    
+    /**
+     * Tất cả tòa nhà kèm thống kê (số tầng, căn hộ, đang thuê, đã bán) trong 1 query GROUP BY,
+     * thay vì gọi getBuildingStatistics() cho từng tòa. Kết quả được cache.
+     */
+    public Map<Building, BuildingStats> getAllBuildingsWithStats() {
+        long version;
+        synchronized (STATS_CACHE_LOCK) {
+            if (statsCache != null && System.currentTimeMillis() - statsCachedAt < STATS_CACHE_TTL_MS) {
+                return copyOf(statsCache);
+            }
+            version = statsCacheVersion;
+        }
+        
+        Map<Building, BuildingStats> result = queryAllBuildingsWithStats();
+        if (result == null) {
+            return new LinkedHashMap<>(); // Không cache khi lỗi
+        }
+        
+        synchronized (STATS_CACHE_LOCK) {
+            // Bỏ qua nếu dữ liệu đã thay đổi trong lúc đang query
+            if (version == statsCacheVersion) {
+                statsCache = result;
+                statsCachedAt = System.currentTimeMillis();
+            }
+        }
+        return copyOf(result);
+    }
+    
+    /**
+     * Giống getAllBuildingsWithStats() nhưng luôn đọc từ DB (không qua cache 30s),
+     * dùng khi xuất báo cáo
+     */
+    public Map<Building, BuildingStats> getAllBuildingsWithStatsFresh() {
+        Map<Building, BuildingStats> result = queryAllBuildingsWithStats();
+        return result != null ? result : new LinkedHashMap<>();
+    }
+    
+    /**
+     * @return null nếu lỗi
+     */
+    private Map<Building, BuildingStats> queryAllBuildingsWithStats() {
+        Map<Building, BuildingStats> result = new LinkedHashMap<>();
+        // rented / owned theo apartments.status, cùng định nghĩa với ApartmentDAO.countRentedApartments,
+        // DashboardDAO và FloorDAO (1 con số "đang thuê" cho mọi màn hình / báo cáo)
+        String sql = "SELECT b.*, u.full_name AS manager_full_name, " +
+                     "       COALESCE(fs.floor_count, 0) AS floor_count, " +
+                     "       COALESCE(aps.apartment_count, 0) AS apartment_count, " +
+                     "       COALESCE(aps.rented_count, 0) AS rented_count, " +
+                     "       COALESCE(aps.owned_count, 0) AS owned_count " +
+                     "FROM buildings b " +
+                     "LEFT JOIN users u ON b.manager_user_id = u.id " +
+                     "LEFT JOIN (SELECT building_id, COUNT(*) AS floor_count " +
+                     "           FROM floors WHERE is_deleted = 0 GROUP BY building_id) fs " +
+                     "       ON fs.building_id = b.id " +
+                     "LEFT JOIN (SELECT f.building_id, COUNT(*) AS apartment_count, " +
+                     "                  SUM(a.status = 'OWNED') AS owned_count, " +
+                     "                  SUM(a.status = 'RENTED') AS rented_count " +
+                     "           FROM apartments a JOIN floors f ON a.floor_id = f.id " +
+                     "           WHERE a.is_deleted = 0 GROUP BY f.building_id) aps " +
+                     "       ON aps.building_id = b.id " +
+                     "WHERE b.is_deleted = 0 ORDER BY b.id DESC";
+        
+        try (Connection conn = Db_connection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                BuildingStats stats = new BuildingStats();
+                stats.totalFloors = rs.getInt("floor_count");
+                stats.totalApartments = rs.getInt("apartment_count");
+                stats.rentedApartments = rs.getInt("rented_count");
+                stats.ownedApartments = rs.getInt("owned_count");
+                result.put(mapResultSetToBuilding(rs), stats);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return result;
+    }
+    
+    /**
+     * Bản sao cho người gọi: entity trong cache không bị sửa theo
+     * (BuildingDialog sửa thẳng Building được truyền vào, kể cả khi lưu thất bại / hủy)
+     */
+    private static Map<Building, BuildingStats> copyOf(Map<Building, BuildingStats> source) {
+        Map<Building, BuildingStats> copy = new LinkedHashMap<>();
+        for (Map.Entry<Building, BuildingStats> entry : source.entrySet()) {
+            BuildingStats stats = new BuildingStats();
+            stats.totalFloors = entry.getValue().totalFloors;
+            stats.totalApartments = entry.getValue().totalApartments;
+            stats.rentedApartments = entry.getValue().rentedApartments;
+            stats.ownedApartments = entry.getValue().ownedApartments;
+            copy.put(copyOf(entry.getKey()), stats);
+        }
+        return copy;
+    }
+    
+    private static Building copyOf(Building source) {
+        Building copy = new Building();
+        copy.setId(source.getId());
+        copy.setName(source.getName());
+        copy.setAddress(source.getAddress());
+        copy.setDescription(source.getDescription());
+        copy.setManagerUserId(source.getManagerUserId());
+        copy.setManagerName(source.getManagerName());
+        copy.setStatus(source.getStatus());
+        copy.setDeleted(source.isDeleted());
+        return copy;
+    }
+    
+    /**
+     * Xóa cache thống kê tòa nhà. Gọi sau khi thêm / sửa / xóa tòa nhà, tầng, căn hộ, hợp đồng.
+     */
+    public static void invalidateStatsCache() {
+        synchronized (STATS_CACHE_LOCK) {
+            statsCache = null;
+            statsCacheVersion++;
+        }
+    }
+    
+    /**
+     * Tòa nhà thay đổi: xóa cả danh sách tòa nhà (ReferenceDataCache) lẫn cache thống kê
+     */
+    private static void invalidateBuildingCaches() {
+        ReferenceDataCache.getInstance().invalidateBuildings();
+        invalidateStatsCache();
+    }
 
     
     public int countBuildings() {
@@ -253,6 +435,14 @@ public class BuildingDAO {
             }
 
             conn.commit(); // Xác nhận lưu tất cả thay đổi
+            invalidateBuildingCaches();
+            // Tầng + căn hộ của tòa cũng đổi trạng thái
+            ReferenceDataCache.getInstance().invalidateFloors(buildingId);
+            ReferenceDataCache.getInstance().invalidateAllApartments();
+            ChangeLogDAO.record(ChangeLogDAO.BUILDING, buildingId, ChangeLogDAO.UPDATE);
+            ChangeLogDAO.record(ChangeLogDAO.FLOOR, (Long) null, ChangeLogDAO.UPDATE);
+            ChangeLogDAO.record(ChangeLogDAO.APARTMENT, (Long) null, ChangeLogDAO.UPDATE);
+            DashboardDAO.refreshApartmentCounts(buildingId);
             return true;
 
         } catch (SQLException e) {
@@ -0,0 +1,190 @@
+package dao;
+
+import connection.Db_connection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DAO cho bảng change_log (V5)
+ * Các DAO khác gọi record(...) sau khi ghi thành công để máy khác biết mà làm mới;
+ * ChangeLogPoller đọc lại bằng getChangesSince(...).
+ *
+ * Ghi change log là best-effort: lỗi chỉ được log, không làm hỏng thao tác chính
+ * (máy khác vẫn nhận thay đổi khi cache hết TTL hoặc tải lại màn hình).
+ */
+public class ChangeLogDAO {
+
+    // --- Entity ---
+    public static final String BUILDING = "BUILDING";
+    public static final String FLOOR = "FLOOR";
+    public static final String APARTMENT = "APARTMENT";
+    public static final String SERVICE = "SERVICE";
+    public static final String CONTRACT = "CONTRACT";
+    public static final String INVOICE = "INVOICE";
+
+    // --- Action ---
+    public static final String INSERT = "INSERT";
+    public static final String UPDATE = "UPDATE";
+    public static final String DELETE = "DELETE";
+
+    /**
+     * Một dòng change_log
+     */
+    public static class ChangeEvent {
+        public long version;
+        public String entity;
+        public Long entityId;      // null = thay đổi hàng loạt
+        public String action;
+        public Timestamp changedAt;
+
+        @Override
+        public String toString() {
+            return "#" + version + " " + action + " " + entity + (entityId != null ? ":" + entityId : ":*");
+        }
+    }
+
+    /**
+     * Ghi 1 thay đổi
+     *
+     * @param entityId null nếu thay đổi hàng loạt / không biết id
+     */
+    public static void record(String entity, Long entityId, String action) {
+        record(entity, Collections.singletonList(entityId), action);
+    }
+
+    /**
+     * Ghi nhiều thay đổi cùng loại trong 1 batch (vd. lập hóa đơn hàng loạt)
+     */
+    public static void record(String entity, Collection<Long> entityIds, String action) {
+        if (entityIds == null || entityIds.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO change_log (entity, entity_id, action) VALUES (?, ?, ?)";
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (Long id : entityIds) {
+                pstmt.setString(1, entity);
+                if (id != null) {
+                    pstmt.setLong(2, id);
+                } else {
+                    pstmt.setNull(2, Types.BIGINT);
+                }
+                pstmt.setString(3, action);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+
+        } catch (SQLException e) {
+            System.err.println("⚠️ Cannot write change_log for " + entity + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Các thay đổi có version > afterVersion, theo thứ tự version tăng dần
+     *
+     * @return danh sách thay đổi, null nếu lỗi (vd. bảng chưa được tạo)
+     */
+    public List<ChangeEvent> getChangesSince(long afterVersion, int limit) {
+        String sql = "SELECT version, entity, entity_id, action, changed_at FROM change_log "
+                + "WHERE version > ? ORDER BY version LIMIT ?";
+
+        List<ChangeEvent> events = new ArrayList<>();
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, afterVersion);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(mapEvent(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return events;
+    }
+
+    /**
+     * Đọc các version cụ thể (lỗ hổng version do transaction commit không theo thứ tự,
+     * xem ChangeLogPoller). Version chưa commit / đã rollback đơn giản là không có trong kết quả.
+     *
+     * @return danh sách thay đổi theo version tăng dần, null nếu lỗi
+     */
+    public List<ChangeEvent> getChangesByVersions(Collection<Long> versions) {
+        List<ChangeEvent> events = new ArrayList<>();
+        for (List<Long> chunk : DaoHelper.partitionIds(versions)) {
+            String sql = "SELECT version, entity, entity_id, action, changed_at FROM change_log "
+                    + "WHERE version IN (" + DaoHelper.placeholders(chunk.size()) + ") ORDER BY version";
+
+            try (Connection conn = Db_connection.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        events.add(mapEvent(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return events;
+    }
+
+    private static ChangeEvent mapEvent(ResultSet rs) throws SQLException {
+        ChangeEvent event = new ChangeEvent();
+        event.version = rs.getLong("version");
+        event.entity = rs.getString("entity");
+        long id = rs.getLong("entity_id");
+        event.entityId = rs.wasNull() ? null : id;
+        event.action = rs.getString("action");
+        event.changedAt = rs.getTimestamp("changed_at");
+        return event;
+    }
+
+    /**
+     * Version mới nhất (0 nếu bảng rỗng, -1 nếu lỗi)
+     */
+    public long getLatestVersion() {
+        String sql = "SELECT COALESCE(MAX(version), 0) FROM change_log";
+        try (Connection conn = Db_connection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    /**
+     * Xóa các dòng cũ hơn số giờ cho trước
+     *
+     * @return số dòng đã xóa, -1 nếu lỗi
+     */
+    public int purgeOlderThan(int hours) {
+        String sql = "DELETE FROM change_log WHERE changed_at < NOW() - INTERVAL ? HOUR";
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, hours);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+}
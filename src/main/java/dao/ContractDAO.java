@@ -1,5 +1,6 @@
 package dao;
 
+import cache.ReferenceDataCache;
 import model.Contract;
 import model.ContractHistory;
 import model.User;
@@ -8,7 +9,11 @@ import util.SessionManager;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ContractDAO - FINAL FULL VERSION
@@ -32,8 +37,33 @@ public class ContractDAO {
         return null;
     }
 
-    // --- HELPER: Mapping ResultSet to Contract (UPDATED) ---
-    private Contract mapResultSetToContract(ResultSet rs) throws SQLException {
+    // --- HELPER: Building của user hiện tại (null = admin / không giới hạn), dùng chung với DashboardDAO ---
+    static Long getScopedBuildingId() {
+        User currentUser = SessionManager.getInstance().getCurrentUser();
+        if (currentUser != null && !currentUser.isAdmin()) {
+            return currentUser.getBuildingId();
+        }
+        return null;
+    }
+
+    // --- HELPER: Ghi change_log cho hợp đồng + căn hộ của nó (trạng thái / người thuê trên thẻ căn hộ) ---
+    // Kèm cập nhật số hợp đồng hiệu lực / số căn hộ đã thuê trên dashboard_summary (chỉ tòa nhà của căn hộ,
+    // oldBuildingId = tòa nhà trước khi sửa nếu hợp đồng được chuyển sang căn hộ khác)
+    private void recordChange(Long contractId, Long apartmentId, String action, Long... oldBuildingIds) {
+        ChangeLogDAO.record(ChangeLogDAO.CONTRACT, contractId, action);
+        if (apartmentId != null) {
+            ChangeLogDAO.record(ChangeLogDAO.APARTMENT, apartmentId, ChangeLogDAO.UPDATE);
+        }
+        Long buildingId = apartmentId != null
+                ? DashboardDAO.getBuildingIdOfApartment(apartmentId)
+                : DashboardDAO.getBuildingIdOfContract(contractId);
+        Long[] buildingIds = Arrays.copyOf(oldBuildingIds, oldBuildingIds.length + 1);
+        buildingIds[oldBuildingIds.length] = buildingId;
+        DashboardDAO.refreshContractAndApartmentCounts(buildingIds);
+    }
+
+    // --- HELPER: Mapping ResultSet to Contract (UPDATED), dùng chung với ContractListViewDAO ---
+    static Contract mapResultSetToContract(ResultSet rs) throws SQLException {
         Contract contract = new Contract();
         contract.setId(rs.getLong("id"));
         contract.setContractNumber(rs.getString("contract_number"));
@@ -124,6 +154,37 @@ public class ContractDAO {
         return null;
     }
 
+    // --- GET CONTRACTS BY IDS (BULK) ---
+    /**
+     * Lấy nhiều hợp đồng trong 1 query (thay vì gọi getContractById từng dòng)
+     * @return Map id → Contract (id không tồn tại/đã xóa sẽ không có trong Map)
+     */
+    public Map<Long, Contract> getByIds(Collection<Long> ids) {
+        Map<Long, Contract> contracts = new LinkedHashMap<>();
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : DaoHelper.partitionIds(ids)) {
+                String sql = "SELECT * FROM contracts WHERE is_deleted = 0 AND id IN ("
+                        + DaoHelper.placeholders(chunk.size()) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Contract contract = mapResultSetToContract(rs);
+                            contracts.put(contract.getId(), contract);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return contracts;
+    }
+
     // --- GET CONTRACT BY CONTRACT NUMBER ---
     public Contract getContractByNumber(String contractNumber) {
         String sql = "SELECT * FROM contracts WHERE contract_number = ? AND is_deleted = 0";
@@ -165,6 +226,38 @@ public class ContractDAO {
         return contracts;
     }
 
+    // --- GET ACTIVE CONTRACTS (tất cả hoặc theo tòa nhà) ---
+    /**
+     * Hợp đồng ACTIVE, sắp theo id
+     * @param buildingId null = tất cả tòa nhà
+     */
+    public List<Contract> getActiveContracts(Long buildingId) {
+        List<Contract> contracts = new ArrayList<>();
+        String sql = "SELECT c.* FROM contracts c "
+                + (buildingId != null
+                        ? "INNER JOIN apartments a ON c.apartment_id = a.id "
+                        + "INNER JOIN floors f ON a.floor_id = f.id "
+                        : "")
+                + "WHERE c.status = 'ACTIVE' AND c.is_deleted = 0 "
+                + (buildingId != null ? "AND f.building_id = ? " : "")
+                + "ORDER BY c.id";
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            if (buildingId != null) {
+                pstmt.setLong(1, buildingId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    contracts.add(mapResultSetToContract(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return contracts;
+    }
+
     // --- GET ACTIVE CONTRACTS BY APARTMENT ---
     public List<Contract> getActiveContractsByApartment(Long apartmentId) {
         List<Contract> contracts = new ArrayList<>();
@@ -295,6 +388,9 @@ public class ContractDAO {
                 }
 
                 conn.commit(); // Commit Transaction
+                BuildingDAO.invalidateStatsCache(); // Trạng thái căn hộ đã đổi
+                ReferenceDataCache.getInstance().invalidateApartment(contract.getApartmentId());
+                recordChange(contract.getId(), contract.getApartmentId(), ChangeLogDAO.INSERT);
                 return true;
 
             } catch (SQLException e) {
@@ -316,6 +412,9 @@ public class ContractDAO {
                 + "deposit_amount = ?, monthly_rent = ?, status = ?, notes = ? "
                 + "WHERE id = ?";
 
+        // Tòa nhà trước khi sửa (hợp đồng có thể đổi căn hộ) để đếm lại cả 2 tòa trên dashboard
+        Long oldBuildingId = DashboardDAO.getBuildingIdOfContract(contract.getId());
+
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             int idx = 1;
@@ -362,6 +461,8 @@ public class ContractDAO {
 
             // LOG TO HISTORY - UPDATED
             if (success) {
+                BuildingDAO.invalidateStatsCache();
+                recordChange(contract.getId(), contract.getApartmentId(), ChangeLogDAO.UPDATE, oldBuildingId);
                 try {
                     ContractHistory history = new ContractHistory();
                     history.setContractId(contract.getId());
@@ -426,6 +527,7 @@ public class ContractDAO {
 
             // LOG TO HISTORY - RENEWED
             if (success) {
+                recordChange(contractId, contract.getApartmentId(), ChangeLogDAO.UPDATE);
                 try {
                     ContractHistory history = new ContractHistory();
                     history.setContractId(contractId);
@@ -487,6 +589,9 @@ public class ContractDAO {
                 }
 
                 conn.commit();
+                BuildingDAO.invalidateStatsCache();
+                ReferenceDataCache.getInstance().invalidateApartment(apartmentId);
+                recordChange(contractId, apartmentId, ChangeLogDAO.UPDATE);
                 return true;
 
             } catch (SQLException e) {
@@ -546,6 +651,11 @@ public class ContractDAO {
                 contractHistoryDAO.insert(history); 
 
                 conn.commit();
+                BuildingDAO.invalidateStatsCache();
+                if (apartmentId != null) {
+                    ReferenceDataCache.getInstance().invalidateApartment(apartmentId);
+                }
+                recordChange(contractId, apartmentId, ChangeLogDAO.DELETE);
                 return true;
 
             } catch (SQLException e) {
@@ -563,14 +673,14 @@ public class ContractDAO {
      * Count contracts by status with building filter
      */
     public int countContractsByStatus(String status) {
-        User currentUser = SessionManager.getInstance().getCurrentUser();
+        Long buildingId = getScopedBuildingId();
         
         String sql = "SELECT COUNT(*) FROM contracts c " +
                      "JOIN apartments a ON c.apartment_id = a.id " +
                      "JOIN floors f ON a.floor_id = f.id " +
                      "WHERE c.status = ? AND c.is_deleted = 0 ";
         
-        if (currentUser != null && !currentUser.isAdmin() && currentUser.getBuildingId() != null) {
+        if (buildingId != null) {
             sql += "AND f.building_id = ?";
         }
         
@@ -579,8 +689,8 @@ public class ContractDAO {
             
             ps.setString(1, status);
             
-            if (currentUser != null && !currentUser.isAdmin() && currentUser.getBuildingId() != null) {
-                ps.setLong(2, currentUser.getBuildingId());
+            if (buildingId != null) {
+                ps.setLong(2, buildingId);
             }
             
             ResultSet rs = ps.executeQuery();
@@ -599,21 +709,28 @@ public class ContractDAO {
 
     /**
      * Get expiring contracts with building filter
+     * Chỉ hợp đồng RENTAL đang ACTIVE có end_date trong [hôm nay, hôm nay + daysThreshold]
      */
     public List<Contract> getExpiringContracts(int daysThreshold) {
+        return getExpiringContracts(daysThreshold, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get expiring contracts (phân trang), sắp xếp theo end_date gần nhất trước
+     */
+    public List<Contract> getExpiringContracts(int daysThreshold, int offset, int limit) {
         List<Contract> contracts = new ArrayList<>();
-        String sql = "SELECT * FROM contracts "
-                + "WHERE contract_type = 'RENTAL' "
-                + // ✅ Only RENTAL contracts expire
-                "AND end_date IS NOT NULL "
-                + "AND DATEDIFF(end_date, CURDATE()) BETWEEN 0 AND ? "
-                + "AND status = 'ACTIVE' "
-                + "AND is_deleted = 0 "
-                + "ORDER BY end_date ASC";
+        Long buildingId = getScopedBuildingId();
+
+        String sql = "SELECT c.* " + expiringContractsFromWhere(buildingId)
+                + "ORDER BY c.end_date ASC, c.id ASC "
+                + "LIMIT ? OFFSET ?";
 
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
-            pstmt.setInt(1, daysThreshold);
+            int idx = setExpiringContractsParams(pstmt, daysThreshold, buildingId);
+            pstmt.setInt(idx++, limit);
+            pstmt.setInt(idx, offset);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
                     contracts.add(mapResultSetToContract(rs));
@@ -625,6 +742,55 @@ public class ContractDAO {
         return contracts;
     }
 
+    /**
+     * Count expiring contracts with building filter (cùng điều kiện với getExpiringContracts)
+     */
+    public int countExpiringContracts(int daysThreshold) {
+        Long buildingId = getScopedBuildingId();
+        String sql = "SELECT COUNT(*) " + expiringContractsFromWhere(buildingId);
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            setExpiringContractsParams(pstmt, daysThreshold, buildingId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    // Điều kiện dạng range trên end_date (không bọc cột trong hàm) để dùng được
+    // index idx_contracts_expiring (status, contract_type, end_date)
+    private String expiringContractsFromWhere(Long buildingId) {
+        String sql = "FROM contracts c ";
+        if (buildingId != null) {
+            sql += "JOIN apartments a ON c.apartment_id = a.id "
+                    + "JOIN floors f ON a.floor_id = f.id ";
+        }
+        sql += "WHERE c.status = 'ACTIVE' "
+                + "AND c.contract_type = 'RENTAL' " // ✅ Only RENTAL contracts expire
+                + "AND c.end_date >= CURDATE() "
+                + "AND c.end_date <= CURDATE() + INTERVAL ? DAY "
+                + "AND c.is_deleted = 0 ";
+        if (buildingId != null) {
+            sql += "AND f.building_id = ? ";
+        }
+        return sql;
+    }
+
+    private int setExpiringContractsParams(PreparedStatement pstmt, int daysThreshold, Long buildingId) throws SQLException {
+        int idx = 1;
+        pstmt.setInt(idx++, daysThreshold);
+        if (buildingId != null) {
+            pstmt.setLong(idx++, buildingId);
+        }
+        return idx;
+    }
+
     // --- COUNT INVOICES BY CONTRACT ---
     public int countInvoicesByContract(Long contractId) {
         String sql = "SELECT COUNT(*) FROM invoices WHERE contract_id = ? AND is_deleted = 0";
@@ -5,7 +5,9 @@ import connection.Db_connection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * DAO for Contract + Household View
@@ -76,9 +78,20 @@ public class ContractHouseholdViewDAO {
     
     /**
      * Search contracts by keyword (resident name, phone, apartment)
+     * Tên / SĐT chủ hộ tra qua ResidentSearchIndex (không dấu), số phòng vẫn LIKE.
+     * Tên phổ biến có nhiều chủ hộ khớp hơn 1 câu IN: đọc hợp đồng của tòa nhà và lọc trong bộ nhớ
+     * (lọc theo tòa nhà trước, không cắt bớt kết quả của chỉ mục)
      */
     public List<ContractHouseholdViewModel> searchContracts(Long buildingId, String keyword) {
+        List<Long> residentIds = ResidentDAO.searchIds(keyword).residentIds;
+        if (residentIds.size() > DaoHelper.IN_CLAUSE_CHUNK_SIZE) {
+            return filterByResidentOrRoom(getContractsByBuilding(buildingId), residentIds, keyword);
+        }
+        
         List<ContractHouseholdViewModel> list = new ArrayList<>();
+        String residentMatch = residentIds.isEmpty()
+            ? ""
+            : "r.id IN (" + DaoHelper.placeholders(residentIds.size()) + ") OR ";
         
         String sql = 
             "SELECT " +
@@ -117,17 +130,18 @@ public class ContractHouseholdViewDAO {
             "  AND c.is_deleted = 0 " +
             "  AND a.is_deleted = 0 " +
             "  AND r.is_deleted = 0 " +
-            "  AND (r.full_name LIKE ? OR r.phone LIKE ? OR a.room_number LIKE ?) " +
+            "  AND (" + residentMatch + "a.room_number LIKE ? ESCAPE '!') " +
             "ORDER BY f.floor_number, a.room_number";
         
         try (Connection conn = Db_connection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setLong(1, buildingId);
-            String pattern = "%" + keyword + "%";
-            pstmt.setString(2, pattern);
-            pstmt.setString(3, pattern);
-            pstmt.setString(4, pattern);
+            int index = 1;
+            pstmt.setLong(index++, buildingId);
+            for (Long residentId : residentIds) {
+                pstmt.setLong(index++, residentId);
+            }
+            pstmt.setString(index, DaoHelper.likeContains(keyword));
             
             ResultSet rs = pstmt.executeQuery();
             
@@ -141,6 +155,23 @@ public class ContractHouseholdViewDAO {
         return list;
     }
     
+    /**
+     * Giữ hợp đồng có chủ hộ trong residentIds hoặc số phòng chứa keyword (giống LIKE '%keyword%')
+     */
+    private static List<ContractHouseholdViewModel> filterByResidentOrRoom(List<ContractHouseholdViewModel> contracts,
+                                                                          List<Long> residentIds, String keyword) {
+        Set<Long> residents = new HashSet<>(residentIds);
+        String room = keyword.toLowerCase();
+        List<ContractHouseholdViewModel> list = new ArrayList<>();
+        for (ContractHouseholdViewModel vm : contracts) {
+            if (residents.contains(vm.getResidentId())
+                    || (vm.getApartmentNumber() != null && vm.getApartmentNumber().toLowerCase().contains(room))) {
+                list.add(vm);
+            }
+        }
+        return list;
+    }
+    
     /**
      * Count contracts by building
      */
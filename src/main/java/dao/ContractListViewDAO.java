@@ -0,0 +1,93 @@
+package dao;
+
+import model.ContractListViewModel;
+import connection.Db_connection;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DAO cho danh sách Hợp Đồng (Tab Hợp Đồng)
+ * Query: contracts JOIN apartments → floors, residents
+ * Trả về hợp đồng kèm số phòng / tòa nhà / chủ hộ trong 1 query (không N+1)
+ */
+public class ContractListViewDAO {
+
+    // Cùng điều kiện với ApartmentDAO.getApartmentById / ResidentDAO.getResidentById (bỏ bản ghi đã xóa)
+    private static final String BASE_SELECT =
+        "SELECT c.*, " +
+        "    a.room_number, " +
+        "    f.building_id, " +
+        "    r.full_name AS resident_name " +
+        "FROM contracts c " +
+        "LEFT JOIN apartments a ON c.apartment_id = a.id AND a.is_deleted = 0 " +
+        "LEFT JOIN floors f ON a.floor_id = f.id " +
+        "LEFT JOIN residents r ON c.resident_id = r.id AND r.is_deleted = 0 ";
+
+    /**
+     * Tất cả hợp đồng, mới nhất trước - tương đương ContractDAO.getAllContracts()
+     * (1 query: bộ lọc trong bộ nhớ của tab Hợp Đồng cần toàn bộ danh sách)
+     */
+    public List<ContractListViewModel> getAllContracts() {
+        String sql = BASE_SELECT +
+            "WHERE c.is_deleted = 0 " +
+            "ORDER BY c.created_at DESC, c.id DESC";
+
+        List<ContractListViewModel> list = new ArrayList<>();
+        try (Connection conn = Db_connection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                list.add(mapToViewModel(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Nhiều hợp đồng theo id (cập nhật các dòng bị thay đổi từ máy khác)
+     * @return Map id → view model (id không tồn tại/đã xóa sẽ không có trong Map)
+     */
+    public Map<Long, ContractListViewModel> getByIds(Collection<Long> ids) {
+        Map<Long, ContractListViewModel> contracts = new LinkedHashMap<>();
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : DaoHelper.partitionIds(ids)) {
+                String sql = BASE_SELECT +
+                    "WHERE c.is_deleted = 0 AND c.id IN (" + DaoHelper.placeholders(chunk.size()) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            ContractListViewModel vm = mapToViewModel(rs);
+                            contracts.put(vm.getContractId(), vm);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return contracts;
+    }
+
+    private ContractListViewModel mapToViewModel(ResultSet rs) throws SQLException {
+        ContractListViewModel vm = new ContractListViewModel();
+        vm.setContract(ContractDAO.mapResultSetToContract(rs));
+        vm.setRoomNumber(rs.getString("room_number"));
+        long buildingId = rs.getLong("building_id");
+        vm.setBuildingId(rs.wasNull() ? null : buildingId);
+        vm.setResidentName(rs.getString("resident_name"));
+        return vm;
+    }
+}
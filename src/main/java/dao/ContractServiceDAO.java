@@ -4,7 +4,10 @@ import model.ContractService;
 import connection.Db_connection;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO class for ContractService operations
@@ -102,6 +105,40 @@ public class ContractServiceDAO {
         return services;
     }
     
+    // --- GET ACTIVE SERVICES BY CONTRACT IDS (BULK) ---
+    /**
+     * Giống getActiveServicesByContract() nhưng cho nhiều hợp đồng trong 1 query / 500 id
+     * @return Map contractId → danh sách dịch vụ (hợp đồng không có dịch vụ sẽ không có trong Map)
+     */
+    public Map<Long, List<ContractService>> getActiveServicesByContractIds(Collection<Long> contractIds) {
+        Map<Long, List<ContractService>> result = new HashMap<>();
+        
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : DaoHelper.partitionIds(contractIds)) {
+                String sql = "SELECT cs.*, s.service_name, s.unit_type " +
+                             "FROM contract_services cs " +
+                             "INNER JOIN services s ON cs.service_id = s.id " +
+                             "WHERE cs.contract_id IN (" + DaoHelper.placeholders(chunk.size()) + ") " +
+                             "ORDER BY cs.contract_id, s.service_name";
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            ContractService cs = mapResultSetWithService(rs);
+                            result.computeIfAbsent(cs.getContractId(), k -> new ArrayList<>()).add(cs);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+    
     // --- GET CONTRACT SERVICE BY ID ---
     public ContractService getById(Long id) {
         String sql = "SELECT cs.*, s.service_name, s.unit_type " +
@@ -0,0 +1,65 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Helper dùng chung cho các DAO
+ * Chia danh sách ID thành từng nhóm cho câu truy vấn IN (?, ?, ...)
+ * Mẫu LIKE '%từ khóa%' đã escape ký tự đại diện
+ */
+final class DaoHelper {
+
+    // Số tham số tối đa cho một câu IN (...)
+    static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    private DaoHelper() {
+    }
+
+    /**
+     * Bỏ null/trùng lặp và chia thành từng nhóm tối đa IN_CLAUSE_CHUNK_SIZE phần tử
+     */
+    static List<List<Long>> partitionIds(Collection<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return chunks;
+        }
+
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.removeIf(id -> id == null);
+
+        for (int i = 0; i < distinct.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            chunks.add(distinct.subList(i, Math.min(i + IN_CLAUSE_CHUNK_SIZE, distinct.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * "?, ?, ?" với n dấu hỏi
+     */
+    static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Mẫu "%keyword%" cho "LIKE ? ESCAPE '!'": %, _ và ! trong từ khóa được escape
+     * (gõ "50%" hay "A_1" tìm đúng chuỗi đó, không thành ký tự đại diện)
+     */
+    static String likeContains(String keyword) {
+        StringBuilder sb = new StringBuilder("%");
+        for (char ch : keyword.toCharArray()) {
+            if (ch == '!' || ch == '%' || ch == '_') {
+                sb.append('!');
+            }
+            sb.append(ch);
+        }
+        return sb.append('%').toString();
+    }
+}
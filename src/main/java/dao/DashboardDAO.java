@@ -0,0 +1,624 @@
+package dao;
+
+import connection.Db_connection;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * DAO cho các bảng tổng hợp của Dashboard (V6): dashboard_summary + monthly_revenue_summary
+ *
+ * - Đọc: getSummary(...) lấy toàn bộ số liệu dashboard bằng 1 query, không phụ thuộc số dòng dữ liệu
+ * - Ghi: các DAO gọi refresh*() sau khi ghi thành công; mỗi hàm chỉ tính lại phần bị ảnh hưởng
+ *   (số căn hộ / hợp đồng của đúng tòa nhà bị ghi, đúng 1 kỳ hóa đơn...) từ bảng gốc
+ *
+ * Dòng của tòa nhà được đếm lại từ bảng gốc; dòng toàn hệ thống (scope_id = 0) được cộng / trừ
+ * đúng phần chênh lệch của dòng tòa nhà trong cùng transaction (dòng tòa nhà bị khóa FOR UPDATE),
+ * nên dòng 0 luôn bằng tổng các dòng tòa nhà kể cả khi nhiều máy cùng ghi.
+ * Refresh chạy ở READ COMMITTED: câu đếm là consistent read, không khóa các dòng căn hộ / hợp đồng
+ * đã quét (REPEATABLE READ sẽ giữ shared next-key lock, chặn lệnh lưu của máy khác).
+ * Refresh là best-effort: lỗi chỉ được log, lần ghi sau của cùng tòa nhà sẽ đếm lại đúng.
+ */
+public class DashboardDAO {
+
+    private static final long GLOBAL_SCOPE = 0L;
+
+    // Dòng toàn hệ thống (scope_id = 0) chỉ được tạo bởi rebuildAll(); các refresh dùng UPDATE
+    // nên trước lần rebuild đầu tiên không tạo ra dòng thiếu số liệu
+    private static final String SQL_INIT_GLOBAL =
+        "INSERT INTO dashboard_summary (scope_id) VALUES (0)";
+
+    // Cùng điều kiện với BuildingDAO.countBuildings / ResidentDAO.countResidents
+    private static final String SQL_BUILDINGS =
+        "UPDATE dashboard_summary SET buildings = " +
+        "(SELECT COUNT(*) FROM buildings WHERE is_deleted = 0) WHERE scope_id = 0";
+
+    private static final String SQL_RESIDENTS =
+        "UPDATE dashboard_summary SET residents = " +
+        "(SELECT COUNT(*) FROM residents WHERE is_deleted = 0) WHERE scope_id = 0";
+
+    // Cùng điều kiện với ApartmentDAO.countApartments / countAvailableApartments / countRentedApartments
+    private static final String SQL_APARTMENTS_GLOBAL =
+        "UPDATE dashboard_summary d JOIN (" +
+        "    SELECT COUNT(*) AS total, COALESCE(SUM(status = 'AVAILABLE'), 0) AS available, " +
+        "           COALESCE(SUM(status = 'RENTED'), 0) AS rented " +
+        "    FROM apartments WHERE is_deleted = 0" +
+        ") x SET d.apartments = x.total, d.available_apartments = x.available, d.rented_apartments = x.rented " +
+        "WHERE d.scope_id = 0";
+
+    private static final String SQL_APARTMENTS_RESET =
+        "UPDATE dashboard_summary SET apartments = 0, available_apartments = 0, rented_apartments = 0 " +
+        "WHERE scope_id <> 0";
+
+    private static final String SQL_APARTMENTS_BY_BUILDING =
+        "INSERT INTO dashboard_summary (scope_id, apartments, available_apartments, rented_apartments) " +
+        "SELECT f.building_id, COUNT(*), SUM(a.status = 'AVAILABLE'), SUM(a.status = 'RENTED') " +
+        "FROM apartments a JOIN floors f ON a.floor_id = f.id " +
+        "WHERE a.is_deleted = 0 GROUP BY f.building_id " +
+        "ON DUPLICATE KEY UPDATE apartments = VALUES(apartments), " +
+        "available_apartments = VALUES(available_apartments), rented_apartments = VALUES(rented_apartments)";
+
+    // Cùng điều kiện với ContractDAO.countContractsByStatus("ACTIVE") (có / không lọc theo tòa)
+    private static final String SQL_CONTRACTS_GLOBAL =
+        "UPDATE dashboard_summary SET active_contracts = (" +
+        "    SELECT COUNT(*) FROM contracts c " +
+        "    JOIN apartments a ON c.apartment_id = a.id " +
+        "    JOIN floors f ON a.floor_id = f.id " +
+        "    WHERE c.status = 'ACTIVE' AND c.is_deleted = 0" +
+        ") WHERE scope_id = 0";
+
+    private static final String SQL_CONTRACTS_RESET =
+        "UPDATE dashboard_summary SET active_contracts = 0 WHERE scope_id <> 0";
+
+    private static final String SQL_CONTRACTS_BY_BUILDING =
+        "INSERT INTO dashboard_summary (scope_id, active_contracts) " +
+        "SELECT f.building_id, COUNT(*) FROM contracts c " +
+        "JOIN apartments a ON c.apartment_id = a.id " +
+        "JOIN floors f ON a.floor_id = f.id " +
+        "WHERE c.status = 'ACTIVE' AND c.is_deleted = 0 GROUP BY f.building_id " +
+        "ON DUPLICATE KEY UPDATE active_contracts = VALUES(active_contracts)";
+
+    // ===== Refresh theo từng tòa nhà (xem refreshBuildings) =====
+
+    // Tạo dòng tòa nhà nếu chưa có để FOR UPDATE luôn khóa được một dòng
+    private static final String SQL_SCOPE_ENSURE =
+        "INSERT IGNORE INTO dashboard_summary (scope_id) VALUES (?)";
+
+    private static final String SQL_SCOPE_LOCK =
+        "SELECT apartments, available_apartments, rented_apartments, active_contracts " +
+        "FROM dashboard_summary WHERE scope_id = ? FOR UPDATE";
+
+    private static final String SQL_COUNT_APARTMENTS_OF_BUILDING =
+        "SELECT COUNT(*), COALESCE(SUM(a.status = 'AVAILABLE'), 0), COALESCE(SUM(a.status = 'RENTED'), 0) " +
+        "FROM apartments a JOIN floors f ON a.floor_id = f.id " +
+        "WHERE f.building_id = ? AND a.is_deleted = 0";
+
+    private static final String SQL_COUNT_CONTRACTS_OF_BUILDING =
+        "SELECT COUNT(*) FROM contracts c " +
+        "JOIN apartments a ON c.apartment_id = a.id " +
+        "JOIN floors f ON a.floor_id = f.id " +
+        "WHERE f.building_id = ? AND c.status = 'ACTIVE' AND c.is_deleted = 0";
+
+    private static final String SQL_SCOPE_SET =
+        "UPDATE dashboard_summary SET apartments = ?, available_apartments = ?, rented_apartments = ?, " +
+        "active_contracts = ? WHERE scope_id = ?";
+
+    private static final String SQL_GLOBAL_ADD =
+        "UPDATE dashboard_summary SET apartments = apartments + ?, " +
+        "available_apartments = available_apartments + ?, rented_apartments = rented_apartments + ?, " +
+        "active_contracts = active_contracts + ? WHERE scope_id = 0";
+
+    // Cùng điều kiện với InvoiceDAO.getMonthlyRevenue / countUnpaidInvoices (idx_invoices_period là covering index)
+    private static final String SQL_REVENUE_PERIOD =
+        "INSERT INTO monthly_revenue_summary (year, month, paid_amount, paid_count, unpaid_count) " +
+        "SELECT ?, ?, " +
+        "    COALESCE(SUM(CASE WHEN status = 'PAID' THEN total_amount END), 0), " +
+        "    COUNT(CASE WHEN status = 'PAID' THEN 1 END), " +
+        "    COUNT(CASE WHEN status = 'UNPAID' THEN 1 END) " +
+        "FROM invoices WHERE year = ? AND month = ? AND is_deleted = 0 " +
+        "ON DUPLICATE KEY UPDATE paid_amount = VALUES(paid_amount), " +
+        "paid_count = VALUES(paid_count), unpaid_count = VALUES(unpaid_count)";
+
+    private static final String SQL_REVENUE_ALL =
+        "INSERT INTO monthly_revenue_summary (year, month, paid_amount, paid_count, unpaid_count) " +
+        "SELECT year, month, " +
+        "    COALESCE(SUM(CASE WHEN status = 'PAID' THEN total_amount END), 0), " +
+        "    COUNT(CASE WHEN status = 'PAID' THEN 1 END), " +
+        "    COUNT(CASE WHEN status = 'UNPAID' THEN 1 END) " +
+        "FROM invoices WHERE is_deleted = 0 GROUP BY year, month " +
+        "ON DUPLICATE KEY UPDATE paid_amount = VALUES(paid_amount), " +
+        "paid_count = VALUES(paid_count), unpaid_count = VALUES(unpaid_count)";
+
+    /**
+     * Số liệu dashboard đọc từ bảng tổng hợp
+     */
+    public static class DashboardSummary {
+        public int buildings;
+        public int apartments;
+        public int availableApartments;
+        public int rentedApartments;
+        public int residents;
+        public int activeContracts;     // theo tòa nhà nếu đọc với buildingId
+        public BigDecimal totalRevenue = BigDecimal.ZERO;
+        public int paidInvoices;
+        public int unpaidInvoices;
+
+        // Phạm vi của activeContracts (0 = toàn hệ thống) + updated_at lớn nhất đã đọc (mốc cho getChangesSince)
+        private long scopeId;
+        private Timestamp lastUpdated;
+
+        // year * 100 + month -> số liệu của kỳ
+        private final Map<Integer, PeriodRevenue> periods = new HashMap<>();
+
+        public BigDecimal getMonthlyRevenue(int month, int year) {
+            PeriodRevenue period = periods.get(year * 100 + month);
+            return period != null ? period.paidAmount : BigDecimal.ZERO;
+        }
+
+        private void putPeriod(ResultSet rs) throws SQLException {
+            PeriodRevenue period = new PeriodRevenue();
+            period.paidAmount = rs.getBigDecimal("paid_amount");
+            period.paidCount = rs.getInt("paid_count");
+            period.unpaidCount = rs.getInt("unpaid_count");
+            periods.put(rs.getInt("year") * 100 + rs.getInt("month"), period);
+        }
+
+        // Tổng doanh thu / số hóa đơn = cộng các kỳ (vài chục dòng mỗi năm)
+        private void recomputeTotals() {
+            totalRevenue = BigDecimal.ZERO;
+            paidInvoices = 0;
+            unpaidInvoices = 0;
+            for (PeriodRevenue period : periods.values()) {
+                totalRevenue = totalRevenue.add(period.paidAmount);
+                paidInvoices += period.paidCount;
+                unpaidInvoices += period.unpaidCount;
+            }
+        }
+
+        private void touch(Timestamp updatedAt) {
+            if (updatedAt != null && (lastUpdated == null || updatedAt.after(lastUpdated))) {
+                lastUpdated = updatedAt;
+            }
+        }
+
+        private DashboardSummary copy() {
+            DashboardSummary copy = new DashboardSummary();
+            copy.buildings = buildings;
+            copy.apartments = apartments;
+            copy.availableApartments = availableApartments;
+            copy.rentedApartments = rentedApartments;
+            copy.residents = residents;
+            copy.activeContracts = activeContracts;
+            copy.scopeId = scopeId;
+            copy.lastUpdated = lastUpdated;
+            copy.periods.putAll(periods); // PeriodRevenue không bị sửa sau khi đọc
+            copy.recomputeTotals();
+            return copy;
+        }
+    }
+
+    private static class PeriodRevenue {
+        BigDecimal paidAmount = BigDecimal.ZERO;
+        int paidCount;
+        int unpaidCount;
+    }
+
+    /**
+     * Số liệu dashboard theo phạm vi của người dùng hiện tại (giống ContractDAO.countActiveContracts)
+     */
+    public DashboardSummary getSummary() {
+        return getSummary(ContractDAO.getScopedBuildingId());
+    }
+
+    /**
+     * Toàn bộ số liệu dashboard bằng 1 query (dòng tổng hợp × các kỳ doanh thu).
+     * Lần đầu (bảng tổng hợp còn trống) sẽ tính lại toàn bộ từ bảng gốc.
+     *
+     * @param buildingId tòa nhà của người dùng (số hợp đồng theo tòa), null = toàn hệ thống
+     * @return null nếu lỗi (vd. chưa chạy migration V6)
+     */
+    public DashboardSummary getSummary(Long buildingId) {
+        try {
+            DashboardSummary summary = readSummary(buildingId);
+            if (summary == null && rebuildAll()) {
+                summary = readSummary(buildingId);
+            }
+            return summary;
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * @return null nếu chưa có dòng toàn hệ thống (chưa rebuild lần nào)
+     */
+    private DashboardSummary readSummary(Long buildingId) throws SQLException {
+        String sql = "SELECT d.buildings, d.apartments, d.available_apartments, d.rented_apartments, " +
+            "    d.residents, d.updated_at, " +
+            "    s.active_contracts, s.updated_at AS scope_updated_at, " +
+            "    m.year, m.month, m.paid_amount, m.paid_count, m.unpaid_count, m.updated_at AS period_updated_at " +
+            "FROM dashboard_summary d " +
+            "LEFT JOIN dashboard_summary s ON s.scope_id = ? " +
+            "LEFT JOIN monthly_revenue_summary m ON 1 = 1 " +
+            "WHERE d.scope_id = 0";
+
+        long scopeId = buildingId != null ? buildingId : GLOBAL_SCOPE;
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, scopeId);
+
+            DashboardSummary summary = null;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (summary == null) {
+                        summary = new DashboardSummary();
+                        summary.scopeId = scopeId;
+                        summary.buildings = rs.getInt("buildings");
+                        summary.apartments = rs.getInt("apartments");
+                        summary.availableApartments = rs.getInt("available_apartments");
+                        summary.rentedApartments = rs.getInt("rented_apartments");
+                        summary.residents = rs.getInt("residents");
+                        summary.activeContracts = rs.getInt("active_contracts"); // NULL (tòa chưa có dòng) -> 0
+                        summary.touch(rs.getTimestamp("updated_at"));
+                        summary.touch(rs.getTimestamp("scope_updated_at"));
+                    }
+
+                    if (rs.getObject("year") == null) {
+                        continue; // Chưa có hóa đơn nào
+                    }
+                    summary.putPeriod(rs);
+                    summary.touch(rs.getTimestamp("period_updated_at"));
+                }
+            }
+            if (summary != null) {
+                summary.recomputeTotals();
+            }
+            return summary;
+        }
+    }
+
+    /**
+     * Chỉ đọc các dòng tổng hợp có updated_at >= mốc của lần đọc trước (live dashboard).
+     * Mốc được so sánh ">=" vì TIMESTAMP chỉ chính xác đến giây: dòng đổi cùng giây với lần đọc trước
+     * vẫn được đọc lại (vài dòng), không bị bỏ sót.
+     *
+     * @return previous nếu không có gì thay đổi, bản mới đã áp thay đổi, null nếu lỗi
+     */
+    public DashboardSummary getChangesSince(DashboardSummary previous) {
+        String sqlScopes = "SELECT scope_id, buildings, apartments, available_apartments, rented_apartments, " +
+            "residents, active_contracts, updated_at FROM dashboard_summary " +
+            "WHERE scope_id IN (0, ?) AND updated_at >= ?";
+        String sqlPeriods = "SELECT year, month, paid_amount, paid_count, unpaid_count, updated_at " +
+            "FROM monthly_revenue_summary WHERE updated_at >= ?";
+
+        Timestamp since = previous.lastUpdated != null ? previous.lastUpdated : new Timestamp(0);
+        DashboardSummary next = previous.copy();
+        boolean changed = false;
+
+        try (Connection conn = Db_connection.getConnection()) {
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlScopes)) {
+                pstmt.setLong(1, previous.scopeId);
+                pstmt.setTimestamp(2, since);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        long scopeId = rs.getLong("scope_id");
+                        if (scopeId == GLOBAL_SCOPE) {
+                            changed |= next.buildings != rs.getInt("buildings")
+                                    || next.apartments != rs.getInt("apartments")
+                                    || next.availableApartments != rs.getInt("available_apartments")
+                                    || next.rentedApartments != rs.getInt("rented_apartments")
+                                    || next.residents != rs.getInt("residents");
+                            next.buildings = rs.getInt("buildings");
+                            next.apartments = rs.getInt("apartments");
+                            next.availableApartments = rs.getInt("available_apartments");
+                            next.rentedApartments = rs.getInt("rented_apartments");
+                            next.residents = rs.getInt("residents");
+                        }
+                        if (scopeId == previous.scopeId) {
+                            changed |= next.activeContracts != rs.getInt("active_contracts");
+                            next.activeContracts = rs.getInt("active_contracts");
+                        }
+                        next.touch(rs.getTimestamp("updated_at"));
+                    }
+                }
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlPeriods)) {
+                pstmt.setTimestamp(1, since);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int key = rs.getInt("year") * 100 + rs.getInt("month");
+                        PeriodRevenue old = next.periods.get(key);
+                        next.putPeriod(rs);
+                        PeriodRevenue now = next.periods.get(key);
+                        changed |= old == null
+                                || old.paidAmount.compareTo(now.paidAmount) != 0
+                                || old.paidCount != now.paidCount
+                                || old.unpaidCount != now.unpaidCount;
+                        next.touch(rs.getTimestamp("updated_at"));
+                    }
+                }
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        if (!changed) {
+            previous.lastUpdated = next.lastUpdated;
+            return previous;
+        }
+        next.recomputeTotals();
+        return next;
+    }
+
+    // ===== REFRESH (gọi từ DAO sau khi ghi thành công) =====
+
+    public static void refreshBuildingCounts() {
+        executeRefresh("buildings", SQL_BUILDINGS);
+    }
+
+    public static void refreshResidentCount() {
+        executeRefresh("residents", SQL_RESIDENTS);
+    }
+
+    /**
+     * Số căn hộ / đang trống / đã cho thuê của các tòa nhà bị ghi (+ phần chênh lệch ở dòng toàn hệ thống)
+     *
+     * @param buildingIds tòa nhà bị ảnh hưởng; null trong danh sách (không xác định được tòa) = đếm lại mọi tòa
+     */
+    public static void refreshApartmentCounts(Long... buildingIds) {
+        refreshBuildings("apartments", true, false, buildingIds);
+    }
+
+    /**
+     * Số hợp đồng đang hiệu lực của các tòa nhà bị ghi (+ phần chênh lệch ở dòng toàn hệ thống)
+     */
+    public static void refreshContractCounts(Long... buildingIds) {
+        refreshBuildings("contracts", false, true, buildingIds);
+    }
+
+    /**
+     * Số hợp đồng hiệu lực + số căn hộ (trạng thái RENTED) sau khi ghi hợp đồng, trong 1 transaction
+     */
+    public static void refreshContractAndApartmentCounts(Long... buildingIds) {
+        refreshBuildings("contracts", true, true, buildingIds);
+    }
+
+    /**
+     * @return tòa nhà của căn hộ (kể cả căn đã xóa mềm), null nếu không tìm thấy / lỗi
+     */
+    static Long getBuildingIdOfApartment(Long apartmentId) {
+        return queryBuildingId("SELECT f.building_id FROM apartments a JOIN floors f ON a.floor_id = f.id " +
+                "WHERE a.id = ?", apartmentId);
+    }
+
+    /**
+     * @return tòa nhà của tầng, null nếu không tìm thấy / lỗi
+     */
+    static Long getBuildingIdOfFloor(Long floorId) {
+        return queryBuildingId("SELECT building_id FROM floors WHERE id = ?", floorId);
+    }
+
+    /**
+     * @return tòa nhà của căn hộ trong hợp đồng (đọc trước khi sửa hợp đồng), null nếu không tìm thấy / lỗi
+     */
+    static Long getBuildingIdOfContract(Long contractId) {
+        return queryBuildingId("SELECT f.building_id FROM contracts c " +
+                "JOIN apartments a ON c.apartment_id = a.id JOIN floors f ON a.floor_id = f.id " +
+                "WHERE c.id = ?", contractId);
+    }
+
+    private static Long queryBuildingId(String sql, Long id) {
+        if (id == null) {
+            return null;
+        }
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Doanh thu + số hóa đơn PAID / UNPAID của 1 kỳ
+     */
+    public static void refreshMonthlyRevenue(int month, int year) {
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(SQL_REVENUE_PERIOD)) {
+
+            pstmt.setInt(1, year);
+            pstmt.setInt(2, month);
+            pstmt.setInt(3, year);
+            pstmt.setInt(4, month);
+            pstmt.executeUpdate();
+
+        } catch (SQLException e) {
+            System.err.println("⚠️ Cannot refresh monthly_revenue_summary " + month + "/" + year + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tính lại toàn bộ bảng tổng hợp từ bảng gốc (lần đầu sau migration, hoặc sau khi sửa dữ liệu trực tiếp trong DB)
+     *
+     * @return true nếu thành công
+     */
+    public static boolean rebuildAll() {
+        long start = System.currentTimeMillis();
+
+        try (Connection conn = Db_connection.getConnection()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED); // pool đặt lại khi trả kết nối
+            conn.setAutoCommit(false);
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM dashboard_summary");
+                stmt.executeUpdate("DELETE FROM monthly_revenue_summary");
+                stmt.executeUpdate(SQL_INIT_GLOBAL);
+                stmt.executeUpdate(SQL_BUILDINGS);
+                stmt.executeUpdate(SQL_RESIDENTS);
+                stmt.executeUpdate(SQL_APARTMENTS_GLOBAL);
+                stmt.executeUpdate(SQL_APARTMENTS_BY_BUILDING);
+                stmt.executeUpdate(SQL_CONTRACTS_GLOBAL);
+                stmt.executeUpdate(SQL_CONTRACTS_BY_BUILDING);
+                stmt.executeUpdate(SQL_REVENUE_ALL);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+            System.out.println("✅ Rebuilt dashboard summary (" + (System.currentTimeMillis() - start) + " ms)");
+            return true;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Đếm lại các tòa nhà bị ghi trong 1 transaction:
+     * khóa các dòng tòa nhà (thứ tự id tăng dần, tránh deadlock giữa 2 máy) -> đếm từ bảng gốc
+     * -> ghi dòng tòa nhà -> cộng tổng chênh lệch vào dòng 0 (khóa sau cùng)
+     */
+    private static void refreshBuildings(String name, boolean apartments, boolean contracts, Long... buildingIds) {
+        Set<Long> ids = new TreeSet<>();
+        for (Long id : buildingIds) {
+            if (id == null) {
+                // Không xác định được tòa nhà -> đếm lại mọi tòa (vẫn ở READ COMMITTED)
+                refreshAllBuildings(name, apartments, contracts);
+                return;
+            }
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = Db_connection.getConnection()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED); // pool đặt lại khi trả kết nối
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement ensure = conn.prepareStatement(SQL_SCOPE_ENSURE);
+                 PreparedStatement lock = conn.prepareStatement(SQL_SCOPE_LOCK);
+                 PreparedStatement countApartments = conn.prepareStatement(SQL_COUNT_APARTMENTS_OF_BUILDING);
+                 PreparedStatement countContracts = conn.prepareStatement(SQL_COUNT_CONTRACTS_OF_BUILDING);
+                 PreparedStatement set = conn.prepareStatement(SQL_SCOPE_SET);
+                 PreparedStatement addGlobal = conn.prepareStatement(SQL_GLOBAL_ADD)) {
+
+                // [apartments, available, rented, active_contracts]
+                Map<Long, int[]> before = new HashMap<>();
+                for (Long id : ids) {
+                    ensure.setLong(1, id);
+                    ensure.executeUpdate();
+                    lock.setLong(1, id);
+                    try (ResultSet rs = lock.executeQuery()) {
+                        rs.next();
+                        before.put(id, new int[] { rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4) });
+                    }
+                }
+
+                int[] delta = new int[4];
+                for (Long id : ids) {
+                    int[] old = before.get(id);
+                    int[] now = old.clone();
+                    if (apartments) {
+                        countApartments.setLong(1, id);
+                        try (ResultSet rs = countApartments.executeQuery()) {
+                            rs.next();
+                            now[0] = rs.getInt(1);
+                            now[1] = rs.getInt(2);
+                            now[2] = rs.getInt(3);
+                        }
+                    }
+                    if (contracts) {
+                        countContracts.setLong(1, id);
+                        try (ResultSet rs = countContracts.executeQuery()) {
+                            rs.next();
+                            now[3] = rs.getInt(1);
+                        }
+                    }
+
+                    boolean changed = false;
+                    for (int i = 0; i < 4; i++) {
+                        delta[i] += now[i] - old[i];
+                        changed |= now[i] != old[i];
+                    }
+                    if (changed) {
+                        set.setInt(1, now[0]);
+                        set.setInt(2, now[1]);
+                        set.setInt(3, now[2]);
+                        set.setInt(4, now[3]);
+                        set.setLong(5, id);
+                        set.executeUpdate();
+                    }
+                }
+
+                if (delta[0] != 0 || delta[1] != 0 || delta[2] != 0 || delta[3] != 0) {
+                    for (int i = 0; i < 4; i++) {
+                        addGlobal.setInt(i + 1, delta[i]);
+                    }
+                    addGlobal.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("⚠️ Cannot refresh dashboard_summary (" + name + " " + ids + "): " + e.getMessage());
+        }
+    }
+
+    private static void refreshAllBuildings(String name, boolean apartments, boolean contracts) {
+        if (apartments && contracts) {
+            executeRefresh(name, SQL_APARTMENTS_GLOBAL, SQL_APARTMENTS_RESET, SQL_APARTMENTS_BY_BUILDING,
+                    SQL_CONTRACTS_GLOBAL, SQL_CONTRACTS_RESET, SQL_CONTRACTS_BY_BUILDING);
+        } else if (apartments) {
+            executeRefresh(name, SQL_APARTMENTS_GLOBAL, SQL_APARTMENTS_RESET, SQL_APARTMENTS_BY_BUILDING);
+        } else if (contracts) {
+            executeRefresh(name, SQL_CONTRACTS_GLOBAL, SQL_CONTRACTS_RESET, SQL_CONTRACTS_BY_BUILDING);
+        }
+    }
+
+    /**
+     * Chạy các câu lệnh refresh trong 1 transaction (reset + tính lại không để lộ trạng thái giữa chừng)
+     */
+    private static void executeRefresh(String name, String... statements) {
+        try (Connection conn = Db_connection.getConnection()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED); // pool đặt lại khi trả kết nối
+            conn.setAutoCommit(false);
+
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : statements) {
+                    stmt.executeUpdate(sql);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            System.err.println("⚠️ Cannot refresh dashboard_summary (" + name + "): " + e.getMessage());
+        }
+    }
+}
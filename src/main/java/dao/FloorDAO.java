@@ -1,5 +1,6 @@
 package dao;
 
+import cache.ReferenceDataCache;
 import model.Floor;
 import connection.Db_connection;
 import java.sql.*;
@@ -87,7 +88,17 @@ public class FloorDAO {
         return null;
     }
     
+    /**
+     * Danh sách tầng của tòa nhà (qua ReferenceDataCache)
+     */
     public List<Floor> getFloorsByBuildingId(Long buildingId) {
+        List<Floor> floors = ReferenceDataCache.getInstance()
+                .getFloorsByBuildingId(buildingId, () -> queryFloorsByBuildingId(buildingId));
+        return floors != null ? floors : new ArrayList<>();
+    }
+    
+    // null nếu lỗi để cache không giữ danh sách rỗng
+    private List<Floor> queryFloorsByBuildingId(Long buildingId) {
         List<Floor> floors = new ArrayList<>();
         String sql = "SELECT * FROM floors WHERE building_id = ? AND is_deleted = 0 ORDER BY floor_number";
         try (Connection conn = Db_connection.getConnection();
@@ -100,6 +111,7 @@ public class FloorDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
         return floors;
     }
@@ -215,6 +227,12 @@ public class FloorDAO {
             }
 
             conn.commit();
+            BuildingDAO.invalidateStatsCache();
+            ReferenceDataCache.getInstance().invalidateAllFloors();
+            ReferenceDataCache.getInstance().invalidateAllApartments();
+            ChangeLogDAO.record(ChangeLogDAO.FLOOR, floorId, ChangeLogDAO.UPDATE);
+            ChangeLogDAO.record(ChangeLogDAO.APARTMENT, (Long) null, ChangeLogDAO.UPDATE);
+            DashboardDAO.refreshApartmentCounts(DashboardDAO.getBuildingIdOfFloor(floorId));
             return true;
 
         } catch (SQLException e) {
@@ -240,7 +258,13 @@ public class FloorDAO {
             pstmt.setInt(2, floor.getFloorNumber());
             pstmt.setString(3, floor.getName());
             pstmt.setString(4, floor.getStatus());
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                BuildingDAO.invalidateStatsCache();
+                ReferenceDataCache.getInstance().invalidateFloors(floor.getBuildingId());
+                ChangeLogDAO.record(ChangeLogDAO.FLOOR, (Long) null, ChangeLogDAO.INSERT);
+            }
+            return success;
         } catch (SQLException e) { e.printStackTrace(); }
         return false;
     }
@@ -253,7 +277,14 @@ public class FloorDAO {
             pstmt.setString(2, floor.getName());
             pstmt.setString(3, floor.getStatus());
             pstmt.setLong(4, floor.getId());
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                BuildingDAO.invalidateStatsCache();
+                // floor.getBuildingId() có thể chưa được set ở form sửa -> xóa cả vùng
+                ReferenceDataCache.getInstance().invalidateAllFloors();
+                ChangeLogDAO.record(ChangeLogDAO.FLOOR, floor.getId(), ChangeLogDAO.UPDATE);
+            }
+            return success;
         } catch (SQLException e) { e.printStackTrace(); }
         return false;
     }
@@ -263,7 +294,13 @@ public class FloorDAO {
         try (Connection conn = Db_connection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                BuildingDAO.invalidateStatsCache();
+                ReferenceDataCache.getInstance().invalidateAllFloors();
+                ChangeLogDAO.record(ChangeLogDAO.FLOOR, id, ChangeLogDAO.DELETE);
+            }
+            return success;
         } catch (SQLException e) { e.printStackTrace(); }
         return false;
     }
@@ -2,6 +2,7 @@ package dao;
 
 import model.HouseholdMember;
 import connection.Db_connection;
+import search.ResidentSearchIndex;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -136,7 +137,7 @@ public class HouseholdMemberDAO {
                      "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = Db_connection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             pstmt.setLong(1, member.getContractId());
             pstmt.setString(2, member.getFullName());
@@ -154,7 +155,16 @@ public class HouseholdMemberDAO {
             pstmt.setString(8, member.getPhone());
             pstmt.setBoolean(9, member.isActive());
             
-            return pstmt.executeUpdate() > 0;
+            if (pstmt.executeUpdate() > 0) {
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        member.setId(generatedKeys.getLong(1));
+                    }
+                }
+                ResidentSearchIndex.getInstance().onMemberSaved(member);
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -188,7 +198,11 @@ public class HouseholdMemberDAO {
             pstmt.setBoolean(8, member.isActive());
             pstmt.setLong(9, member.getId());
             
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                ResidentSearchIndex.getInstance().onMemberSaved(member);
+            }
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -205,7 +219,11 @@ public class HouseholdMemberDAO {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                ResidentSearchIndex.getInstance().onMemberInactive(id);
+            }
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -222,7 +240,11 @@ public class HouseholdMemberDAO {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                ResidentSearchIndex.getInstance().onMemberDeleted(id);
+            }
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
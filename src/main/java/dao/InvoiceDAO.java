@@ -5,7 +5,12 @@ import connection.Db_connection;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import model.InvoiceDetail;
 
 /**
@@ -176,7 +181,10 @@ public class InvoiceDAO {
 
             ResultSet rs = pstmt.getGeneratedKeys();
             if (rs.next()) {
-                return rs.getLong(1);
+                long invoiceId = rs.getLong(1);
+                ChangeLogDAO.record(ChangeLogDAO.INVOICE, invoiceId, ChangeLogDAO.INSERT);
+                DashboardDAO.refreshMonthlyRevenue(invoice.getMonth(), invoice.getYear());
+                return invoiceId;
             }
 
         } catch (SQLException e) {
@@ -190,6 +198,9 @@ public class InvoiceDAO {
         String sql = "UPDATE invoices SET contract_id = ?, month = ?, year = ?, total_amount = ?, "
                 + "status = ?, payment_date = ? WHERE id = ?";
 
+        // Kỳ cũ của hóa đơn: nếu bị đổi tháng/năm thì cả 2 kỳ trên monthly_revenue_summary đều thay đổi
+        int[] oldPeriod = getInvoicePeriod(invoice.getId());
+
         try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setLong(1, invoice.getContractId());
@@ -204,13 +215,37 @@ public class InvoiceDAO {
             }
             pstmt.setLong(7, invoice.getId());
 
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                ChangeLogDAO.record(ChangeLogDAO.INVOICE, invoice.getId(), ChangeLogDAO.UPDATE);
+                DashboardDAO.refreshMonthlyRevenue(invoice.getMonth(), invoice.getYear());
+                if (oldPeriod != null && (oldPeriod[0] != invoice.getMonth() || oldPeriod[1] != invoice.getYear())) {
+                    DashboardDAO.refreshMonthlyRevenue(oldPeriod[0], oldPeriod[1]);
+                }
+            }
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
 
+    // {month, year} của hóa đơn, null nếu không tìm thấy / lỗi
+    private int[] getInvoicePeriod(Long invoiceId) {
+        String sql = "SELECT month, year FROM invoices WHERE id = ?";
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, invoiceId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return new int[]{rs.getInt("month"), rs.getInt("year")};
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
     // Count unpaid invoices
     public int countUnpaidInvoices() {
         String sql = "SELECT COUNT(*) FROM invoices WHERE status = 'UNPAID' AND is_deleted = 0";
@@ -332,6 +367,201 @@ public class InvoiceDAO {
         }
     }
 
+    // --- TẠO HÓA ĐƠN HÀNG LOẠT (BillingRunService) ---
+
+    /**
+     * Các hợp đồng đã có hóa đơn (chưa hủy) trong kỳ
+     */
+    public Set<Long> getBilledContractIds(int month, int year) {
+        Set<Long> ids = new HashSet<>();
+        String sql = "SELECT DISTINCT contract_id FROM invoices "
+                + "WHERE month = ? AND year = ? AND is_deleted = 0 AND status <> 'CANCELED'";
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, month);
+            ps.setInt(2, year);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return ids;
+    }
+
+    /**
+     * Ghi một nhóm hóa đơn + chi tiết trong 1 transaction bằng JDBC batch.
+     * Hợp đồng đã có hóa đơn trong kỳ được kiểm tra lại trong transaction và bỏ qua,
+     * nên chạy lại cùng một kỳ không tạo hóa đơn trùng.
+     *
+     * Hai máy lập hóa đơn cùng kỳ cùng lúc: dòng hợp đồng bị khóa (SELECT ... FOR UPDATE) trước khi
+     * kiểm tra, máy sau chờ máy trước commit rồi mới thấy hóa đơn đã lập (locking read đọc bản mới nhất).
+     * Không có unique key theo kỳ: hóa đơn lập tay (vd. hóa đơn bổ sung) cùng kỳ vẫn hợp lệ.
+     *
+     * @param invoices          hóa đơn cần tạo (mỗi hợp đồng tối đa 1 hóa đơn, cùng month/year)
+     * @param detailsByContract contractId → các dòng chi tiết
+     * @return số hóa đơn đã tạo (id được gán lại vào invoice), -1 nếu lỗi (đã rollback)
+     */
+    public int insertInvoicesBatch(List<Invoice> invoices, Map<Long, List<InvoiceDetail>> detailsByContract) {
+        if (invoices == null || invoices.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return insertInvoicesBatchOnce(invoices, detailsByContract);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private int insertInvoicesBatchOnce(List<Invoice> invoices, Map<Long, List<InvoiceDetail>> detailsByContract)
+            throws SQLException {
+
+        String sqlInvoice = "INSERT INTO invoices "
+                + "(contract_id, month, year, total_amount, status, created_at, is_deleted) "
+                + "VALUES (?, ?, ?, ?, ?, NOW(), 0)";
+        String sqlDetail = "INSERT INTO invoice_details "
+                + "(invoice_id, service_name, unit_price, quantity, amount) "
+                + "VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection conn = Db_connection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                int month = invoices.get(0).getMonth();
+                int year = invoices.get(0).getYear();
+
+                // 1. Bỏ qua hợp đồng đã được lập hóa đơn (kể cả bởi người khác sau lúc lên danh sách)
+                List<Long> contractIds = new ArrayList<>();
+                for (Invoice invoice : invoices) {
+                    contractIds.add(invoice.getContractId());
+                }
+                lockContracts(conn, contractIds);
+                Set<Long> billed = getBilledContractIds(conn, contractIds, month, year);
+
+                List<Invoice> toInsert = new ArrayList<>();
+                for (Invoice invoice : invoices) {
+                    if (!billed.contains(invoice.getContractId())) {
+                        toInsert.add(invoice);
+                    }
+                }
+                if (toInsert.isEmpty()) {
+                    conn.commit();
+                    return 0;
+                }
+
+                // 2. Batch insert hóa đơn, lấy id theo đúng thứ tự
+                try (PreparedStatement ps = conn.prepareStatement(sqlInvoice, Statement.RETURN_GENERATED_KEYS)) {
+                    for (Invoice invoice : toInsert) {
+                        ps.setLong(1, invoice.getContractId());
+                        ps.setInt(2, invoice.getMonth());
+                        ps.setInt(3, invoice.getYear());
+                        ps.setBigDecimal(4, invoice.getTotalAmount());
+                        ps.setString(5, invoice.getStatus());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        int i = 0;
+                        while (keys.next() && i < toInsert.size()) {
+                            toInsert.get(i++).setId(keys.getLong(1));
+                        }
+                        if (i != toInsert.size()) {
+                            throw new SQLException("Expected " + toInsert.size() + " generated keys, got " + i);
+                        }
+                    }
+                }
+
+                // 3. Batch insert chi tiết
+                try (PreparedStatement ps = conn.prepareStatement(sqlDetail)) {
+                    for (Invoice invoice : toInsert) {
+                        List<InvoiceDetail> details = detailsByContract.get(invoice.getContractId());
+                        if (details == null) continue;
+
+                        for (InvoiceDetail d : details) {
+                            d.setInvoiceId(invoice.getId());
+                            ps.setLong(1, invoice.getId());
+                            ps.setString(2, d.getServiceName());
+                            ps.setBigDecimal(3, d.getUnitPrice());
+                            ps.setDouble(4, d.getQuantity());
+                            ps.setBigDecimal(5, d.getAmount());
+                            ps.addBatch();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+
+                conn.commit();
+
+                List<Long> insertedIds = new ArrayList<>();
+                for (Invoice invoice : toInsert) {
+                    insertedIds.add(invoice.getId());
+                }
+                ChangeLogDAO.record(ChangeLogDAO.INVOICE, insertedIds, ChangeLogDAO.INSERT);
+                DashboardDAO.refreshMonthlyRevenue(month, year);
+                return toInsert.size();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Khóa các dòng hợp đồng tới cuối transaction (thứ tự id tăng dần để 2 máy không deadlock)
+     */
+    private void lockContracts(Connection conn, Collection<Long> contractIds) throws SQLException {
+        List<Long> sorted = new ArrayList<>(new java.util.TreeSet<>(contractIds));
+        for (List<Long> chunk : DaoHelper.partitionIds(sorted)) {
+            String sql = "SELECT id FROM contracts WHERE id IN (" + DaoHelper.placeholders(chunk.size()) + ") "
+                    + "ORDER BY id FOR UPDATE";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        // Chỉ cần khóa
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Locking read: đọc bản đã commit mới nhất (không phải snapshot REPEATABLE READ của transaction)
+     */
+    private Set<Long> getBilledContractIds(Connection conn, Collection<Long> contractIds, int month, int year)
+            throws SQLException {
+        Set<Long> billed = new HashSet<>();
+        for (List<Long> chunk : DaoHelper.partitionIds(contractIds)) {
+            String sql = "SELECT DISTINCT contract_id FROM invoices "
+                    + "WHERE month = ? AND year = ? AND is_deleted = 0 AND status <> 'CANCELED' "
+                    + "AND contract_id IN (" + DaoHelper.placeholders(chunk.size()) + ") "
+                    + "FOR SHARE";
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, month);
+                ps.setInt(2, year);
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 3, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        billed.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return billed;
+    }
+
     /**
      * Lấy danh sách chi tiết dịch vụ của hóa đơn
      */
@@ -413,4 +643,104 @@ public class InvoiceDAO {
         return 0;
     }
 
+    // --- THỐNG KÊ DOANH THU THEO THÁNG ---
+    public static class MonthlyRevenue {
+        public int month;
+        public int totalInvoices = 0;      // Kể cả hóa đơn đã hủy (giống getInvoicesByMonth)
+        public int paidCount = 0;
+        public int unpaidCount = 0;
+        public BigDecimal paidAmount = BigDecimal.ZERO;
+        public BigDecimal unpaidAmount = BigDecimal.ZERO;
+
+        public MonthlyRevenue(int month) { this.month = month; }
+    }
+
+    /**
+     * Doanh thu từng tháng trong khoảng [fromMonth, toMonth] của một năm - 1 query GROUP BY.
+     * Luôn trả đủ mỗi tháng một phần tử (tháng không có hóa đơn = 0).
+     */
+    public List<MonthlyRevenue> getRevenueSeries(int year, int fromMonth, int toMonth) {
+        List<MonthlyRevenue> series = new ArrayList<>();
+        for (int month = fromMonth; month <= toMonth; month++) {
+            series.add(new MonthlyRevenue(month));
+        }
+        if (series.isEmpty()) {
+            return series;
+        }
+
+        String sql = "SELECT month, COUNT(*) AS total_count, "
+                + "SUM(status = 'PAID') AS paid_count, "
+                + "SUM(status = 'UNPAID') AS unpaid_count, "
+                + "SUM(CASE WHEN status = 'PAID' THEN total_amount ELSE 0 END) AS paid_amount, "
+                + "SUM(CASE WHEN status = 'UNPAID' THEN total_amount ELSE 0 END) AS unpaid_amount "
+                + "FROM invoices "
+                + "WHERE year = ? AND month BETWEEN ? AND ? AND is_deleted = 0 "
+                + "GROUP BY month";
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, year);
+            ps.setInt(2, fromMonth);
+            ps.setInt(3, toMonth);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    MonthlyRevenue row = series.get(rs.getInt("month") - fromMonth);
+                    row.totalInvoices = rs.getInt("total_count");
+                    row.paidCount = rs.getInt("paid_count");
+                    row.unpaidCount = rs.getInt("unpaid_count");
+                    BigDecimal paid = rs.getBigDecimal("paid_amount");
+                    BigDecimal unpaid = rs.getBigDecimal("unpaid_amount");
+                    row.paidAmount = paid != null ? paid : BigDecimal.ZERO;
+                    row.unpaidAmount = unpaid != null ? unpaid : BigDecimal.ZERO;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return series;
+    }
+
+    /**
+     * Doanh thu theo dịch vụ (service_name) của các hóa đơn ĐÃ THANH TOÁN trong kỳ - tổng hợp bằng SQL.
+     * buildingId = null: tất cả tòa nhà. Kết quả sắp xếp giảm dần theo doanh thu.
+     */
+    public Map<String, BigDecimal> getServiceRevenueBreakdown(int year, int fromMonth, int toMonth, Long buildingId) {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT d.service_name, SUM(d.amount) AS revenue "
+                + "FROM invoice_details d "
+                + "JOIN invoices i ON d.invoice_id = i.id ");
+        if (buildingId != null) {
+            sql.append("JOIN contracts c ON i.contract_id = c.id "
+                    + "JOIN apartments a ON c.apartment_id = a.id "
+                    + "JOIN floors f ON a.floor_id = f.id ");
+        }
+        sql.append("WHERE i.year = ? AND i.month BETWEEN ? AND ? "
+                + "AND i.status = 'PAID' AND i.is_deleted = 0 ");
+        if (buildingId != null) {
+            sql.append("AND f.building_id = ? ");
+        }
+        sql.append("GROUP BY d.service_name ORDER BY revenue DESC");
+
+        try (Connection conn = Db_connection.getConnection(); PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+
+            ps.setInt(1, year);
+            ps.setInt(2, fromMonth);
+            ps.setInt(3, toMonth);
+            if (buildingId != null) {
+                ps.setLong(4, buildingId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    BigDecimal revenue = rs.getBigDecimal("revenue");
+                    result.put(rs.getString("service_name"), revenue != null ? revenue : BigDecimal.ZERO);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
 }
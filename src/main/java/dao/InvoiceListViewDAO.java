@@ -0,0 +1,422 @@
+package dao;
+
+import model.InvoiceListViewModel;
+import connection.Db_connection;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * DAO cho danh sách Hóa Đơn (Tab Hóa Đơn)
+ * Query: invoices JOIN contracts → apartments → floors → buildings, residents
+ * Trả về đầy đủ thông tin hiển thị trong 1 query (không N+1)
+ */
+public class InvoiceListViewDAO {
+
+    private static final String BASE_SELECT =
+        "SELECT " +
+        "    i.id AS invoice_id, " +
+        "    i.contract_id, " +
+        "    i.month, " +
+        "    i.year, " +
+        "    i.total_amount, " +
+        "    i.status, " +
+        "    i.created_at, " +
+        "    i.payment_date, " +
+        "    c.contract_number, " +
+        "    a.id AS apartment_id, " +
+        "    a.room_number, " +
+        "    f.id AS floor_id, " +
+        "    f.name AS floor_name, " +
+        "    b.id AS building_id, " +
+        "    b.name AS building_name, " +
+        "    r.id AS resident_id, " +
+        "    r.full_name AS resident_name " +
+        "FROM invoices i " +
+        "LEFT JOIN contracts c ON i.contract_id = c.id AND c.is_deleted = 0 " +
+        "LEFT JOIN apartments a ON c.apartment_id = a.id AND a.is_deleted = 0 " +
+        "LEFT JOIN floors f ON a.floor_id = f.id " +
+        "LEFT JOIN buildings b ON f.building_id = b.id " +
+        "LEFT JOIN residents r ON c.resident_id = r.id AND r.is_deleted = 0 ";
+
+    /**
+     * Tất cả hóa đơn (trừ đã hủy) - tương đương InvoiceDAO.getAllInvoices()
+     */
+    public List<InvoiceListViewModel> getAllInvoices() {
+        String sql = BASE_SELECT +
+            "WHERE i.is_deleted = 0 AND i.status <> 'CANCELED' " +
+            "ORDER BY i.year DESC, i.month DESC";
+
+        List<InvoiceListViewModel> list = new ArrayList<>();
+        try (Connection conn = Db_connection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                list.add(mapToViewModel(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Hóa đơn (trừ đã hủy) của một năm
+     */
+    public List<InvoiceListViewModel> getInvoicesByYear(int year) {
+        String sql = BASE_SELECT +
+            "WHERE i.year = ? AND i.is_deleted = 0 AND i.status <> 'CANCELED' " +
+            "ORDER BY i.month DESC, i.id DESC";
+
+        List<InvoiceListViewModel> list = new ArrayList<>();
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, year);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapToViewModel(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Hóa đơn của một tháng (kể cả đã hủy) - tương đương InvoiceDAO.getInvoicesByMonth()
+     */
+    public List<InvoiceListViewModel> getInvoicesByMonth(int month, int year) {
+        String sql = BASE_SELECT +
+            "WHERE i.month = ? AND i.year = ? AND i.is_deleted = 0 " +
+            "ORDER BY i.id DESC";
+
+        List<InvoiceListViewModel> list = new ArrayList<>();
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, month);
+            pstmt.setInt(2, year);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapToViewModel(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Thứ tự của danh sách phân trang. Luôn kèm i.id để khóa trang (keyset) là duy nhất.
+     */
+    public enum InvoiceSort {
+        PERIOD_DESC, PERIOD_ASC, AMOUNT_DESC, AMOUNT_ASC;
+
+        boolean isDescending() {
+            return this == PERIOD_DESC || this == AMOUNT_DESC;
+        }
+
+        boolean isByAmount() {
+            return this == AMOUNT_DESC || this == AMOUNT_ASC;
+        }
+    }
+
+    /**
+     * Bộ lọc của tab Hóa Đơn, được đẩy xuống SQL
+     */
+    public static class InvoicePageFilter {
+        public int month;          // 0 = cả năm
+        public Integer year;       // null = mọi năm
+        public String status;      // PAID / UNPAID / CANCELED, null = tất cả trừ đã hủy
+        public String keyword;     // Số HĐ, số phòng hoặc tên chủ hộ
+        public InvoiceSort sort = InvoiceSort.PERIOD_DESC;
+    }
+
+    /**
+     * Khóa của dòng cuối trang trước: trang sau bắt đầu ngay sau khóa này
+     */
+    public static class InvoicePageKey {
+        final int year;
+        final int month;
+        final BigDecimal totalAmount;
+        final long id;
+
+        private InvoicePageKey(int year, int month, BigDecimal totalAmount, long id) {
+            this.year = year;
+            this.month = month;
+            this.totalAmount = totalAmount;
+            this.id = id;
+        }
+
+        public static InvoicePageKey of(InvoiceListViewModel invoice) {
+            return new InvoicePageKey(invoice.getYear(), invoice.getMonth(),
+                    invoice.getTotalAmount(), invoice.getInvoiceId());
+        }
+    }
+
+    /**
+     * Một trang hóa đơn theo keyset: WHERE (year, month, id) < khóa trước ORDER BY ... LIMIT n
+     * (hoặc (total_amount, id) khi sắp theo số tiền). Không dùng OFFSET nên trang sâu
+     * vẫn chỉ đọc n dòng từ idx_invoices_keyset.
+     *
+     * @param afterKey khóa dòng cuối trang trước, null = trang đầu
+     * @return null nếu lỗi (không trả trang rỗng để bảng không cache nhầm)
+     */
+    public List<InvoiceListViewModel> getInvoicesPage(InvoicePageFilter filter, InvoicePageKey afterKey, int limit) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(BASE_SELECT);
+        appendFilter(sql, params, filter);
+        if (afterKey != null) {
+            appendKeyset(sql, params, filter.sort, afterKey);
+        }
+        sql.append(orderBy(filter.sort)).append("LIMIT ?");
+        params.add(limit);
+        return queryPage(sql.toString(), params);
+    }
+
+    /**
+     * Trang bắt đầu ở vị trí offset - chỉ dùng khi nhảy tới trang chưa biết khóa
+     * (kéo thanh cuộn xa); các trang liền kề sau đó lại đi theo keyset.
+     * @return null nếu lỗi
+     */
+    public List<InvoiceListViewModel> getInvoicesPageAt(InvoicePageFilter filter, int offset, int limit) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(BASE_SELECT);
+        appendFilter(sql, params, filter);
+        sql.append(orderBy(filter.sort)).append("LIMIT ? OFFSET ?");
+        params.add(limit);
+        params.add(offset);
+        return queryPage(sql.toString(), params);
+    }
+
+    /**
+     * Số hóa đơn khớp bộ lọc (số dòng của bảng phân trang)
+     * @return -1 nếu lỗi
+     */
+    public int countInvoices(InvoicePageFilter filter) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM invoices i ");
+        if (hasKeyword(filter)) {
+            // JOIN chỉ cần khi tìm theo Số HĐ / phòng / chủ hộ
+            sql.append("LEFT JOIN contracts c ON i.contract_id = c.id AND c.is_deleted = 0 ")
+               .append("LEFT JOIN apartments a ON c.apartment_id = a.id AND a.is_deleted = 0 ")
+               .append("LEFT JOIN residents r ON c.resident_id = r.id AND r.is_deleted = 0 ");
+        }
+        appendFilter(sql, params, filter);
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+
+            setParams(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    private static boolean hasKeyword(InvoicePageFilter filter) {
+        return filter.keyword != null && !filter.keyword.trim().isEmpty();
+    }
+
+    private static void appendFilter(StringBuilder sql, List<Object> params, InvoicePageFilter filter) {
+        sql.append("WHERE i.is_deleted = 0 ");
+        if (filter.status == null) {
+            sql.append("AND i.status <> 'CANCELED' ");
+        } else {
+            sql.append("AND i.status = ? ");
+            params.add(filter.status);
+        }
+        if (filter.year != null) {
+            sql.append("AND i.year = ? ");
+            params.add(filter.year);
+        }
+        if (filter.month != 0) {
+            sql.append("AND i.month = ? ");
+            params.add(filter.month);
+        }
+        if (hasKeyword(filter)) {
+            String pattern = DaoHelper.likeContains(filter.keyword.trim());
+            sql.append("AND (c.contract_number LIKE ? ESCAPE '!' OR a.room_number LIKE ? ESCAPE '!' ")
+               .append("OR r.full_name LIKE ? ESCAPE '!') ");
+            params.add(pattern);
+            params.add(pattern);
+            params.add(pattern);
+        }
+    }
+
+    private static void appendKeyset(StringBuilder sql, List<Object> params, InvoiceSort sort, InvoicePageKey key) {
+        String cmp = sort.isDescending() ? "<" : ">";
+        if (sort.isByAmount()) {
+            sql.append("AND (i.total_amount ").append(cmp).append(" ? ")
+               .append("OR (i.total_amount = ? AND i.id ").append(cmp).append(" ?)) ");
+            params.add(key.totalAmount);
+            params.add(key.totalAmount);
+        } else {
+            sql.append("AND (i.year ").append(cmp).append(" ? ")
+               .append("OR (i.year = ? AND (i.month ").append(cmp).append(" ? ")
+               .append("OR (i.month = ? AND i.id ").append(cmp).append(" ?)))) ");
+            params.add(key.year);
+            params.add(key.year);
+            params.add(key.month);
+            params.add(key.month);
+        }
+        params.add(key.id);
+    }
+
+    private static String orderBy(InvoiceSort sort) {
+        String dir = sort.isDescending() ? "DESC" : "ASC";
+        if (sort.isByAmount()) {
+            return "ORDER BY i.total_amount " + dir + ", i.id " + dir + " ";
+        }
+        return "ORDER BY i.year " + dir + ", i.month " + dir + ", i.id " + dir + " ";
+    }
+
+    private List<InvoiceListViewModel> queryPage(String sql, List<Object> params) {
+        List<InvoiceListViewModel> list = new ArrayList<>();
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            setParams(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapToViewModel(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return list;
+    }
+
+    private static void setParams(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+
+    /**
+     * Hóa đơn theo id (kể cả đã hủy) - làm mới từng dòng khi nhận change_log
+     * @return Map id → hóa đơn (id đã xóa không có trong Map)
+     */
+    public Map<Long, InvoiceListViewModel> getByIds(Collection<Long> ids) {
+        Map<Long, InvoiceListViewModel> invoices = new LinkedHashMap<>();
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : DaoHelper.partitionIds(ids)) {
+                String sql = BASE_SELECT +
+                    "WHERE i.is_deleted = 0 AND i.id IN (" + DaoHelper.placeholders(chunk.size()) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            InvoiceListViewModel vm = mapToViewModel(rs);
+                            invoices.put(vm.getInvoiceId(), vm);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return invoices;
+    }
+
+    /**
+     * Duyệt hóa đơn (kể cả đã hủy) từ tháng fromMonth đến toMonth của một năm
+     * bằng con trỏ chỉ-đọc-tiến (MySQL streaming result set): mỗi dòng được map rồi
+     * đưa ngay cho consumer, không giữ cả danh sách trong bộ nhớ.
+     * Thứ tự giống báo cáo cũ: theo tháng tăng dần, trong tháng theo id giảm dần.
+     *
+     * Lưu ý: connection bị chiếm trong suốt quá trình duyệt, consumer không nên chạy query khác.
+     *
+     * @return số dòng đã duyệt, -1 nếu lỗi
+     */
+    public int streamInvoicesByPeriod(int year, int fromMonth, int toMonth, Consumer<InvoiceListViewModel> consumer) {
+        String sql = BASE_SELECT +
+            "WHERE i.year = ? AND i.month BETWEEN ? AND ? AND i.is_deleted = 0 " +
+            "ORDER BY i.month ASC, i.id DESC";
+
+        int count = 0;
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // Connector/J: fetch size = Integer.MIN_VALUE -> đọc từng dòng từ socket thay vì nạp hết
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            pstmt.setInt(1, year);
+            pstmt.setInt(2, fromMonth);
+            pstmt.setInt(3, toMonth);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(mapToViewModel(rs));
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Map ResultSet to ViewModel
+     */
+    private InvoiceListViewModel mapToViewModel(ResultSet rs) throws SQLException {
+        InvoiceListViewModel vm = new InvoiceListViewModel();
+
+        // Invoice info
+        vm.setInvoiceId(rs.getLong("invoice_id"));
+        vm.setContractId(rs.getLong("contract_id"));
+        vm.setMonth(rs.getInt("month"));
+        vm.setYear(rs.getInt("year"));
+        vm.setTotalAmount(rs.getBigDecimal("total_amount"));
+        vm.setStatus(rs.getString("status"));
+
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        if (createdAt != null) {
+            vm.setCreatedAt(new java.util.Date(createdAt.getTime()));
+        }
+        Timestamp paymentDate = rs.getTimestamp("payment_date");
+        if (paymentDate != null) {
+            vm.setPaymentDate(new java.util.Date(paymentDate.getTime()));
+        }
+
+        // Contract / Apartment / Resident (có thể NULL nếu hợp đồng đã xóa)
+        vm.setContractNumber(rs.getString("contract_number"));
+        vm.setApartmentId(getNullableLong(rs, "apartment_id"));
+        vm.setRoomNumber(rs.getString("room_number"));
+        vm.setFloorId(getNullableLong(rs, "floor_id"));
+        vm.setFloorName(rs.getString("floor_name"));
+        vm.setBuildingId(getNullableLong(rs, "building_id"));
+        vm.setBuildingName(rs.getString("building_name"));
+        vm.setResidentId(getNullableLong(rs, "resident_id"));
+        vm.setResidentName(rs.getString("resident_name"));
+
+        return vm;
+    }
+
+    private Long getNullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,127 @@
+package dao;
+
+import connection.Db_connection;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DAO cho dự báo khoản phải thu (util.ReceivablesForecastEngine) - chỉ đọc
+ * Tải toàn bộ dữ liệu đầu vào bằng 3 query trên 1 connection (không N+1):
+ * 1. Hợp đồng ACTIVE kèm tòa nhà
+ * 2. Đơn giá dịch vụ (contract_services) của các hợp đồng đó
+ * 3. Công nợ: tổng hóa đơn UNPAID theo hợp đồng
+ */
+public class ReceivablesForecastDAO {
+
+    /**
+     * Dữ liệu đầu vào dự báo của một hợp đồng
+     */
+    public static class ContractInput {
+        public long contractId;
+        public String contractNumber;
+        public String contractType;
+        public long buildingId;
+        public String buildingName;
+        public BigDecimal monthlyRent = BigDecimal.ZERO;
+        public List<BigDecimal> serviceUnitPrices = new ArrayList<>();
+        public BigDecimal unpaidDebt = BigDecimal.ZERO;
+        public int unpaidInvoiceCount = 0;
+
+        public boolean isRental() {
+            return "RENTAL".equals(contractType);
+        }
+    }
+
+    /**
+     * @param buildingId null = tất cả tòa nhà
+     * @return hợp đồng ACTIVE theo thứ tự tòa nhà, id
+     */
+    public List<ContractInput> getForecastInputs(Long buildingId) {
+        Map<Long, ContractInput> inputs = new LinkedHashMap<>();
+        String buildingFilter = buildingId != null ? "AND f.building_id = ? " : "";
+
+        String sqlContracts = "SELECT c.id, c.contract_number, c.contract_type, c.monthly_rent, "
+                + "       b.id AS building_id, b.name AS building_name "
+                + "FROM contracts c "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "JOIN buildings b ON f.building_id = b.id "
+                + "WHERE c.status = 'ACTIVE' AND c.is_deleted = 0 " + buildingFilter
+                + "ORDER BY b.id, c.id";
+
+        String sqlServices = "SELECT cs.contract_id, cs.unit_price "
+                + "FROM contract_services cs "
+                + "JOIN contracts c ON cs.contract_id = c.id "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE c.status = 'ACTIVE' AND c.is_deleted = 0 " + buildingFilter;
+
+        String sqlDebt = "SELECT i.contract_id, SUM(i.total_amount) AS debt, COUNT(*) AS invoice_count "
+                + "FROM invoices i "
+                + "JOIN contracts c ON i.contract_id = c.id "
+                + "JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id "
+                + "WHERE i.status = 'UNPAID' AND i.is_deleted = 0 "
+                + "  AND c.status = 'ACTIVE' AND c.is_deleted = 0 " + buildingFilter
+                + "GROUP BY i.contract_id";
+
+        try (Connection conn = Db_connection.getConnection()) {
+            // 1. Hợp đồng
+            try (PreparedStatement ps = prepare(conn, sqlContracts, buildingId);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ContractInput input = new ContractInput();
+                    input.contractId = rs.getLong("id");
+                    input.contractNumber = rs.getString("contract_number");
+                    input.contractType = rs.getString("contract_type");
+                    BigDecimal rent = rs.getBigDecimal("monthly_rent");
+                    input.monthlyRent = rent != null ? rent : BigDecimal.ZERO;
+                    input.buildingId = rs.getLong("building_id");
+                    input.buildingName = rs.getString("building_name");
+                    inputs.put(input.contractId, input);
+                }
+            }
+
+            // 2. Dịch vụ
+            try (PreparedStatement ps = prepare(conn, sqlServices, buildingId);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ContractInput input = inputs.get(rs.getLong("contract_id"));
+                    BigDecimal price = rs.getBigDecimal("unit_price");
+                    if (input != null && price != null) {
+                        input.serviceUnitPrices.add(price);
+                    }
+                }
+            }
+
+            // 3. Công nợ
+            try (PreparedStatement ps = prepare(conn, sqlDebt, buildingId);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ContractInput input = inputs.get(rs.getLong("contract_id"));
+                    if (input != null) {
+                        BigDecimal debt = rs.getBigDecimal("debt");
+                        input.unpaidDebt = debt != null ? debt : BigDecimal.ZERO;
+                        input.unpaidInvoiceCount = rs.getInt("invoice_count");
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>(inputs.values());
+    }
+
+    private PreparedStatement prepare(Connection conn, String sql, Long buildingId) throws SQLException {
+        PreparedStatement ps = conn.prepareStatement(sql);
+        if (buildingId != null) {
+            ps.setLong(1, buildingId);
+        }
+        return ps;
+    }
+}
@@ -2,15 +2,78 @@ package dao;
 
 import model.Resident;
 import connection.Db_connection;
+import search.ResidentSearchIndex;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO class for Resident operations - UPDATED WITH ID FIX
  */
 public class ResidentDAO {
     
+    /**
+     * Chỉ mục tìm kiếm chủ hộ + thành viên (nạp lần đầu / khi hết hạn, gọi ngoài EDT)
+     */
+    public static ResidentSearchIndex getSearchIndex() {
+        return ResidentSearchIndex.getInstance().ensureLoaded(
+                () -> new ResidentDAO().getAllResidents(),
+                () -> new HouseholdMemberDAO().getAllHouseholdMembers());
+    }
+    
+    /**
+     * Id kết quả tìm kiếm, tách theo loại, giữ thứ tự xếp hạng
+     */
+    static final class SearchIds {
+        final List<Long> residentIds = new ArrayList<>();
+        final List<Long> memberIds = new ArrayList<>();
+        
+        boolean isEmpty() {
+            return residentIds.isEmpty() && memberIds.isEmpty();
+        }
+        
+        int size() {
+            return residentIds.size() + memberIds.size();
+        }
+    }
+    
+    /**
+     * Tra chỉ mục 1 lần, lấy TẤT CẢ kết quả (không cắt top-K: lọc theo tòa nhà làm ở SQL / bộ nhớ
+     * sau đó, cắt trước sẽ làm mất kết quả của tòa nhà khi tên phổ biến có nhiều kết quả ở tòa khác)
+     */
+    static SearchIds searchIds(String keyword) {
+        SearchIds ids = new SearchIds();
+        for (ResidentSearchIndex.Hit hit : getSearchIndex().search(keyword, Integer.MAX_VALUE)) {
+            if (hit.getPerson().isResident()) {
+                ids.residentIds.add(hit.getPerson().getId());
+            } else {
+                ids.memberIds.add(hit.getPerson().getId());
+            }
+        }
+        return ids;
+    }
+    
+    // --- HELPER: Map ResultSet to Resident ---
+    private Resident mapResultSetToResident(ResultSet rs) throws SQLException {
+        Resident resident = new Resident();
+        resident.setId(rs.getLong("id"));
+        resident.setFullName(rs.getString("full_name"));
+        resident.setPhone(rs.getString("phone"));
+        resident.setEmail(rs.getString("email"));
+        resident.setIdentityCard(rs.getString("identity_card"));
+        resident.setGender(rs.getString("gender"));
+        java.sql.Date sqlDate = rs.getDate("dob");
+        if (sqlDate != null) {
+            resident.setDob(new java.util.Date(sqlDate.getTime()));
+        }
+        resident.setHometown(rs.getString("hometown"));
+        resident.setDeleted(rs.getBoolean("is_deleted"));
+        return resident;
+    }
+    
     // Get all residents
     public List<Resident> getAllResidents() {
         List<Resident> residents = new ArrayList<>();
@@ -76,15 +139,42 @@ public class ResidentDAO {
         return null;
     }
     
+    // Get residents by IDs (bulk, 1 query thay vì N lần getResidentById)
+    public Map<Long, Resident> getByIds(Collection<Long> ids) {
+        Map<Long, Resident> residents = new LinkedHashMap<>();
+        
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : DaoHelper.partitionIds(ids)) {
+                String sql = "SELECT * FROM residents WHERE is_deleted = 0 AND id IN (" +
+                             DaoHelper.placeholders(chunk.size()) + ")";
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Resident resident = mapResultSetToResident(rs);
+                            residents.put(resident.getId(), resident);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return residents;
+    }
+    
     // Search residents by name (LIKE query)
     public List<Resident> searchResidentsByName(String keyword) {
         List<Resident> residents = new ArrayList<>();
-        String sql = "SELECT * FROM residents WHERE full_name LIKE ? AND is_deleted = 0 ORDER BY full_name";
+        String sql = "SELECT * FROM residents WHERE full_name LIKE ? ESCAPE '!' AND is_deleted = 0 ORDER BY full_name";
         
         try (Connection conn = Db_connection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setString(1, "%" + keyword + "%");
+            pstmt.setString(1, DaoHelper.likeContains(keyword));
             ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -139,6 +229,8 @@ public class ResidentDAO {
                         resident.setId(generatedKeys.getLong(1));
                     }
                 }
+                DashboardDAO.refreshResidentCount();
+                ResidentSearchIndex.getInstance().onResidentSaved(resident);
                 return true;
             }
             
@@ -170,7 +262,11 @@ public class ResidentDAO {
             pstmt.setString(7, resident.getHometown());
             pstmt.setLong(8, resident.getId());
             
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                ResidentSearchIndex.getInstance().onResidentSaved(resident);
+            }
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -185,7 +281,12 @@ public class ResidentDAO {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                DashboardDAO.refreshResidentCount();
+                ResidentSearchIndex.getInstance().onResidentDeleted(id);
+            }
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -335,44 +436,20 @@ public class ResidentDAO {
     
     /**
      * Search residents by keyword (name, phone, identity card)
+     * Tra chỉ mục ResidentSearchIndex (không dấu, xếp hạng) rồi đọc bản ghi theo id.
+     * Trả mọi kết quả (như LIKE trước đây), đọc theo từng nhóm IN_CLAUSE_CHUNK_SIZE id
      */
     public List<Resident> searchResidents(String keyword) {
-        List<Resident> residents = new ArrayList<>();
-        String sql = "SELECT * FROM residents WHERE " +
-                     "(full_name LIKE ? OR phone LIKE ? OR identity_card LIKE ?) " +
-                     "AND is_deleted = 0 ORDER BY full_name";
+        List<Long> ids = searchIds(keyword).residentIds;
+        Map<Long, Resident> byId = getByIds(ids);
         
-        try (Connection conn = Db_connection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            String searchPattern = "%" + keyword + "%";
-            pstmt.setString(1, searchPattern);
-            pstmt.setString(2, searchPattern);
-            pstmt.setString(3, searchPattern);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Resident resident = new Resident();
-                    resident.setId(rs.getLong("id"));
-                    resident.setFullName(rs.getString("full_name"));
-                    resident.setPhone(rs.getString("phone"));
-                    resident.setEmail(rs.getString("email"));
-                    resident.setIdentityCard(rs.getString("identity_card"));
-                    resident.setGender(rs.getString("gender"));
-                    java.sql.Date sqlDate = rs.getDate("dob");
-                    if (sqlDate != null) {
-                        resident.setDob(new java.util.Date(sqlDate.getTime()));
-                    }
-                    resident.setHometown(rs.getString("hometown"));
-                    resident.setDeleted(rs.getBoolean("is_deleted"));
-                    residents.add(resident);
-                }
+        List<Resident> residents = new ArrayList<>();
+        for (Long id : ids) {
+            Resident resident = byId.get(id);
+            if (resident != null) {
+                residents.add(resident);
             }
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
-        
         return residents;
     }
 }
\ No newline at end of file
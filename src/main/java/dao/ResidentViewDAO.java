@@ -5,252 +5,448 @@ import connection.Db_connection;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * ResidentViewDAO
  * Complex DAO để query UNION data từ residents + household_members
  * Dùng cho Tab Cư Dân
+ *
+ * Chủ hộ và thành viên được đọc trong 1 câu UNION ALL (1 round-trip), thứ tự:
+ * số phòng → chủ hộ trước thành viên → row_key (id hợp đồng với chủ hộ, id thành viên).
+ * Danh sách lớn đọc theo trang keyset (getResidentsPage, bảng phân trang của Tab Cư Dân)
+ * hoặc streaming (streamResidentsByBuilding), không nạp hết vào bộ nhớ.
  */
 public class ResidentViewDAO {
-    
+
+    // Nhánh Chủ hộ: residents + contracts
+    private static final String OWNER_SELECT =
+        "SELECT " +
+        "  'CHU_HO' as source_type, 0 as source_order, c.id as row_key, " +
+        "  r.id, r.full_name, r.gender, r.dob, r.identity_card, r.phone, r.email, r.hometown, " +
+        "  'Chủ hộ' as role, 'Chủ hộ' as relationship, " +
+        "  c.id as contract_id, c.status as contract_status, " +
+        "  a.id as apartment_id, a.room_number, " +
+        "  f.name as floor_name, b.name as building_name, b.id as building_id ";
+
+    private static final String OWNER_FROM_WHERE =
+        "FROM residents r " +
+        "INNER JOIN contracts c ON r.id = c.resident_id " +
+        "INNER JOIN apartments a ON c.apartment_id = a.id " +
+        "INNER JOIN floors f ON a.floor_id = f.id " +
+        "INNER JOIN buildings b ON f.building_id = b.id " +
+        "WHERE b.id = ? AND r.is_deleted = 0 AND c.is_deleted = 0 ";
+
+    // Nhánh Thành viên: household_members + contracts
+    private static final String MEMBER_SELECT =
+        "SELECT " +
+        "  'THANH_VIEN' as source_type, 1 as source_order, hm.id as row_key, " +
+        "  hm.id, hm.full_name, hm.gender, hm.dob, hm.identity_card, hm.phone, " +
+        "  NULL as email, NULL as hometown, " +
+        "  'Thành viên' as role, hm.relationship, " +
+        "  c.id as contract_id, c.status as contract_status, " +
+        "  a.id as apartment_id, a.room_number, " +
+        "  f.name as floor_name, b.name as building_name, b.id as building_id ";
+
+    private static final String MEMBER_FROM_WHERE =
+        "FROM household_members hm " +
+        "INNER JOIN contracts c ON hm.contract_id = c.id " +
+        "INNER JOIN apartments a ON c.apartment_id = a.id " +
+        "INNER JOIN floors f ON a.floor_id = f.id " +
+        "INNER JOIN buildings b ON f.building_id = b.id " +
+        "WHERE b.id = ? AND c.is_deleted = 0 ";
+
+    private static final String UNION_ORDER_BY = "ORDER BY room_number, source_order, row_key";
+
+    /**
+     * Lọc trạng thái cư trú của bảng phân trang (theo trạng thái hợp đồng, giống RowMapper)
+     */
+    public enum ResidencyFilter {
+        ALL(""),
+        LIVING("AND c.status = 'ACTIVE' "),
+        MOVED("AND (c.status IS NULL OR c.status <> 'ACTIVE') ");
+
+        final String predicate;
+
+        ResidencyFilter(String predicate) {
+            this.predicate = predicate;
+        }
+    }
+
+    /**
+     * Khóa của dòng cuối trang trước (số phòng, chủ hộ/thành viên, row_key)
+     */
+    public static class ResidentPageKey {
+        final String roomNumber;
+        final int sourceOrder;
+        final long rowKey;
+
+        private ResidentPageKey(String roomNumber, int sourceOrder, long rowKey) {
+            this.roomNumber = roomNumber;
+            this.sourceOrder = sourceOrder;
+            this.rowKey = rowKey;
+        }
+
+        public static ResidentPageKey of(ResidentViewModel vm) {
+            boolean owner = "CHU_HO".equals(vm.getSourceType());
+            return new ResidentPageKey(vm.getApartmentNumber(), owner ? 0 : 1,
+                    owner ? vm.getContractId() : vm.getId());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ResidentPageKey)) {
+                return false;
+            }
+            ResidentPageKey other = (ResidentPageKey) o;
+            return sourceOrder == other.sourceOrder && rowKey == other.rowKey
+                    && Objects.equals(roomNumber, other.roomNumber);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(roomNumber, sourceOrder, rowKey);
+        }
+    }
+
     /**
      * Lấy TẤT CẢ cư dân (Chủ hộ + Thành viên) theo Building ID
-     * 
+     *
      * Query logic:
      * 1. JOIN: contracts → apartments → floors → buildings
-     * 2. UNION:
-     *    - Chủ hộ: residents + contracts (WHERE contracts.status = 'ACTIVE')
-     *    - Thành viên: household_members + contracts (WHERE is_active = 1)
+     * 2. UNION ALL:
+     *    - Chủ hộ: residents + contracts
+     *    - Thành viên: household_members + contracts
      */
     public List<ResidentViewModel> getResidentsByBuilding(Long buildingId) {
         List<ResidentViewModel> result = new ArrayList<>();
-        
-        // Query Chủ hộ
-        String sqlResidents = 
-            "SELECT " +
-            "  'CHU_HO' as source_type, " +
-            "  r.id, r.full_name, r.gender, r.dob, r.identity_card, r.phone, r.email, r.hometown, " +
-            "  'Chủ hộ' as role, 'Chủ hộ' as relationship, " +
-            "  c.id as contract_id, c.status as contract_status, " +
-            "  a.id as apartment_id, a.room_number, " +
-            "  f.name as floor_name, b.name as building_name, b.id as building_id " +
-            "FROM residents r " +
-            "INNER JOIN contracts c ON r.id = c.resident_id " +
-            "INNER JOIN apartments a ON c.apartment_id = a.id " +
-            "INNER JOIN floors f ON a.floor_id = f.id " +
-            "INNER JOIN buildings b ON f.building_id = b.id " +
-            "WHERE b.id = ? AND r.is_deleted = 0 AND c.is_deleted = 0";
-        
-        // Query Thành viên
-        String sqlMembers = 
-            "SELECT " +
-            "  'THANH_VIEN' as source_type, " +
-            "  hm.id, hm.full_name, hm.gender, hm.dob, hm.identity_card, hm.phone, " +
-            "  NULL as email, NULL as hometown, " +
-            "  'Thành viên' as role, hm.relationship, " +
-            "  c.id as contract_id, c.status as contract_status, " +
-            "  a.id as apartment_id, a.room_number, " +
-            "  f.name as floor_name, b.name as building_name, b.id as building_id " +
-            "FROM household_members hm " +
-            "INNER JOIN contracts c ON hm.contract_id = c.id " +
-            "INNER JOIN apartments a ON c.apartment_id = a.id " +
-            "INNER JOIN floors f ON a.floor_id = f.id " +
-            "INNER JOIN buildings b ON f.building_id = b.id " +
-            "WHERE b.id = ? AND c.is_deleted = 0";
-        
-        try (Connection conn = Db_connection.getConnection()) {
-            
-            // 1. Load Chủ hộ
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlResidents)) {
-                pstmt.setLong(1, buildingId);
-                ResultSet rs = pstmt.executeQuery();
-                
+        streamResidentsByBuilding(buildingId, result::add);
+        return result;
+    }
+
+    /**
+     * Duyệt toàn bộ cư dân của tòa nhà bằng con trỏ chỉ-đọc-tiến (MySQL streaming result set),
+     * mỗi dòng được map rồi đưa ngay cho consumer (giống InvoiceListViewDAO.streamInvoicesByPeriod).
+     *
+     * Lưu ý: connection bị chiếm trong suốt quá trình duyệt, consumer không nên chạy query khác.
+     *
+     * @return số dòng đã duyệt, -1 nếu lỗi
+     */
+    public int streamResidentsByBuilding(Long buildingId, Consumer<ResidentViewModel> consumer) {
+        String sql =
+            "(" + OWNER_SELECT + OWNER_FROM_WHERE + ") " +
+            "UNION ALL " +
+            "(" + MEMBER_SELECT + MEMBER_FROM_WHERE + ") " +
+            UNION_ORDER_BY;
+
+        int count = 0;
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // Connector/J: fetch size = Integer.MIN_VALUE -> đọc từng dòng từ socket thay vì nạp hết
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            pstmt.setLong(1, buildingId);
+            pstmt.setLong(2, buildingId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper mapper = new RowMapper(rs);
                 while (rs.next()) {
-                    result.add(mapToViewModel(rs));
+                    consumer.accept(mapper.map(rs));
+                    count++;
                 }
             }
-            
-            // 2. Load Thành viên
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlMembers)) {
-                pstmt.setLong(1, buildingId);
-                ResultSet rs = pstmt.executeQuery();
-                
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        return count;
+    }
+
+    /**
+     * Một trang cư dân theo keyset. Điều kiện "sau khóa" được đẩy vào từng nhánh và mỗi nhánh
+     * chỉ lấy tối đa limit dòng, nên MySQL chỉ sắp xếp ≤ 2 × limit dòng dù tòa nhà có 20k cư dân.
+     *
+     * @param afterKey khóa dòng cuối trang trước, null = trang đầu
+     * @return null nếu lỗi
+     */
+    public List<ResidentViewModel> getResidentsPage(Long buildingId, ResidencyFilter filter,
+                                                    ResidentPageKey afterKey, int limit) {
+        List<Object> params = new ArrayList<>();
+        params.add(buildingId);
+        String ownerAfter = afterKey != null ? afterKeyPredicate(afterKey, 0, "c.id", params) : "";
+        params.add(limit);
+        params.add(buildingId);
+        String memberAfter = afterKey != null ? afterKeyPredicate(afterKey, 1, "hm.id", params) : "";
+        params.add(limit);
+        params.add(limit);
+
+        String sql =
+            "(" + OWNER_SELECT + OWNER_FROM_WHERE + filter.predicate + ownerAfter +
+            "ORDER BY a.room_number, c.id LIMIT ?) " +
+            "UNION ALL " +
+            "(" + MEMBER_SELECT + MEMBER_FROM_WHERE + filter.predicate + memberAfter +
+            "ORDER BY a.room_number, hm.id LIMIT ?) " +
+            UNION_ORDER_BY + " LIMIT ?";
+        return queryPage(sql, params);
+    }
+
+    /**
+     * Trang bắt đầu ở vị trí offset - chỉ dùng khi nhảy tới trang chưa biết khóa
+     * (kéo thanh cuộn xa); các trang liền kề sau đó lại đi theo keyset.
+     * @return null nếu lỗi
+     */
+    public List<ResidentViewModel> getResidentsPageAt(Long buildingId, ResidencyFilter filter,
+                                                      int offset, int limit) {
+        String sql =
+            "(" + OWNER_SELECT + OWNER_FROM_WHERE + filter.predicate + ") " +
+            "UNION ALL " +
+            "(" + MEMBER_SELECT + MEMBER_FROM_WHERE + filter.predicate + ") " +
+            UNION_ORDER_BY + " LIMIT ? OFFSET ?";
+        List<Object> params = new ArrayList<>();
+        params.add(buildingId);
+        params.add(buildingId);
+        params.add(limit);
+        params.add(offset);
+        return queryPage(sql, params);
+    }
+
+    /**
+     * Điều kiện "sau afterKey" cho một nhánh (sourceOrder cố định trong nhánh)
+     */
+    private static String afterKeyPredicate(ResidentPageKey key, int sourceOrder, String rowKeyColumn,
+                                            List<Object> params) {
+        if (sourceOrder > key.sourceOrder) {
+            // Thành viên đứng sau chủ hộ cùng phòng
+            params.add(key.roomNumber);
+            return "AND a.room_number >= ? ";
+        }
+        if (sourceOrder < key.sourceOrder) {
+            params.add(key.roomNumber);
+            return "AND a.room_number > ? ";
+        }
+        params.add(key.roomNumber);
+        params.add(key.roomNumber);
+        params.add(key.rowKey);
+        return "AND (a.room_number > ? OR (a.room_number = ? AND " + rowKeyColumn + " > ?)) ";
+    }
+
+    private List<ResidentViewModel> queryPage(String sql, List<Object> params) {
+        List<ResidentViewModel> result = new ArrayList<>();
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper mapper = new RowMapper(rs);
                 while (rs.next()) {
-                    result.add(mapToViewModel(rs));
+                    result.add(mapper.map(rs));
                 }
             }
-            
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
-        
         return result;
     }
-    
+
     /**
      * Tìm kiếm cư dân theo keyword (Name, Phone, ID Card)
+     * Chỉ mục ResidentSearchIndex trả id chủ hộ / thành viên đã xếp hạng (không dấu, tra 1 lần),
+     * sau đó lọc theo tòa nhà. Kết quả theo thứ tự xếp hạng, không giới hạn số lượng.
+     *
+     * - Ít kết quả (≤ IN_CLAUSE_CHUNK_SIZE): 1 câu UNION ALL lọc theo các id đó
+     * - Nhiều kết quả (tên phổ biến trên toàn hệ thống): duyệt cư dân của tòa nhà và giữ dòng có trong
+     *   tập kết quả (số dòng bị giới hạn bởi quy mô tòa nhà, không bởi số kết quả toàn hệ thống)
      */
     public List<ResidentViewModel> searchResidents(Long buildingId, String keyword) {
         List<ResidentViewModel> result = new ArrayList<>();
-        String likePattern = "%" + keyword + "%";
-        
-        String sqlResidents = 
-            "SELECT " +
-            "  'CHU_HO' as source_type, " +
-            "  r.id, r.full_name, r.gender, r.dob, r.identity_card, r.phone, r.email, r.hometown, " +
-            "  'Chủ hộ' as role, 'Chủ hộ' as relationship, " +
-            "  c.id as contract_id, c.status as contract_status, " +
-            "  a.id as apartment_id, a.room_number, " +
-            "  f.name as floor_name, b.name as building_name, b.id as building_id " +
-            "FROM residents r " +
-            "INNER JOIN contracts c ON r.id = c.resident_id " +
-            "INNER JOIN apartments a ON c.apartment_id = a.id " +
-            "INNER JOIN floors f ON a.floor_id = f.id " +
-            "INNER JOIN buildings b ON f.building_id = b.id " +
-            "WHERE b.id = ? AND r.is_deleted = 0 AND c.is_deleted = 0 " +
-            "  AND (r.full_name LIKE ? OR r.phone LIKE ? OR r.identity_card LIKE ?)";
-        
-        String sqlMembers = 
-            "SELECT " +
-            "  'THANH_VIEN' as source_type, " +
-            "  hm.id, hm.full_name, hm.gender, hm.dob, hm.identity_card, hm.phone, " +
-            "  NULL as email, NULL as hometown, " +
-            "  'Thành viên' as role, hm.relationship, " +
-            "  c.id as contract_id, c.status as contract_status, " +
-            "  a.id as apartment_id, a.room_number, " +
-            "  f.name as floor_name, b.name as building_name, b.id as building_id " +
-            "FROM household_members hm " +
-            "INNER JOIN contracts c ON hm.contract_id = c.id " +
-            "INNER JOIN apartments a ON c.apartment_id = a.id " +
-            "INNER JOIN floors f ON a.floor_id = f.id " +
-            "INNER JOIN buildings b ON f.building_id = b.id " +
-            "WHERE b.id = ? AND c.is_deleted = 0 " +
-            "  AND (hm.full_name LIKE ? OR hm.phone LIKE ? OR hm.identity_card LIKE ?)";
-        
-        try (Connection conn = Db_connection.getConnection()) {
-            
-            // Search Chủ hộ
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlResidents)) {
-                pstmt.setLong(1, buildingId);
-                pstmt.setString(2, likePattern);
-                pstmt.setString(3, likePattern);
-                pstmt.setString(4, likePattern);
-                ResultSet rs = pstmt.executeQuery();
-                
-                while (rs.next()) {
-                    result.add(mapToViewModel(rs));
+        ResidentDAO.SearchIds ids = ResidentDAO.searchIds(keyword);
+        if (ids.isEmpty()) {
+            return result;
+        }
+
+        // Thứ hạng trong chỉ mục, theo khóa "loại:id"
+        Map<String, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.residentIds.size(); i++) {
+            rank.putIfAbsent("CHU_HO:" + ids.residentIds.get(i), i);
+        }
+        for (int i = 0; i < ids.memberIds.size(); i++) {
+            rank.putIfAbsent("THANH_VIEN:" + ids.memberIds.get(i), i);
+        }
+
+        if (ids.size() > DaoHelper.IN_CLAUSE_CHUNK_SIZE) {
+            streamResidentsByBuilding(buildingId, vm -> {
+                if (rank.containsKey(vm.getSourceType() + ":" + vm.getId())) {
+                    result.add(vm);
                 }
+            });
+        } else {
+            queryByIds(buildingId, ids, result);
+        }
+
+        // Giữ thứ tự xếp hạng của chỉ mục
+        result.sort(Comparator.comparingInt(vm -> rank.getOrDefault(vm.getSourceType() + ":" + vm.getId(), Integer.MAX_VALUE)));
+        return result;
+    }
+
+    /**
+     * Cư dân của tòa nhà trong tập id (tổng số id ≤ IN_CLAUSE_CHUNK_SIZE), chỉ UNION các nhánh có id
+     */
+    private void queryByIds(Long buildingId, ResidentDAO.SearchIds ids, List<ResidentViewModel> result) {
+        List<String> branches = new ArrayList<>();
+        List<Long> params = new ArrayList<>();
+        if (!ids.residentIds.isEmpty()) {
+            branches.add("(" + OWNER_SELECT + OWNER_FROM_WHERE +
+                "AND r.id IN (" + DaoHelper.placeholders(ids.residentIds.size()) + "))");
+            params.add(buildingId);
+            params.addAll(ids.residentIds);
+        }
+        if (!ids.memberIds.isEmpty()) {
+            branches.add("(" + MEMBER_SELECT + MEMBER_FROM_WHERE +
+                "AND hm.id IN (" + DaoHelper.placeholders(ids.memberIds.size()) + "))");
+            params.add(buildingId);
+            params.addAll(ids.memberIds);
+        }
+        String sql = String.join(" UNION ALL ", branches);
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setLong(i + 1, params.get(i));
             }
-            
-            // Search Thành viên
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlMembers)) {
-                pstmt.setLong(1, buildingId);
-                pstmt.setString(2, likePattern);
-                pstmt.setString(3, likePattern);
-                pstmt.setString(4, likePattern);
-                ResultSet rs = pstmt.executeQuery();
-                
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper mapper = new RowMapper(rs);
                 while (rs.next()) {
-                    result.add(mapToViewModel(rs));
+                    result.add(mapper.map(rs));
                 }
             }
-            
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        
-        return result;
     }
-    
+
     /**
      * Map ResultSet to ResidentViewModel
+     * Chỉ số cột được tra 1 lần cho mỗi result set (không tra theo tên ở từng dòng)
      */
-    private ResidentViewModel mapToViewModel(ResultSet rs) throws SQLException {
-        ResidentViewModel vm = new ResidentViewModel();
-        
-        // Source & Basic Info
-        vm.setSourceType(rs.getString("source_type"));
-        vm.setId(rs.getLong("id"));
-        vm.setFullName(rs.getString("full_name"));
-        vm.setGender(rs.getString("gender"));
-        
-        java.sql.Date sqlDob = rs.getDate("dob");
-        if (sqlDob != null) {
-            vm.setDob(new java.util.Date(sqlDob.getTime()));
+    private static class RowMapper {
+        private final int sourceType;
+        private final int id;
+        private final int fullName;
+        private final int gender;
+        private final int dob;
+        private final int identityCard;
+        private final int phone;
+        private final int email;
+        private final int hometown;
+        private final int role;
+        private final int relationship;
+        private final int contractId;
+        private final int contractStatus;
+        private final int apartmentId;
+        private final int roomNumber;
+        private final int floorName;
+        private final int buildingName;
+        private final int buildingId;
+
+        RowMapper(ResultSet rs) throws SQLException {
+            sourceType = rs.findColumn("source_type");
+            id = rs.findColumn("id");
+            fullName = rs.findColumn("full_name");
+            gender = rs.findColumn("gender");
+            dob = rs.findColumn("dob");
+            identityCard = rs.findColumn("identity_card");
+            phone = rs.findColumn("phone");
+            email = rs.findColumn("email");
+            hometown = rs.findColumn("hometown");
+            role = rs.findColumn("role");
+            relationship = rs.findColumn("relationship");
+            contractId = rs.findColumn("contract_id");
+            contractStatus = rs.findColumn("contract_status");
+            apartmentId = rs.findColumn("apartment_id");
+            roomNumber = rs.findColumn("room_number");
+            floorName = rs.findColumn("floor_name");
+            buildingName = rs.findColumn("building_name");
+            buildingId = rs.findColumn("building_id");
         }
-        
-        vm.setIdentityCard(rs.getString("identity_card"));
-        vm.setPhone(rs.getString("phone"));
-        vm.setEmail(rs.getString("email"));
-        vm.setHometown(rs.getString("hometown"));
-        
-        // Role
-        vm.setRole(rs.getString("role"));
-        vm.setRelationship(rs.getString("relationship"));
-        
-        // Contract & Apartment
-        vm.setContractId(rs.getLong("contract_id"));
-        vm.setContractStatus(rs.getString("contract_status"));
-        vm.setApartmentId(rs.getLong("apartment_id"));
-        vm.setApartmentNumber(rs.getString("room_number"));
-        vm.setFloorName(rs.getString("floor_name"));
-        vm.setBuildingName(rs.getString("building_name"));
-        vm.setBuildingId(rs.getLong("building_id"));
-        
-        // Trạng thái cư trú
-        String contractStatus = rs.getString("contract_status");
-        
-        if ("CHU_HO".equals(vm.getSourceType())) {
-            // Chủ hộ: status = contract status
-            vm.setResidencyStatus("ACTIVE".equals(contractStatus) ? "Đang ở" : "Đã chuyển đi");
-        } else {
-            // Thành viên: Cần check thêm is_active (nhưng đã filter trong query rồi)
-            // Nếu vào được đây nghĩa là member đang active
-            vm.setResidencyStatus("ACTIVE".equals(contractStatus) ? "Đang ở" : "Đã chuyển đi");
+
+        ResidentViewModel map(ResultSet rs) throws SQLException {
+            ResidentViewModel vm = new ResidentViewModel();
+
+            // Source & Basic Info
+            vm.setSourceType(rs.getString(sourceType));
+            vm.setId(rs.getLong(id));
+            vm.setFullName(rs.getString(fullName));
+            vm.setGender(rs.getString(gender));
+
+            java.sql.Date sqlDob = rs.getDate(dob);
+            if (sqlDob != null) {
+                vm.setDob(new java.util.Date(sqlDob.getTime()));
+            }
+
+            vm.setIdentityCard(rs.getString(identityCard));
+            vm.setPhone(rs.getString(phone));
+            vm.setEmail(rs.getString(email));
+            vm.setHometown(rs.getString(hometown));
+
+            // Role
+            vm.setRole(rs.getString(role));
+            vm.setRelationship(rs.getString(relationship));
+
+            // Contract & Apartment
+            vm.setContractId(rs.getLong(contractId));
+            String status = rs.getString(contractStatus);
+            vm.setContractStatus(status);
+            vm.setApartmentId(rs.getLong(apartmentId));
+            vm.setApartmentNumber(rs.getString(roomNumber));
+            vm.setFloorName(rs.getString(floorName));
+            vm.setBuildingName(rs.getString(buildingName));
+            vm.setBuildingId(rs.getLong(buildingId));
+
+            // Trạng thái cư trú: chủ hộ và thành viên đều theo trạng thái hợp đồng
+            vm.setResidencyStatus("ACTIVE".equals(status) ? "Đang ở" : "Đã chuyển đi");
+
+            return vm;
         }
-        
-        return vm;
     }
-    
+
     /**
      * Count total residents by building
+     * Cùng FROM / WHERE với 2 nhánh UNION ở trên, 1 round-trip
+     * (số dòng của bảng phân trang Tab Cư Dân)
+     * @return -1 nếu lỗi
      */
     public int countResidentsByBuilding(Long buildingId) {
-        int count = 0;
-        
-        String sqlResidents = 
-            "SELECT COUNT(*) FROM residents r " +
-            "INNER JOIN contracts c ON r.id = c.resident_id " +
-            "INNER JOIN apartments a ON c.apartment_id = a.id " +
-            "INNER JOIN floors f ON a.floor_id = f.id " +
-            "WHERE f.building_id = ? AND r.is_deleted = 0 AND c.is_deleted = 0";
-        
-        String sqlMembers = 
-            "SELECT COUNT(*) FROM household_members hm " +
-            "INNER JOIN contracts c ON hm.contract_id = c.id " +
-            "INNER JOIN apartments a ON c.apartment_id = a.id " +
-            "INNER JOIN floors f ON a.floor_id = f.id " +
-            "WHERE f.building_id = ? AND c.is_deleted = 0";
-        
-        try (Connection conn = Db_connection.getConnection()) {
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlResidents)) {
-                pstmt.setLong(1, buildingId);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) count += rs.getInt(1);
-            }
-            
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlMembers)) {
-                pstmt.setLong(1, buildingId);
-                ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) count += rs.getInt(1);
+        return countResidentsByBuilding(buildingId, ResidencyFilter.ALL);
+    }
+
+    public int countResidentsByBuilding(Long buildingId, ResidencyFilter filter) {
+        String sql =
+            "SELECT (SELECT COUNT(*) " + OWNER_FROM_WHERE + filter.predicate + ") + " +
+            "(SELECT COUNT(*) " + MEMBER_FROM_WHERE + filter.predicate + ")";
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, buildingId);
+            pstmt.setLong(2, buildingId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
             }
-            
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        
-        return count;
+
+        return -1;
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package dao;
 
+import cache.ReferenceDataCache;
 import model.Service;
 import connection.Db_connection;
 import java.sql.*;
@@ -23,8 +24,14 @@ public class ServiceDAO {
         return service;
     }
     
-    // --- GET ALL SERVICES ---
+    // --- GET ALL SERVICES (qua ReferenceDataCache) ---
     public List<Service> getAllServices() {
+        List<Service> services = ReferenceDataCache.getInstance().getAllServices(this::queryAllServices);
+        return services != null ? services : new ArrayList<>();
+    }
+    
+    // null nếu lỗi để cache không giữ danh sách rỗng
+    private List<Service> queryAllServices() {
         List<Service> services = new ArrayList<>();
         String sql = "SELECT * FROM services WHERE is_deleted = 0 ORDER BY service_name";
         
@@ -37,24 +44,18 @@ public class ServiceDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null;
         }
         return services;
     }
     
-    // --- GET MANDATORY SERVICES ---
+    // --- GET MANDATORY SERVICES (lọc từ danh sách đã cache, cùng thứ tự service_name) ---
     public List<Service> getMandatoryServices() {
         List<Service> services = new ArrayList<>();
-        String sql = "SELECT * FROM services WHERE is_mandatory = 1 AND is_deleted = 0 ORDER BY service_name";
-        
-        try (Connection conn = Db_connection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                services.add(mapResultSetToService(rs));
+        for (Service service : getAllServices()) {
+            if (service.isMandatory()) {
+                services.add(service);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return services;
     }
@@ -62,17 +63,10 @@ public class ServiceDAO {
     // --- GET OPTIONAL SERVICES ---
     public List<Service> getOptionalServices() {
         List<Service> services = new ArrayList<>();
-        String sql = "SELECT * FROM services WHERE is_mandatory = 0 AND is_deleted = 0 ORDER BY service_name";
-        
-        try (Connection conn = Db_connection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                services.add(mapResultSetToService(rs));
+        for (Service service : getAllServices()) {
+            if (!service.isMandatory()) {
+                services.add(service);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return services;
     }
@@ -137,6 +131,8 @@ public class ServiceDAO {
                         service.setId(generatedKeys.getLong(1));
                     }
                 }
+                ReferenceDataCache.getInstance().invalidateServices();
+                ChangeLogDAO.record(ChangeLogDAO.SERVICE, service.getId(), ChangeLogDAO.INSERT);
                 return true;
             }
             
@@ -161,7 +157,12 @@ public class ServiceDAO {
             pstmt.setBoolean(4, service.isMandatory());
             pstmt.setLong(5, service.getId());
             
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                ReferenceDataCache.getInstance().invalidateServices();
+                ChangeLogDAO.record(ChangeLogDAO.SERVICE, service.getId(), ChangeLogDAO.UPDATE);
+            }
+            return success;
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -177,7 +178,12 @@ public class ServiceDAO {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setLong(1, id);
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            if (success) {
+                ReferenceDataCache.getInstance().invalidateServices();
+                ChangeLogDAO.record(ChangeLogDAO.SERVICE, id, ChangeLogDAO.DELETE);
+            }
+            return success;
             
         } catch (SQLException e) {
             e.printStackTrace();
@@ -0,0 +1,179 @@
+package dao;
+
+import connection.Db_connection;
+import model.ServiceUsage;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DAO cho chỉ số dịch vụ hàng tháng (service_usage: điện, nước...)
+ * Một dòng cho mỗi (contract_id, service_id, year, month) - unique key từ migration V4
+ */
+public class ServiceUsageDAO {
+
+    // --- HELPER: Map ResultSet to ServiceUsage ---
+    private ServiceUsage mapResultSetToServiceUsage(ResultSet rs) throws SQLException {
+        ServiceUsage usage = new ServiceUsage();
+        usage.setId(rs.getLong("id"));
+        usage.setContractId(rs.getLong("contract_id"));
+        usage.setServiceId(rs.getLong("service_id"));
+        usage.setMonth(rs.getInt("month"));
+        usage.setYear(rs.getInt("year"));
+        usage.setOldIndex(rs.getDouble("old_index"));
+        usage.setNewIndex(rs.getDouble("new_index"));
+
+        double actual = rs.getDouble("actual_usage");
+        usage.setActualUsage(rs.wasNull() ? null : actual);
+        return usage;
+    }
+
+    /**
+     * Chỉ số của một hợp đồng trong kỳ (kèm tên dịch vụ)
+     */
+    public List<ServiceUsage> getUsageByContract(Long contractId, int month, int year) {
+        List<ServiceUsage> list = new ArrayList<>();
+        String sql = "SELECT su.*, s.service_name FROM service_usage su "
+                + "JOIN services s ON su.service_id = s.id "
+                + "WHERE su.contract_id = ? AND su.year = ? AND su.month = ? "
+                + "ORDER BY s.service_name";
+
+        try (Connection conn = Db_connection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, contractId);
+            pstmt.setInt(2, year);
+            pstmt.setInt(3, month);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ServiceUsage usage = mapResultSetToServiceUsage(rs);
+                    usage.setServiceName(rs.getString("service_name"));
+                    list.add(usage);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return list;
+    }
+
+    /**
+     * Chỉ số trong kỳ của nhiều hợp đồng, 1 query / 500 hợp đồng
+     *
+     * @return contractId -> (serviceId -> chỉ số)
+     */
+    public Map<Long, Map<Long, ServiceUsage>> getUsageByContractIds(Collection<Long> contractIds, int month, int year) {
+        Map<Long, Map<Long, ServiceUsage>> result = new HashMap<>();
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : DaoHelper.partitionIds(contractIds)) {
+                String sql = "SELECT * FROM service_usage "
+                        + "WHERE year = ? AND month = ? "
+                        + "AND contract_id IN (" + DaoHelper.placeholders(chunk.size()) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setInt(1, year);
+                    pstmt.setInt(2, month);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 3, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            ServiceUsage usage = mapResultSetToServiceUsage(rs);
+                            result.computeIfAbsent(usage.getContractId(), k -> new HashMap<>())
+                                    .put(usage.getServiceId(), usage);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * Các hợp đồng (chưa xóa) có trong danh sách, 1 query / 500 id
+     * Dùng để loại dòng import trỏ tới hợp đồng không tồn tại trước khi ghi (tránh lỗi FK cả batch)
+     */
+    public Set<Long> getExistingContractIds(Collection<Long> contractIds) {
+        Set<Long> existing = new HashSet<>();
+
+        try (Connection conn = Db_connection.getConnection()) {
+            for (List<Long> chunk : DaoHelper.partitionIds(contractIds)) {
+                String sql = "SELECT id FROM contracts WHERE is_deleted = 0 "
+                        + "AND id IN (" + DaoHelper.placeholders(chunk.size()) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setLong(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            existing.add(rs.getLong(1));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return existing;
+    }
+
+    /**
+     * Ghi chỉ số bằng JDBC batch trong 1 transaction:
+     * INSERT ... ON DUPLICATE KEY UPDATE -> import lại cùng kỳ sẽ ghi đè chỉ số cũ
+     *
+     * @return số dòng đã ghi, -1 nếu lỗi (đã rollback)
+     */
+    public int upsertBatch(List<ServiceUsage> usages) {
+        if (usages == null || usages.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "INSERT INTO service_usage "
+                + "(contract_id, service_id, month, year, old_index, new_index, actual_usage) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE old_index = VALUES(old_index), "
+                + "new_index = VALUES(new_index), actual_usage = VALUES(actual_usage)";
+
+        try (Connection conn = Db_connection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (ServiceUsage usage : usages) {
+                    pstmt.setLong(1, usage.getContractId());
+                    pstmt.setLong(2, usage.getServiceId());
+                    pstmt.setInt(3, usage.getMonth());
+                    pstmt.setInt(4, usage.getYear());
+                    pstmt.setDouble(5, usage.getOldIndex() != null ? usage.getOldIndex() : 0);
+                    pstmt.setDouble(6, usage.getNewIndex() != null ? usage.getNewIndex() : 0);
+                    if (usage.getActualUsage() != null) {
+                        pstmt.setDouble(7, usage.getActualUsage());
+                    } else {
+                        pstmt.setNull(7, Types.DOUBLE);
+                    }
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+                return usages.size();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+}
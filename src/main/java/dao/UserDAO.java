@@ -1,5 +1,6 @@
 package dao;
 
+import cache.ReferenceDataCache;
 import model.User;
 import connection.Db_connection;
 import util.PasswordUtil;
@@ -156,7 +157,10 @@ public class UserDAO {
             pstmt.setString(3, user.getRole());
             pstmt.setBoolean(4, user.isActive());
             pstmt.setLong(5, user.getId());
-            return pstmt.executeUpdate() > 0;
+            boolean success = pstmt.executeUpdate() > 0;
+            // Tên người quản lý hiển thị trong danh sách tòa nhà
+            if (success) ReferenceDataCache.getInstance().invalidateBuildings();
+            return success;
         } catch (SQLException e) {
             e.printStackTrace();
         }
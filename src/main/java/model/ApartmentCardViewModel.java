@@ -0,0 +1,112 @@
+package model;
+
+import java.util.Date;
+
+/**
+ * ViewModel cho lưới thẻ căn hộ (ApartmentManagementPanel)
+ * 1 row = 1 căn hộ kèm hợp đồng ACTIVE mới nhất và tên / SĐT người thuê
+ * (đã LEFT JOIN sẵn, các trường hợp đồng NULL nếu căn hộ chưa có hợp đồng)
+ */
+public class ApartmentCardViewModel {
+
+    // Apartment info
+    private Apartment apartment;
+
+    // Active contract info
+    private Long contractId;
+    private String contractNumber;
+    private String contractType;
+    private Date contractEndDate;
+
+    // Tenant info
+    private Long residentId;
+    private String tenantName;
+    private String tenantPhone;
+
+    // Constructors
+    public ApartmentCardViewModel() {
+    }
+
+    public ApartmentCardViewModel(Apartment apartment) {
+        this.apartment = apartment;
+    }
+
+    // Getters and Setters
+    public Apartment getApartment() {
+        return apartment;
+    }
+
+    public void setApartment(Apartment apartment) {
+        this.apartment = apartment;
+    }
+
+    public Long getContractId() {
+        return contractId;
+    }
+
+    public void setContractId(Long contractId) {
+        this.contractId = contractId;
+    }
+
+    public String getContractNumber() {
+        return contractNumber;
+    }
+
+    public void setContractNumber(String contractNumber) {
+        this.contractNumber = contractNumber;
+    }
+
+    public String getContractType() {
+        return contractType;
+    }
+
+    public void setContractType(String contractType) {
+        this.contractType = contractType;
+    }
+
+    public Date getContractEndDate() {
+        return contractEndDate;
+    }
+
+    public void setContractEndDate(Date contractEndDate) {
+        this.contractEndDate = contractEndDate;
+    }
+
+    public Long getResidentId() {
+        return residentId;
+    }
+
+    public void setResidentId(Long residentId) {
+        this.residentId = residentId;
+    }
+
+    public String getTenantName() {
+        return tenantName;
+    }
+
+    public void setTenantName(String tenantName) {
+        this.tenantName = tenantName;
+    }
+
+    public String getTenantPhone() {
+        return tenantPhone;
+    }
+
+    public void setTenantPhone(String tenantPhone) {
+        this.tenantPhone = tenantPhone;
+    }
+
+    // Helper methods
+    public boolean hasActiveContract() {
+        return contractId != null;
+    }
+
+    @Override
+    public String toString() {
+        return "ApartmentCardViewModel{"
+                + "apartmentId=" + (apartment != null ? apartment.getId() : null)
+                + ", contractNumber='" + contractNumber + '\''
+                + ", tenantName='" + tenantName + '\''
+                + '}';
+    }
+}
@@ -1,5 +1,7 @@
 package model;
 
+import search.TextNormalizer;
+
 import java.math.BigDecimal;
 import java.util.Date;
 
@@ -38,6 +40,7 @@ public class ContractHouseholdViewModel {
     
     // Computed fields
     private int totalPeople; // Tổng số người (chủ hộ + thành viên)
+    private String searchKey; // Tên + SĐT + căn hộ đã bỏ dấu, tính khi cần
     
     // Constructors
     public ContractHouseholdViewModel() {
@@ -90,6 +93,7 @@ public class ContractHouseholdViewModel {
     
     public void setApartmentNumber(String apartmentNumber) {
         this.apartmentNumber = apartmentNumber;
+        this.searchKey = null;
     }
     
     public String getFloorName() {
@@ -130,6 +134,7 @@ public class ContractHouseholdViewModel {
     
     public void setResidentFullName(String residentFullName) {
         this.residentFullName = residentFullName;
+        this.searchKey = null;
     }
     
     public String getResidentPhone() {
@@ -138,6 +143,7 @@ public class ContractHouseholdViewModel {
     
     public void setResidentPhone(String residentPhone) {
         this.residentPhone = residentPhone;
+        this.searchKey = null;
     }
     
     public String getResidentEmail() {
@@ -211,4 +217,17 @@ public class ContractHouseholdViewModel {
     public String getTotalPeopleDisplay() {
         return totalPeople + " người";
     }
-}
\ No newline at end of file
+    
+    /**
+     * Chuỗi tìm kiếm: tên chủ hộ, SĐT, số căn hộ đã chữ thường + bỏ dấu (TextNormalizer.fold),
+     * ngăn cách bằng '\n' để từ khóa không khớp vắt qua 2 trường
+     */
+    public String getSearchKey() {
+        if (searchKey == null) {
+            searchKey = TextNormalizer.fold(residentFullName) + "\n"
+                    + TextNormalizer.fold(residentPhone) + "\n"
+                    + TextNormalizer.fold(apartmentNumber);
+        }
+        return searchKey;
+    }
+}
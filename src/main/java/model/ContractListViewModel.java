@@ -0,0 +1,59 @@
+package model;
+
+/**
+ * ViewModel cho tab Hợp Đồng
+ * 1 row = 1 hợp đồng kèm số phòng, tòa nhà và tên chủ hộ
+ * (đã JOIN sẵn, lọc / hiển thị không cần tra cứu thêm theo từng dòng)
+ */
+public class ContractListViewModel {
+
+    private Contract contract;
+
+    // Apartment info (null nếu căn hộ đã bị xóa)
+    private String roomNumber;
+    private Long buildingId;
+
+    // Resident info (null nếu cư dân đã bị xóa)
+    private String residentName;
+
+    // Constructors
+    public ContractListViewModel() {
+    }
+
+    // Getters and Setters
+    public Contract getContract() {
+        return contract;
+    }
+
+    public void setContract(Contract contract) {
+        this.contract = contract;
+    }
+
+    public Long getContractId() {
+        return contract != null ? contract.getId() : null;
+    }
+
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+
+    public void setRoomNumber(String roomNumber) {
+        this.roomNumber = roomNumber;
+    }
+
+    public Long getBuildingId() {
+        return buildingId;
+    }
+
+    public void setBuildingId(Long buildingId) {
+        this.buildingId = buildingId;
+    }
+
+    public String getResidentName() {
+        return residentName;
+    }
+
+    public void setResidentName(String residentName) {
+        this.residentName = residentName;
+    }
+}
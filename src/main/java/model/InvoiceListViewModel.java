@@ -0,0 +1,215 @@
+package model;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * ViewModel cho tab Hóa Đơn
+ * 1 row = 1 hóa đơn kèm Số HĐ, căn hộ, tầng, tòa nhà và tên chủ hộ
+ * (đã JOIN sẵn, không cần tra cứu thêm theo từng dòng)
+ */
+public class InvoiceListViewModel {
+    
+    // Invoice info
+    private Long invoiceId;
+    private Long contractId;
+    private int month;
+    private int year;
+    private BigDecimal totalAmount;
+    private String status;
+    private Date createdAt;
+    private Date paymentDate;
+    
+    // Contract info
+    private String contractNumber;
+    
+    // Apartment info
+    private Long apartmentId;
+    private String roomNumber;
+    private Long floorId;
+    private String floorName;
+    private Long buildingId;
+    private String buildingName;
+    
+    // Resident info
+    private Long residentId;
+    private String residentName;
+    
+    // Constructors
+    public InvoiceListViewModel() {
+    }
+    
+    // Getters and Setters
+    public Long getInvoiceId() {
+        return invoiceId;
+    }
+    
+    public void setInvoiceId(Long invoiceId) {
+        this.invoiceId = invoiceId;
+    }
+    
+    public Long getContractId() {
+        return contractId;
+    }
+    
+    public void setContractId(Long contractId) {
+        this.contractId = contractId;
+    }
+    
+    public int getMonth() {
+        return month;
+    }
+    
+    public void setMonth(int month) {
+        this.month = month;
+    }
+    
+    public int getYear() {
+        return year;
+    }
+    
+    public void setYear(int year) {
+        this.year = year;
+    }
+    
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+    
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public Date getPaymentDate() {
+        return paymentDate;
+    }
+    
+    public void setPaymentDate(Date paymentDate) {
+        this.paymentDate = paymentDate;
+    }
+    
+    public String getContractNumber() {
+        return contractNumber;
+    }
+    
+    public void setContractNumber(String contractNumber) {
+        this.contractNumber = contractNumber;
+    }
+    
+    public Long getApartmentId() {
+        return apartmentId;
+    }
+    
+    public void setApartmentId(Long apartmentId) {
+        this.apartmentId = apartmentId;
+    }
+    
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+    
+    public void setRoomNumber(String roomNumber) {
+        this.roomNumber = roomNumber;
+    }
+    
+    public Long getFloorId() {
+        return floorId;
+    }
+    
+    public void setFloorId(Long floorId) {
+        this.floorId = floorId;
+    }
+    
+    public String getFloorName() {
+        return floorName;
+    }
+    
+    public void setFloorName(String floorName) {
+        this.floorName = floorName;
+    }
+    
+    public Long getBuildingId() {
+        return buildingId;
+    }
+    
+    public void setBuildingId(Long buildingId) {
+        this.buildingId = buildingId;
+    }
+    
+    public String getBuildingName() {
+        return buildingName;
+    }
+    
+    public void setBuildingName(String buildingName) {
+        this.buildingName = buildingName;
+    }
+    
+    public Long getResidentId() {
+        return residentId;
+    }
+    
+    public void setResidentId(Long residentId) {
+        this.residentId = residentId;
+    }
+    
+    public String getResidentName() {
+        return residentName;
+    }
+    
+    public void setResidentName(String residentName) {
+        this.residentName = residentName;
+    }
+    
+    // Helper methods
+    public boolean isPaid() {
+        return "PAID".equals(status);
+    }
+    
+    public boolean isUnpaid() {
+        return "UNPAID".equals(status);
+    }
+    
+    /**
+     * Convert sang Invoice (dùng cho các dialog/DAO cũ)
+     */
+    public Invoice toInvoice() {
+        Invoice invoice = new Invoice();
+        invoice.setId(invoiceId);
+        invoice.setContractId(contractId);
+        invoice.setApartmentId(apartmentId);
+        invoice.setMonth(month);
+        invoice.setYear(year);
+        invoice.setTotalAmount(totalAmount);
+        invoice.setStatus(status);
+        invoice.setCreatedAt(createdAt);
+        invoice.setPaymentDate(paymentDate);
+        return invoice;
+    }
+    
+    @Override
+    public String toString() {
+        return "InvoiceListViewModel{" +
+                "invoiceId=" + invoiceId +
+                ", contractNumber='" + contractNumber + '\'' +
+                ", roomNumber='" + roomNumber + '\'' +
+                ", period=" + month + "/" + year +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
\ No newline at end of file
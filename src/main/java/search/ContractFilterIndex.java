@@ -0,0 +1,139 @@
+package search;
+
+import model.Contract;
+import model.ContractListViewModel;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Chỉ mục trong bộ nhớ cho bộ lọc tab Hợp Đồng (ContractManagementPanel)
+ *
+ * - Giữ danh sách hợp đồng đã JOIN sẵn (ContractListViewDAO) theo thứ tự hiển thị
+ * - Chỉ mục phụ dạng BitSet theo vị trí: tòa nhà → hợp đồng, loại HĐ → hợp đồng
+ * - Chỉ mục từ khóa: trigram của (số HĐ, số phòng, tên chủ hộ) đã bỏ dấu → hợp đồng;
+ *   từ khóa ≥ 3 ký tự lấy giao các trigram rồi kiểm tra lại contains, từ khóa ngắn hơn thì duyệt
+ * - Bất biến (immutable): lọc được từ thread nền, thay đổi tạo chỉ mục mới (withChanges)
+ *
+ * Trạng thái (đang hiệu lực / sắp hết hạn...) phụ thuộc ngày hiện tại nên do panel lọc sau.
+ */
+public final class ContractFilterIndex {
+
+    private static final int GRAM = 3;
+
+    private final List<ContractListViewModel> items;
+    private final String[] searchTexts;
+    private final Map<Long, BitSet> byBuilding = new HashMap<>();
+    private final Map<String, BitSet> byType = new HashMap<>();
+    private final Map<String, BitSet> byTrigram = new HashMap<>();
+
+    private ContractFilterIndex(List<ContractListViewModel> items) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.searchTexts = new String[this.items.size()];
+
+        for (int i = 0; i < this.items.size(); i++) {
+            ContractListViewModel item = this.items.get(i);
+            Contract contract = item.getContract();
+
+            if (item.getBuildingId() != null) {
+                byBuilding.computeIfAbsent(item.getBuildingId(), k -> new BitSet()).set(i);
+            }
+            byType.computeIfAbsent(contract.getContractTypeDisplay(), k -> new BitSet()).set(i);
+
+            // Ngăn cách bằng '\n' để từ khóa không khớp vắt qua 2 trường
+            String text = TextNormalizer.fold(contract.getContractNumber()) + "\n"
+                    + TextNormalizer.fold(item.getRoomNumber()) + "\n"
+                    + TextNormalizer.fold(item.getResidentName());
+            searchTexts[i] = text;
+            for (int g = 0; g + GRAM <= text.length(); g++) {
+                byTrigram.computeIfAbsent(text.substring(g, g + GRAM), k -> new BitSet()).set(i);
+            }
+        }
+    }
+
+    public static ContractFilterIndex build(List<ContractListViewModel> items) {
+        return new ContractFilterIndex(items);
+    }
+
+    /**
+     * Chỉ mục mới sau khi áp thay đổi: hợp đồng có trong loaded được thay thế tại chỗ
+     * (hoặc thêm lên đầu nếu mới), id đã đổi nhưng không có trong loaded (đã xóa) bị bỏ.
+     */
+    public ContractFilterIndex withChanges(Collection<Long> changedIds, Map<Long, ContractListViewModel> loaded) {
+        List<ContractListViewModel> merged = new ArrayList<>(items.size() + loaded.size());
+        Map<Long, ContractListViewModel> remaining = new HashMap<>(loaded);
+        Set<Long> changed = new HashSet<>(changedIds);
+
+        for (ContractListViewModel item : items) {
+            Long id = item.getContractId();
+            if (!changed.contains(id)) {
+                merged.add(item);
+            } else if (remaining.containsKey(id)) {
+                merged.add(remaining.remove(id));
+            }
+        }
+        // Hợp đồng mới: getAllContracts sắp xếp mới nhất trước
+        List<ContractListViewModel> added = new ArrayList<>(remaining.values());
+        merged.addAll(0, added);
+        return new ContractFilterIndex(merged);
+    }
+
+    public List<ContractListViewModel> getAll() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Lọc theo tòa nhà / loại hợp đồng / từ khóa (tham số null hoặc rỗng = không lọc)
+     *
+     * @param contractType loại hiển thị ("Thuê" / "Sở hữu"), giống Contract.getContractTypeDisplay()
+     * @return kết quả theo thứ tự hiển thị
+     */
+    public List<ContractListViewModel> find(Long buildingId, String contractType, String keyword) {
+        BitSet candidates = new BitSet(items.size());
+        candidates.set(0, items.size());
+
+        if (buildingId != null && !intersect(candidates, byBuilding.get(buildingId))) {
+            return Collections.emptyList();
+        }
+        if (contractType != null && !intersect(candidates, byType.get(contractType))) {
+            return Collections.emptyList();
+        }
+
+        String folded = TextNormalizer.fold(keyword == null ? "" : keyword.trim());
+        if (!folded.isEmpty()) {
+            for (int g = 0; g + GRAM <= folded.length(); g++) {
+                if (!intersect(candidates, byTrigram.get(folded.substring(g, g + GRAM)))) {
+                    return Collections.emptyList();
+                }
+            }
+        }
+
+        List<ContractListViewModel> result = new ArrayList<>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            // Trigram chỉ là điều kiện cần (và không dùng được cho từ khóa < 3 ký tự)
+            if (folded.isEmpty() || searchTexts[i].contains(folded)) {
+                result.add(items.get(i));
+            }
+        }
+        return result;
+    }
+
+    private static boolean intersect(BitSet candidates, BitSet posting) {
+        if (posting == null) {
+            return false;
+        }
+        candidates.and(posting);
+        return !candidates.isEmpty();
+    }
+}
@@ -0,0 +1,140 @@
+package search;
+
+import model.Apartment;
+import model.ContractHouseholdViewModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Bộ lọc tab Cư Dân (ResidentManagementPanel) cho danh sách hộ của một tòa nhà
+ *
+ * - Bảng tra dựng 1 lần khi tải tòa nhà: số phòng → tầng, tầng → tập số phòng
+ *   (lọc theo tầng là 1 lần tra HashMap thay vì duyệt danh sách căn hộ cho từng hộ)
+ * - Từ khóa so với ContractHouseholdViewModel.getSearchKey() (đã bỏ dấu + chữ thường, cache trên model)
+ * - Thu hẹp dần: chỉ từ khóa thay đổi và từ khóa mới chứa từ khóa trước (gõ thêm ký tự)
+ *   -> chỉ lọc lại kết quả lần trước
+ *
+ * Không thread-safe: dùng trên EDT.
+ */
+public final class HouseholdFilterEngine {
+
+    private final List<ContractHouseholdViewModel> households;
+    private final Map<String, Long> roomToFloor = new HashMap<>();
+    private final Map<Long, Set<String>> floorToRooms = new HashMap<>();
+    private final Set<String> allRooms = new LinkedHashSet<>();
+
+    // Lần lọc trước (cho thu hẹp dần)
+    private Long lastFloorId;
+    private String lastRoom;
+    private String lastStatus;
+    private String lastKeyword;
+    private List<ContractHouseholdViewModel> lastResult;
+
+    /**
+     * @param households danh sách hộ theo thứ tự hiển thị
+     * @param apartments toàn bộ căn hộ của tòa nhà (thứ tự dùng cho dropdown căn hộ)
+     */
+    public HouseholdFilterEngine(List<ContractHouseholdViewModel> households, List<Apartment> apartments) {
+        this.households = households != null
+                ? Collections.unmodifiableList(new ArrayList<>(households))
+                : Collections.emptyList();
+
+        if (apartments != null) {
+            for (Apartment apt : apartments) {
+                if (apt.getRoomNumber() == null) {
+                    continue;
+                }
+                allRooms.add(apt.getRoomNumber());
+                if (apt.getFloorId() != null) {
+                    roomToFloor.put(apt.getRoomNumber(), apt.getFloorId());
+                    floorToRooms.computeIfAbsent(apt.getFloorId(), k -> new LinkedHashSet<>())
+                            .add(apt.getRoomNumber());
+                }
+            }
+        }
+    }
+
+    public List<ContractHouseholdViewModel> getAll() {
+        return households;
+    }
+
+    public int size() {
+        return households.size();
+    }
+
+    /**
+     * @param floorId null = tất cả các tầng
+     * @return số phòng của tầng (hoặc cả tòa nhà) theo thứ tự căn hộ
+     */
+    public Set<String> getRooms(Long floorId) {
+        if (floorId == null) {
+            return Collections.unmodifiableSet(allRooms);
+        }
+        Set<String> rooms = floorToRooms.get(floorId);
+        return rooms != null ? Collections.unmodifiableSet(rooms) : Collections.emptySet();
+    }
+
+    /**
+     * @return id tầng của phòng, null nếu không biết
+     */
+    public Long getFloorOfRoom(String roomNumber) {
+        return roomNumber != null ? roomToFloor.get(roomNumber) : null;
+    }
+
+    /**
+     * Lọc danh sách hộ (tham số null hoặc rỗng = không lọc)
+     *
+     * @param floorId         id tầng
+     * @param roomNumber      số phòng
+     * @param residencyStatus "Đang ở" / "Đã chuyển đi", giống ContractHouseholdViewModel.getResidencyStatus()
+     * @param keyword         từ khóa thô (tên, SĐT, căn hộ), có dấu hay không đều được
+     * @return kết quả theo thứ tự hiển thị
+     */
+    public List<ContractHouseholdViewModel> filter(Long floorId, String roomNumber,
+                                                   String residencyStatus, String keyword) {
+        String folded = TextNormalizer.fold(keyword == null ? "" : keyword.trim());
+
+        List<ContractHouseholdViewModel> source = households;
+        if (lastResult != null
+                && Objects.equals(floorId, lastFloorId)
+                && Objects.equals(roomNumber, lastRoom)
+                && Objects.equals(residencyStatus, lastStatus)
+                && folded.contains(lastKeyword)) {
+            if (folded.equals(lastKeyword)) {
+                return lastResult;
+            }
+            source = lastResult;
+        }
+
+        List<ContractHouseholdViewModel> result = new ArrayList<>();
+        for (ContractHouseholdViewModel c : source) {
+            if (residencyStatus != null && !residencyStatus.equals(c.getResidencyStatus())) {
+                continue;
+            }
+            if (floorId != null && !floorId.equals(getFloorOfRoom(c.getApartmentNumber()))) {
+                continue;
+            }
+            if (roomNumber != null && !roomNumber.equals(c.getApartmentNumber())) {
+                continue;
+            }
+            if (!folded.isEmpty() && !c.getSearchKey().contains(folded)) {
+                continue;
+            }
+            result.add(c);
+        }
+
+        lastFloorId = floorId;
+        lastRoom = roomNumber;
+        lastStatus = residencyStatus;
+        lastKeyword = folded;
+        lastResult = Collections.unmodifiableList(result);
+        return lastResult;
+    }
+}
@@ -0,0 +1,596 @@
+package search;
+
+import model.HouseholdMember;
+import model.Resident;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Chỉ mục tìm kiếm cư dân (Singleton): chủ hộ (residents) + thành viên (household_members)
+ *
+ * - Tên / SĐT / CCCD được chuẩn hóa bằng TextNormalizer ("nguyen" khớp "Nguyễn")
+ * - Posting tiền tố (tối đa 7 ký tự đầu của từ trong tên, 4 số đầu SĐT / CCCD) cho gõ tới đâu
+ *   gợi ý tới đó, từ khóa dài hơn lọc lại bằng startsWith; posting trigram cho từ khóa nằm giữa từ
+ *   (vd. 4 số cuối SĐT)
+ * - Nhiều từ khóa: người phải khớp tất cả; xếp hạng trùng khớp > tiền tố > chuỗi con, trả top-K.
+ *   Điểm tính từ BitSet của từng từ khóa, doc xếp sẵn theo tên nên điểm bằng nhau không cần so chuỗi
+ * - DAO gọi on*Saved / on*Deleted sau khi ghi thành công (cập nhật tăng dần, không nạp lại);
+ *   thay đổi từ máy khác được nhận khi nạp lại sau RELOAD_INTERVAL_MS
+ *
+ * Nạp lần đầu qua ensureLoaded() (ResidentDAO.getSearchIndex()), gọi ngoài EDT.
+ */
+public final class ResidentSearchIndex {
+
+    public static final String RESIDENT = "RESIDENT";
+    public static final String MEMBER = "MEMBER";
+
+    private static final int GRAM = 3;
+    // Từ trong tên ít giá trị khác nhau -> posting tiền tố dài được;
+    // SĐT / CCCD gần như duy nhất sau vài số đầu -> không đáng một posting riêng
+    private static final int MAX_NAME_PREFIX = 7;
+    private static final int MAX_NUMBER_PREFIX = 4;
+    private static final long RELOAD_INTERVAL_MS = 5 * 60_000;
+    // Số bản ghi đã bị thay thế / xóa tối thiểu trước khi dựng lại posting
+    private static final int COMPACT_MIN_DEAD = 1_000;
+
+    private static ResidentSearchIndex instance;
+
+    /**
+     * Một người trong chỉ mục (chủ hộ hoặc thành viên)
+     */
+    public static class Person {
+        private final String type;
+        private final long id;
+        private final String fullName;
+        private final String phone;
+        private final String identityCard;
+        private final Long contractId;   // Chỉ có với thành viên
+        private final boolean active;
+
+        Person(String type, long id, String fullName, String phone, String identityCard,
+               Long contractId, boolean active) {
+            this.type = type;
+            this.id = id;
+            this.fullName = fullName;
+            this.phone = phone;
+            this.identityCard = identityCard;
+            this.contractId = contractId;
+            this.active = active;
+        }
+
+        static Person of(Resident resident) {
+            return new Person(RESIDENT, resident.getId(), resident.getFullName(), resident.getPhone(),
+                    resident.getIdentityCard(), null, true);
+        }
+
+        static Person of(HouseholdMember member) {
+            return new Person(MEMBER, member.getId(), member.getFullName(), member.getPhone(),
+                    member.getIdentityCard(), member.getContractId(), member.isActive());
+        }
+
+        Person withActive(boolean value) {
+            return new Person(type, id, fullName, phone, identityCard, contractId, value);
+        }
+
+        public String getType() { return type; }
+        public long getId() { return id; }
+        public String getFullName() { return fullName; }
+        public String getPhone() { return phone; }
+        public String getIdentityCard() { return identityCard; }
+        public Long getContractId() { return contractId; }
+        public boolean isActive() { return active; }
+        public boolean isResident() { return RESIDENT.equals(type); }
+    }
+
+    /**
+     * Kết quả tìm kiếm: người + điểm (cao hơn = khớp tốt hơn)
+     */
+    public static class Hit {
+        private final Person person;
+        private final int score;
+        private final int docId;
+
+        Hit(Person person, int score, int docId) {
+            this.person = person;
+            this.score = score;
+            this.docId = docId;
+        }
+
+        public Person getPerson() { return person; }
+        public int getScore() { return score; }
+    }
+
+    private static class Doc {
+        final Person person;
+        final String name;       // Tên đã chuẩn hóa
+        final String[] tokens;   // Các từ của tên + SĐT + CCCD
+        final int nameWords;     // tokens[0..nameWords) là từ của tên
+        final String text;       // "tên\nsđt\ncccd" để kiểm tra chuỗi con
+
+        Doc(Person person) {
+            this.person = person;
+            this.name = TextNormalizer.fold(person.fullName).trim();
+            String phone = compact(person.phone);
+            String card = compact(person.identityCard);
+
+            List<String> words = new ArrayList<>();
+            for (String word : name.split("\\s+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+            this.nameWords = words.size();
+            if (!phone.isEmpty()) {
+                words.add(phone);
+            }
+            if (!card.isEmpty()) {
+                words.add(card);
+            }
+            this.tokens = words.toArray(new String[0]);
+            this.text = name + "\n" + phone + "\n" + card;
+        }
+    }
+
+    /**
+     * Mảng int tự giãn (posting list, doc id tăng dần vì doc chỉ được thêm vào cuối)
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        boolean endsWith(int value) {
+            return size > 0 && values[size - 1] == value;
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object loadLock = new Object();
+
+    // Chỉ truy cập khi giữ lock
+    private final List<Doc> docs = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final Map<Long, Integer> residentDocs = new HashMap<>();
+    private final Map<Long, Integer> memberDocs = new HashMap<>();
+    private final Map<String, IntList> prefixPostings = new HashMap<>();
+    private final Map<String, IntList> trigramPostings = new HashMap<>();
+    // Từ của tên (ít giá trị khác nhau) -> doc, để chấm điểm "trùng cả từ"
+    private final Map<String, IntList> wordPostings = new HashMap<>();
+    private final BitSet inactive = new BitSet();
+    private int deadCount = 0;
+
+    private volatile long loadedAt = -1;
+    // Tăng mỗi lần DAO ghi: ghi trong lúc đang nạp -> dữ liệu nạp có thể đã cũ
+    private volatile long modCount = 0;
+
+    private ResidentSearchIndex() {
+    }
+
+    public static synchronized ResidentSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new ResidentSearchIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Nạp chỉ mục nếu chưa có hoặc đã quá RELOAD_INTERVAL_MS (loader chạy ngoài write lock)
+     */
+    public ResidentSearchIndex ensureLoaded(Supplier<List<Resident>> residents,
+                                            Supplier<List<HouseholdMember>> members) {
+        if (isFresh()) {
+            return this;
+        }
+        synchronized (loadLock) {
+            if (isFresh()) {
+                return this;
+            }
+            long startMod = modCount;
+            long start = System.currentTimeMillis();
+
+            List<Person> people = new ArrayList<>();
+            for (Resident resident : residents.get()) {
+                people.add(Person.of(resident));
+            }
+            for (HouseholdMember member : members.get()) {
+                people.add(Person.of(member));
+            }
+
+            lock.writeLock().lock();
+            try {
+                rebuild(people);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            // Có ghi trong lúc nạp: vẫn dùng, nhưng nạp lại ở lần tìm kiếm sau
+            loadedAt = modCount == startMod ? System.currentTimeMillis() : 0;
+            System.out.println("ℹ️ Resident search index: " + people.size() + " people in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return this;
+    }
+
+    private boolean isFresh() {
+        return loadedAt >= 0 && System.currentTimeMillis() - loadedAt < RELOAD_INTERVAL_MS;
+    }
+
+    public boolean isLoaded() {
+        return loadedAt >= 0;
+    }
+
+    /**
+     * Bắt buộc nạp lại ở lần ensureLoaded() tiếp theo
+     */
+    public void invalidate() {
+        loadedAt = loadedAt >= 0 ? 0 : -1;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ===== CẬP NHẬT TĂNG DẦN (gọi từ DAO sau khi ghi thành công) =====
+
+    public void onResidentSaved(Resident resident) {
+        if (resident != null && resident.getId() != null) {
+            upsert(Person.of(resident));
+        }
+    }
+
+    public void onResidentDeleted(Long residentId) {
+        remove(RESIDENT, residentId);
+    }
+
+    public void onMemberSaved(HouseholdMember member) {
+        if (member != null && member.getId() != null) {
+            upsert(Person.of(member));
+        }
+    }
+
+    public void onMemberInactive(Long memberId) {
+        modCount++;
+        if (!isLoaded() || memberId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer doc = memberDocs.get(memberId);
+            if (doc != null) {
+                put(docs.get(doc).person.withActive(false));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onMemberDeleted(Long memberId) {
+        remove(MEMBER, memberId);
+    }
+
+    private void upsert(Person person) {
+        modCount++;
+        if (!isLoaded()) {
+            return; // Chưa nạp: lần nạp đầu sẽ đọc dữ liệu mới
+        }
+        lock.writeLock().lock();
+        try {
+            put(person);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String type, Long id) {
+        modCount++;
+        if (!isLoaded() || id == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer doc = docsOf(type).remove(id);
+            if (doc != null) {
+                live.clear(doc);
+                deadCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ===== TÌM KIẾM =====
+
+    /**
+     * Tìm theo tên / SĐT / CCCD, không phân biệt dấu và hoa thường
+     *
+     * @param query từ khóa (nhiều từ = phải khớp tất cả)
+     * @param limit số kết quả tối đa (top-K theo điểm), Integer.MAX_VALUE = tất cả
+     * @return kết quả tốt nhất trước, rỗng nếu query rỗng
+     */
+    public List<Hit> search(String query, int limit) {
+        String folded = TextNormalizer.fold(query).trim();
+        if (folded.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        String[] terms = folded.split("\\s+");
+        String compacted = compact(folded);
+
+        lock.readLock().lock();
+        try {
+            TermMatch[] matches = new TermMatch[terms.length];
+            BitSet candidates = null;
+            for (int t = 0; t < terms.length; t++) {
+                matches[t] = match(terms[t]);
+                if (candidates == null) {
+                    candidates = (BitSet) matches[t].all.clone();
+                } else {
+                    candidates.and(matches[t].all);
+                }
+                if (candidates.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            candidates.and(live);
+            BitSet sameName = sameName(terms, matches, folded);
+
+            // Min-heap giữ K kết quả tốt nhất; cùng điểm thì doc id nhỏ hơn (tên đứng trước) tốt hơn
+            Comparator<Hit> worstFirst = Comparator.<Hit>comparingInt(h -> h.score)
+                    .thenComparing(h -> h.docId, Comparator.reverseOrder());
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.min(limit, candidates.cardinality()) + 1, worstFirst);
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                int score = score(i, matches, sameName, compacted);
+                // Duyệt theo doc id tăng dần: bằng điểm với phần tử kém nhất thì không hơn được
+                if (top.size() == limit && score <= top.peek().score) {
+                    continue;
+                }
+                top.offer(new Hit(docs.get(i).person, score, i));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+
+            List<Hit> result = new ArrayList<>(top);
+            result.sort(worstFirst.reversed());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Các doc khớp một từ khóa: exact = trùng cả từ, prefix = có từ bắt đầu bằng term,
+     * all = prefix + chứa term ở giữa từ (term ≥ 3 ký tự)
+     */
+    private static class TermMatch {
+        final BitSet exact = new BitSet();
+        final BitSet prefix = new BitSet();
+        final BitSet all = new BitSet();
+    }
+
+    private TermMatch match(String term) {
+        TermMatch match = new TermMatch();
+
+        int maxPrefix = prefixLimit(term);
+        if (term.length() <= maxPrefix) {
+            addAll(match.prefix, prefixPostings.get(term));
+            addAll(match.exact, wordPostings.get(term));
+        } else {
+            IntList posting = prefixPostings.get(term.substring(0, maxPrefix));
+            if (posting != null) {
+                for (int i = 0; i < posting.size; i++) {
+                    Doc doc = docs.get(posting.values[i]);
+                    for (String token : doc.tokens) {
+                        if (token.startsWith(term)) {
+                            match.prefix.set(posting.values[i]);
+                            if (token.length() == term.length()) {
+                                match.exact.set(posting.values[i]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        match.all.or(match.prefix);
+
+        if (term.length() >= GRAM) {
+            BitSet grams = null;
+            for (int g = 0; g + GRAM <= term.length(); g++) {
+                BitSet bits = new BitSet();
+                addAll(bits, trigramPostings.get(term.substring(g, g + GRAM)));
+                if (grams == null) {
+                    grams = bits;
+                } else {
+                    grams.and(bits);
+                }
+                if (grams.isEmpty()) {
+                    return match;
+                }
+            }
+            // Trigram chỉ là điều kiện cần: kiểm tra lại các doc chưa khớp tiền tố
+            grams.andNot(match.prefix);
+            for (int i = grams.nextSetBit(0); i >= 0; i = grams.nextSetBit(i + 1)) {
+                if (docs.get(i).text.contains(term)) {
+                    match.all.set(i);
+                }
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Mỗi từ khóa: trùng cả từ 4, tiền tố của từ 3, chuỗi con 1.
+     * Cộng thêm khi cả query trùng tên / SĐT / CCCD; người đã rời đi xếp sau.
+     */
+    private int score(int docId, TermMatch[] matches, BitSet sameName, String compacted) {
+        int score = 0;
+        for (TermMatch match : matches) {
+            score += match.exact.get(docId) ? 4 : match.prefix.get(docId) ? 3 : 1;
+        }
+
+        if (sameName.get(docId)) {
+            score += 10;
+        } else if (compacted.length() >= 6) {
+            // Query dài như SĐT / CCCD -> ít ứng viên, so chuỗi được
+            Doc doc = docs.get(docId);
+            for (int t = doc.nameWords; t < doc.tokens.length; t++) {
+                if (doc.tokens[t].equals(compacted)) {
+                    score += 10;   // SĐT / CCCD đầy đủ
+                    break;
+                }
+            }
+        }
+        if (inactive.get(docId)) {
+            score -= 2;
+        }
+        return score;
+    }
+
+    /**
+     * Doc có họ tên trùng cả query (điểm cộng). Giao các posting "trùng cả từ" trước,
+     * chỉ so chuỗi trên phần còn lại; 1 từ khóa thì không thể là cả họ tên.
+     */
+    private BitSet sameName(String[] terms, TermMatch[] matches, String folded) {
+        BitSet result = new BitSet();
+        if (terms.length < 2) {
+            return result;
+        }
+        BitSet exact = (BitSet) matches[0].exact.clone();
+        for (int t = 1; t < matches.length; t++) {
+            exact.and(matches[t].exact);
+        }
+        for (int i = exact.nextSetBit(0); i >= 0; i = exact.nextSetBit(i + 1)) {
+            Doc doc = docs.get(i);
+            if (doc.nameWords == terms.length && doc.name.equals(folded)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    private static void addAll(BitSet bits, IntList posting) {
+        if (posting != null) {
+            for (int i = 0; i < posting.size; i++) {
+                bits.set(posting.values[i]);
+            }
+        }
+    }
+
+    // ===== DỰNG CHỈ MỤC (giữ write lock) =====
+
+    private void rebuild(List<Person> people) {
+        docs.clear();
+        live.clear();
+        inactive.clear();
+        residentDocs.clear();
+        memberDocs.clear();
+        prefixPostings.clear();
+        trigramPostings.clear();
+        wordPostings.clear();
+        deadCount = 0;
+
+        // Doc id theo thứ tự tên: kết quả cùng điểm ra theo ABC mà không cần so chuỗi
+        List<Doc> sorted = new ArrayList<>(people.size());
+        for (Person person : people) {
+            sorted.add(new Doc(person));
+        }
+        sorted.sort(Comparator.comparing((Doc d) -> d.name).thenComparingLong(d -> d.person.id));
+        for (Doc doc : sorted) {
+            add(doc);
+        }
+    }
+
+    private void put(Person person) {
+        Integer previous = docsOf(person.type).get(person.id);
+        if (previous != null) {
+            live.clear(previous);
+            deadCount++;
+        }
+        add(new Doc(person));
+
+        // Quá nhiều doc cũ (đã sửa / xóa): dựng lại để posting không phình mãi
+        if (deadCount >= COMPACT_MIN_DEAD && deadCount > live.cardinality()) {
+            List<Person> current = new ArrayList<>();
+            for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i + 1)) {
+                current.add(docs.get(i).person);
+            }
+            rebuild(current);
+        }
+    }
+
+    private void add(Doc doc) {
+        int docId = docs.size();
+        docs.add(doc);
+        live.set(docId);
+        if (!doc.person.active) {
+            inactive.set(docId);
+        }
+        docsOf(doc.person.type).put(doc.person.id, docId);
+
+        // Doc id luôn lớn nhất -> trùng lặp trong cùng doc chỉ cần so phần tử cuối
+        for (int t = 0; t < doc.tokens.length; t++) {
+            String token = doc.tokens[t];
+            for (int len = 1; len <= Math.min(prefixLimit(token), token.length()); len++) {
+                addPosting(prefixPostings, token.substring(0, len), docId);
+            }
+            for (int g = 0; g + GRAM <= token.length(); g++) {
+                addPosting(trigramPostings, token.substring(g, g + GRAM), docId);
+            }
+            if (t < doc.nameWords) {
+                addPosting(wordPostings, token, docId);
+            }
+        }
+    }
+
+    private static void addPosting(Map<String, IntList> postings, String key, int docId) {
+        IntList posting = postings.computeIfAbsent(key, k -> new IntList());
+        if (!posting.endsWith(docId)) {
+            posting.add(docId);
+        }
+    }
+
+    private static int prefixLimit(String token) {
+        return Character.isDigit(token.charAt(0)) ? MAX_NUMBER_PREFIX : MAX_NAME_PREFIX;
+    }
+
+    private Map<Long, Integer> docsOf(String type) {
+        return RESIDENT.equals(type) ? residentDocs : memberDocs;
+    }
+
+    /**
+     * SĐT / CCCD: bỏ khoảng trắng, dấu chấm, gạch ("090.123-4567" -> "0901234567")
+     */
+    private static String compact(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (Character.isLetterOrDigit(ch)) {
+                sb.append(Character.toLowerCase(ch));
+            }
+        }
+        return sb.toString();
+    }
+}
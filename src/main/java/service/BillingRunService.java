@@ -0,0 +1,317 @@
+package service;
+
+import connection.Db_connection;
+import dao.ContractDAO;
+import dao.ContractServiceDAO;
+import dao.InvoiceDAO;
+import dao.ServiceUsageDAO;
+import model.Contract;
+import model.ContractService;
+import model.Invoice;
+import model.InvoiceDetail;
+import model.ServiceUsage;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Billing Run Service
+ * Tạo hóa đơn hàng loạt cho một kỳ (tháng/năm), thay cho việc lập từng hóa đơn qua InvoiceFormDialog.
+ *
+ * - Mỗi hợp đồng ACTIVE: tiền thuê (hợp đồng RENTAL) + các dịch vụ của hợp đồng (contract_services)
+ * - Số lượng dịch vụ lấy từ chỉ số trong kỳ (service_usage, xem MeterReadingImporter) nếu có, ngược lại là 1
+ * - Ghi invoices + invoice_details bằng JDBC batch, mỗi nhóm CHUNK_SIZE hợp đồng một transaction
+ * - Idempotent: hợp đồng đã có hóa đơn (chưa hủy) trong kỳ được bỏ qua, chạy lại không tạo trùng
+ * - Báo cáo số hợp đồng/giây và thời gian từng nhóm
+ *
+ * Chạy: java -cp ... service.BillingRunService <month> <year> [buildingId]
+ */
+public class BillingRunService {
+
+    public static final int DEFAULT_CHUNK_SIZE = 200;
+
+    // Giống dòng tiền thuê do InvoiceFormDialog tạo
+    private static final String RENT_SERVICE_NAME = "Tiền thuê nhà";
+
+    private final ContractDAO contractDAO;
+    private final ContractServiceDAO contractServiceDAO;
+    private final InvoiceDAO invoiceDAO;
+    private final ServiceUsageDAO serviceUsageDAO;
+    private final int chunkSize;
+
+    public BillingRunService() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public BillingRunService(int chunkSize) {
+        this.contractDAO = new ContractDAO();
+        this.contractServiceDAO = new ContractServiceDAO();
+        this.invoiceDAO = new InvoiceDAO();
+        this.serviceUsageDAO = new ServiceUsageDAO();
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Tạo hóa đơn cho tất cả hợp đồng ACTIVE trong kỳ
+     *
+     * @param buildingId null = tất cả tòa nhà
+     */
+    public BillingRunResult run(int month, int year, Long buildingId) {
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("Invalid month: " + month);
+        }
+
+        BillingRunResult result = new BillingRunResult(month, year, buildingId);
+        long start = System.nanoTime();
+
+        // 1. Hợp đồng ACTIVE + hợp đồng đã có hóa đơn trong kỳ (2 query)
+        List<Contract> contracts = contractDAO.getActiveContracts(buildingId);
+        Set<Long> billed = invoiceDAO.getBilledContractIds(month, year);
+        result.activeContracts = contracts.size();
+
+        LocalDate periodStart = LocalDate.of(year, month, 1);
+        LocalDate periodEnd = periodStart.plusMonths(1).minusDays(1);
+
+        List<Contract> pending = new ArrayList<>();
+        for (Contract contract : contracts) {
+            if (billed.contains(contract.getId())) {
+                result.skippedAlreadyBilled++;
+            } else if (!isInPeriod(contract, periodStart, periodEnd)) {
+                result.skippedOutOfPeriod++;
+            } else {
+                pending.add(contract);
+            }
+        }
+
+        // 2. Dịch vụ + chỉ số trong kỳ của tất cả hợp đồng cần lập hóa đơn (mỗi loại 1 query / 500 hợp đồng)
+        List<Long> pendingIds = new ArrayList<>();
+        for (Contract contract : pending) {
+            pendingIds.add(contract.getId());
+        }
+        Map<Long, List<ContractService>> servicesByContract =
+                contractServiceDAO.getActiveServicesByContractIds(pendingIds);
+        Map<Long, Map<Long, ServiceUsage>> usageByContract =
+                serviceUsageDAO.getUsageByContractIds(pendingIds, month, year);
+
+        // 3. Tính hóa đơn + ghi theo từng nhóm
+        List<Invoice> chunk = new ArrayList<>();
+        Map<Long, List<InvoiceDetail>> chunkDetails = new HashMap<>();
+
+        for (Contract contract : pending) {
+            List<InvoiceDetail> details = buildDetails(contract, servicesByContract.get(contract.getId()),
+                    usageByContract.get(contract.getId()), result);
+            if (details.isEmpty()) {
+                result.skippedEmpty++;
+                continue;
+            }
+
+            chunk.add(buildInvoice(contract, month, year, details));
+            chunkDetails.put(contract.getId(), details);
+
+            if (chunk.size() >= chunkSize) {
+                writeChunk(chunk, chunkDetails, result);
+                chunk = new ArrayList<>();
+                chunkDetails = new HashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, chunkDetails, result);
+        }
+
+        result.totalNanos = System.nanoTime() - start;
+        System.out.println((result.failed == 0 ? "✅ " : "⚠️ ") + result);
+        return result;
+    }
+
+    private void writeChunk(List<Invoice> chunk, Map<Long, List<InvoiceDetail>> details, BillingRunResult result) {
+        long start = System.nanoTime();
+        int created = invoiceDAO.insertInvoicesBatch(chunk, details);
+        long elapsed = System.nanoTime() - start;
+
+        ChunkTiming timing = new ChunkTiming(result.chunks.size() + 1, chunk.size(), Math.max(created, 0), elapsed);
+        result.chunks.add(timing);
+
+        if (created < 0) {
+            result.failed += chunk.size();
+            System.err.println("❌ Billing chunk #" + timing.index + " failed, rolled back (" + chunk.size() + " contracts)");
+        } else {
+            result.created += created;
+            // Hợp đồng được lập hóa đơn bởi người khác trong lúc chạy
+            result.skippedAlreadyBilled += chunk.size() - created;
+            for (Invoice invoice : chunk) {
+                if (invoice.getId() != null) {
+                    result.totalAmount = result.totalAmount.add(invoice.getTotalAmount());
+                }
+            }
+        }
+    }
+
+    /**
+     * Dòng chi tiết: tiền thuê (hợp đồng thuê) + dịch vụ có đơn giá > 0,
+     * số lượng = tiêu thụ trong kỳ nếu đã nhập chỉ số, ngược lại 1
+     */
+    private List<InvoiceDetail> buildDetails(Contract contract, List<ContractService> services,
+                                             Map<Long, ServiceUsage> usages, BillingRunResult result) {
+        List<InvoiceDetail> details = new ArrayList<>();
+
+        BigDecimal rent = contract.getMonthlyRent();
+        if (contract.isRental() && rent != null && rent.compareTo(BigDecimal.ZERO) > 0) {
+            details.add(buildDetail(RENT_SERVICE_NAME, rent, 1.0));
+        }
+
+        if (services != null) {
+            for (ContractService cs : services) {
+                BigDecimal price = cs.getUnitPrice();
+                if (price == null || price.compareTo(BigDecimal.ZERO) <= 0) {
+                    continue;
+                }
+
+                ServiceUsage usage = usages != null ? usages.get(cs.getServiceId()) : null;
+                if (usage == null || usage.getActualUsage() == null) {
+                    details.add(buildDetail(cs.getServiceName(), price, 1.0));
+                } else if (usage.getActualUsage() > 0) {
+                    details.add(buildDetail(cs.getServiceName(), price, usage.getActualUsage()));
+                    result.meteredLines++;
+                }
+            }
+        }
+        return details;
+    }
+
+    private InvoiceDetail buildDetail(String name, BigDecimal unitPrice, double quantity) {
+        InvoiceDetail d = new InvoiceDetail();
+        d.setServiceName(name);
+        d.setUnitPrice(unitPrice);
+        d.setQuantity(quantity);
+        // VNĐ: làm tròn tới đồng (số lượng theo chỉ số có phần lẻ)
+        d.setAmount(unitPrice.multiply(BigDecimal.valueOf(quantity)).setScale(0, RoundingMode.HALF_UP));
+        return d;
+    }
+
+    private Invoice buildInvoice(Contract contract, int month, int year, List<InvoiceDetail> details) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (InvoiceDetail d : details) {
+            total = total.add(d.getAmount());
+        }
+
+        Invoice invoice = new Invoice();
+        invoice.setContractId(contract.getId());
+        invoice.setMonth(month);
+        invoice.setYear(year);
+        invoice.setTotalAmount(total);
+        invoice.setStatus("UNPAID");
+        return invoice;
+    }
+
+    /**
+     * Hợp đồng có hiệu lực trong kỳ: bắt đầu trước cuối kỳ và (nếu có) kết thúc sau đầu kỳ
+     */
+    private boolean isInPeriod(Contract contract, LocalDate periodStart, LocalDate periodEnd) {
+        if (contract.getStartDate() != null && toLocalDate(contract.getStartDate()).isAfter(periodEnd)) {
+            return false;
+        }
+        return contract.getEndDate() == null || !toLocalDate(contract.getEndDate()).isBefore(periodStart);
+    }
+
+    private LocalDate toLocalDate(java.util.Date date) {
+        if (date instanceof java.sql.Date) {
+            return ((java.sql.Date) date).toLocalDate();
+        }
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    // ===== RESULT =====
+
+    /**
+     * Thời gian ghi một nhóm hóa đơn
+     */
+    public static class ChunkTiming {
+        public final int index;
+        public final int contracts;
+        public final int created;
+        public final long nanos;
+
+        ChunkTiming(int index, int contracts, int created, long nanos) {
+            this.index = index;
+            this.contracts = contracts;
+            this.created = created;
+            this.nanos = nanos;
+        }
+
+        public double getMillis() {
+            return nanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("chunk #%d: %d contracts, %d created, %.1f ms", index, contracts, created, getMillis());
+        }
+    }
+
+    /**
+     * Kết quả một lần chạy
+     */
+    public static class BillingRunResult {
+        public final int month;
+        public final int year;
+        public final Long buildingId;
+        public int activeContracts = 0;
+        public int created = 0;
+        public int skippedAlreadyBilled = 0;
+        public int skippedOutOfPeriod = 0;
+        public int skippedEmpty = 0;      // Không có tiền thuê lẫn dịch vụ
+        public int failed = 0;
+        public int meteredLines = 0;      // Dòng dịch vụ tính theo chỉ số
+        public BigDecimal totalAmount = BigDecimal.ZERO;
+        public long totalNanos = 0;
+        public final List<ChunkTiming> chunks = new ArrayList<>();
+
+        BillingRunResult(int month, int year, Long buildingId) {
+            this.month = month;
+            this.year = year;
+            this.buildingId = buildingId;
+        }
+
+        public double getTotalMillis() {
+            return totalNanos / 1_000_000.0;
+        }
+
+        // Số hợp đồng ACTIVE được xử lý mỗi giây (kể cả hợp đồng bỏ qua)
+        public double getContractsPerSecond() {
+            return totalNanos == 0 ? 0 : activeContracts / (totalNanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Billing run %02d/%d%s: %d active, %d created, %d already billed, "
+                    + "%d out of period, %d empty, %d failed, %d metered lines in %.1f ms (%.0f contracts/s, %d chunks)",
+                    month, year, buildingId != null ? " (building " + buildingId + ")" : "",
+                    activeContracts, created, skippedAlreadyBilled, skippedOutOfPeriod, skippedEmpty, failed, meteredLines,
+                    getTotalMillis(), getContractsPerSecond(), chunks.size());
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java -cp ... service.BillingRunService <month> <year> [buildingId]");
+            return;
+        }
+        int month = Integer.parseInt(args[0]);
+        int year = Integer.parseInt(args[1]);
+        Long buildingId = args.length > 2 ? Long.valueOf(args[2]) : null;
+
+        BillingRunResult result = new BillingRunService().run(month, year, buildingId);
+        for (ChunkTiming chunk : result.chunks) {
+            System.out.println("  " + chunk);
+        }
+
+        Db_connection.shutdown();
+    }
+}
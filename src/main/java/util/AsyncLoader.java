@@ -0,0 +1,336 @@
+package util;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Async Loader
+ * Chạy các truy vấn DAO ngoài EDT rồi đổ kết quả lên giao diện trên EDT.
+ *
+ * - Executor dùng chung, giới hạn số load chạy đồng thời (virtual thread khi chạy trên Java 21+)
+ * - Mỗi AsyncLoader giữ một load hiện tại: load mới sẽ hủy load cũ
+ *   (giống FloorManagementPanel.currentWorker), kết quả của load cũ bị bỏ qua
+ * - Con trỏ chờ + loadingPlaceholder() để hiển thị trạng thái đang tải
+ * - Thống kê thời gian theo tên load: getStats()
+ *
+ * Dùng: mỗi panel tạo một AsyncLoader cho mỗi luồng dữ liệu, gọi load() từ EDT.
+ */
+public class AsyncLoader {
+
+    // Số load chạy đồng thời tối đa (< kích thước connection pool)
+    private static final int MAX_CONCURRENT_LOADS = 4;
+    // Số load được xếp hàng khi dùng platform thread
+    private static final int QUEUE_CAPACITY = 64;
+    // Load chậm hơn ngưỡng này được log ra console
+    private static final long SLOW_LOAD_MS = 500;
+
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static final Semaphore PERMITS = new Semaphore(MAX_CONCURRENT_LOADS);
+    private static final Map<String, Stats> STATS = new LinkedHashMap<>();
+
+    private final String name;
+    private final Component busyComponent;
+    private Task<?> current;   // Chỉ truy cập trên EDT
+
+    /**
+     * @param name          tên load (dùng cho thống kê và log)
+     * @param busyComponent component đổi sang con trỏ chờ khi đang tải (có thể null)
+     */
+    public AsyncLoader(String name, Component busyComponent) {
+        this.name = name;
+        this.busyComponent = busyComponent;
+    }
+
+    public AsyncLoader(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Chạy task ở background, gọi onSuccess trên EDT. Lỗi được in ra console.
+     */
+    public <T> void load(Callable<T> task, Consumer<T> onSuccess) {
+        load(task, onSuccess, e -> e.printStackTrace());
+    }
+
+    /**
+     * Chạy task ở background, gọi onSuccess / onError trên EDT.
+     * Load đang chạy trước đó của loader này bị hủy.
+     */
+    public <T> void load(Callable<T> task, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        cancel();
+
+        Task<T> newTask = new Task<>(task, onSuccess, onError);
+        current = newTask;
+        setBusy(true);
+
+        try {
+            newTask.future = EXECUTOR.submit(newTask::runInBackground);
+        } catch (RejectedExecutionException e) {
+            current = null;
+            setBusy(false);
+            stats().recordRejected();
+            onError.accept(e);
+        }
+    }
+
+    /**
+     * Hủy load đang chạy (nếu có)
+     */
+    public void cancel() {
+        Task<?> running = current;
+        if (running != null) {
+            current = null;
+            running.cancel();
+            stats().recordCancelled();
+            setBusy(false);
+        }
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void setBusy(boolean busy) {
+        if (busyComponent != null) {
+            busyComponent.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+        }
+    }
+
+    private Stats stats() {
+        synchronized (STATS) {
+            return STATS.computeIfAbsent(name, Stats::new);
+        }
+    }
+
+    /**
+     * Một lần load: chạy callable ở background rồi chuyển kết quả về EDT
+     * (luôn chuyển về EDT, kể cả khi lỗi hoặc bị interrupt)
+     */
+    private class Task<T> {
+
+        private final Callable<T> callable;
+        private final Consumer<T> onSuccess;
+        private final Consumer<Exception> onError;
+        private final long submittedAt = System.nanoTime();
+        private volatile boolean cancelled = false;
+        private volatile Future<?> future;
+
+        Task(Callable<T> callable, Consumer<T> onSuccess, Consumer<Exception> onError) {
+            this.callable = callable;
+            this.onSuccess = onSuccess;
+            this.onError = onError;
+        }
+
+        void cancel() {
+            cancelled = true;
+            Future<?> f = future;
+            if (f != null) {
+                // Không interrupt: thread có thể đang đọc socket của Connector/J, interrupt làm hỏng
+                // connection và Hikari phải bỏ nó khỏi pool. Load đang chạy được để chạy hết,
+                // kết quả bị bỏ qua nhờ cờ cancelled; load còn trong hàng đợi thì không chạy nữa
+                f.cancel(false);
+            }
+        }
+
+        void runInBackground() {
+            if (cancelled) return;
+
+            T result = null;
+            Exception error = null;
+            long startedAt = System.nanoTime();
+            try {
+                PERMITS.acquire();
+                try {
+                    startedAt = System.nanoTime();
+                    if (!cancelled) {
+                        result = callable.call();
+                    }
+                } finally {
+                    PERMITS.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = e;
+            } catch (Exception e) {
+                error = e;
+            } catch (Throwable t) {
+                // Error (OutOfMemoryError, NoClassDefFoundError...) vẫn phải về EDT:
+                // nếu không, current không bao giờ được xóa và isLoading() luôn true
+                error = new ExecutionException(t);
+            }
+
+            long queueNanos = startedAt - submittedAt;
+            long loadNanos = System.nanoTime() - startedAt;
+            T finalResult = result;
+            Exception finalError = error;
+
+            SwingUtilities.invokeLater(() -> deliver(finalResult, finalError, queueNanos, loadNanos));
+        }
+
+        private void deliver(T result, Exception error, long queueNanos, long loadNanos) {
+            // Load đã bị thay thế bởi load mới hơn -> bỏ qua kết quả
+            if (cancelled || AsyncLoader.this.current != this) return;
+
+            AsyncLoader.this.current = null;
+            setBusy(false);
+
+            long edtStart = System.nanoTime();
+            if (error != null) {
+                onError.accept(error);
+            } else {
+                onSuccess.accept(result);
+            }
+            long edtNanos = System.nanoTime() - edtStart;
+
+            stats().record(queueNanos, loadNanos, edtNanos, error != null);
+
+            long totalMs = TimeUnit.NANOSECONDS.toMillis(queueNanos + loadNanos + edtNanos);
+            if (totalMs > SLOW_LOAD_MS) {
+                System.out.println("⚠️ Slow load '" + name + "': " + totalMs + " ms (queue "
+                        + TimeUnit.NANOSECONDS.toMillis(queueNanos) + ", load "
+                        + TimeUnit.NANOSECONDS.toMillis(loadNanos) + ", EDT "
+                        + TimeUnit.NANOSECONDS.toMillis(edtNanos) + ")");
+            }
+        }
+    }
+
+    // ===== LOADING PLACEHOLDER =====
+
+    /**
+     * Panel "Đang tải..." đặt vào vùng nội dung trong lúc chờ dữ liệu
+     */
+    public static JComponent loadingPlaceholder(String message) {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setBackground(UIConstants.BACKGROUND_COLOR);
+
+        JPanel box = new JPanel();
+        box.setLayout(new BoxLayout(box, BoxLayout.Y_AXIS));
+        box.setOpaque(false);
+
+        JLabel label = new JLabel(message != null ? message : "Đang tải dữ liệu...");
+        label.setFont(new Font("Segoe UI", Font.ITALIC, 15));
+        label.setForeground(Color.GRAY);
+        label.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        JProgressBar progress = new JProgressBar();
+        progress.setIndeterminate(true);
+        progress.setPreferredSize(new Dimension(200, 6));
+        progress.setMaximumSize(new Dimension(200, 6));
+        progress.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        box.add(label);
+        box.add(Box.createVerticalStrut(10));
+        box.add(progress);
+        panel.add(box);
+        return panel;
+    }
+
+    // ===== METRICS =====
+
+    /**
+     * Thống kê thời gian của một loại load
+     */
+    public static class Stats {
+        private final String name;
+        private long count = 0;
+        private long errorCount = 0;
+        private long cancelledCount = 0;
+        private long rejectedCount = 0;
+        private long totalQueueNanos = 0;
+        private long totalLoadNanos = 0;
+        private long totalEdtNanos = 0;
+        private long maxTotalNanos = 0;
+        private long lastTotalNanos = 0;
+
+        Stats(String name) { this.name = name; }
+
+        synchronized void record(long queueNanos, long loadNanos, long edtNanos, boolean failed) {
+            count++;
+            if (failed) errorCount++;
+            totalQueueNanos += queueNanos;
+            totalLoadNanos += loadNanos;
+            totalEdtNanos += edtNanos;
+            lastTotalNanos = queueNanos + loadNanos + edtNanos;
+            maxTotalNanos = Math.max(maxTotalNanos, lastTotalNanos);
+        }
+
+        synchronized void recordCancelled() { cancelledCount++; }
+        synchronized void recordRejected() { rejectedCount++; }
+
+        public String getName() { return name; }
+        public synchronized long getCount() { return count; }
+        public synchronized long getErrorCount() { return errorCount; }
+        public synchronized long getCancelledCount() { return cancelledCount; }
+        public synchronized long getRejectedCount() { return rejectedCount; }
+        public synchronized double getAverageQueueMillis() { return avgMillis(totalQueueNanos); }
+        public synchronized double getAverageLoadMillis() { return avgMillis(totalLoadNanos); }
+        public synchronized double getAverageEdtMillis() { return avgMillis(totalEdtNanos); }
+        public synchronized double getMaxTotalMillis() { return maxTotalNanos / 1_000_000.0; }
+        public synchronized double getLastTotalMillis() { return lastTotalNanos / 1_000_000.0; }
+
+        private double avgMillis(long totalNanos) {
+            return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s: n=%d, avg queue=%.1fms, load=%.1fms, EDT=%.1fms, max=%.1fms, cancelled=%d, errors=%d",
+                    name, count, getAverageQueueMillis(), getAverageLoadMillis(), getAverageEdtMillis(),
+                    getMaxTotalMillis(), cancelledCount, errorCount);
+        }
+    }
+
+    /**
+     * Snapshot thống kê của tất cả các load
+     */
+    public static Map<String, Stats> getStats() {
+        synchronized (STATS) {
+            return new LinkedHashMap<>(STATS);
+        }
+    }
+
+    // ===== EXECUTOR =====
+
+    private static ExecutorService createExecutor() {
+        // Java 21+: mỗi load một virtual thread (PERMITS giới hạn số load chạy cùng lúc).
+        // Gọi qua reflection vì project biên dịch với release 11.
+        try {
+            Object executor = java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            return (ExecutorService) executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java < 21: dùng pool platform thread có giới hạn
+        }
+
+        AtomicInteger counter = new AtomicInteger(1);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_CONCURRENT_LOADS, MAX_CONCURRENT_LOADS,
+                30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "async-loader-" + counter.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
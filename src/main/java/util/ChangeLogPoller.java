@@ -0,0 +1,328 @@
+package util;
+
+import cache.ReferenceDataCache;
+import dao.BuildingDAO;
+import dao.ChangeLogDAO;
+import dao.ChangeLogDAO.ChangeEvent;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change Log Poller (Singleton)
+ * Mỗi client đọc bảng change_log vài giây một lần để nhận thay đổi từ các máy khác:
+ *
+ * - Xóa cache liên quan (ReferenceDataCache, thống kê tòa nhà) ngay trên thread poll
+ * - Gom các thay đổi của một lần poll thành ChangeSet, báo cho listener trên EDT
+ *   (màn hình đang mở chỉ tải lại đúng các dòng / thẻ bị ảnh hưởng)
+ * - Khi khởi động bắt đầu từ version mới nhất, không phát lại lịch sử
+ * - AUTO_INCREMENT cấp version lúc INSERT nhưng transaction có thể commit không theo thứ tự
+ *   (A lấy 101, B lấy 102, B commit trước): version bị nhảy qua được giữ trong openGaps và
+ *   đọc lại ở các lần poll sau tới khi xuất hiện hoặc quá GAP_TIMEOUT_MS (rollback / lỗ của
+ *   AUTO_INCREMENT không bao giờ được lấp)
+ *
+ * Chu kỳ poll: system property -Dchangelog.poll.ms (mặc định 3000 ms)
+ */
+public class ChangeLogPoller {
+
+    public static final String POLL_INTERVAL_PROPERTY = "changelog.poll.ms";
+    private static final long DEFAULT_POLL_INTERVAL_MS = 3_000;
+    private static final long MIN_POLL_INTERVAL_MS = 500;
+
+    private static final int BATCH_LIMIT = 1_000;
+    private static final long PURGE_INTERVAL_MS = 60 * 60_000;
+    private static final int RETENTION_HOURS = 24;
+
+    // Transaction ghi của app rất ngắn; lỗ quá thời gian này coi như rollback
+    private static final long GAP_TIMEOUT_MS = 60_000;
+    // Khoảng nhảy quá lớn (vd. xóa bảng / đổi auto_increment) thì không theo dõi từng version
+    private static final int MAX_OPEN_GAPS = 10_000;
+
+    private static ChangeLogPoller instance;
+
+    /**
+     * Nhận các thay đổi của một lần poll (gọi trên EDT)
+     */
+    public interface ChangeListener {
+        void onChanges(ChangeSet changes);
+    }
+
+    /**
+     * Các thay đổi gom theo entity. Id null = thay đổi hàng loạt của cả loại dữ liệu.
+     */
+    public static class ChangeSet {
+        private final Map<String, Set<Long>> idsByEntity = new LinkedHashMap<>();
+        private final Set<String> bulkEntities = new HashSet<>();
+
+        void add(ChangeEvent event) {
+            if (event.entityId == null) {
+                bulkEntities.add(event.entity);
+            } else {
+                idsByEntity.computeIfAbsent(event.entity, k -> new LinkedHashSet<>()).add(event.entityId);
+            }
+        }
+
+        public boolean isEmpty() {
+            return idsByEntity.isEmpty() && bulkEntities.isEmpty();
+        }
+
+        public boolean contains(String entity) {
+            return idsByEntity.containsKey(entity) || bulkEntities.contains(entity);
+        }
+
+        /**
+         * Cả loại dữ liệu bị thay đổi (không biết id cụ thể) -> nên tải lại toàn bộ
+         */
+        public boolean isBulk(String entity) {
+            return bulkEntities.contains(entity);
+        }
+
+        public Set<Long> getIds(String entity) {
+            Set<Long> ids = idsByEntity.get(entity);
+            return ids != null ? Collections.unmodifiableSet(ids) : Collections.emptySet();
+        }
+
+        @Override
+        public String toString() {
+            return "ChangeSet" + idsByEntity + (bulkEntities.isEmpty() ? "" : " bulk=" + bulkEntities);
+        }
+    }
+
+    private final ChangeLogDAO changeLogDAO = new ChangeLogDAO();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> pollTask;
+
+    // Ghi từ thread poll (start() đặt lại lastSeenVersion)
+    private volatile long lastSeenVersion = -1;
+    // Version nhỏ hơn lastSeenVersion chưa đọc được -> thời điểm phát hiện (chỉ dùng trên thread poll)
+    private final TreeMap<Long, Long> openGaps = new TreeMap<>();
+    private long lastPurgeAt = 0;
+    private boolean errorLogged = false;
+
+    private ChangeLogPoller() {
+    }
+
+    public static synchronized ChangeLogPoller getInstance() {
+        if (instance == null) {
+            instance = new ChangeLogPoller();
+        }
+        return instance;
+    }
+
+    /**
+     * Bắt đầu poll (gọi sau khi đăng nhập). Gọi lại khi đang chạy không có tác dụng.
+     */
+    public synchronized void start() {
+        if (pollTask != null) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "change-log-poller");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        long interval = getPollIntervalMillis();
+        lastSeenVersion = -1;
+        pollTask = scheduler.scheduleWithFixedDelay(this::pollSafely, 0, interval, TimeUnit.MILLISECONDS);
+        System.out.println("ℹ️ Change log polling every " + interval + " ms");
+    }
+
+    /**
+     * Dừng poll (đăng xuất)
+     */
+    public synchronized void stop() {
+        if (pollTask != null) {
+            pollTask.cancel(false);
+            pollTask = null;
+        }
+    }
+
+    public void addListener(ChangeListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            // Không để exception hủy lịch chạy của ScheduledExecutorService
+            e.printStackTrace();
+        }
+    }
+
+    private void poll() {
+        if (lastSeenVersion < 0) {
+            long latest = changeLogDAO.getLatestVersion();
+            if (latest < 0) {
+                logErrorOnce();
+                return;
+            }
+            lastSeenVersion = latest;
+            openGaps.clear();
+        }
+
+        ChangeSet changes = new ChangeSet();
+        readGaps(changes);
+
+        List<ChangeEvent> events;
+        do {
+            events = changeLogDAO.getChangesSince(lastSeenVersion, BATCH_LIMIT);
+            if (events == null) {
+                logErrorOnce();
+                break;
+            }
+            errorLogged = false;
+            for (ChangeEvent event : events) {
+                changes.add(event);
+                addGaps(lastSeenVersion + 1, event.version);
+                lastSeenVersion = event.version;
+            }
+        } while (events.size() == BATCH_LIMIT);
+
+        if (!changes.isEmpty()) {
+            invalidateCaches(changes);
+            dispatch(changes);
+        }
+
+        purgeIfDue();
+    }
+
+    /**
+     * Đọc lại các version bị nhảy qua ở lần poll trước (transaction commit muộn)
+     */
+    private void readGaps(ChangeSet changes) {
+        long now = System.currentTimeMillis();
+        openGaps.values().removeIf(foundAt -> now - foundAt > GAP_TIMEOUT_MS);
+        if (openGaps.isEmpty()) {
+            return;
+        }
+
+        List<ChangeEvent> late = changeLogDAO.getChangesByVersions(new ArrayList<>(openGaps.keySet()));
+        if (late == null) {
+            logErrorOnce();
+            return;
+        }
+        for (ChangeEvent event : late) {
+            changes.add(event);
+            openGaps.remove(event.version);
+        }
+    }
+
+    /**
+     * Ghi nhận các version trong [from, to) chưa thấy
+     */
+    private void addGaps(long from, long to) {
+        if (to - from > MAX_OPEN_GAPS) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (long v = from; v < to; v++) {
+            openGaps.put(v, now);
+        }
+        // Giữ giới hạn: bỏ lỗ cũ nhất
+        Iterator<Long> it = openGaps.keySet().iterator();
+        while (openGaps.size() > MAX_OPEN_GAPS && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private void invalidateCaches(ChangeSet changes) {
+        ReferenceDataCache cache = ReferenceDataCache.getInstance();
+
+        if (changes.contains(ChangeLogDAO.BUILDING)) {
+            cache.invalidateBuildings();
+        }
+        if (changes.contains(ChangeLogDAO.FLOOR)) {
+            cache.invalidateAllFloors();
+        }
+        if (changes.contains(ChangeLogDAO.SERVICE)) {
+            cache.invalidateServices();
+        }
+        if (changes.isBulk(ChangeLogDAO.APARTMENT)) {
+            cache.invalidateAllApartments();
+        } else {
+            for (Long id : changes.getIds(ChangeLogDAO.APARTMENT)) {
+                cache.invalidateApartment(id);
+            }
+        }
+
+        // Số tầng / căn hộ / tỷ lệ lấp đầy của tòa nhà
+        if (changes.contains(ChangeLogDAO.BUILDING) || changes.contains(ChangeLogDAO.FLOOR)
+                || changes.contains(ChangeLogDAO.APARTMENT) || changes.contains(ChangeLogDAO.CONTRACT)) {
+            BuildingDAO.invalidateStatsCache();
+        }
+    }
+
+    private void dispatch(ChangeSet changes) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            for (ChangeListener listener : listeners) {
+                try {
+                    listener.onChanges(changes);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    private void purgeIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurgeAt < PURGE_INTERVAL_MS) {
+            return;
+        }
+        lastPurgeAt = now;
+        int purged = changeLogDAO.purgeOlderThan(RETENTION_HOURS);
+        if (purged > 0) {
+            System.out.println("ℹ️ Purged " + purged + " change_log rows older than " + RETENTION_HOURS + "h");
+        }
+    }
+
+    private void logErrorOnce() {
+        if (!errorLogged) {
+            System.err.println("⚠️ Cannot read change_log, other machines' changes will show after cache TTL");
+            errorLogged = true;
+        }
+    }
+
+    private static long getPollIntervalMillis() {
+        String value = System.getProperty(POLL_INTERVAL_PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_POLL_INTERVAL_MS;
+        }
+        try {
+            return Math.max(MIN_POLL_INTERVAL_MS, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid " + POLL_INTERVAL_PROPERTY + " '" + value + "', using " + DEFAULT_POLL_INTERVAL_MS);
+            return DEFAULT_POLL_INTERVAL_MS;
+        }
+    }
+}
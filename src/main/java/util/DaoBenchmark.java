@@ -0,0 +1,165 @@
+package util;
+
+import cache.ReferenceDataCache;
+import connection.Db_connection;
+import connection.PerformanceProfile;
+import dao.*;
+
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * DAO Latency Benchmark
+ * Đo thời gian mỗi lần gọi của 10 DAO method được dùng nhiều nhất,
+ * chạy lần lượt với PerformanceProfile.DEFAULT và TUNED để so sánh.
+ *
+ * Các method đi qua ReferenceDataCache được đo 2 lần, tách nhãn:
+ * "(uncached)" xóa cache trước mỗi lần gọi (ngoài thời gian đo) -> đo đường DAO + DB thật,
+ * "(cached)" đo lần đọc trúng cache.
+ *
+ * Chạy: java -cp ... util.DaoBenchmark [warmup] [iterations]
+ */
+public class DaoBenchmark {
+
+    private static final int DEFAULT_WARMUP = 200;
+    private static final int DEFAULT_ITERATIONS = 2000;
+
+    /**
+     * Một method cần đo; setup chạy trước mỗi lần gọi và không tính vào thời gian
+     */
+    private static class BenchCase {
+        final Runnable setup;
+        final Runnable call;
+
+        BenchCase(Runnable setup, Runnable call) {
+            this.setup = setup;
+            this.call = call;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int warmup = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_WARMUP;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+
+        System.out.println("==============================================");
+        System.out.println("  DAO LATENCY BENCHMARK");
+        System.out.println("  warmup=" + warmup + ", iterations=" + iterations);
+        System.out.println("==============================================");
+
+        Map<String, double[]> before = runProfile(PerformanceProfile.DEFAULT, warmup, iterations);
+        Map<String, double[]> after = runProfile(PerformanceProfile.TUNED, warmup, iterations);
+
+        System.out.println();
+        System.out.printf("%-42s %12s %12s %12s %12s %8s%n",
+                "Method", "DEFAULT p50", "DEFAULT p95", "TUNED p50", "TUNED p95", "Speedup");
+        for (String name : before.keySet()) {
+            double[] b = before.get(name);
+            double[] a = after.get(name);
+            System.out.printf("%-42s %10.1fus %10.1fus %10.1fus %10.1fus %7.2fx%n",
+                    name, b[0], b[1], a[0], a[1], a[0] > 0 ? b[0] / a[0] : 0);
+        }
+
+        Db_connection.shutdown();
+    }
+
+    private static Map<String, double[]> runProfile(PerformanceProfile profile, int warmup, int iterations)
+            throws SQLException {
+        Db_connection.setPerformanceProfile(profile);
+        System.out.println();
+        System.out.println("▶ Profile " + profile);
+
+        Map<String, BenchCase> cases = buildCases();
+        Map<String, double[]> results = new LinkedHashMap<>();
+
+        for (Map.Entry<String, BenchCase> entry : cases.entrySet()) {
+            BenchCase bench = entry.getValue();
+            for (int i = 0; i < warmup; i++) {
+                bench.setup.run();
+                bench.call.run();
+            }
+
+            long[] samples = new long[iterations];
+            for (int i = 0; i < iterations; i++) {
+                bench.setup.run();
+                long start = System.nanoTime();
+                bench.call.run();
+                samples[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(samples);
+
+            double p50 = samples[iterations / 2] / 1000.0;
+            double p95 = samples[(int) (iterations * 0.95)] / 1000.0;
+            results.put(entry.getKey(), new double[]{p50, p95});
+            System.out.printf("  %-42s p50=%8.1fus  p95=%8.1fus%n", entry.getKey(), p50, p95);
+        }
+
+        System.out.println("  " + Db_connection.getPoolStats());
+        return results;
+    }
+
+    private static Map<String, BenchCase> buildCases() throws SQLException {
+        long contractId = 1, apartmentId = 1, residentId = 1, buildingId = 1, invoiceId = 1;
+
+        // Lấy ID mẫu từ dữ liệu thật
+        String sampleSql = "SELECT c.id, c.apartment_id, c.resident_id, f.building_id, "
+                + "(SELECT MAX(id) FROM invoices) AS invoice_id "
+                + "FROM contracts c JOIN apartments a ON c.apartment_id = a.id "
+                + "JOIN floors f ON a.floor_id = f.id WHERE c.is_deleted = 0 LIMIT 1";
+        try (Connection conn = Db_connection.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sampleSql)) {
+            if (rs.next()) {
+                contractId = rs.getLong(1);
+                apartmentId = rs.getLong(2);
+                residentId = rs.getLong(3);
+                buildingId = rs.getLong(4);
+                invoiceId = rs.getLong(5);
+            }
+        }
+
+        Calendar cal = Calendar.getInstance();
+        int month = cal.get(Calendar.MONTH) + 1;
+        int year = cal.get(Calendar.YEAR);
+
+        InvoiceDAO invoiceDAO = new InvoiceDAO();
+        ContractDAO contractDAO = new ContractDAO();
+        ApartmentDAO apartmentDAO = new ApartmentDAO();
+        ResidentDAO residentDAO = new ResidentDAO();
+        BuildingDAO buildingDAO = new BuildingDAO();
+        FloorDAO floorDAO = new FloorDAO();
+        ServiceDAO serviceDAO = new ServiceDAO();
+
+        final long cId = contractId, aId = apartmentId, rId = residentId, bId = buildingId, iId = invoiceId;
+
+        Map<String, BenchCase> cases = new LinkedHashMap<>();
+        addCase(cases, "InvoiceDAO.getMonthlyRevenue", () -> invoiceDAO.getMonthlyRevenue(month, year));
+        addCase(cases, "InvoiceDAO.getInvoicesByMonth", () -> invoiceDAO.getInvoicesByMonth(month, year));
+        addCase(cases, "InvoiceDAO.getInvoiceDetails", () -> invoiceDAO.getInvoiceDetails(iId));
+        addCase(cases, "ContractDAO.getContractById", () -> contractDAO.getContractById(cId));
+        addCase(cases, "ContractDAO.getActiveContractByApartmentId", () -> contractDAO.getActiveContractByApartmentId(aId));
+        addCase(cases, "ResidentDAO.getResidentById", () -> residentDAO.getResidentById(rId));
+
+        // Qua ReferenceDataCache
+        addCachedCases(cases, "ApartmentDAO.getApartmentById", () -> apartmentDAO.getApartmentById(aId));
+        addCachedCases(cases, "BuildingDAO.getAllBuildings", buildingDAO::getAllBuildings);
+        addCachedCases(cases, "FloorDAO.getFloorsByBuildingId", () -> floorDAO.getFloorsByBuildingId(bId));
+        addCachedCases(cases, "ServiceDAO.getAllServices", serviceDAO::getAllServices);
+        return cases;
+    }
+
+    private static void addCase(Map<String, BenchCase> cases, String name, Runnable call) {
+        cases.put(name, new BenchCase(() -> { }, call));
+    }
+
+    /**
+     * (uncached): xóa ReferenceDataCache trước mỗi lần gọi; (cached): đọc trúng cache
+     */
+    private static void addCachedCases(Map<String, BenchCase> cases, String name, Runnable call) {
+        ReferenceDataCache cache = ReferenceDataCache.getInstance();
+        cases.put(name + " (uncached)", new BenchCase(cache::invalidateAll, call));
+        cases.put(name + " (cached)", new BenchCase(() -> { }, call));
+    }
+}
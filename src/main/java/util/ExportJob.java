@@ -0,0 +1,204 @@
+package util;
+
+import java.io.File;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Một job xuất báo cáo chạy trong ExportJobManager
+ * Trạng thái / tiến độ được ghi bởi worker thread và đọc từ EDT (các trường volatile).
+ * Task ghi vào getWorkFile(); ExportJobManager đổi tên thành getFile() khi thành công.
+ */
+public class ExportJob implements ExportProgress {
+
+    public enum Status {
+        QUEUED("Đang chờ"),
+        RUNNING("Đang chạy"),
+        COMPLETED("Hoàn thành"),
+        FAILED("Thất bại"),
+        CANCELLED("Đã hủy");
+
+        private final String displayName;
+
+        Status(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    /**
+     * Công việc xuất: trả về true nếu thành công, báo tiến độ qua job
+     */
+    @FunctionalInterface
+    public interface Task {
+        boolean run(ExportJob job) throws Exception;
+    }
+
+    private final long id;
+    private final String key;
+    private final String title;
+    private final File file;
+    private final File workFile;
+    private final long submittedAt = System.currentTimeMillis();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile String phase = "Đang chờ";
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private volatile boolean cancelRequested = false;
+    private volatile long startedAt = 0;
+    private volatile long finishedAt = 0;
+    private volatile long fileSize = 0;
+    private volatile String error;
+    private volatile int duplicateRequests = 0;
+
+    volatile Future<?> future;
+
+    ExportJob(long id, String key, String title, File file) {
+        this.id = id;
+        this.key = key;
+        this.title = title;
+        this.file = file;
+        // Cùng thư mục với file đích để đổi tên được (không ghi đè file đích cho tới khi xuất xong)
+        File target = file.getAbsoluteFile();
+        this.workFile = new File(target.getParentFile(), target.getName() + ".export" + id + ".part");
+    }
+
+    // ===== PROGRESS (worker thread) =====
+
+    @Override
+    public void setPhase(String phase) {
+        this.phase = phase;
+    }
+
+    @Override
+    public void addRows(int rows) {
+        rowsWritten.addAndGet(rows);
+    }
+
+    @Override
+    public void checkCancelled() {
+        if (cancelRequested) {
+            throw new CancellationException("Export job #" + id + " cancelled");
+        }
+    }
+
+    // ===== STATE (ExportJobManager) =====
+
+    void markRunning() {
+        status = Status.RUNNING;
+        startedAt = System.currentTimeMillis();
+    }
+
+    void markFinished(Status finalStatus, String errorMessage) {
+        if (startedAt == 0) {
+            startedAt = System.currentTimeMillis();
+        }
+        finishedAt = System.currentTimeMillis();
+        error = errorMessage;
+        fileSize = finalStatus == Status.COMPLETED && file.exists() ? file.length() : 0;
+        phase = finalStatus.getDisplayName();
+        status = finalStatus;
+    }
+
+    void requestCancel() {
+        cancelRequested = true;
+    }
+
+    void recordDuplicate() {
+        duplicateRequests++;
+    }
+
+    // ===== GETTERS =====
+
+    public long getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * File đích, chỉ được thay bằng workFile khi job hoàn thành
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * File tạm mà Task phải ghi vào
+     */
+    public File getWorkFile() {
+        return workFile;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getPhase() {
+        return phase;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public boolean isFinished() {
+        Status s = status;
+        return s == Status.COMPLETED || s == Status.FAILED || s == Status.CANCELLED;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Thời gian chạy (không tính thời gian chờ trong hàng đợi), đang chạy thì tính tới hiện tại
+     */
+    public long getDurationMillis() {
+        if (startedAt == 0) {
+            return 0;
+        }
+        return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public int getDuplicateRequests() {
+        return duplicateRequests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Export #%d '%s' %s: %d rows, %d ms, %d bytes%s",
+                id, title, status, getRowsWritten(), getDurationMillis(), fileSize,
+                error != null ? " (" + error + ")" : "");
+    }
+}
@@ -0,0 +1,245 @@
+package util;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Export Job Manager (Singleton)
+ * Hàng đợi xuất báo cáo (Excel / PDF / CSV) chạy nền, thay cho mỗi nút một SwingWorker.
+ *
+ * - Hàng đợi có giới hạn (QUEUE_CAPACITY) + pool WORKER_THREADS thread riêng,
+ *   không dùng chung executor với AsyncLoader nên xuất file lớn không chặn việc tải màn hình
+ * - Chống trùng: yêu cầu cùng key (cùng loại báo cáo, cùng tham số) và cùng file đích khi job trước
+ *   chưa xong sẽ nhận lại job đang chạy thay vì tạo job mới
+ * - Job ghi vào file tạm (ExportJob.getWorkFile()), chỉ đổi tên thành file đích khi thành công:
+ *   file đích có sẵn (người dùng chọn ghi đè) vẫn còn nguyên nếu job lỗi / bị hủy
+ * - Hủy: job đang chờ bị bỏ khỏi hàng đợi; job đang chạy dừng ở lần checkCancelled() kế tiếp,
+ *   file tạm bị xóa
+ * - Lịch sử HISTORY_SIZE job gần nhất kèm thời gian chạy và kích thước file
+ * - Listener được gọi trên EDT mỗi khi job đổi trạng thái
+ */
+public class ExportJobManager {
+
+    private static final int WORKER_THREADS = 2;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final int HISTORY_SIZE = 50;
+
+    private static ExportJobManager instance;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong nextId = new AtomicLong();
+
+    // Job chưa xong theo key + file đích (guarded by this)
+    private final Map<String, ExportJob> activeJobs = new HashMap<>();
+    // Job đã xong, mới nhất ở đầu (guarded by this)
+    private final Deque<ExportJob> history = new ArrayDeque<>();
+
+    private final List<Consumer<ExportJob>> listeners = new CopyOnWriteArrayList<>();
+
+    private ExportJobManager() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "export-worker-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static synchronized ExportJobManager getInstance() {
+        if (instance == null) {
+            instance = new ExportJobManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Đưa job vào hàng đợi
+     *
+     * @param key   khóa chống trùng, ví dụ "EXCEL:2025:1-12"
+     * @param title tên hiển thị
+     * @param file  file đích (chỉ bị thay khi job thành công)
+     * @return job mới, hoặc job đang chờ / đang chạy cùng key và cùng file đích
+     * @throws RejectedExecutionException nếu hàng đợi đã đầy
+     */
+    public synchronized ExportJob submit(String key, String title, File file, ExportJob.Task task) {
+        ExportJob existing = activeJobs.get(activeKey(key, file));
+        if (existing != null) {
+            existing.recordDuplicate();
+            System.out.println("ℹ️ Export '" + key + "' already " + existing.getStatus() + ", reusing job #" + existing.getId());
+            return existing;
+        }
+
+        ExportJob job = new ExportJob(nextId.incrementAndGet(), key, title, file);
+        job.future = executor.submit(() -> execute(job, task));
+        activeJobs.put(activeKey(key, file), job);
+
+        fireChanged(job);
+        return job;
+    }
+
+    /**
+     * Job chưa xong với key này, bất kể file đích (null nếu không có)
+     */
+    public synchronized ExportJob findActive(String key) {
+        for (ExportJob job : activeJobs.values()) {
+            if (job.getKey().equals(key)) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    private static String activeKey(String key, File file) {
+        return key + "|" + file.getAbsolutePath();
+    }
+
+    public synchronized List<ExportJob> getActiveJobs() {
+        return new ArrayList<>(activeJobs.values());
+    }
+
+    /**
+     * Lịch sử job đã xong, mới nhất trước
+     */
+    public synchronized List<ExportJob> getHistory() {
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * Hủy job: đang chờ -> bỏ khỏi hàng đợi ngay; đang chạy -> dừng ở lần kiểm tra kế tiếp
+     */
+    public void cancel(ExportJob job) {
+        boolean removedFromQueue = false;
+        synchronized (this) {
+            if (job.isFinished()) {
+                return;
+            }
+            job.requestCancel();
+            if (job.getStatus() == ExportJob.Status.QUEUED && job.future != null && job.future.cancel(false)) {
+                executor.purge();
+                removedFromQueue = true;
+            }
+        }
+        if (removedFromQueue) {
+            finish(job, ExportJob.Status.CANCELLED, null);
+        } else {
+            fireChanged(job);
+        }
+    }
+
+    public void addListener(Consumer<ExportJob> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<ExportJob> listener) {
+        listeners.remove(listener);
+    }
+
+    private void execute(ExportJob job, ExportJob.Task task) {
+        synchronized (this) {
+            if (job.isCancelRequested()) {
+                return; // cancel() đã kết thúc job
+            }
+            job.markRunning();
+        }
+        fireChanged(job);
+
+        ExportJob.Status status;
+        String error = null;
+        try {
+            boolean success = task.run(job);
+            if (job.isCancelRequested()) {
+                status = ExportJob.Status.CANCELLED;
+            } else if (success) {
+                status = ExportJob.Status.COMPLETED;
+            } else {
+                status = ExportJob.Status.FAILED;
+                error = "Xuất báo cáo thất bại";
+            }
+        } catch (CancellationException e) {
+            status = ExportJob.Status.CANCELLED;
+        } catch (Throwable t) {
+            // Cả Error (OOM khi xuất file lớn...): job phải kết thúc, nếu không nó nằm mãi trong activeJobs
+            // và mọi yêu cầu cùng key / file sau đó bị gộp vào job chết
+            t.printStackTrace();
+            status = ExportJob.Status.FAILED;
+            error = t.getMessage() != null ? t.getMessage() : t.getClass().getSimpleName();
+        }
+
+        finish(job, status, error);
+    }
+
+    private void finish(ExportJob job, ExportJob.Status status, String error) {
+        File workFile = job.getWorkFile();
+        if (status == ExportJob.Status.COMPLETED) {
+            try {
+                moveIntoPlace(workFile, job.getFile());
+            } catch (IOException e) {
+                e.printStackTrace();
+                status = ExportJob.Status.FAILED;
+                error = "Không thể ghi file " + job.getFile().getName() + ": " + e.getMessage();
+            }
+        }
+        if (workFile.exists() && !workFile.delete()) {
+            // File dở dang
+            System.err.println("⚠️ Cannot delete partial export file " + workFile);
+        }
+        job.markFinished(status, error);
+
+        synchronized (this) {
+            activeJobs.remove(activeKey(job.getKey(), job.getFile()), job);
+            history.addFirst(job);
+            while (history.size() > HISTORY_SIZE) {
+                history.removeLast();
+            }
+        }
+
+        System.out.println((status == ExportJob.Status.COMPLETED ? "✅ " : "⚠️ ") + job);
+        fireChanged(job);
+    }
+
+    /**
+     * Thay file đích bằng file tạm (đổi tên nguyên tử nếu hệ thống file hỗ trợ)
+     */
+    private static void moveIntoPlace(File workFile, File target) throws IOException {
+        try {
+            Files.move(workFile.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(workFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void fireChanged(ExportJob job) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            for (Consumer<ExportJob> listener : listeners) {
+                listener.accept(job);
+            }
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package util;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tiến độ của một lần xuất báo cáo: giai đoạn hiện tại + số dòng đã ghi.
+ * Code xuất gọi checkCancelled() trong vòng lặp ghi dòng để dừng sớm khi người dùng hủy.
+ */
+public interface ExportProgress {
+
+    /**
+     * Dùng khi xuất trực tiếp, không qua ExportJobManager
+     */
+    ExportProgress NONE = new ExportProgress() {
+        @Override
+        public void setPhase(String phase) {
+        }
+
+        @Override
+        public void addRows(int rows) {
+        }
+
+        @Override
+        public void checkCancelled() {
+        }
+    };
+
+    void setPhase(String phase);
+
+    void addRows(int rows);
+
+    /**
+     * @throws CancellationException nếu job đã bị hủy
+     */
+    void checkCancelled() throws CancellationException;
+}
@@ -0,0 +1,115 @@
+package util;
+
+import dao.ReceivablesForecastDAO.ContractInput;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Receivables Forecast Benchmark
+ * Đo thời gian ReceivablesForecastEngine.compute() với 1/2/4/8 worker trên dữ liệu giả lập
+ * (không cần database), kiểm tra tổng giống hệt nhau giữa các lần chạy.
+ *
+ * Chạy: java -cp ... util.ForecastBenchmark [contracts] [warmup] [iterations]
+ */
+public class ForecastBenchmark {
+
+    private static final int DEFAULT_CONTRACTS = 50_000;
+    private static final int DEFAULT_WARMUP = 20;
+    private static final int DEFAULT_ITERATIONS = 50;
+    private static final int BUILDINGS = 40;
+    private static final int[] WORKERS = {1, 2, 4, 8};
+
+    public static void main(String[] args) {
+        int contracts = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CONTRACTS;
+        int warmup = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_WARMUP;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+
+        System.out.println("==============================================");
+        System.out.println("  RECEIVABLES FORECAST BENCHMARK");
+        System.out.println("  contracts=" + contracts + ", buildings=" + BUILDINGS
+                + ", warmup=" + warmup + ", iterations=" + iterations
+                + ", cpus=" + Runtime.getRuntime().availableProcessors());
+        System.out.println("==============================================");
+
+        List<ContractInput> inputs = generate(contracts, 42L);
+
+        BigDecimal expectedTotal = null;
+        double baselineP50 = 0;
+
+        System.out.printf("%-8s %12s %12s %12s %8s%n", "Workers", "p50", "p95", "min", "Speedup");
+        for (int workers : WORKERS) {
+            for (int i = 0; i < warmup; i++) {
+                ReceivablesForecastEngine.compute(inputs, workers);
+            }
+
+            long[] samples = new long[iterations];
+            BigDecimal total = null;
+            for (int i = 0; i < iterations; i++) {
+                long start = System.nanoTime();
+                ReceivablesForecastEngine.ForecastResult result = ReceivablesForecastEngine.compute(inputs, workers);
+                samples[i] = System.nanoTime() - start;
+                total = result.totals.total;
+            }
+            Arrays.sort(samples);
+
+            // Cộng BigDecimal chính xác -> tổng phải giống hệt bản 1 worker
+            if (expectedTotal == null) {
+                expectedTotal = total;
+            } else if (expectedTotal.compareTo(total) != 0) {
+                throw new IllegalStateException("Total mismatch with " + workers + " workers: "
+                        + total + " != " + expectedTotal);
+            }
+
+            double p50 = samples[iterations / 2] / 1_000_000.0;
+            double p95 = samples[(int) (iterations * 0.95)] / 1_000_000.0;
+            double min = samples[0] / 1_000_000.0;
+            if (workers == 1) {
+                baselineP50 = p50;
+            }
+            System.out.printf("%-8d %10.2fms %10.2fms %10.2fms %7.2fx%n",
+                    workers, p50, p95, min, p50 > 0 ? baselineP50 / p50 : 0);
+        }
+
+        System.out.println();
+        System.out.println("Total receivables: " + expectedTotal.toPlainString());
+    }
+
+    /**
+     * Dữ liệu giả lập: 70% hợp đồng thuê, 0-5 dịch vụ, 30% có nợ 1-3 hóa đơn
+     */
+    static List<ContractInput> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<ContractInput> inputs = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            ContractInput input = new ContractInput();
+            input.contractId = i + 1;
+            input.contractNumber = String.format("HD%06d", i + 1);
+            input.buildingId = 1 + random.nextInt(BUILDINGS);
+            input.buildingName = "Tòa " + input.buildingId;
+
+            boolean rental = random.nextInt(10) < 7;
+            input.contractType = rental ? "RENTAL" : "OWNERSHIP";
+            input.monthlyRent = rental
+                    ? BigDecimal.valueOf(3_000_000L + random.nextInt(120) * 100_000L)
+                    : BigDecimal.valueOf(1_500_000_000L + random.nextInt(1000) * 1_000_000L);
+
+            int services = random.nextInt(6);
+            for (int s = 0; s < services; s++) {
+                // Đơn giá có phần lẻ để kiểm tra cộng chính xác
+                input.serviceUnitPrices.add(BigDecimal.valueOf(50_000L + random.nextInt(500_000), 2));
+            }
+
+            if (random.nextInt(10) < 3) {
+                input.unpaidInvoiceCount = 1 + random.nextInt(3);
+                input.unpaidDebt = BigDecimal.valueOf(100_000_00L + random.nextInt(1_000_000_000), 2);
+            }
+            inputs.add(input);
+        }
+        return inputs;
+    }
+}
@@ -0,0 +1,479 @@
+package util;
+
+import connection.Db_connection;
+import dao.ServiceDAO;
+import dao.ServiceUsageDAO;
+import model.Service;
+import model.ServiceUsage;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Meter Reading Importer
+ * Nhập chỉ số điện / nước hàng tháng từ file CSV hoặc Excel (.xlsx) vào service_usage.
+ *
+ * Định dạng: dòng tiêu đề + các cột contract_id, service_id, new_index [, old_index]
+ * (CSV phân tách bằng ',' hoặc ';'; thiếu tiêu đề thì hiểu theo đúng thứ tự trên)
+ *
+ * - Đọc tuần tự (CSV từng dòng, Excel bằng SAX event API), chỉ giữ BATCH_SIZE dòng trong bộ nhớ
+ * - Mỗi batch: 1 query chỉ số tháng trước + 1 query kiểm tra hợp đồng, rồi
+ *   INSERT ... ON DUPLICATE KEY UPDATE bằng JDBC batch (import lại cùng kỳ sẽ ghi đè)
+ * - Chỉ số phải tăng dần: old_index = new_index tháng trước (nếu có), new_index >= old_index
+ * - Dòng lỗi bị bỏ qua và ghi lại lý do, không làm hỏng cả file
+ *
+ * Chạy: java -cp ... util.MeterReadingImporter <file.csv|file.xlsx> <month> <year>
+ */
+public class MeterReadingImporter {
+
+    public static final int BATCH_SIZE = 1000;
+
+    // Số lỗi tối đa giữ lại để hiển thị
+    private static final int MAX_ERRORS = 100;
+
+    // Sai số cho phép khi so sánh chỉ số cũ với chỉ số tháng trước
+    private static final double INDEX_EPSILON = 1e-6;
+
+    private static final String COL_CONTRACT = "contract_id";
+    private static final String COL_SERVICE = "service_id";
+    private static final String COL_NEW_INDEX = "new_index";
+    private static final String COL_OLD_INDEX = "old_index";
+
+    private final ServiceUsageDAO serviceUsageDAO;
+    private final ServiceDAO serviceDAO;
+    private final int batchSize;
+
+    public MeterReadingImporter() {
+        this(BATCH_SIZE);
+    }
+
+    public MeterReadingImporter(int batchSize) {
+        this.serviceUsageDAO = new ServiceUsageDAO();
+        this.serviceDAO = new ServiceDAO();
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Nhập chỉ số kỳ month/year từ file (.xlsx = Excel, còn lại = CSV)
+     */
+    public ImportResult importFile(Path file, int month, int year) throws IOException {
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("Invalid month: " + month);
+        }
+
+        ImportResult result = new ImportResult(month, year, file.getFileName().toString());
+        long start = System.nanoTime();
+
+        Set<Long> serviceIds = new HashSet<>();
+        for (Service service : serviceDAO.getAllServices()) {
+            serviceIds.add(service.getId());
+        }
+
+        RowSink sink = new RowSink(month, year, serviceIds, result);
+        if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xlsx")) {
+            readExcel(file, sink);
+        } else {
+            readCsv(file, sink);
+        }
+        sink.flush();
+
+        result.totalNanos = System.nanoTime() - start;
+        System.out.println((result.failed == 0 ? "✅ " : "⚠️ ") + result);
+        return result;
+    }
+
+    // ===== READERS =====
+
+    private void readCsv(Path file, RowSink sink) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int rowNumber = 0;
+            char delimiter = 0;
+
+            while ((line = reader.readLine()) != null) {
+                rowNumber++;
+                if (rowNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                    line = line.substring(1);
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (delimiter == 0) {
+                    delimiter = line.indexOf(';') >= 0 && line.indexOf(',') < 0 ? ';' : ',';
+                }
+                sink.accept(rowNumber, splitCsv(line, delimiter));
+            }
+        }
+    }
+
+    /**
+     * Tách 1 dòng CSV, hỗ trợ giá trị trong dấu "..." (không hỗ trợ xuống dòng trong giá trị)
+     */
+    static List<String> splitCsv(String line, char delimiter) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == delimiter && !quoted) {
+                cells.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        cells.add(current.toString().trim());
+        return cells;
+    }
+
+    /**
+     * Đọc sheet đầu tiên bằng XSSF event API (SAX): không dựng cả workbook trong bộ nhớ
+     */
+    private void readExcel(Path file, RowSink sink) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        reader.getStylesTable(), null, strings, new ExcelRowHandler(sink), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Cannot read Excel file " + file.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gom các ô của 1 dòng Excel rồi đẩy vào RowSink (ô trống ở giữa được điền "")
+     */
+    private static class ExcelRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowSink sink;
+        private final List<String> cells = new ArrayList<>();
+        private int lastColumn = -1;
+
+        ExcelRowHandler(RowSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+            lastColumn = -1;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!cells.isEmpty()) {
+                sink.accept(rowNum + 1, new ArrayList<>(cells));
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : lastColumn + 1;
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue != null ? formattedValue.trim() : "");
+            lastColumn = column;
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+        }
+    }
+
+    // ===== VALIDATION + BATCH WRITE =====
+
+    /**
+     * Nhận từng dòng, kiểm tra, gom thành batch và ghi
+     */
+    private class RowSink {
+        private final int month;
+        private final int year;
+        private final int prevMonth;
+        private final int prevYear;
+        private final Set<Long> serviceIds;
+        private final ImportResult result;
+
+        private int contractCol = 0;
+        private int serviceCol = 1;
+        private int newIndexCol = 2;
+        private int oldIndexCol = 3;
+        private boolean headerChecked = false;
+
+        private final List<PendingRow> pending = new ArrayList<>();
+
+        RowSink(int month, int year, Set<Long> serviceIds, ImportResult result) {
+            this.month = month;
+            this.year = year;
+            this.prevMonth = month == 1 ? 12 : month - 1;
+            this.prevYear = month == 1 ? year - 1 : year;
+            this.serviceIds = serviceIds;
+            this.result = result;
+        }
+
+        void accept(int rowNumber, List<String> cells) {
+            if (!headerChecked) {
+                headerChecked = true;
+                if (readHeader(cells)) {
+                    return;
+                }
+            }
+
+            result.totalRows++;
+            try {
+                PendingRow row = new PendingRow(rowNumber);
+                row.contractId = Long.parseLong(cell(cells, contractCol));
+                row.serviceId = Long.parseLong(cell(cells, serviceCol));
+                row.newIndex = parseNumber(cell(cells, newIndexCol));
+                String old = oldIndexCol >= 0 ? cell(cells, oldIndexCol) : "";
+                row.oldIndex = old.isEmpty() ? null : parseNumber(old);
+
+                if (!serviceIds.contains(row.serviceId)) {
+                    reject(rowNumber, "dịch vụ " + row.serviceId + " không tồn tại");
+                    return;
+                }
+                if (row.newIndex < 0 || (row.oldIndex != null && row.oldIndex < 0)) {
+                    reject(rowNumber, "chỉ số âm");
+                    return;
+                }
+                pending.add(row);
+            } catch (NumberFormatException e) {
+                reject(rowNumber, "giá trị không hợp lệ " + cells);
+                return;
+            }
+
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Dòng đầu: nếu là tiêu đề thì lấy vị trí cột theo tên
+         */
+        private boolean readHeader(List<String> cells) {
+            List<String> names = new ArrayList<>();
+            for (String cell : cells) {
+                names.add(cell.trim().toLowerCase(Locale.ROOT));
+            }
+            if (!names.contains(COL_CONTRACT)) {
+                return false;
+            }
+            contractCol = names.indexOf(COL_CONTRACT);
+            serviceCol = names.indexOf(COL_SERVICE);
+            newIndexCol = names.indexOf(COL_NEW_INDEX);
+            oldIndexCol = names.indexOf(COL_OLD_INDEX);
+            if (serviceCol < 0 || newIndexCol < 0) {
+                throw new IllegalArgumentException("Header must contain "
+                        + COL_CONTRACT + ", " + COL_SERVICE + ", " + COL_NEW_INDEX);
+            }
+            return true;
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            long start = System.nanoTime();
+
+            // 1. Hợp đồng tồn tại + chỉ số tháng trước của cả batch (2 query / 500 hợp đồng)
+            Set<Long> contractIds = new HashSet<>();
+            for (PendingRow row : pending) {
+                contractIds.add(row.contractId);
+            }
+            Set<Long> existing = serviceUsageDAO.getExistingContractIds(contractIds);
+            Map<Long, Map<Long, ServiceUsage>> previous =
+                    serviceUsageDAO.getUsageByContractIds(contractIds, prevMonth, prevYear);
+
+            // 2. Kiểm tra chỉ số tăng dần
+            List<ServiceUsage> usages = new ArrayList<>();
+            for (PendingRow row : pending) {
+                if (!existing.contains(row.contractId)) {
+                    reject(row.rowNumber, "hợp đồng " + row.contractId + " không tồn tại");
+                    continue;
+                }
+
+                Map<Long, ServiceUsage> prevByService = previous.get(row.contractId);
+                ServiceUsage prev = prevByService != null ? prevByService.get(row.serviceId) : null;
+
+                double oldIndex;
+                if (prev != null && prev.getNewIndex() != null) {
+                    if (row.oldIndex != null && Math.abs(row.oldIndex - prev.getNewIndex()) > INDEX_EPSILON) {
+                        reject(row.rowNumber, String.format("chỉ số cũ %s khác chỉ số tháng %d/%d (%s)",
+                                row.oldIndex, prevMonth, prevYear, prev.getNewIndex()));
+                        continue;
+                    }
+                    oldIndex = prev.getNewIndex();
+                } else {
+                    oldIndex = row.oldIndex != null ? row.oldIndex : 0;
+                }
+
+                if (row.newIndex < oldIndex) {
+                    reject(row.rowNumber, String.format("chỉ số mới %s nhỏ hơn chỉ số cũ %s", row.newIndex, oldIndex));
+                    continue;
+                }
+
+                ServiceUsage usage = new ServiceUsage();
+                usage.setContractId(row.contractId);
+                usage.setServiceId(row.serviceId);
+                usage.setMonth(month);
+                usage.setYear(year);
+                usage.setOldIndex(oldIndex);
+                usage.setNewIndex(row.newIndex);
+                usage.setActualUsage(row.newIndex - oldIndex);
+                usages.add(usage);
+            }
+
+            // 3. Ghi batch
+            int written = serviceUsageDAO.upsertBatch(usages);
+            if (written < 0) {
+                result.failed += usages.size();
+                addError("❌ batch #" + (result.batches + 1) + ": ghi thất bại, đã rollback " + usages.size() + " dòng");
+            } else {
+                result.imported += written;
+            }
+
+            result.batches++;
+            result.batchNanos += System.nanoTime() - start;
+            pending.clear();
+        }
+
+        private void reject(int rowNumber, String reason) {
+            result.rejected++;
+            addError("dòng " + rowNumber + ": " + reason);
+        }
+
+        private void addError(String error) {
+            if (result.errors.size() < MAX_ERRORS) {
+                result.errors.add(error);
+            }
+        }
+    }
+
+    private static String cell(List<String> cells, int index) {
+        return index >= 0 && index < cells.size() ? cells.get(index).trim() : "";
+    }
+
+    /**
+     * "1234.5", "1,234.5", "1234,5" (CSV dùng ';') -> 1234.5
+     */
+    static double parseNumber(String value) {
+        String s = value.replace(" ", "").replace("\u00A0", "");
+        if (s.indexOf(',') >= 0 && s.indexOf('.') >= 0) {
+            s = s.replace(",", "");
+        } else {
+            s = s.replace(',', '.');
+        }
+        return Double.parseDouble(s);
+    }
+
+    private static class PendingRow {
+        final int rowNumber;
+        long contractId;
+        long serviceId;
+        double newIndex;
+        Double oldIndex;
+
+        PendingRow(int rowNumber) {
+            this.rowNumber = rowNumber;
+        }
+    }
+
+    // ===== RESULT =====
+
+    /**
+     * Kết quả một lần nhập
+     */
+    public static class ImportResult {
+        public final int month;
+        public final int year;
+        public final String fileName;
+        public int totalRows = 0;
+        public int imported = 0;
+        public int rejected = 0;          // Sai định dạng / không tồn tại / chỉ số giảm
+        public int failed = 0;            // Lỗi khi ghi database
+        public int batches = 0;
+        public long batchNanos = 0;       // Thời gian kiểm tra + ghi (không tính đọc file)
+        public long totalNanos = 0;
+        public final List<String> errors = new ArrayList<>();
+
+        ImportResult(int month, int year, String fileName) {
+            this.month = month;
+            this.year = year;
+            this.fileName = fileName;
+        }
+
+        public double getTotalMillis() {
+            return totalNanos / 1_000_000.0;
+        }
+
+        public double getRowsPerSecond() {
+            return totalNanos == 0 ? 0 : totalRows / (totalNanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Meter import %s (%02d/%d): %d rows, %d imported, %d rejected, %d failed "
+                    + "in %.1f ms (%.0f rows/s, %d batches, %.1f ms in DB)",
+                    fileName, month, year, totalRows, imported, rejected, failed,
+                    getTotalMillis(), getRowsPerSecond(), batches, batchNanos / 1_000_000.0);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java -cp ... util.MeterReadingImporter <file.csv|file.xlsx> <month> <year>");
+            return;
+        }
+        int month = Integer.parseInt(args[1]);
+        int year = Integer.parseInt(args[2]);
+
+        ImportResult result = new MeterReadingImporter().importFile(Paths.get(args[0]), month, year);
+        for (String error : result.errors) {
+            System.out.println("  " + error);
+        }
+
+        Db_connection.shutdown();
+    }
+}
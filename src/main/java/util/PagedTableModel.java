@@ -0,0 +1,362 @@
+package util;
+
+import javax.swing.table.AbstractTableModel;
+import java.awt.Component;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Paged Table Model
+ * TableModel "lười": chỉ giữ vài trang dữ liệu, trang được tải khi JTable cần vẽ dòng
+ * thuộc trang đó (người dùng cuộn tới).
+ *
+ * - Số dòng lấy từ COUNT(*) (thanh cuộn đúng kích thước ngay từ đầu)
+ * - Trang kế tiếp đi theo keyset: khóa dòng cuối trang trước -> fetchAfter(key, pageSize)
+ * - Nhảy xa (kéo thanh cuộn) tới trang chưa biết khóa -> fetchAt(offset, pageSize) một lần,
+ *   các trang liền sau lại đi theo keyset
+ * - Cache LRU tối đa cacheSize trang, trang lâu không dùng bị bỏ
+ * - Dòng chưa tải trả về null (ô trống) cho tới khi trang về, sau đó fireTableRowsUpdated
+ *
+ * Sắp xếp / lọc do PageSource (SQL) làm, không dùng TableRowSorter với model này.
+ * Mọi phương thức gọi trên EDT, query chạy nền qua AsyncLoader.
+ */
+public class PagedTableModel<T, K> extends AbstractTableModel {
+
+    /**
+     * Nguồn dữ liệu của một danh sách (một bộ lọc + thứ tự cố định). Các phương thức chạy nền.
+     */
+    public interface PageSource<T, K> {
+
+        /**
+         * @return số dòng khớp bộ lọc, -1 nếu lỗi
+         */
+        int count();
+
+        /**
+         * @param afterKey khóa dòng cuối trang trước, null = trang đầu
+         * @return null nếu lỗi (trang không được cache, sẽ đọc lại khi hiển thị)
+         */
+        List<T> fetchAfter(K afterKey, int limit);
+
+        /**
+         * @return null nếu lỗi
+         */
+        List<T> fetchAt(int offset, int limit);
+
+        K keyOf(T item);
+    }
+
+    private static class Page<T> {
+        final List<T> items;
+        final Object[][] rows;
+
+        Page(List<T> items, Object[][] rows) {
+            this.items = items;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * Kết quả tải lại: số dòng + các trang đã đọc
+     */
+    private static class Snapshot<T> {
+        final int count;
+        final Map<Integer, List<T>> pages = new LinkedHashMap<>();
+
+        Snapshot(int count) {
+            this.count = count;
+        }
+    }
+
+    private final String[] columns;
+    private final Class<?>[] columnClasses;
+    private final Function<T, Object[]> rowMapper;
+    private final int pageSize;
+
+    private final AsyncLoader countLoader;
+    private final AsyncLoader pageLoader;
+
+    private PageSource<T, K> source;
+    private int rowCount = 0;
+
+    // LRU theo thứ tự truy cập: trang ít dùng nhất bị bỏ khi vượt cacheSize
+    private final Map<Integer, Page<T>> pages;
+    // Khóa bắt đầu của trang (= khóa dòng cuối trang trước), chỉ vài byte mỗi trang nên giữ hết
+    private final Map<Integer, K> startKeys = new HashMap<>();
+    // Trang đang chờ tải, trang được yêu cầu gần nhất ở cuối
+    private final LinkedHashSet<Integer> pendingPages = new LinkedHashSet<>();
+    private final int maxPending;
+    private int loadingPage = -1;
+    // refresh() gọi khi đang đọc số dòng: chạy lại sau khi lần đọc đó xong (không bỏ thay đổi)
+    private boolean refreshPending = false;
+    private Runnable pendingRefreshCallback;
+
+    /**
+     * @param name          tên load (thống kê AsyncLoader)
+     * @param rowMapper     item -> giá trị các cột
+     * @param pageSize      số dòng mỗi trang
+     * @param cacheSize     số trang giữ trong bộ nhớ (nên đủ cho vài màn hình)
+     * @param busyComponent component hiện con trỏ chờ khi tải lại danh sách (có thể null)
+     */
+    public PagedTableModel(String name, String[] columns, Class<?>[] columnClasses,
+                           Function<T, Object[]> rowMapper, int pageSize, int cacheSize,
+                           Component busyComponent) {
+        this.columns = columns;
+        this.columnClasses = columnClasses;
+        this.rowMapper = rowMapper;
+        this.pageSize = pageSize;
+        this.maxPending = cacheSize;
+        this.countLoader = new AsyncLoader(name + ".count", busyComponent);
+        this.pageLoader = new AsyncLoader(name + ".page");
+        this.pages = new LinkedHashMap<Integer, Page<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page<T>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Đổi nguồn dữ liệu (bộ lọc / thứ tự mới): xóa bảng, đọc số dòng + trang đầu
+     *
+     * @param onLoaded nhận số dòng sau khi tải xong (có thể null)
+     */
+    public void reload(PageSource<T, K> newSource, Consumer<Integer> onLoaded) {
+        cancel();
+        source = newSource;
+        pages.clear();
+        startKeys.clear();
+        rowCount = 0;
+        fireTableDataChanged();
+
+        countLoader.load(() -> {
+            Snapshot<T> snapshot = new Snapshot<>(newSource.count());
+            if (snapshot.count > 0) {
+                snapshot.pages.put(0, newSource.fetchAfter(null, pageSize));
+            }
+            return snapshot;
+        }, snapshot -> {
+            rowCount = Math.max(0, snapshot.count);
+            snapshot.pages.forEach(this::putPage);
+            fireTableDataChanged();
+            if (onLoaded != null) {
+                onLoaded.accept(rowCount);
+            }
+            runPendingRefresh();
+        });
+    }
+
+    /**
+     * Đọc lại số dòng và các trang đang cache với cùng nguồn dữ liệu (dữ liệu bị thay đổi
+     * từ máy khác). Dữ liệu cũ vẫn hiển thị tới khi có dữ liệu mới; số dòng không đổi thì
+     * giữ nguyên vùng chọn của JTable.
+     * Đang reload / refresh thì không hủy lần đọc đó: refresh được chạy lại ngay sau khi nó xong
+     * (lần đọc đang chạy có thể đã bắt đầu trước thay đổi).
+     *
+     * @param onRefreshed gọi sau khi cập nhật xong (có thể null)
+     */
+    public void refresh(Runnable onRefreshed) {
+        if (source == null) {
+            return;
+        }
+        if (countLoader.isLoading()) {
+            refreshPending = true;
+            pendingRefreshCallback = onRefreshed;
+            return;
+        }
+        PageSource<T, K> current = source;
+        List<Integer> cachedPages = new ArrayList<>(pages.keySet());   // LRU -> MRU
+        if (cachedPages.isEmpty()) {
+            cachedPages.add(0);
+        }
+        pageLoader.cancel();
+        pendingPages.clear();
+        loadingPage = -1;
+
+        countLoader.load(() -> {
+            Snapshot<T> snapshot = new Snapshot<>(current.count());
+            if (snapshot.count < 0) {
+                return snapshot;
+            }
+            for (int page : cachedPages) {
+                // Khóa cũ có thể đã sai sau thay đổi -> đọc theo vị trí
+                snapshot.pages.put(page, page == 0
+                        ? current.fetchAfter(null, pageSize)
+                        : current.fetchAt(page * pageSize, pageSize));
+            }
+            return snapshot;
+        }, snapshot -> {
+            if (snapshot.count < 0) {
+                runPendingRefresh();
+                return; // Lỗi: giữ dữ liệu đang hiển thị
+            }
+            int oldCount = rowCount;
+            pages.clear();
+            startKeys.clear();
+            rowCount = snapshot.count;
+            snapshot.pages.forEach(this::putPage);
+
+            if (rowCount != oldCount) {
+                fireTableDataChanged();
+            } else if (rowCount > 0) {
+                fireTableRowsUpdated(0, rowCount - 1);
+            }
+            if (onRefreshed != null) {
+                onRefreshed.run();
+            }
+            runPendingRefresh();
+        });
+    }
+
+    private void runPendingRefresh() {
+        if (refreshPending) {
+            Runnable callback = pendingRefreshCallback;
+            refreshPending = false;
+            pendingRefreshCallback = null;
+            refresh(callback);
+        }
+    }
+
+    /**
+     * Hủy các lần tải đang chạy (panel bị đóng)
+     */
+    public void cancel() {
+        countLoader.cancel();
+        refreshPending = false;
+        pendingRefreshCallback = null;
+        pageLoader.cancel();
+        pendingPages.clear();
+        loadingPage = -1;
+    }
+
+    /**
+     * Đang đọc số dòng (reload / refresh)
+     */
+    public boolean isLoading() {
+        return countLoader.isLoading();
+    }
+
+    /**
+     * @return item của dòng, null nếu trang chưa được tải
+     */
+    public T getItemAt(int row) {
+        Page<T> page = pages.get(row / pageSize);
+        int offset = row % pageSize;
+        return page != null && offset < page.items.size() ? page.items.get(offset) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return columnClasses[columnIndex];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int pageIndex = rowIndex / pageSize;
+        Page<T> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return null;
+        }
+        int offset = rowIndex % pageSize;
+        return offset < page.rows.length ? page.rows[offset][columnIndex] : null;
+    }
+
+    private void requestPage(int pageIndex) {
+        if (source == null || pageIndex == loadingPage || countLoader.isLoading()) {
+            return;
+        }
+        pendingPages.remove(pageIndex);
+        pendingPages.add(pageIndex);
+        // Cuộn nhanh: bỏ các trang được yêu cầu từ lâu (đã ra khỏi màn hình)
+        Iterator<Integer> it = pendingPages.iterator();
+        while (pendingPages.size() > maxPending && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        if (loadingPage < 0) {
+            loadNextPage();
+        }
+    }
+
+    private void loadNextPage() {
+        int pageIndex = -1;
+        for (int page : pendingPages) {
+            pageIndex = page;   // Trang được yêu cầu gần nhất (đang nhìn thấy)
+        }
+        if (pageIndex < 0) {
+            return;
+        }
+        pendingPages.remove(pageIndex);
+        if (pages.containsKey(pageIndex)) {
+            loadNextPage();
+            return;
+        }
+
+        final int page = pageIndex;
+        final PageSource<T, K> current = source;
+        final boolean hasKey = page == 0 || startKeys.containsKey(page);
+        final K afterKey = startKeys.get(page);
+        loadingPage = page;
+
+        pageLoader.load(() -> hasKey
+                ? current.fetchAfter(afterKey, pageSize)
+                : current.fetchAt(page * pageSize, pageSize),
+            items -> {
+                loadingPage = -1;
+                if (items == null) {
+                    loadNextPage();
+                    return; // Lỗi: dòng vẫn trống, trang được yêu cầu lại lần vẽ sau
+                }
+                putPage(page, items);
+                int first = page * pageSize;
+                int last = Math.min(rowCount, first + pageSize) - 1;
+                if (first <= last) {
+                    fireTableRowsUpdated(first, last);
+                }
+                loadNextPage();
+            },
+            e -> {
+                e.printStackTrace();
+                loadingPage = -1;
+                loadNextPage();
+            });
+    }
+
+    private void putPage(int pageIndex, List<T> items) {
+        if (items == null) {
+            return; // Đọc lỗi: không cache như trang rỗng
+        }
+        Object[][] rows = new Object[items.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = rowMapper.apply(items.get(i));
+        }
+        pages.put(pageIndex, new Page<>(items, rows));
+
+        if (items.size() == pageSize) {
+            startKeys.put(pageIndex + 1, source.keyOf(items.get(items.size() - 1)));
+        }
+    }
+}
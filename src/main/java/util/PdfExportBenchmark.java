@@ -0,0 +1,112 @@
+package util;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.PdfWriter;
+import model.InvoiceListViewModel;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.util.Random;
+
+/**
+ * PDF Export Benchmark
+ * Ghi bảng chi tiết hóa đơn của ReportExportService cho N hóa đơn giả lập (không cần database),
+ * so sánh bảng giữ trọn trong bộ nhớ với bảng streaming (setComplete(false) + add theo đoạn).
+ * Hóa đơn được sinh lần lượt như khi đọc từ con trỏ, nên chênh lệch heap là do cách ghi bảng.
+ *
+ * Chạy: java -cp ... util.PdfExportBenchmark [invoices]
+ */
+public class PdfExportBenchmark {
+
+    private static final int DEFAULT_INVOICES = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int invoices = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_INVOICES;
+
+        System.out.println("==============================================");
+        System.out.println("  PDF EXPORT BENCHMARK");
+        System.out.println("  invoices=" + invoices + ", flush every "
+                + ReportExportService.PdfInvoiceTableWriter.FLUSH_ROWS + " rows"
+                + ", max heap=" + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB");
+        System.out.println("==============================================");
+
+        // Chạy nóng JIT với ít dòng
+        run(false, Math.min(invoices, 5_000));
+        run(true, Math.min(invoices, 5_000));
+
+        System.out.printf("%-10s %12s %14s %12s%n", "Mode", "Time", "Peak heap", "File size");
+        for (boolean streaming : new boolean[]{false, true}) {
+            long[] r = run(streaming, invoices);
+            System.out.printf("%-10s %10d ms %11.1f MB %9.1f MB%n",
+                    streaming ? "streaming" : "buffered", r[0], r[1] / (1024.0 * 1024.0), r[2] / (1024.0 * 1024.0));
+        }
+    }
+
+    /**
+     * @return {thời gian ms, đỉnh heap bytes, kích thước file bytes}
+     */
+    private static long[] run(boolean streaming, int invoices) throws Exception {
+        File file = File.createTempFile("pdf-benchmark-", ".pdf");
+        file.deleteOnExit();
+
+        System.gc();
+        resetPeakHeap();
+        long start = System.nanoTime();
+
+        Document document = new Document(PageSize.A4);
+        PdfWriter.getInstance(document, new FileOutputStream(file));
+        document.open();
+
+        ReportExportService.PdfInvoiceTableWriter writer =
+                new ReportExportService.PdfInvoiceTableWriter(document, new DecimalFormat("#,##0"), streaming);
+        Random random = new Random(42L);
+        for (int i = 0; i < invoices; i++) {
+            writer.addRow(generate(random, i));
+        }
+        writer.finish();
+        document.close();
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long[] result = {elapsedMs, peakHeap(), file.length()};
+        file.delete();
+        return result;
+    }
+
+    private static InvoiceListViewModel generate(Random random, int i) {
+        InvoiceListViewModel vm = new InvoiceListViewModel();
+        vm.setInvoiceId((long) i + 1);
+        vm.setContractNumber(String.format("HD%06d", 1 + random.nextInt(20_000)));
+        vm.setRoomNumber(String.valueOf(100 * (1 + random.nextInt(30)) + 1 + random.nextInt(20)));
+        vm.setResidentName("Cư dân " + (1 + random.nextInt(20_000)));
+        vm.setMonth(1 + random.nextInt(12));
+        vm.setYear(2025);
+        vm.setTotalAmount(BigDecimal.valueOf(500_000L + random.nextInt(20_000) * 1_000L));
+        vm.setStatus(random.nextInt(10) < 7 ? "PAID" : "UNPAID");
+        return vm;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    // Tổng đỉnh của các vùng heap (xấp xỉ trên, vì các vùng không đạt đỉnh cùng lúc)
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,241 @@
+package util;
+
+import dao.ReceivablesForecastDAO;
+import dao.ReceivablesForecastDAO.ContractInput;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Receivables Forecast Engine
+ * Dự báo số tiền phải thu kỳ tới cho mọi hợp đồng ACTIVE, trước khi có hóa đơn (chỉ đọc).
+ *
+ * Phải thu = tiền thuê (hợp đồng RENTAL) + đơn giá các dịch vụ của hợp đồng + nợ cũ (hóa đơn UNPAID)
+ *
+ * - Dữ liệu tải 1 lần bằng ReceivablesForecastDAO (3 query)
+ * - Chia theo tòa nhà, mỗi tòa tách tiếp thành các đoạn SPLIT_THRESHOLD hợp đồng,
+ *   tính trên ForkJoinPool với số worker chỉ định
+ * - Cộng BigDecimal không làm tròn: kết quả giống hệt nhau với mọi số worker
+ *
+ * Benchmark: util.ForecastBenchmark
+ */
+public class ReceivablesForecastEngine {
+
+    // Số hợp đồng tối đa tính tuần tự trong một task
+    static final int SPLIT_THRESHOLD = 1024;
+
+    private final ReceivablesForecastDAO forecastDAO;
+
+    public ReceivablesForecastEngine() {
+        this.forecastDAO = new ReceivablesForecastDAO();
+    }
+
+    /**
+     * Tải dữ liệu và dự báo với số worker = số CPU
+     *
+     * @param buildingId null = tất cả tòa nhà
+     */
+    public ForecastResult forecast(Long buildingId) {
+        return forecast(buildingId, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ForecastResult forecast(Long buildingId, int workers) {
+        long start = System.nanoTime();
+        List<ContractInput> inputs = forecastDAO.getForecastInputs(buildingId);
+        long loadNanos = System.nanoTime() - start;
+
+        ForecastResult result = compute(inputs, workers);
+        result.loadNanos = loadNanos;
+        System.out.println("✅ " + result);
+        return result;
+    }
+
+    /**
+     * Tính dự báo cho dữ liệu đã tải (dùng trực tiếp trong benchmark)
+     */
+    public static ForecastResult compute(List<ContractInput> inputs, int workers) {
+        long start = System.nanoTime();
+
+        // Chia theo tòa nhà (giữ thứ tự xuất hiện)
+        Map<Long, List<ContractInput>> byBuilding = new LinkedHashMap<>();
+        for (ContractInput input : inputs) {
+            byBuilding.computeIfAbsent(input.buildingId, k -> new ArrayList<>()).add(input);
+        }
+
+        List<BuildingTask> tasks = new ArrayList<>();
+        for (List<ContractInput> contracts : byBuilding.values()) {
+            tasks.add(new BuildingTask(contracts, new ContractProjection[contracts.size()], 0, contracts.size()));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, workers));
+        List<BuildingForecast> buildings;
+        try {
+            buildings = pool.submit(() -> {
+                List<BuildingForecast> list = new ArrayList<>();
+                for (BuildingTask task : RecursiveTask.invokeAll(tasks)) {
+                    list.add(task.join());
+                }
+                return list;
+            }).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        ForecastResult result = new ForecastResult(Math.max(1, workers));
+        for (int i = 0; i < tasks.size(); i++) {
+            BuildingForecast building = buildings.get(i);
+            result.buildings.add(building);
+            result.projections.addAll(Arrays.asList(tasks.get(i).projections));
+            result.totals.add(building);
+        }
+        result.buildings.sort(Comparator.comparing(b -> b.buildingName != null ? b.buildingName : ""));
+        result.computeNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Dự báo cho một hợp đồng
+     */
+    static ContractProjection project(ContractInput input) {
+        ContractProjection p = new ContractProjection(input.contractId, input.contractNumber, input.buildingId);
+        if (input.isRental() && input.monthlyRent != null) {
+            p.rent = input.monthlyRent;
+        }
+        for (BigDecimal price : input.serviceUnitPrices) {
+            p.services = p.services.add(price);
+        }
+        p.debt = input.unpaidDebt != null ? input.unpaidDebt : BigDecimal.ZERO;
+        p.unpaidInvoiceCount = input.unpaidInvoiceCount;
+        p.total = p.rent.add(p.services).add(p.debt);
+        return p;
+    }
+
+    /**
+     * Task cho đoạn [from, to) hợp đồng của một tòa nhà; ghi dự báo vào projections[i]
+     * và trả về tổng của đoạn
+     */
+    private static class BuildingTask extends RecursiveTask<BuildingForecast> {
+        private final List<ContractInput> contracts;
+        private final ContractProjection[] projections;
+        private final int from;
+        private final int to;
+
+        BuildingTask(List<ContractInput> contracts, ContractProjection[] projections, int from, int to) {
+            this.contracts = contracts;
+            this.projections = projections;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected BuildingForecast compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                ContractInput first = contracts.get(from);
+                BuildingForecast sum = new BuildingForecast(first.buildingId, first.buildingName);
+                for (int i = from; i < to; i++) {
+                    ContractProjection p = project(contracts.get(i));
+                    projections[i] = p;
+                    sum.add(p);
+                }
+                return sum;
+            }
+
+            int mid = (from + to) >>> 1;
+            BuildingTask left = new BuildingTask(contracts, projections, from, mid);
+            BuildingTask right = new BuildingTask(contracts, projections, mid, to);
+            left.fork();
+            BuildingForecast rightSum = right.compute();
+            BuildingForecast leftSum = left.join();
+            leftSum.add(rightSum);
+            return leftSum;
+        }
+    }
+
+    // ===== RESULT =====
+
+    /**
+     * Dự báo phải thu của một hợp đồng
+     */
+    public static class ContractProjection {
+        public final long contractId;
+        public final String contractNumber;
+        public final long buildingId;
+        public BigDecimal rent = BigDecimal.ZERO;
+        public BigDecimal services = BigDecimal.ZERO;
+        public BigDecimal debt = BigDecimal.ZERO;
+        public BigDecimal total = BigDecimal.ZERO;
+        public int unpaidInvoiceCount = 0;
+
+        ContractProjection(long contractId, String contractNumber, long buildingId) {
+            this.contractId = contractId;
+            this.contractNumber = contractNumber;
+            this.buildingId = buildingId;
+        }
+    }
+
+    /**
+     * Tổng dự báo của một tòa nhà (hoặc toàn bộ)
+     */
+    public static class BuildingForecast {
+        public final Long buildingId;
+        public final String buildingName;
+        public int contracts = 0;
+        public BigDecimal rent = BigDecimal.ZERO;
+        public BigDecimal services = BigDecimal.ZERO;
+        public BigDecimal debt = BigDecimal.ZERO;
+        public BigDecimal total = BigDecimal.ZERO;
+
+        BuildingForecast(Long buildingId, String buildingName) {
+            this.buildingId = buildingId;
+            this.buildingName = buildingName;
+        }
+
+        void add(ContractProjection p) {
+            contracts++;
+            rent = rent.add(p.rent);
+            services = services.add(p.services);
+            debt = debt.add(p.debt);
+            total = total.add(p.total);
+        }
+
+        void add(BuildingForecast other) {
+            contracts += other.contracts;
+            rent = rent.add(other.rent);
+            services = services.add(other.services);
+            debt = debt.add(other.debt);
+            total = total.add(other.total);
+        }
+    }
+
+    /**
+     * Kết quả dự báo: theo hợp đồng, theo tòa nhà và tổng
+     */
+    public static class ForecastResult {
+        public final int workers;
+        public final List<ContractProjection> projections = new ArrayList<>();
+        public final List<BuildingForecast> buildings = new ArrayList<>();
+        public final BuildingForecast totals = new BuildingForecast(null, "Tổng");
+        public long loadNanos = 0;
+        public long computeNanos = 0;
+
+        ForecastResult(int workers) {
+            this.workers = workers;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Receivables forecast: %d contracts, %d buildings, total=%s "
+                    + "(rent=%s, services=%s, debt=%s), load %.1f ms, compute %.1f ms on %d workers",
+                    totals.contracts, buildings.size(), totals.total.toPlainString(),
+                    totals.rent.toPlainString(), totals.services.toPlainString(), totals.debt.toPlainString(),
+                    loadNanos / 1_000_000.0, computeNanos / 1_000_000.0, workers);
+        }
+    }
+}
@@ -4,7 +4,7 @@ import dao.*;
 import model.*;
 
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.*;
+import org.apache.poi.xssf.streaming.*;
 import org.apache.poi.ss.util.*;
 
 // iText PDF
@@ -17,12 +17,25 @@ import java.math.BigDecimal;
 import java.text.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 
 /**
  * Report Export Service Handles exporting reports to Excel (XLSX) and PDF
  * formats
  *
  * Dependencies: - Apache POI 5.2.3+ for Excel - iText 5.5.13+ for PDF
+ *
+ * Excel ghi bằng SXSSFWorkbook (streaming): chỉ EXCEL_ROW_WINDOW dòng mỗi sheet nằm trong heap,
+ * phần còn lại được đẩy ra file tạm. Sheet hóa đơn đọc từ 1 con trỏ JDBC chỉ-đọc-tiến
+ * (InvoiceListViewDAO.streamInvoicesByPeriod) nên heap không tăng theo số hóa đơn.
+ *
+ * PDF cũng đọc hóa đơn từ con trỏ đó và ghi bảng theo từng đoạn (PdfPTable.setComplete(false)).
+ * Số liệu tổng hợp (thống kê, doanh thu theo tháng, lấp đầy theo tòa) được tải 1 lần vào
+ * ReportDataset và dùng chung cho trang bìa / sheet tổng quan và phần thân báo cáo.
+ * Benchmark PDF: util.PdfExportBenchmark
+ *
+ * Từ giao diện: submitExcelExport / submitPdfExport đưa việc xuất vào ExportJobManager
+ * (hàng đợi nền, tiến độ theo giai đoạn + số dòng, hủy, chống trùng, lịch sử).
  */
 public class ReportExportService {
 
@@ -32,6 +45,7 @@ public class ReportExportService {
     private ContractDAO contractDAO;
     private ResidentDAO residentDAO;
     private BuildingDAO buildingDAO;
+    private InvoiceListViewDAO invoiceListViewDAO;
 
     // Formatters
     private DecimalFormat moneyFormat;
@@ -41,6 +55,12 @@ public class ReportExportService {
     private static final short COLOR_HEADER = IndexedColors.LIGHT_BLUE.getIndex();
     private static final short COLOR_TOTAL = IndexedColors.LIGHT_GREEN.getIndex();
 
+    // Số dòng mỗi sheet giữ trong bộ nhớ khi ghi Excel (SXSSF), dòng cũ hơn được ghi ra file tạm
+    private static final int EXCEL_ROW_WINDOW = 500;
+
+    // Độ rộng cố định cho sheet hóa đơn (SXSSF không auto-size được các dòng đã ghi ra file tạm)
+    private static final int[] INVOICE_COLUMN_WIDTHS = {4500, 3000, 7000, 3000, 5000, 4500, 3500};
+
     public ReportExportService() {
         initializeDAOs();
         initializeFormatters();
@@ -52,6 +72,7 @@ public class ReportExportService {
         this.contractDAO = new ContractDAO();
         this.residentDAO = new ResidentDAO();
         this.buildingDAO = new BuildingDAO();
+        this.invoiceListViewDAO = new InvoiceListViewDAO();
     }
 
     private void initializeFormatters() {
@@ -59,37 +80,157 @@ public class ReportExportService {
         this.dateFormat = new SimpleDateFormat("dd/MM/yyyy");
     }
 
+    /**
+     * ===== SHARED DATASET =====
+     */
+
+    /**
+     * Số liệu tổng hợp của báo cáo, tải 1 lần cho cả Excel / PDF
+     */
+    public static class ReportDataset {
+        public int year;
+        public int fromMonth;
+        public int toMonth;
+
+        // Thống kê chung
+        public int buildingCount;
+        public int apartmentCount;
+        public int rentedApartmentCount;
+        public int residentCount;
+        public int activeContractCount;
+
+        // Doanh thu theo tháng + tổng
+        public List<InvoiceDAO.MonthlyRevenue> revenueSeries = new ArrayList<>();
+        public BigDecimal totalRevenue = BigDecimal.ZERO;
+        public int totalInvoices;
+        public int paidInvoices;
+        public int unpaidInvoices;
+
+        // Lấp đầy theo tòa nhà
+        public Map<Building, BuildingDAO.BuildingStats> buildingStats = new LinkedHashMap<>();
+    }
+
+    /**
+     * Tải số liệu tổng hợp: 5 query đếm + 1 query doanh thu theo tháng + 1 query thống kê tòa nhà
+     * (thay cho việc mỗi phần báo cáo tự gọi DAO, và 1 query căn hộ cho mỗi tòa nhà)
+     */
+    public ReportDataset loadDataset(int year, int fromMonth, int toMonth) {
+        ReportDataset data = new ReportDataset();
+        data.year = year;
+        data.fromMonth = fromMonth;
+        data.toMonth = toMonth;
+
+        data.buildingCount = buildingDAO.countBuildings();
+        data.apartmentCount = apartmentDAO.countApartments();
+        data.rentedApartmentCount = apartmentDAO.countRentedApartments();
+        data.residentCount = residentDAO.countResidents();
+        data.activeContractCount = contractDAO.countActiveContracts();
+
+        data.revenueSeries = invoiceDAO.getRevenueSeries(year, fromMonth, toMonth);
+        for (InvoiceDAO.MonthlyRevenue monthly : data.revenueSeries) {
+            data.totalRevenue = data.totalRevenue.add(monthly.paidAmount);
+            data.totalInvoices += monthly.totalInvoices;
+            data.paidInvoices += monthly.paidCount;
+            data.unpaidInvoices += monthly.unpaidCount;
+        }
+
+        // Đọc thẳng DB (không qua cache thống kê 30s): báo cáo phải khớp số liệu tổng quan ở trên
+        data.buildingStats = buildingDAO.getAllBuildingsWithStatsFresh();
+        return data;
+    }
+
+    /**
+     * ===== EXPORT JOBS =====
+     */
+
+    /**
+     * Xuất Excel chạy nền qua ExportJobManager (trùng kỳ báo cáo đang xuất -> trả về job đang chạy)
+     */
+    public ExportJob submitExcelExport(File file, int year, int fromMonth, int toMonth) {
+        return ExportJobManager.getInstance().submit(excelJobKey(year, fromMonth, toMonth),
+                String.format("Báo cáo Excel T%d-T%d/%d", fromMonth, toMonth, year), file,
+                job -> exportToExcel(job.getWorkFile().getAbsolutePath(), year, fromMonth, toMonth, job));
+    }
+
+    /**
+     * Xuất PDF chạy nền qua ExportJobManager (trùng kỳ báo cáo đang xuất -> trả về job đang chạy)
+     */
+    public ExportJob submitPdfExport(File file, int year, int fromMonth, int toMonth) {
+        return ExportJobManager.getInstance().submit(pdfJobKey(year, fromMonth, toMonth),
+                String.format("Báo cáo PDF T%d-T%d/%d", fromMonth, toMonth, year), file,
+                job -> exportToPDF(job.getWorkFile().getAbsolutePath(), year, fromMonth, toMonth, job));
+    }
+
+    public static String excelJobKey(int year, int fromMonth, int toMonth) {
+        return "EXCEL:" + year + ":" + fromMonth + "-" + toMonth;
+    }
+
+    public static String pdfJobKey(int year, int fromMonth, int toMonth) {
+        return "PDF:" + year + ":" + fromMonth + "-" + toMonth;
+    }
+
     /**
      * ===== EXCEL EXPORT =====
      */
     public boolean exportToExcel(String filepath, int year, int fromMonth, int toMonth) {
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+        return exportToExcel(filepath, year, fromMonth, toMonth, ExportProgress.NONE);
+    }
+
+    /**
+     * @throws CancellationException nếu job bị hủy giữa chừng
+     */
+    public boolean exportToExcel(String filepath, int year, int fromMonth, int toMonth, ExportProgress progress) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+
+            // Số liệu tổng hợp: tải 1 lần, dùng chung cho các sheet
+            progress.setPhase("Đang tải số liệu tổng hợp");
+            ReportDataset data = loadDataset(year, fromMonth, toMonth);
+            progress.checkCancelled();
 
             // Create sheets
-            createOverviewSheet(workbook, year, fromMonth, toMonth);
-            createRevenueSheet(workbook, year, fromMonth, toMonth);
-            createInvoiceSheet(workbook, year, fromMonth, toMonth);
-            createServiceSheet(workbook, year);
-            createApartmentSheet(workbook);
+            progress.setPhase("Đang ghi sheet tổng quan / doanh thu");
+            createOverviewSheet(workbook, data);
+            createRevenueSheet(workbook, year, fromMonth, toMonth, data.revenueSeries);
+
+            progress.setPhase("Đang ghi sheet hóa đơn");
+            createInvoiceSheet(workbook, year, fromMonth, toMonth, progress);
+
+            progress.setPhase("Đang ghi sheet dịch vụ / căn hộ");
+            createServiceSheet(workbook, year, fromMonth, toMonth);
+            createApartmentSheet(workbook, data);
+            progress.checkCancelled();
 
             // Write to file
+            progress.setPhase("Đang lưu file");
             try (FileOutputStream out = new FileOutputStream(filepath)) {
                 workbook.write(out);
             }
 
             return true;
 
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
+        } finally {
+            // Xóa file tạm của SXSSF
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
     /**
      * SHEET 1: Overview (Tổng quan)
      */
-    private void createOverviewSheet(XSSFWorkbook workbook, int year, int fromMonth, int toMonth) {
-        Sheet sheet = workbook.createSheet("📊 Tổng Quan");
+    private void createOverviewSheet(Workbook workbook, ReportDataset data) {
+        Sheet sheet = createSheet(workbook, "📊 Tổng Quan");
 
         // Styles
         CellStyle titleStyle = createTitleStyle(workbook);
@@ -112,7 +253,7 @@ public class ReportExportService {
         Row periodRow = sheet.createRow(rowNum++);
         periodRow.createCell(0).setCellValue("Kỳ báo cáo:");
         periodRow.createCell(1).setCellValue(String.format("Từ tháng %d đến tháng %d năm %d",
-                fromMonth, toMonth, year));
+                data.fromMonth, data.toMonth, data.year));
 
         // Export date
         Row dateRow = sheet.createRow(rowNum++);
@@ -128,11 +269,11 @@ public class ReportExportService {
         sheet.addMergedRegion(new CellRangeAddress(rowNum - 1, rowNum - 1, 0, 2));
 
         // Statistics data
-        addStatRow(sheet, rowNum++, "🏢 Tổng số tòa nhà", buildingDAO.countBuildings(), normalStyle);
-        addStatRow(sheet, rowNum++, "🏠 Tổng số căn hộ", apartmentDAO.countApartments(), normalStyle);
-        addStatRow(sheet, rowNum++, "🔑 Căn hộ đang thuê", apartmentDAO.countRentedApartments(), normalStyle);
-        addStatRow(sheet, rowNum++, "👥 Tổng số cư dân", residentDAO.countResidents(), normalStyle);
-        addStatRow(sheet, rowNum++, "📝 Hợp đồng đang hiệu lực", contractDAO.countActiveContracts(), normalStyle);
+        addStatRow(sheet, rowNum++, "🏢 Tổng số tòa nhà", data.buildingCount, normalStyle);
+        addStatRow(sheet, rowNum++, "🏠 Tổng số căn hộ", data.apartmentCount, normalStyle);
+        addStatRow(sheet, rowNum++, "🔑 Căn hộ đang thuê", data.rentedApartmentCount, normalStyle);
+        addStatRow(sheet, rowNum++, "👥 Tổng số cư dân", data.residentCount, normalStyle);
+        addStatRow(sheet, rowNum++, "📝 Hợp đồng đang hiệu lực", data.activeContractCount, normalStyle);
 
         rowNum++; // Blank row
 
@@ -143,16 +284,10 @@ public class ReportExportService {
         sheet.addMergedRegion(new CellRangeAddress(rowNum - 1, rowNum - 1, 0, 2));
 
         // Revenue data
-        BigDecimal totalRevenue = BigDecimal.ZERO;
-        for (int month = fromMonth; month <= toMonth; month++) {
-            BigDecimal monthRevenue = invoiceDAO.getMonthlyRevenue(month, year);
-            totalRevenue = totalRevenue.add(monthRevenue);
-        }
-
         Row totalRevenueRow = sheet.createRow(rowNum++);
         totalRevenueRow.createCell(0).setCellValue("💰 Tổng doanh thu");
         Cell revenueCell = totalRevenueRow.createCell(1);
-        revenueCell.setCellValue(totalRevenue.doubleValue());
+        revenueCell.setCellValue(data.totalRevenue.doubleValue());
         revenueCell.setCellStyle(moneyStyle);
         totalRevenueRow.createCell(2).setCellValue("VNĐ");
 
@@ -165,8 +300,9 @@ public class ReportExportService {
     /**
      * SHEET 2: Revenue Report (Báo cáo doanh thu)
      */
-    private void createRevenueSheet(XSSFWorkbook workbook, int year, int fromMonth, int toMonth) {
-        Sheet sheet = workbook.createSheet("📈 Doanh Thu");
+    private void createRevenueSheet(Workbook workbook, int year, int fromMonth, int toMonth,
+            List<InvoiceDAO.MonthlyRevenue> revenueSeries) {
+        Sheet sheet = createSheet(workbook, "📈 Doanh Thu");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle normalStyle = createNormalStyle(workbook);
@@ -190,27 +326,21 @@ public class ReportExportService {
         int totalPaid = 0;
         int totalUnpaid = 0;
 
-        for (int month = fromMonth; month <= toMonth; month++) {
+        for (InvoiceDAO.MonthlyRevenue monthly : revenueSeries) {
             Row row = sheet.createRow(rowNum++);
 
-            List<Invoice> invoices = invoiceDAO.getInvoicesByMonth(month, year);
-            int monthInvoices = invoices.size();
-            long paidCount = invoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
-            long unpaidCount = monthInvoices - paidCount;
-            BigDecimal revenue = invoiceDAO.getMonthlyRevenue(month, year);
+            totalInvoices += monthly.totalInvoices;
+            totalPaid += monthly.paidCount;
+            totalUnpaid += monthly.unpaidCount;
+            totalRevenue = totalRevenue.add(monthly.paidAmount);
 
-            totalInvoices += monthInvoices;
-            totalPaid += paidCount;
-            totalUnpaid += unpaidCount;
-            totalRevenue = totalRevenue.add(revenue);
-
-            row.createCell(0).setCellValue("Tháng " + month + "/" + year);
-            row.createCell(1).setCellValue(monthInvoices);
-            row.createCell(2).setCellValue(paidCount);
-            row.createCell(3).setCellValue(unpaidCount);
+            row.createCell(0).setCellValue("Tháng " + monthly.month + "/" + year);
+            row.createCell(1).setCellValue(monthly.totalInvoices);
+            row.createCell(2).setCellValue(monthly.paidCount);
+            row.createCell(3).setCellValue(monthly.unpaidCount);
 
             Cell revenueCell = row.createCell(4);
-            revenueCell.setCellValue(revenue.doubleValue());
+            revenueCell.setCellValue(monthly.paidAmount.doubleValue());
             revenueCell.setCellStyle(moneyStyle);
 
             // Formula for percentage
@@ -245,17 +375,17 @@ public class ReportExportService {
 
     /**
      * SHEET 3: Invoice Report (Báo cáo hóa đơn)
+     * 1 query JOIN sẵn hợp đồng / căn hộ / cư dân, đọc dạng streaming và ghi thẳng vào sheet
      */
-    private void createInvoiceSheet(XSSFWorkbook workbook, int year, int fromMonth, int toMonth) {
+    private void createInvoiceSheet(Workbook workbook, int year, int fromMonth, int toMonth, ExportProgress progress)
+            throws IOException {
         Sheet sheet = workbook.createSheet("💰 Hóa Đơn");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle moneyStyle = createMoneyStyle(workbook);
 
-        int rowNum = 0;
-
         // Header
-        Row headerRow = sheet.createRow(rowNum++);
+        Row headerRow = sheet.createRow(0);
         String[] headers = {"Số HĐ", "Căn Hộ", "Cư Dân", "Tháng/Năm", "Tổng Tiền (VNĐ)", "Trạng Thái", "Ngày TT"};
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
@@ -264,60 +394,44 @@ public class ReportExportService {
         }
 
         // Data
-        for (int month = fromMonth; month <= toMonth; month++) {
-            List<Invoice> invoices = invoiceDAO.getInvoicesByMonth(month, year);
-
-            for (Invoice invoice : invoices) {
-                Row row = sheet.createRow(rowNum++);
-
-                Contract contract = contractDAO.getContractById(invoice.getContractId());
-
-                String contractNumber = "N/A";
-                String apartmentNumber = "N/A";
-                String residentName = "N/A";
-
-                if (contract != null) {
-                    contractNumber = contract.getContractNumber() != null ? contract.getContractNumber() : "N/A";
-
-                    Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                    if (apt != null) {
-                        apartmentNumber = apt.getRoomNumber();
-                    }
-
-                    Resident res = residentDAO.getResidentById(contract.getResidentId());
-                    if (res != null) {
-                        residentName = res.getFullName();
-                    }
-                }
-
-                row.createCell(0).setCellValue(contractNumber);
-                row.createCell(1).setCellValue(apartmentNumber);
-                row.createCell(2).setCellValue(residentName);
-                row.createCell(3).setCellValue(String.format("%d/%d", month, year));
-
-                Cell amountCell = row.createCell(4);
-                amountCell.setCellValue(invoice.getTotalAmount().doubleValue());
-                amountCell.setCellStyle(moneyStyle);
-
-                row.createCell(5).setCellValue("PAID".equals(invoice.getStatus()) ? "Đã thanh toán" : "Chưa thanh toán");
-
-                String paymentDate = invoice.getPaymentDate() != null
-                        ? dateFormat.format(invoice.getPaymentDate()) : "";
-                row.createCell(6).setCellValue(paymentDate);
-            }
+        int[] rowNum = {1};
+        int count = invoiceListViewDAO.streamInvoicesByPeriod(year, fromMonth, toMonth, invoice -> {
+            // Hủy -> CancellationException dừng con trỏ
+            progress.checkCancelled();
+            Row row = sheet.createRow(rowNum[0]++);
+
+            row.createCell(0).setCellValue(valueOrNA(invoice.getContractNumber()));
+            row.createCell(1).setCellValue(valueOrNA(invoice.getRoomNumber()));
+            row.createCell(2).setCellValue(valueOrNA(invoice.getResidentName()));
+            row.createCell(3).setCellValue(String.format("%d/%d", invoice.getMonth(), invoice.getYear()));
+
+            Cell amountCell = row.createCell(4);
+            BigDecimal amount = invoice.getTotalAmount();
+            amountCell.setCellValue(amount != null ? amount.doubleValue() : 0);
+            amountCell.setCellStyle(moneyStyle);
+
+            row.createCell(5).setCellValue("PAID".equals(invoice.getStatus()) ? "Đã thanh toán" : "Chưa thanh toán");
+
+            String paymentDate = invoice.getPaymentDate() != null
+                    ? dateFormat.format(invoice.getPaymentDate()) : "";
+            row.createCell(6).setCellValue(paymentDate);
+            progress.addRows(1);
+        });
+        if (count < 0) {
+            // Lỗi đọc hóa đơn: không ghi file với sheet hóa đơn thiếu, exportToExcel trả về false
+            throw new IOException("Cannot read invoices for Excel report");
         }
 
-        // Auto-size
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
+        for (int i = 0; i < INVOICE_COLUMN_WIDTHS.length; i++) {
+            sheet.setColumnWidth(i, INVOICE_COLUMN_WIDTHS[i]);
         }
     }
 
     /**
      * SHEET 4: Service Report (Báo cáo dịch vụ)
      */
-    private void createServiceSheet(XSSFWorkbook workbook, int year) {
-        Sheet sheet = workbook.createSheet("🔧 Dịch Vụ");
+    private void createServiceSheet(Workbook workbook, int year, int fromMonth, int toMonth) {
+        Sheet sheet = createSheet(workbook, "🔧 Dịch Vụ");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle moneyStyle = createMoneyStyle(workbook);
@@ -335,7 +449,7 @@ public class ReportExportService {
         }
 
         // Get service revenue data
-        Map<String, BigDecimal> serviceRevenue = getServiceRevenue(year);
+        Map<String, BigDecimal> serviceRevenue = invoiceDAO.getServiceRevenueBreakdown(year, fromMonth, toMonth, null);
         BigDecimal totalRevenue = serviceRevenue.values().stream()
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
@@ -375,8 +489,8 @@ public class ReportExportService {
     /**
      * SHEET 5: Apartment Report (Báo cáo căn hộ)
      */
-    private void createApartmentSheet(XSSFWorkbook workbook) {
-        Sheet sheet = workbook.createSheet("🏢 Căn Hộ");
+    private void createApartmentSheet(Workbook workbook, ReportDataset data) {
+        Sheet sheet = createSheet(workbook, "🏢 Căn Hộ");
 
         CellStyle headerStyle = createHeaderStyle(workbook);
         CellStyle normalStyle = createNormalStyle(workbook);
@@ -393,14 +507,12 @@ public class ReportExportService {
         }
 
         // Data
-        List<Building> buildings = buildingDAO.getAllBuildings();
-
-        for (Building building : buildings) {
+        for (Map.Entry<Building, BuildingDAO.BuildingStats> entry : data.buildingStats.entrySet()) {
+            Building building = entry.getKey();
             Row row = sheet.createRow(rowNum++);
 
-            List<Apartment> apartments = apartmentDAO.getApartmentsByBuildingId(building.getId());
-            int total = apartments.size();
-            int rented = (int) apartments.stream().filter(a -> "RENTED".equals(a.getStatus())).count();
+            int total = entry.getValue().totalApartments;
+            int rented = entry.getValue().rentedApartments;
             int available = total - rented;
             double occupancyRate = total > 0 ? (rented * 100.0 / total) : 0;
 
@@ -421,35 +533,58 @@ public class ReportExportService {
      * ===== PDF EXPORT =====
      */
     public boolean exportToPDF(String filepath, int year, int fromMonth, int toMonth) {
-        try {
-            Document document = new Document(PageSize.A4);
-            PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(filepath));
+        return exportToPDF(filepath, year, fromMonth, toMonth, ExportProgress.NONE);
+    }
 
+    /**
+     * @throws CancellationException nếu job bị hủy giữa chừng
+     */
+    public boolean exportToPDF(String filepath, int year, int fromMonth, int toMonth, ExportProgress progress) {
+        Document document = new Document(PageSize.A4);
+        try {
+            PdfWriter.getInstance(document, new FileOutputStream(filepath));
             document.open();
 
+            // Số liệu tổng hợp: tải 1 lần, dùng chung cho trang bìa và các phần báo cáo
+            progress.setPhase("Đang tải số liệu tổng hợp");
+            ReportDataset data = loadDataset(year, fromMonth, toMonth);
+            progress.checkCancelled();
+
             // Add content
-            addPDFCoverPage(document, year, fromMonth, toMonth);
+            progress.setPhase("Đang ghi trang bìa / doanh thu");
+            addPDFCoverPage(document, data);
             document.newPage();
 
-            addPDFRevenueReport(document, year, fromMonth, toMonth);
+            addPDFRevenueReport(document, year, data.revenueSeries);
             document.newPage();
 
-            addPDFInvoiceReport(document, year, fromMonth, toMonth);
+            progress.setPhase("Đang ghi bảng hóa đơn");
+            addPDFInvoiceReport(document, data, progress);
             document.newPage();
 
-            addPDFApartmentReport(document);
+            progress.setPhase("Đang ghi báo cáo căn hộ");
+            addPDFApartmentReport(document, data);
 
+            progress.setPhase("Đang lưu file");
             document.close();
 
             return true;
 
+        } catch (CancellationException e) {
+            if (document.isOpen()) {
+                document.close();
+            }
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
+            if (document.isOpen()) {
+                document.close();
+            }
             return false;
         }
     }
 
-    private void addPDFCoverPage(Document document, int year, int fromMonth, int toMonth) throws DocumentException {
+    private void addPDFCoverPage(Document document, ReportDataset data) throws DocumentException {
         // Title
         com.itextpdf.text.Font titleFont
                 = new com.itextpdf.text.Font(
@@ -483,7 +618,7 @@ public class ReportExportService {
                 );
 
         Paragraph period = new Paragraph(
-                String.format("Kỳ báo cáo: Từ tháng %d đến tháng %d năm %d", fromMonth, toMonth, year),
+                String.format("Kỳ báo cáo: Từ tháng %d đến tháng %d năm %d", data.fromMonth, data.toMonth, data.year),
                 normalFont
         );
         period.setAlignment(Element.ALIGN_CENTER);
@@ -504,16 +639,17 @@ public class ReportExportService {
         statsTable.setWidthPercentage(70);
         statsTable.setSpacingBefore(20);
 
-        addPDFStatRow(statsTable, "Tổng số tòa nhà", String.valueOf(buildingDAO.countBuildings()));
-        addPDFStatRow(statsTable, "Tổng số căn hộ", String.valueOf(apartmentDAO.countApartments()));
-        addPDFStatRow(statsTable, "Căn hộ đang thuê", String.valueOf(apartmentDAO.countRentedApartments()));
-        addPDFStatRow(statsTable, "Tổng số cư dân", String.valueOf(residentDAO.countResidents()));
-        addPDFStatRow(statsTable, "Hợp đồng đang hiệu lực", String.valueOf((char) contractDAO.countActiveContracts()));
+        addPDFStatRow(statsTable, "Tổng số tòa nhà", String.valueOf(data.buildingCount));
+        addPDFStatRow(statsTable, "Tổng số căn hộ", String.valueOf(data.apartmentCount));
+        addPDFStatRow(statsTable, "Căn hộ đang thuê", String.valueOf(data.rentedApartmentCount));
+        addPDFStatRow(statsTable, "Tổng số cư dân", String.valueOf(data.residentCount));
+        addPDFStatRow(statsTable, "Hợp đồng đang hiệu lực", String.valueOf(data.activeContractCount));
 
         document.add(statsTable);
     }
 
-    private void addPDFRevenueReport(Document document, int year, int fromMonth, int toMonth) throws DocumentException {
+    private void addPDFRevenueReport(Document document, int year, List<InvoiceDAO.MonthlyRevenue> revenueSeries)
+            throws DocumentException {
         // Section title
         com.itextpdf.text.Font sectionFont
                 = new com.itextpdf.text.Font(
@@ -545,19 +681,14 @@ public class ReportExportService {
 
         // Data
         BigDecimal totalRevenue = BigDecimal.ZERO;
-        for (int month = fromMonth; month <= toMonth; month++) {
-            List<Invoice> invoices = invoiceDAO.getInvoicesByMonth(month, year);
-            BigDecimal revenue = invoiceDAO.getMonthlyRevenue(month, year);
-            totalRevenue = totalRevenue.add(revenue);
-
-            int totalInv = invoices.size();
-            long paid = invoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
-
-            table.addCell(String.format("T%d/%d", month, year));
-            table.addCell(String.valueOf(totalInv));
-            table.addCell(String.valueOf(paid));
-            table.addCell(String.valueOf(totalInv - paid));
-            table.addCell(formatMoney(revenue));
+        for (InvoiceDAO.MonthlyRevenue monthly : revenueSeries) {
+            totalRevenue = totalRevenue.add(monthly.paidAmount);
+
+            table.addCell(String.format("T%d/%d", monthly.month, year));
+            table.addCell(String.valueOf(monthly.totalInvoices));
+            table.addCell(String.valueOf(monthly.paidCount));
+            table.addCell(String.valueOf(monthly.unpaidCount));
+            table.addCell(formatMoney(monthly.paidAmount));
             table.addCell("-");
         }
 
@@ -574,7 +705,8 @@ public class ReportExportService {
         document.add(total);
     }
 
-    private void addPDFInvoiceReport(Document document, int year, int fromMonth, int toMonth) throws DocumentException {
+    private void addPDFInvoiceReport(Document document, ReportDataset data, ExportProgress progress)
+            throws DocumentException {
         com.itextpdf.text.Font sectionFont
                 = new com.itextpdf.text.Font(
                         com.itextpdf.text.Font.FontFamily.TIMES_ROMAN,
@@ -587,26 +719,110 @@ public class ReportExportService {
         document.add(sectionTitle);
 
         // Summary
-        List<Invoice> allInvoices = new ArrayList<>();
-        for (int month = fromMonth; month <= toMonth; month++) {
-            allInvoices.addAll(invoiceDAO.getInvoicesByMonth(month, year));
-        }
-
-        long paid = allInvoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
-        long unpaid = allInvoices.size() - paid;
-
         Paragraph summary = new Paragraph(
                 String.format("Tổng hóa đơn: %d | Đã thanh toán: %d | Chưa thanh toán: %d",
-                        allInvoices.size(), paid, unpaid),
+                        data.totalInvoices, data.paidInvoices, data.unpaidInvoices),
                 new com.itextpdf.text.Font(
                         com.itextpdf.text.Font.FontFamily.TIMES_ROMAN, 12
                 )
         );
         summary.setSpacingAfter(15);
         document.add(summary);
+
+        // Chi tiết: đọc từ con trỏ streaming, ghi bảng theo từng đoạn
+        PdfInvoiceTableWriter tableWriter = new PdfInvoiceTableWriter(document, moneyFormat, true);
+        int count = invoiceListViewDAO.streamInvoicesByPeriod(data.year, data.fromMonth, data.toMonth, invoice -> {
+            // Hủy -> CancellationException dừng con trỏ
+            progress.checkCancelled();
+            try {
+                tableWriter.addRow(invoice);
+                progress.addRows(1);
+            } catch (DocumentException e) {
+                // Dừng con trỏ, exportToPDF bắt lỗi và trả về false
+                throw new IllegalStateException("Cannot write invoice row to PDF", e);
+            }
+        });
+        if (count < 0) {
+            throw new DocumentException("Cannot read invoices for PDF report");
+        }
+        tableWriter.finish();
     }
 
-    private void addPDFApartmentReport(Document document) throws DocumentException {
+    /**
+     * Bảng chi tiết hóa đơn trong PDF
+     * streaming = true: PdfPTable.setComplete(false) và cứ FLUSH_ROWS dòng thì add vào document,
+     * iText ghi các dòng đã hoàn chỉnh ra file rồi bỏ khỏi bảng -> bộ nhớ không tăng theo số dòng.
+     * streaming = false: giữ cả bảng trong bộ nhớ, add 1 lần ở cuối (chỉ dùng để so sánh trong benchmark).
+     */
+    static class PdfInvoiceTableWriter {
+        static final int FLUSH_ROWS = 500;
+
+        private static final String[] HEADERS = {"Số HĐ", "Căn Hộ", "Cư Dân", "Tháng", "Tổng Tiền", "Trạng Thái"};
+
+        private final Document document;
+        private final DecimalFormat moneyFormat;
+        private final boolean streaming;
+        private final PdfPTable table;
+        private final com.itextpdf.text.Font cellFont
+                = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.TIMES_ROMAN, 9);
+        private int rows = 0;
+        private int pendingRows = 0;
+
+        PdfInvoiceTableWriter(Document document, DecimalFormat moneyFormat, boolean streaming)
+                throws DocumentException {
+            this.document = document;
+            this.moneyFormat = moneyFormat;
+            this.streaming = streaming;
+
+            table = new PdfPTable(new float[]{2.2f, 1.2f, 3f, 1.2f, 2f, 1.8f});
+            table.setWidthPercentage(100);
+            table.setHeaderRows(1);
+            table.setComplete(!streaming);
+
+            com.itextpdf.text.Font headerFont
+                    = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.TIMES_ROMAN, 10);
+            for (String header : HEADERS) {
+                PdfPCell cell = new PdfPCell(new Phrase(header, headerFont));
+                cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
+                cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+                table.addCell(cell);
+            }
+        }
+
+        void addRow(InvoiceListViewModel invoice) throws DocumentException {
+            table.addCell(new Phrase(valueOrNA(invoice.getContractNumber()), cellFont));
+            table.addCell(new Phrase(valueOrNA(invoice.getRoomNumber()), cellFont));
+            table.addCell(new Phrase(valueOrNA(invoice.getResidentName()), cellFont));
+            table.addCell(new Phrase(invoice.getMonth() + "/" + invoice.getYear(), cellFont));
+
+            BigDecimal amount = invoice.getTotalAmount();
+            PdfPCell amountCell = new PdfPCell(new Phrase(
+                    moneyFormat.format(amount != null ? amount.longValue() : 0), cellFont));
+            amountCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+            table.addCell(amountCell);
+
+            table.addCell(new Phrase("PAID".equals(invoice.getStatus()) ? "Đã TT" : "Chưa TT", cellFont));
+
+            rows++;
+            if (streaming && ++pendingRows >= FLUSH_ROWS) {
+                document.add(table);
+                pendingRows = 0;
+            }
+        }
+
+        /**
+         * Ghi phần còn lại của bảng
+         *
+         * @return tổng số dòng đã ghi
+         */
+        int finish() throws DocumentException {
+            table.setComplete(true);
+            document.add(table);
+            return rows;
+        }
+    }
+
+    private void addPDFApartmentReport(Document document, ReportDataset data) throws DocumentException {
         com.itextpdf.text.Font sectionFont
                 = new com.itextpdf.text.Font(
                         com.itextpdf.text.Font.FontFamily.TIMES_ROMAN,
@@ -631,11 +847,10 @@ public class ReportExportService {
         }
 
         // Data
-        List<Building> buildings = buildingDAO.getAllBuildings();
-        for (Building building : buildings) {
-            List<Apartment> apts = apartmentDAO.getApartmentsByBuildingId(building.getId());
-            int total = apts.size();
-            int rented = (int) apts.stream().filter(a -> "RENTED".equals(a.getStatus())).count();
+        for (Map.Entry<Building, BuildingDAO.BuildingStats> entry : data.buildingStats.entrySet()) {
+            Building building = entry.getKey();
+            int total = entry.getValue().totalApartments;
+            int rented = entry.getValue().rentedApartments;
             double rate = total > 0 ? (rented * 100.0 / total) : 0;
 
             table.addCell(building.getName());
@@ -651,30 +866,21 @@ public class ReportExportService {
     /**
      * ===== HELPER METHODS =====
      */
-    private Map<String, BigDecimal> getServiceRevenue(int year) {
-        Map<String, BigDecimal> result = new HashMap<>();
-
-        List<Invoice> invoices = new ArrayList<>();
-        for (int month = 1; month <= 12; month++) {
-            invoices.addAll(invoiceDAO.getInvoicesByMonth(month, year));
-        }
-
-        for (Invoice invoice : invoices) {
-            if (!"PAID".equals(invoice.getStatus())) {
-                continue;
-            }
 
-            List<InvoiceDetail> details = invoiceDAO.getInvoiceDetails(invoice.getId());
-            for (InvoiceDetail detail : details) {
-                String serviceName = detail.getServiceName();
-                BigDecimal amount = detail.getAmount();
-                result.merge(serviceName, amount, BigDecimal::add);
-            }
+    /**
+     * Tạo sheet; với SXSSF phải theo dõi độ rộng cột ngay từ đầu thì autoSizeColumn mới dùng được
+     */
+    private Sheet createSheet(Workbook workbook, String name) {
+        Sheet sheet = workbook.createSheet(name);
+        if (sheet instanceof SXSSFSheet) {
+            ((SXSSFSheet) sheet).trackAllColumnsForAutoSizing();
         }
-
-        return result;
+        return sheet;
     }
 
+    private static String valueOrNA(String value) {
+        return value != null ? value : "N/A";
+    }
     private void addStatRow(Sheet sheet, int rowNum, String label, int value, CellStyle style) {
         Row row = sheet.createRow(rowNum);
         row.createCell(0).setCellValue(label);
@@ -704,7 +910,7 @@ public class ReportExportService {
     /**
      * ===== EXCEL STYLES =====
      */
-    private CellStyle createTitleStyle(XSSFWorkbook workbook) {
+    private CellStyle createTitleStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
 
         org.apache.poi.ss.usermodel.Font font = workbook.createFont();
@@ -716,7 +922,7 @@ public class ReportExportService {
         return style;
     }
 
-    private CellStyle createHeaderStyle(XSSFWorkbook workbook) {
+    private CellStyle createHeaderStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         org.apache.poi.ss.usermodel.Font font = workbook.createFont();;
         font.setBold(true);
@@ -733,13 +939,13 @@ public class ReportExportService {
         return style;
     }
 
-    private CellStyle createNormalStyle(XSSFWorkbook workbook) {
+    private CellStyle createNormalStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         style.setAlignment(HorizontalAlignment.LEFT);
         return style;
     }
 
-    private CellStyle createMoneyStyle(XSSFWorkbook workbook) {
+    private CellStyle createMoneyStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         DataFormat format = workbook.createDataFormat();
         style.setDataFormat(format.getFormat("#,##0"));
@@ -747,7 +953,7 @@ public class ReportExportService {
         return style;
     }
 
-    private CellStyle createTotalStyle(XSSFWorkbook workbook) {
+    private CellStyle createTotalStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         org.apache.poi.ss.usermodel.Font font = workbook.createFont();
         font.setBold(true);
@@ -0,0 +1,219 @@
+package util;
+
+import javax.swing.*;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Virtual Card Grid
+ * Lưới thẻ "ảo" thay cho JPanel(GridLayout) + một thẻ cho mỗi phần tử:
+ * chỉ các thẻ nằm trong vùng nhìn thấy của JScrollPane (cộng thêm OVERSCAN_ROWS hàng) tồn tại,
+ * thẻ cuộn ra khỏi màn hình được đưa về pool và gắn (bind) dữ liệu mới khi cần thẻ khác.
+ *
+ * - Số cột cố định, các ô cùng chiều cao (giống GridLayout(0, columns, hgap, vgap))
+ * - Kích thước ưu tiên tính từ số phần tử -> thanh cuộn đúng ngay, không cần dựng hết thẻ
+ * - Thẻ trong pool vẫn là con của lưới nhưng bị ẩn (không add/remove khi cuộn)
+ * - Tòa 1.200 căn: ~20-30 thẻ thay vì 1.200 thẻ (hàng chục nghìn component)
+ *
+ * Lưới có thể nằm trong một panel bọc (wrapper) của JScrollPane, JViewport được tìm khi add vào cây.
+ * Mọi phương thức gọi trên EDT.
+ */
+public class VirtualCardGrid<T, C extends JComponent> extends JPanel {
+
+    /**
+     * Tạo thẻ rỗng và gắn dữ liệu vào thẻ (thẻ được dùng lại cho nhiều phần tử)
+     */
+    public interface CardBinder<T, C extends JComponent> {
+
+        C createCard();
+
+        void bindCard(C card, T item);
+    }
+
+    // Số hàng dựng thêm trên / dưới vùng nhìn thấy để cuộn không thấy ô trống
+    private static final int OVERSCAN_ROWS = 1;
+
+    private final CardBinder<T, C> binder;
+    private final int columns;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int hgap;
+    private final int vgap;
+
+    private List<T> items = Collections.emptyList();
+    // Vị trí phần tử -> thẻ đang hiển thị
+    private final Map<Integer, C> activeCards = new HashMap<>();
+    private final Deque<C> pool = new ArrayDeque<>();
+
+    private JViewport viewport;
+    private final ChangeListener viewportListener = e -> updateVisibleCards();
+
+    /**
+     * @param cellWidth  chiều rộng tối thiểu của ô (kích thước ưu tiên của thẻ)
+     * @param cellHeight chiều cao ô
+     */
+    public VirtualCardGrid(CardBinder<T, C> binder, int columns, int cellWidth, int cellHeight,
+                           int hgap, int vgap) {
+        super(null);
+        this.binder = binder;
+        this.columns = Math.max(1, columns);
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.hgap = hgap;
+        this.vgap = vgap;
+        setBackground(UIConstants.BACKGROUND_COLOR);
+    }
+
+    /**
+     * Thay toàn bộ danh sách (mọi thẻ được gắn lại dữ liệu)
+     */
+    public void setItems(List<T> newItems) {
+        items = newItems != null ? new ArrayList<>(newItems) : Collections.emptyList();
+        for (C card : activeCards.values()) {
+            recycle(card);
+        }
+        activeCards.clear();
+        revalidate();
+        repaint();
+        updateVisibleCards();
+    }
+
+    public List<T> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public int getItemCount() {
+        return items.size();
+    }
+
+    /**
+     * Thay một phần tử tại chỗ, chỉ gắn lại thẻ đó nếu đang hiển thị
+     */
+    public void setItem(int index, T item) {
+        items.set(index, item);
+        C card = activeCards.get(index);
+        if (card != null) {
+            binder.bindCard(card, item);
+            card.validate();
+            card.repaint();
+        }
+    }
+
+    /**
+     * @return số thẻ đã tạo (đang hiển thị + trong pool)
+     */
+    public int getCardCount() {
+        return activeCards.size() + pool.size();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport != null) {
+            viewport.addChangeListener(viewportListener);
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        if (viewport != null) {
+            viewport.removeChangeListener(viewportListener);
+            viewport = null;
+        }
+        super.removeNotify();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        Insets insets = getInsets();
+        int rows = rowCount();
+        int width = columns * cellWidth + (columns - 1) * hgap;
+        int height = rows * cellHeight + Math.max(0, rows - 1) * vgap;
+        return new Dimension(width + insets.left + insets.right, height + insets.top + insets.bottom);
+    }
+
+    @Override
+    public void doLayout() {
+        // Đổi chiều rộng -> đặt lại vị trí mọi thẻ đang hiển thị
+        for (Map.Entry<Integer, C> entry : activeCards.entrySet()) {
+            place(entry.getValue(), entry.getKey());
+        }
+        updateVisibleCards();
+    }
+
+    private int rowCount() {
+        return (items.size() + columns - 1) / columns;
+    }
+
+    /**
+     * Dựng / thu hồi thẻ theo vùng nhìn thấy hiện tại
+     */
+    private void updateVisibleCards() {
+        Rectangle visible = getVisibleRect();
+        int first = 0;
+        int last = -1;
+        if (!items.isEmpty() && visible.height > 0 && getWidth() > 0) {
+            int rowPitch = cellHeight + vgap;
+            int top = visible.y - getInsets().top;
+            int firstRow = Math.max(0, top / rowPitch - OVERSCAN_ROWS);
+            int lastRow = Math.min(rowCount() - 1, (top + visible.height) / rowPitch + OVERSCAN_ROWS);
+            first = firstRow * columns;
+            last = Math.min(items.size() - 1, (lastRow + 1) * columns - 1);
+        }
+
+        // Thu hồi thẻ đã ra khỏi vùng
+        Iterator<Map.Entry<Integer, C>> it = activeCards.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, C> entry = it.next();
+            if (entry.getKey() < first || entry.getKey() > last) {
+                recycle(entry.getValue());
+                it.remove();
+            }
+        }
+
+        // Gắn dữ liệu cho thẻ mới vào vùng
+        for (int i = first; i <= last; i++) {
+            if (activeCards.containsKey(i)) {
+                continue;
+            }
+            C card = pool.poll();
+            if (card == null) {
+                card = binder.createCard();
+                add(card);
+            }
+            binder.bindCard(card, items.get(i));
+            place(card, i);
+            card.setVisible(true);
+            activeCards.put(i, card);
+        }
+    }
+
+    private void place(C card, int index) {
+        Insets insets = getInsets();
+        int available = getWidth() - insets.left - insets.right - (columns - 1) * hgap;
+        int width = Math.max(cellWidth, available / columns);
+        int row = index / columns;
+        int col = index % columns;
+        card.setBounds(insets.left + col * (width + hgap),
+                insets.top + row * (cellHeight + vgap),
+                width, cellHeight);
+        card.validate();
+    }
+
+    private void recycle(C card) {
+        card.setVisible(false);
+        pool.push(card);
+    }
+}
@@ -23,19 +23,54 @@ public class ApartmentCard extends JPanel {
     private Consumer<Apartment> onEdit;
     private Consumer<Apartment> onDelete;
 
+    // Kích thước thẻ (VirtualCardGrid dùng làm kích thước ô)
+    public static final int CARD_WIDTH = 300;
+    public static final int CARD_HEIGHT = 185;
+
     public ApartmentCard(Apartment apartment, LocalDate contractEndDate,
                          Consumer<Apartment> onSelect, 
                          Consumer<Apartment> onEdit, 
                          Consumer<Apartment> onDelete) {
-        this.apartment = apartment;
-        this.contractEndDate = contractEndDate;
-        
+        this(onSelect, onEdit, onDelete);
+        bind(apartment, contractEndDate);
+    }
+
+    // Thành phần con dựng 1 lần trong constructor, bind() chỉ đổi nội dung
+    private final JLabel lblRoom = new JLabel();
+    private final JLabel lblType = new JLabel();
+    private final StatusBadge statusBadge = new StatusBadge();
+    private final JLabel lblArea;
+    private final JLabel lblBed;
+    private final JLabel lblBath;
+    private final JLabel lblFooter = new JLabel();
+
+    // Viền thẻ theo trạng thái (tính khi bind, paintComponent chỉ vẽ)
+    private Color borderColor = BORDER_DEFAULT;
+    private BasicStroke borderStroke = STROKE_THIN;
+
+    private static final Color BORDER_DEFAULT = new Color(230, 230, 230);
+    private static final BasicStroke STROKE_THIN = new BasicStroke(1f);
+    private static final BasicStroke STROKE_THICK = new BasicStroke(2f);
+
+    private static final Font FONT_OWNED = new Font("Segoe UI", Font.BOLD, 11);
+    private static final Font FONT_ALERT = new Font("Segoe UI", Font.BOLD, 12);
+    private static final Font FONT_NOTE = new Font("Segoe UI", Font.ITALIC, 11);
+    private static final Icon ICON_OWNED = new CardIcon("CHECK", 14, new Color(194, 24, 91));
+    private static final Icon ICON_OVERDUE = new CardIcon("WARNING", 14, new Color(211, 47, 47));
+    private static final Icon ICON_EXPIRING = new CardIcon("TIME", 14, new Color(230, 81, 0));
+
+    /**
+     * Thẻ rỗng, dữ liệu gắn sau bằng bind() (thẻ được VirtualCardGrid dùng lại)
+     */
+    public ApartmentCard(Consumer<Apartment> onSelect, 
+                         Consumer<Apartment> onEdit, 
+                         Consumer<Apartment> onDelete) {
         this.onSelect = onSelect;
         this.onEdit = onEdit;
         this.onDelete = onDelete;
 
         setOpaque(false);
-        setPreferredSize(new Dimension(300, 185)); 
+        setPreferredSize(new Dimension(CARD_WIDTH, CARD_HEIGHT)); 
         
         this.setCursor(new Cursor(Cursor.HAND_CURSOR));
         this.addMouseListener(new MouseAdapter() {
@@ -44,9 +79,41 @@ public class ApartmentCard extends JPanel {
             @Override public void mouseExited(MouseEvent e) { setBackground(null); repaint(); }
         });
 
+        lblArea = createIconLabel("AREA");
+        lblBed = createIconLabel("BED");
+        lblBath = createIconLabel("BATH");
         initUI();
     }
 
+    /**
+     * Gắn căn hộ khác vào thẻ: chỉ đổi chữ, màu, icon (không dựng lại component con)
+     */
+    public void bind(Apartment apartment, LocalDate contractEndDate) {
+        this.apartment = apartment;
+        this.contractEndDate = contractEndDate;
+
+        setBackground(null);
+        String status = apartment.getStatus() == null ? "" : apartment.getStatus().trim();
+
+        lblRoom.setText("P. " + apartment.getRoomNumber());
+        lblType.setText(apartment.getApartmentType() != null ? apartment.getApartmentType() : "Std");
+        bindStatusBadge(status);
+
+        lblArea.setText(" " + apartment.getArea() + " m²");
+        lblBed.setText(" " + apartment.getBedroomCount() + " PN");
+        lblBath.setText(" " + apartment.getBathroomCount() + " PT");
+
+        bindFooterInfo(status);
+        bindBorder(status);
+
+        revalidate();
+        repaint();
+    }
+
+    public Apartment getApartment() {
+        return apartment;
+    }
+
     private void initUI() {
         setLayout(new BorderLayout());
         setBorder(new EmptyBorder(12, 18, 12, 18));
@@ -58,12 +125,9 @@ public class ApartmentCard extends JPanel {
         JPanel titleGroup = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
         titleGroup.setOpaque(false);
         
-        JLabel lblRoom = new JLabel("P. " + apartment.getRoomNumber());
         lblRoom.setFont(new Font("Segoe UI", Font.BOLD, 19));
         lblRoom.setForeground(new Color(33, 33, 33));
         
-        String type = apartment.getApartmentType() != null ? apartment.getApartmentType() : "Std";
-        JLabel lblType = new JLabel(type);
         lblType.setFont(new Font("Segoe UI", Font.PLAIN, 11));
         lblType.setForeground(Color.GRAY);
         lblType.setBorder(BorderFactory.createCompoundBorder(
@@ -72,7 +136,7 @@ public class ApartmentCard extends JPanel {
 
         titleGroup.add(lblRoom); titleGroup.add(lblType);
         headerPanel.add(titleGroup, BorderLayout.WEST);
-        headerPanel.add(createStatusBadge(apartment.getStatus()), BorderLayout.EAST);
+        headerPanel.add(statusBadge, BorderLayout.EAST);
 
         // BODY
         JPanel bodyPanel = new JPanel();
@@ -82,11 +146,11 @@ public class ApartmentCard extends JPanel {
 
         JPanel specRow = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
         specRow.setOpaque(false);
-        specRow.add(createIconLabel("AREA", apartment.getArea() + " m²"));
+        specRow.add(lblArea);
         specRow.add(Box.createHorizontalStrut(12));
-        specRow.add(createIconLabel("BED", apartment.getBedroomCount() + " PN"));
+        specRow.add(lblBed);
         specRow.add(Box.createHorizontalStrut(12));
-        specRow.add(createIconLabel("BATH", apartment.getBathroomCount() + " PT"));
+        specRow.add(lblBath);
         
         bodyPanel.add(specRow);
         bodyPanel.add(Box.createVerticalStrut(5));
@@ -96,7 +160,7 @@ public class ApartmentCard extends JPanel {
         footerPanel.setOpaque(false);
         footerPanel.setBorder(new EmptyBorder(8, 0, 0, 0));
         
-        footerPanel.add(createFooterInfo(), BorderLayout.WEST);
+        footerPanel.add(lblFooter, BorderLayout.WEST);
 
         JPanel btnGroup = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
         btnGroup.setOpaque(false);
@@ -117,16 +181,11 @@ public class ApartmentCard extends JPanel {
         add(footerPanel, BorderLayout.SOUTH);
     }
 
-    private JComponent createFooterInfo() {
-        String s = apartment.getStatus() == null ? "" : apartment.getStatus().trim();
-        
+    private void bindFooterInfo(String s) {
         // ✅ OWNED apartments - hiển thị thông báo đã bán
         if (s.equalsIgnoreCase("OWNED")) {
-            JLabel lblOwned = new JLabel(" ĐÃ BÁN - Không cho thuê");
-            lblOwned.setFont(new Font("Segoe UI", Font.BOLD, 11));
-            lblOwned.setForeground(new Color(194, 24, 91)); // Pink
-            lblOwned.setIcon(new CardIcon("CHECK", 14, new Color(194, 24, 91)));
-            return lblOwned;
+            setFooter(" ĐÃ BÁN - Không cho thuê", FONT_OWNED, new Color(194, 24, 91), ICON_OWNED); // Pink
+            return;
         }
         
         // RENTED apartments - kiểm tra hạn hợp đồng
@@ -138,19 +197,12 @@ public class ApartmentCard extends JPanel {
         if (contractEndDate != null && isRented) {
             long days = ChronoUnit.DAYS.between(LocalDate.now(), contractEndDate);
             
-            JLabel lblAlert = new JLabel();
-            lblAlert.setFont(new Font("Segoe UI", Font.BOLD, 12));
-            
             if (days < 0) {
-                lblAlert.setText(" QUÁ HẠN " + Math.abs(days) + " NGÀY");
-                lblAlert.setForeground(new Color(211, 47, 47));
-                lblAlert.setIcon(new CardIcon("WARNING", 14, new Color(211, 47, 47))); 
-                return lblAlert;
+                setFooter(" QUÁ HẠN " + Math.abs(days) + " NGÀY", FONT_ALERT, new Color(211, 47, 47), ICON_OVERDUE);
+                return;
             } else if (days <= 30) {
-                lblAlert.setText(" Hết hạn: " + days + " ngày");
-                lblAlert.setForeground(new Color(230, 81, 0));
-                lblAlert.setIcon(new CardIcon("TIME", 14, new Color(230, 81, 0))); 
-                return lblAlert;
+                setFooter(" Hết hạn: " + days + " ngày", FONT_ALERT, new Color(230, 81, 0), ICON_EXPIRING);
+                return;
             }
         }
         
@@ -158,10 +210,41 @@ public class ApartmentCard extends JPanel {
         String desc = apartment.getDescription();
         if (desc == null || desc.isEmpty()) desc = "Không có ghi chú";
         if (desc.length() > 18) desc = desc.substring(0, 16) + "...";
-        JLabel lblDesc = new JLabel(desc);
-        lblDesc.setFont(new Font("Segoe UI", Font.ITALIC, 11));
-        lblDesc.setForeground(new Color(150, 150, 150));
-        return lblDesc;
+        setFooter(desc, FONT_NOTE, new Color(150, 150, 150), null);
+    }
+
+    private void setFooter(String text, Font font, Color color, Icon icon) {
+        lblFooter.setText(text);
+        lblFooter.setFont(font);
+        lblFooter.setForeground(color);
+        lblFooter.setIcon(icon);
+    }
+
+    private void bindBorder(String s) {
+        borderColor = BORDER_DEFAULT;
+        borderStroke = STROKE_THIN;
+
+        // ✅ OWNED - Viền PINK
+        if (s.equalsIgnoreCase("OWNED")) {
+            borderColor = new Color(233, 30, 99); // Pink border
+            borderStroke = STROKE_THICK;
+            return;
+        }
+        // RENTED - Kiểm tra expiry
+        boolean isRented = s.equalsIgnoreCase("RENTED") || 
+                           s.equalsIgnoreCase("OCCUPIED") || 
+                           s.equalsIgnoreCase("Đã thuê");
+        
+        if (contractEndDate != null && isRented) {
+            long days = ChronoUnit.DAYS.between(LocalDate.now(), contractEndDate);
+            if (days < 0) {
+                borderColor = new Color(239, 83, 80); // Đỏ
+                borderStroke = STROKE_THICK;
+            } else if (days <= 30) {
+                borderColor = new Color(255, 167, 38); // Cam
+                borderStroke = STROKE_THICK;
+            }
+        }
     }
 
     @Override
@@ -173,75 +256,37 @@ public class ApartmentCard extends JPanel {
         g2.setColor(getBackground() != null ? getBackground() : Color.WHITE);
         g2.fill(new RoundRectangle2D.Float(0, 0, getWidth()-1, getHeight()-1, 20, 20));
         
-        String s = apartment.getStatus() == null ? "" : apartment.getStatus().trim();
-        
-        // ✅ OWNED - Viền PINK
-        if (s.equalsIgnoreCase("OWNED")) {
-            g2.setColor(new Color(233, 30, 99)); // Pink border
-            g2.setStroke(new BasicStroke(2f));
-        }
-        // RENTED - Kiểm tra expiry
-        else {
-            boolean isRented = s.equalsIgnoreCase("RENTED") || 
-                               s.equalsIgnoreCase("OCCUPIED") || 
-                               s.equalsIgnoreCase("Đã thuê");
-            
-            if (contractEndDate != null && isRented) {
-                long days = ChronoUnit.DAYS.between(LocalDate.now(), contractEndDate);
-                if (days < 0) {
-                    g2.setColor(new Color(239, 83, 80)); // Đỏ
-                    g2.setStroke(new BasicStroke(2f));
-                } else if (days <= 30) {
-                    g2.setColor(new Color(255, 167, 38)); // Cam
-                    g2.setStroke(new BasicStroke(2f));
-                } else {
-                    g2.setColor(new Color(230, 230, 230));
-                    g2.setStroke(new BasicStroke(1f));
-                }
-            } else {
-                g2.setColor(new Color(230, 230, 230));
-                g2.setStroke(new BasicStroke(1f));
-            }
-        }
-        
+        // Viền theo trạng thái (tính trong bind)
+        g2.setColor(borderColor);
+        g2.setStroke(borderStroke);
         g2.draw(new RoundRectangle2D.Float(0, 0, getWidth()-1, getHeight()-1, 20, 20));
         g2.dispose();
     }
 
-    private StatusBadge createStatusBadge(String status) {
-        String s = (status == null) ? "AVAILABLE" : status.trim();
-        Color bg, fg; String text;
+    private void bindStatusBadge(String s) {
+        if (s.isEmpty()) s = "AVAILABLE";
         
         // ✅ Priority 1: OWNED (Đã bán)
         if (s.equalsIgnoreCase("OWNED")) { 
-            bg = new Color(255, 235, 238); // Light pink
-            fg = new Color(194, 24, 91);   // Dark pink
-            text = "ĐÃ BÁN"; 
+            statusBadge.setStatus("ĐÃ BÁN", new Color(255, 235, 238), new Color(194, 24, 91)); // Light pink / Dark pink
         }
         // Priority 2: RENTED (Đã thuê)
         else if (s.equalsIgnoreCase("RENTED") || s.equalsIgnoreCase("OCCUPIED") || 
             s.equalsIgnoreCase("Đã thuê") || s.equalsIgnoreCase("Đang thuê")) { 
-            bg = new Color(232, 245, 233); 
-            fg = new Color(46, 125, 50); 
-            text = "ĐÃ THUÊ"; 
+            statusBadge.setStatus("ĐÃ THUÊ", new Color(232, 245, 233), new Color(46, 125, 50));
         } 
         // Priority 3: MAINTENANCE
         else if (s.equalsIgnoreCase("MAINTENANCE") || s.equalsIgnoreCase("Bảo trì")) { 
-            bg = new Color(255, 243, 224); 
-            fg = new Color(239, 108, 0); 
-            text = "BẢO TRÌ"; 
+            statusBadge.setStatus("BẢO TRÌ", new Color(255, 243, 224), new Color(239, 108, 0));
         } 
         // Default: AVAILABLE
         else { 
-            bg = new Color(227, 242, 253); 
-            fg = new Color(25, 118, 210); 
-            text = "TRỐNG"; 
+            statusBadge.setStatus("TRỐNG", new Color(227, 242, 253), new Color(25, 118, 210));
         }
-        return new StatusBadge(text, bg, fg);
     }
     
-    private JLabel createIconLabel(String icon, String text) { 
-        JLabel l = new JLabel(" " + text); 
+    private JLabel createIconLabel(String icon) { 
+        JLabel l = new JLabel(); 
         l.setIcon(new CardIcon(icon, 14, new Color(100, 100, 100))); 
         l.setFont(new Font("Segoe UI", Font.PLAIN, 12)); 
         l.setForeground(new Color(70, 70, 70)); 
@@ -259,15 +304,17 @@ public class ApartmentCard extends JPanel {
     }
     
     private static class StatusBadge extends JLabel { 
-        private Color bgColor, textColor; 
-        public StatusBadge(String text, Color bg, Color txt) { 
-            super(text); 
-            this.bgColor = bg; 
-            this.textColor = txt; 
+        private Color bgColor = Color.WHITE; 
+        public StatusBadge() { 
             setFont(new Font("Segoe UI", Font.BOLD, 10)); 
-            setForeground(textColor); 
             setBorder(new EmptyBorder(3, 10, 3, 10)); 
         } 
+        void setStatus(String text, Color bg, Color txt) { 
+            this.bgColor = bg; 
+            setText(text); 
+            setForeground(txt); 
+            repaint(); 
+        } 
         @Override 
         protected void paintComponent(Graphics g) { 
             Graphics2D g2 = (Graphics2D) g.create(); 
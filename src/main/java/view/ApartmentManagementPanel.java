@@ -2,13 +2,16 @@ package view;
 
 import dao.ApartmentDAO;
 import dao.BuildingDAO;
-import dao.ContractDAO;
+import dao.ChangeLogDAO;
 import dao.FloorDAO;
 import model.Apartment;
+import model.ApartmentCardViewModel;
 import model.Building;
-import model.Contract;
 import model.Floor;
+import util.AsyncLoader;
+import util.ChangeLogPoller;
 import util.UIConstants;
+import util.VirtualCardGrid;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -18,33 +21,62 @@ import java.awt.event.MouseEvent;
 import java.awt.geom.Path2D;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ApartmentManagementPanel extends JPanel {
 
     private ApartmentDAO apartmentDAO;
     private BuildingDAO buildingDAO;
     private FloorDAO floorDAO;
-    private ContractDAO contractDAO;
 
     private JComboBox<Building> cbbBuilding;
     private JComboBox<Floor> cbbFloor;
     private JComboBox<String> cbbStatusFilter;
     private JPanel cardsContainer;
+    // Lưới thẻ ảo: chỉ dựng thẻ của các căn đang nhìn thấy
+    private VirtualCardGrid<Apartment, ApartmentCard> cardGrid;
 
     private Building currentBuilding;
     private Floor currentFloor;
 
+    // Các căn đang hiển thị, đúng thứ tự ô trong cardGrid
+    private List<Apartment> displayedApartments = new ArrayList<>();
+    private Map<Long, LocalDate> displayedEndDates = new HashMap<>();
+
+    private final AsyncLoader apartmentLoader = new AsyncLoader("ApartmentManagementPanel.apartments", this);
+    private final AsyncLoader changeLoader = new AsyncLoader("ApartmentManagementPanel.changes");
+    private final ChangeLogPoller.ChangeListener changeListener = this::onRemoteChanges;
+    // Id căn thay đổi từ máy khác chưa áp dụng: gộp các ChangeSet đến khi đang query
+    private final Set<Long> pendingChangedIds = new LinkedHashSet<>();
+
     public ApartmentManagementPanel() {
         this.apartmentDAO = new ApartmentDAO();
         this.buildingDAO = new BuildingDAO();
         this.floorDAO = new FloorDAO();
-        this.contractDAO = new ContractDAO();
 
         initUI();
         loadBuildingData();
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        ChangeLogPoller.getInstance().addListener(changeListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        ChangeLogPoller.getInstance().removeListener(changeListener);
+        changeLoader.cancel();
+        super.removeNotify();
+    }
+
     public void setFloor(Floor floor) {
         if (floor == null || floor.getBuildingId() == null) {
             return;
@@ -188,9 +220,25 @@ public class ApartmentManagementPanel extends JPanel {
         add(headerPanel, BorderLayout.NORTH);
 
         // === CONTENT ===
-        cardsContainer = new JPanel(new GridLayout(0, 3, 20, 20));
+        cardsContainer = new JPanel(new BorderLayout());
         cardsContainer.setBackground(UIConstants.BACKGROUND_COLOR);
 
+        cardGrid = new VirtualCardGrid<>(new VirtualCardGrid.CardBinder<Apartment, ApartmentCard>() {
+            @Override
+            public ApartmentCard createCard() {
+                return new ApartmentCard(
+                        ApartmentManagementPanel.this::showQuickView,
+                        ApartmentManagementPanel.this::editApartment,
+                        ApartmentManagementPanel.this::deleteApartment
+                );
+            }
+
+            @Override
+            public void bindCard(ApartmentCard card, Apartment apt) {
+                card.bind(apt, displayedEndDates.get(apt.getId()));
+            }
+        }, 3, ApartmentCard.CARD_WIDTH, ApartmentCard.CARD_HEIGHT, 20, 20);
+
         JPanel contentWrapper = new JPanel(new BorderLayout());
         contentWrapper.setBackground(UIConstants.BACKGROUND_COLOR);
         contentWrapper.add(cardsContainer, BorderLayout.NORTH);
@@ -228,27 +276,65 @@ public class ApartmentManagementPanel extends JPanel {
     private void loadApartments() {
         cardsContainer.removeAll();
         if (currentBuilding == null) {
+            apartmentLoader.cancel();
             cardsContainer.revalidate();
             cardsContainer.repaint();
             return;
         }
 
-        List<Apartment> list;
         Floor selectedFloor = (Floor) cbbFloor.getSelectedItem();
-        if (selectedFloor != null && selectedFloor.getId() != null) {
-            list = apartmentDAO.getApartmentsByFloorId(selectedFloor.getId());
-            currentFloor = selectedFloor;
-        } else {
-            list = apartmentDAO.getApartmentsByBuildingId(currentBuilding.getId());
-            currentFloor = null;
-        }
-
+        Long floorId = (selectedFloor != null) ? selectedFloor.getId() : null;
+        Long buildingId = currentBuilding.getId();
+        currentFloor = (floorId != null) ? selectedFloor : null;
         String statusFilter = (String) cbbStatusFilter.getSelectedItem();
-        if (statusFilter != null && !statusFilter.equals("Tất cả trạng thái")) {
-            list = filterByStatus(list, statusFilter);
+
+        cardsContainer.add(AsyncLoader.loadingPlaceholder("Đang tải danh sách căn hộ..."), BorderLayout.CENTER);
+        cardsContainer.revalidate();
+        cardsContainer.repaint();
+
+        apartmentLoader.load(() -> {
+            // 1 query: căn hộ + hợp đồng ACTIVE + người thuê (không query từng thẻ)
+            List<ApartmentCardViewModel> cards = (floorId != null)
+                    ? apartmentDAO.getApartmentCardsByFloor(floorId)
+                    : apartmentDAO.getApartmentCardsByBuilding(buildingId);
+
+            List<Apartment> list = new ArrayList<>();
+            Map<Long, LocalDate> endDates = new HashMap<>();
+            for (ApartmentCardViewModel card : cards) {
+                Apartment apt = card.getApartment();
+                list.add(apt);
+
+                LocalDate endDate = getRentalEndDate(card);
+                if (endDate != null) {
+                    endDates.put(apt.getId(), endDate);
+                }
+            }
+
+            if (statusFilter != null && !statusFilter.equals("Tất cả trạng thái")) {
+                list = filterByStatus(list, statusFilter);
+            }
+            return new ApartmentLoadResult(list, endDates);
+        }, result -> {
+            showApartments(result);
+            flushRemoteChanges(); // Thay đổi đến trong lúc tải lại
+        });
+    }
+
+    // ✅ FIX: Chỉ lấy end date cho RENTED, không lấy cho OWNED
+    private static LocalDate getRentalEndDate(ApartmentCardViewModel card) {
+        Apartment apt = card.getApartment();
+        if ("RENTED".equalsIgnoreCase(apt.getStatus()) && card.getContractEndDate() != null) {
+            return new java.sql.Date(card.getContractEndDate().getTime()).toLocalDate();
         }
+        return null;
+    }
+
+    private void showApartments(ApartmentLoadResult result) {
+        cardsContainer.removeAll();
+        displayedApartments = new ArrayList<>(result.apartments);
+        displayedEndDates = new HashMap<>(result.endDates);
 
-        if (list.isEmpty()) {
+        if (result.apartments.isEmpty()) {
             JLabel emptyLabel = new JLabel("Không có căn hộ nào");
             emptyLabel.setFont(new Font("Segoe UI", Font.ITALIC, 16));
             emptyLabel.setForeground(Color.GRAY);
@@ -257,33 +343,140 @@ public class ApartmentManagementPanel extends JPanel {
             JPanel emptyPanel = new JPanel(new BorderLayout());
             emptyPanel.setBackground(UIConstants.BACKGROUND_COLOR);
             emptyPanel.add(emptyLabel, BorderLayout.CENTER);
-            cardsContainer.add(emptyPanel);
+            cardsContainer.add(emptyPanel, BorderLayout.CENTER);
         } else {
-            for (Apartment apt : list) {
-                LocalDate realEndDate = null;
-
-                String st = (apt.getStatus() == null) ? "" : apt.getStatus();
-                
-                // ✅ FIX: Chỉ load end date cho RENTED, không load cho OWNED
-                if ("RENTED".equalsIgnoreCase(st)) {
-                    Contract c = contractDAO.getActiveContractByApartmentId(apt.getId());
-                    if (c != null && c.getEndDate() != null) {
-                        realEndDate = new java.sql.Date(c.getEndDate().getTime()).toLocalDate();
-                    }
+            cardsContainer.add(cardGrid, BorderLayout.CENTER);
+            cardGrid.setItems(displayedApartments);
+        }
+
+        cardsContainer.revalidate();
+        cardsContainer.repaint();
+    }
+
+    /**
+     * ===== THAY ĐỔI TỪ MÁY KHÁC (change_log) =====
+     * Chỉ query lại các căn bị thay đổi; thẻ đang hiển thị được thay tại chỗ,
+     * thêm / bớt thẻ thì dựng lại lưới từ danh sách trong bộ nhớ (không query cả tòa).
+     * Id của các ChangeSet liên tiếp được gộp: query mới (hủy query cũ) đọc cả id của query cũ.
+     */
+    private void onRemoteChanges(ChangeLogPoller.ChangeSet changes) {
+        if (currentBuilding == null) {
+            return; // Chưa chọn tòa
+        }
+        if (changes.isBulk(ChangeLogDAO.APARTMENT) || changes.contains(ChangeLogDAO.FLOOR)) {
+            pendingChangedIds.clear();
+            loadApartments();
+            return;
+        }
+
+        pendingChangedIds.addAll(changes.getIds(ChangeLogDAO.APARTMENT));
+        if (!apartmentLoader.isLoading()) {
+            flushRemoteChanges(); // Đang tải lại toàn bộ -> áp dụng khi tải xong
+        }
+    }
+
+    private void flushRemoteChanges() {
+        if (pendingChangedIds.isEmpty() || currentBuilding == null) {
+            return;
+        }
+        List<Long> changedIds = new ArrayList<>(pendingChangedIds);
+        changeLoader.load(() -> apartmentDAO.getApartmentCardsByIds(changedIds),
+                cards -> applyRemoteChanges(changedIds, cards));
+    }
+
+    private void applyRemoteChanges(List<Long> changedIds, Map<Long, ApartmentCardViewModel> cards) {
+        if (apartmentLoader.isLoading()) {
+            return; // Giữ id trong pendingChangedIds, áp dụng khi tải xong
+        }
+        pendingChangedIds.removeAll(changedIds);
+        String statusFilter = (String) cbbStatusFilter.getSelectedItem();
+        boolean structureChanged = false;
+
+        for (Long id : changedIds) {
+            ApartmentCardViewModel card = cards.get(id);
+            Apartment apt = card != null ? card.getApartment() : null;
+            boolean visible = apt != null && isInCurrentView(apt)
+                    && (statusFilter == null || !filterByStatus(Collections.singletonList(apt), statusFilter).isEmpty());
+
+            int index = indexOfDisplayed(id);
+            if (visible) {
+                LocalDate endDate = getRentalEndDate(card);
+                if (endDate != null) {
+                    displayedEndDates.put(id, endDate);
+                } else {
+                    displayedEndDates.remove(id);
                 }
 
-                cardsContainer.add(new ApartmentCard(
-                        apt,
-                        realEndDate,
-                        this::showQuickView,
-                        this::editApartment,
-                        this::deleteApartment
-                ));
+                if (index >= 0) {
+                    // Thay đúng ô đó (chỉ gắn lại thẻ nếu đang nhìn thấy)
+                    displayedApartments.set(index, apt);
+                    cardGrid.setItem(index, apt);
+                } else {
+                    displayedApartments.add(apt);
+                    structureChanged = true;
+                }
+            } else if (index >= 0) {
+                displayedApartments.remove(index);
+                displayedEndDates.remove(id);
+                structureChanged = true;
             }
         }
 
-        cardsContainer.revalidate();
-        cardsContainer.repaint();
+        if (structureChanged) {
+            List<Apartment> sorted = new ArrayList<>(displayedApartments);
+            sorted.sort(displayOrder());
+            showApartments(new ApartmentLoadResult(sorted, new HashMap<>(displayedEndDates)));
+        } else {
+            cardsContainer.revalidate();
+            cardsContainer.repaint();
+        }
+    }
+
+    private int indexOfDisplayed(Long apartmentId) {
+        for (int i = 0; i < displayedApartments.size(); i++) {
+            if (apartmentId.equals(displayedApartments.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Căn thuộc tầng đang chọn, hoặc một tầng bất kỳ của tòa khi xem "Tất cả các tầng"
+    private boolean isInCurrentView(Apartment apt) {
+        if (currentFloor != null) {
+            return currentFloor.getId().equals(apt.getFloorId());
+        }
+        return getFloorNumbers().containsKey(apt.getFloorId());
+    }
+
+    // Cùng thứ tự với query: số tầng, rồi số phòng
+    private Comparator<Apartment> displayOrder() {
+        Map<Long, Integer> floorNumbers = getFloorNumbers();
+        return Comparator
+                .comparing((Apartment a) -> floorNumbers.getOrDefault(a.getFloorId(), Integer.MAX_VALUE))
+                .thenComparing(a -> a.getRoomNumber() != null ? a.getRoomNumber() : "", String.CASE_INSENSITIVE_ORDER);
+    }
+
+    private Map<Long, Integer> getFloorNumbers() {
+        Map<Long, Integer> floorNumbers = new HashMap<>();
+        for (int i = 0; i < cbbFloor.getItemCount(); i++) {
+            Floor f = cbbFloor.getItemAt(i);
+            if (f != null && f.getId() != null) {
+                floorNumbers.put(f.getId(), f.getFloorNumber());
+            }
+        }
+        return floorNumbers;
+    }
+
+    // Kết quả load ở background: danh sách căn hộ + ngày hết hạn HĐ của căn đang thuê
+    private static class ApartmentLoadResult {
+        final List<Apartment> apartments;
+        final Map<Long, LocalDate> endDates;
+
+        ApartmentLoadResult(List<Apartment> apartments, Map<Long, LocalDate> endDates) {
+            this.apartments = apartments;
+            this.endDates = endDates;
+        }
     }
 
     private void showQuickView(Apartment apt) {
@@ -20,40 +20,49 @@ public class BuildingCard extends JPanel {
     private java.util.function.Consumer<Building> onEdit;
     private java.util.function.Consumer<Building> onDelete;
 
+    // Kích thước thẻ (VirtualCardGrid dùng làm kích thước ô)
+    public static final int CARD_WIDTH = 500;
+    public static final int CARD_HEIGHT = 240;
+
+    // Thành phần con dựng 1 lần trong constructor, bind() chỉ đổi nội dung
+    private JLabel iconLabel;
+    private final JLabel lblName = new JLabel();
+    private final JLabel lblAddress = new JLabel();
+    private JLabel lblManager;
+    private JLabel lblFloors;
+    private JLabel lblApts;
+    private final StatusBadge statusBadge = new StatusBadge();
+    private final OccupancyBar progressBar = new OccupancyBar();
+
+    private static final Icon ICON_BUILDING = new SimpleIcon("BUILDING_COMPLEX", 48, new Color(69, 90, 100));
+    private static final Icon ICON_BUILDING_MAINTENANCE = new SimpleIcon("BUILDING_COMPLEX", 48, Color.GRAY);
+
     public BuildingCard(Building building, BuildingStats stats,
                         java.util.function.Consumer<Building> onSelect,
                         java.util.function.Consumer<Building> onEdit,
                         java.util.function.Consumer<Building> onDelete) {
-        this.building = building;
-        this.stats = stats;
+        this(onSelect, onEdit, onDelete);
+        bind(building, stats);
+    }
+
+    /**
+     * Thẻ rỗng, dữ liệu gắn sau bằng bind() (thẻ được VirtualCardGrid dùng lại)
+     */
+    public BuildingCard(java.util.function.Consumer<Building> onSelect,
+                        java.util.function.Consumer<Building> onEdit,
+                        java.util.function.Consumer<Building> onDelete) {
         this.onSelect = onSelect;
         this.onEdit = onEdit;
         this.onDelete = onDelete;
         setOpaque(false);
-        initUI();
-    }
-
-    private void initUI() {
-        setPreferredSize(new Dimension(500, 240)); 
-        setLayout(new BorderLayout());
-        setBorder(new EmptyBorder(15, 20, 15, 20));
-        
-        // Kiểm tra trạng thái bảo trì
-        boolean isMaintenance = "Đang bảo trì".equals(building.getStatus());
+        setPreferredSize(new Dimension(CARD_WIDTH, CARD_HEIGHT)); 
 
         // --- THIẾT LẬP SỰ KIỆN CLICK CHO TOÀN BỘ CARD ---
-        // 1. Chỉ hiện bàn tay nếu KHÔNG bảo trì
-        if (!isMaintenance) {
-            this.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        } else {
-            this.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
-        }
-
         this.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
                 // 2. Logic chặn click
-                if (isMaintenance) {
+                if (isMaintenance()) {
                     JOptionPane.showMessageDialog(BuildingCard.this, 
                         "Tòa nhà \"" + building.getName() + "\" đang bảo trì.\nKhông thể truy cập dữ liệu bên trong lúc này.", 
                         "Quyền truy cập bị hạn chế", 
@@ -69,7 +78,7 @@ public class BuildingCard extends JPanel {
             @Override
             public void mouseEntered(MouseEvent e) {
                 // Chỉ đổi màu nền nếu không bảo trì (hoặc đổi màu khác nếu muốn)
-                if (!isMaintenance) {
+                if (!isMaintenance()) {
                     setBackground(new Color(252, 252, 252));
                     repaint();
                 }
@@ -82,13 +91,61 @@ public class BuildingCard extends JPanel {
             }
         });
 
+        initUI();
+    }
+
+    /**
+     * Gắn tòa nhà khác vào thẻ: chỉ đổi chữ, màu, icon (không dựng lại component con)
+     */
+    public void bind(Building building, BuildingStats stats) {
+        this.building = building;
+        this.stats = stats;
+
+        setBackground(null);
+
+        // Kiểm tra trạng thái bảo trì
+        boolean isMaintenance = isMaintenance();
+
+        // 1. Chỉ hiện bàn tay nếu KHÔNG bảo trì
+        if (!isMaintenance) {
+            this.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        } else {
+            this.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+        }
+
+        // Icon Tòa nhà (Xám nếu bảo trì)
+        iconLabel.setIcon(isMaintenance ? ICON_BUILDING_MAINTENANCE : ICON_BUILDING);
+
+        lblName.setText(building.getName());
+        // Tên màu xám nếu bảo trì
+        lblName.setForeground(isMaintenance ? Color.GRAY : new Color(33, 33, 33));
+        lblAddress.setText(building.getAddress());
+
+        String manager = (building.getManagerName() == null || building.getManagerName().isEmpty()) ? "Chưa có" : building.getManagerName();
+        lblManager.setText(" Quản lý: " + manager);
+        lblFloors.setText(" " + stats.totalFloors + " Tầng");
+        lblApts.setText(" " + stats.totalApartments + " Căn hộ");
+
+        statusBadge.setStatus(building.getStatus());
+        progressBar.setValues(stats.getOccupancyRate(), stats.getOccupiedApartments(), stats.totalApartments);
+
+        revalidate();
+        repaint();
+    }
+
+    private boolean isMaintenance() {
+        return building != null && "Đang bảo trì".equals(building.getStatus());
+    }
+
+    private void initUI() {
+        setLayout(new BorderLayout());
+        setBorder(new EmptyBorder(15, 20, 15, 20));
+
         // === 1. TOP PANEL ===
         JPanel topPanel = new JPanel(new BorderLayout(20, 0));
         topPanel.setOpaque(false); 
 
-        // Icon Tòa nhà (Xám nếu bảo trì)
-        Color iconColor = isMaintenance ? Color.GRAY : new Color(69, 90, 100);
-        JLabel iconLabel = new JLabel(new SimpleIcon("BUILDING_COMPLEX", 48, iconColor)) {
+        iconLabel = new JLabel(ICON_BUILDING) {
             @Override protected void paintComponent(Graphics g) {
                 Graphics2D g2 = (Graphics2D) g.create(); g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
                 g2.setColor(new Color(227, 242, 253)); g2.fillRoundRect(0, 0, getWidth(), getHeight(), 16, 16);
@@ -103,23 +160,18 @@ public class BuildingCard extends JPanel {
         JPanel infoPanel = new JPanel(new GridLayout(4, 1, 0, 5));
         infoPanel.setOpaque(false);
 
-        JLabel lblName = new JLabel(building.getName());
         lblName.setFont(new Font("Segoe UI", Font.BOLD, 19));
-        // Tên màu xám nếu bảo trì
-        lblName.setForeground(isMaintenance ? Color.GRAY : new Color(33, 33, 33));
 
-        JLabel lblAddress = new JLabel(building.getAddress());
         lblAddress.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         lblAddress.setForeground(Color.GRAY);
 
-        String manager = (building.getManagerName() == null || building.getManagerName().isEmpty()) ? "Chưa có" : building.getManagerName();
-        JLabel lblManager = createStatLabel("USER", "Quản lý: " + manager);
+        lblManager = createStatLabel("USER");
         lblManager.setIcon(new SimpleIcon("USER", 14, new Color(46, 125, 50)));
 
         JPanel statsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
         statsPanel.setOpaque(false);
-        JLabel lblFloors = createStatLabel("FLOOR", stats.totalFloors + " Tầng");
-        JLabel lblApts = createStatLabel("DOOR", stats.totalApartments + " Căn hộ");
+        lblFloors = createStatLabel("FLOOR");
+        lblApts = createStatLabel("DOOR");
         statsPanel.add(lblFloors);
         statsPanel.add(Box.createHorizontalStrut(25));
         statsPanel.add(lblApts);
@@ -132,7 +184,6 @@ public class BuildingCard extends JPanel {
         topPanel.add(infoPanel, BorderLayout.CENTER);
 
         // Status Badge
-        StatusBadge statusBadge = new StatusBadge(building.getStatus());
         JPanel statusWrapper = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
         statusWrapper.setOpaque(false);
         statusWrapper.add(statusBadge);
@@ -140,7 +191,6 @@ public class BuildingCard extends JPanel {
 
         // === 2. CENTER & BOTTOM ===
         JPanel centerPanel = new JPanel(new BorderLayout()); centerPanel.setOpaque(false); centerPanel.setBorder(new EmptyBorder(15, 0, 0, 0));
-        OccupancyBar progressBar = new OccupancyBar(stats.getOccupancyRate(), stats.rentedApartments, stats.totalApartments);
         centerPanel.add(progressBar, BorderLayout.CENTER);
 
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0)); bottomPanel.setOpaque(false); bottomPanel.setBorder(new EmptyBorder(10, 0, 0, 0));
@@ -177,9 +227,14 @@ public class BuildingCard extends JPanel {
 
     // --- Inner Classes ---
     private static class StatusBadge extends JLabel {
-        private Color bgColor, textColor;
+        private Color bgColor = Color.WHITE, textColor;
+
+        public StatusBadge() {
+            setFont(new Font("Segoe UI", Font.BOLD, 12));
+            setBorder(new EmptyBorder(5, 12, 5, 12));
+        }
 
-        public StatusBadge(String rawStatus) {
+        void setStatus(String rawStatus) {
             // 1. Xử lý logic hiển thị: Map từ Database (Tiếng Anh/Việt) sang Hiển thị chuẩn
             String displayText = (rawStatus == null) ? "Không xác định" : rawStatus;
             String normalized = (rawStatus == null) ? "" : rawStatus.trim();
@@ -209,9 +264,8 @@ public class BuildingCard extends JPanel {
 
             // 2. Setup UI
             setText(displayText);
-            setFont(new Font("Segoe UI", Font.BOLD, 12));
-            setBorder(new EmptyBorder(5, 12, 5, 12));
             setForeground(textColor);
+            repaint();
         }
 
         @Override 
@@ -225,10 +279,10 @@ public class BuildingCard extends JPanel {
         }
     }
 
-    private JLabel createStatLabel(String iconType, String text) { JLabel l = new JLabel(" " + text); l.setIcon(new SimpleIcon(iconType, 14, Color.GRAY)); l.setFont(new Font("Segoe UI", Font.PLAIN, 13)); l.setForeground(Color.GRAY); return l; }
+    private JLabel createStatLabel(String iconType) { JLabel l = new JLabel(); l.setIcon(new SimpleIcon(iconType, 14, Color.GRAY)); l.setFont(new Font("Segoe UI", Font.PLAIN, 13)); l.setForeground(Color.GRAY); return l; }
     private JButton createIconButton(String iconType, Color color) { JButton btn = new JButton(new SimpleIcon(iconType, 22, color)); btn.setBorderPainted(false); btn.setContentAreaFilled(false); btn.setFocusPainted(false); btn.setCursor(new Cursor(Cursor.HAND_CURSOR)); return btn; }
     
-    private class OccupancyBar extends JPanel { int percent, rented, total; public OccupancyBar(int percent, int rented, int total) { this.percent = percent; this.rented = rented; this.total = total; setPreferredSize(new Dimension(100, 45)); setOpaque(false); } @Override protected void paintComponent(Graphics g) { super.paintComponent(g); Graphics2D g2 = (Graphics2D) g; g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON); int w = getWidth(), h = getHeight(), arc = 12; g2.setColor(new Color(230, 230, 230)); g2.fillRoundRect(0, 0, w, h, arc, arc); int blueW = (int)(w * (percent / 100.0)); if (blueW > 0) { g2.setColor(new Color(25, 118, 210)); if (percent == 100) g2.fillRoundRect(0, 0, w, h, arc, arc); else { g2.fillRoundRect(0, 0, blueW, h, arc, arc); g2.fillRect(blueW - arc, 0, arc, h); } } g2.setFont(new Font("Segoe UI", Font.BOLD, 14)); FontMetrics fm = g2.getFontMetrics(); if (percent > 0) { String txt = percent + "% Đang thuê (" + rented + " căn)"; if (blueW > fm.stringWidth(txt) + 30) { g2.setColor(Color.WHITE); g2.drawString(txt, 20, (h + fm.getAscent()) / 2 - 2); } } String rightTxt = (100 - percent) + "% Trống"; g2.setColor(new Color(66, 66, 66)); if (w - blueW > fm.stringWidth(rightTxt) + 30) g2.drawString(rightTxt, w - fm.stringWidth(rightTxt) - 20, (h + fm.getAscent()) / 2 - 2); } }
+    private class OccupancyBar extends JPanel { int percent, rented, total; public OccupancyBar() { setPreferredSize(new Dimension(100, 45)); setOpaque(false); } void setValues(int percent, int rented, int total) { this.percent = percent; this.rented = rented; this.total = total; repaint(); } @Override protected void paintComponent(Graphics g) { super.paintComponent(g); Graphics2D g2 = (Graphics2D) g; g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON); int w = getWidth(), h = getHeight(), arc = 12; g2.setColor(new Color(230, 230, 230)); g2.fillRoundRect(0, 0, w, h, arc, arc); int blueW = (int)(w * (percent / 100.0)); if (blueW > 0) { g2.setColor(new Color(25, 118, 210)); if (percent == 100) g2.fillRoundRect(0, 0, w, h, arc, arc); else { g2.fillRoundRect(0, 0, blueW, h, arc, arc); g2.fillRect(blueW - arc, 0, arc, h); } } g2.setFont(new Font("Segoe UI", Font.BOLD, 14)); FontMetrics fm = g2.getFontMetrics(); if (percent > 0) { String txt = percent + "% Đang thuê (" + rented + " căn)"; if (blueW > fm.stringWidth(txt) + 30) { g2.setColor(Color.WHITE); g2.drawString(txt, 20, (h + fm.getAscent()) / 2 - 2); } } String rightTxt = (100 - percent) + "% Trống"; g2.setColor(new Color(66, 66, 66)); if (w - blueW > fm.stringWidth(rightTxt) + 30) g2.drawString(rightTxt, w - fm.stringWidth(rightTxt) - 20, (h + fm.getAscent()) / 2 - 2); } }
     
     private static class SimpleIcon implements Icon { private String type; private int size; private Color color; public SimpleIcon(String type, int size, Color color) { this.type = type; this.size = size; this.color = color; } @Override public void paintIcon(Component c, Graphics g, int x, int y) { Graphics2D g2 = (Graphics2D) g.create(); g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON); g2.setColor(color); g2.setStroke(new BasicStroke(1.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND)); g2.translate(x, y); 
         if ("EDIT".equals(type)) { 
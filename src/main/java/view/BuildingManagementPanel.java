@@ -5,19 +5,26 @@ import model.Building;
 import util.UIConstants;
 import dao.BuildingDAO.BuildingStats;
 import util.BuildingContext;
+import util.AsyncLoader;
+import util.VirtualCardGrid;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 public class BuildingManagementPanel extends JPanel {
 
     private BuildingDAO buildingDAO;
     private JPanel cardsContainer;
+    // Lưới thẻ ảo: chỉ dựng thẻ của các tòa nhà đang nhìn thấy
+    private VirtualCardGrid<Map.Entry<Building, BuildingStats>, BuildingCard> cardGrid;
     private JButton btnAdd;
     private Consumer<Building> onBuildingSelect; 
+    private final AsyncLoader buildingLoader = new AsyncLoader("BuildingManagementPanel.buildings", this);
 
     public BuildingManagementPanel(Consumer<Building> onBuildingSelect) {
         this.onBuildingSelect = building -> {
@@ -59,8 +66,24 @@ public class BuildingManagementPanel extends JPanel {
         add(headerPanel, BorderLayout.NORTH);
 
         // --- CONTENT ---
-        cardsContainer = new JPanel(new GridLayout(0, 2, 25, 25)); 
+        cardsContainer = new JPanel(new BorderLayout()); 
         cardsContainer.setBackground(UIConstants.BACKGROUND_COLOR);
+
+        cardGrid = new VirtualCardGrid<>(new VirtualCardGrid.CardBinder<Map.Entry<Building, BuildingStats>, BuildingCard>() {
+            @Override
+            public BuildingCard createCard() {
+                return new BuildingCard(
+                    onBuildingSelect, 
+                    BuildingManagementPanel.this::editBuilding, 
+                    BuildingManagementPanel.this::deleteBuilding
+                );
+            }
+
+            @Override
+            public void bindCard(BuildingCard card, Map.Entry<Building, BuildingStats> entry) {
+                card.bind(entry.getKey(), entry.getValue());
+            }
+        }, 2, BuildingCard.CARD_WIDTH, BuildingCard.CARD_HEIGHT, 25, 25);
         
         JPanel wrapper = new JPanel(new BorderLayout());
         wrapper.setBackground(UIConstants.BACKGROUND_COLOR);
@@ -92,26 +115,26 @@ public class BuildingManagementPanel extends JPanel {
 
     private void loadBuildings() {
         cardsContainer.removeAll();
-        List<Building> list = buildingDAO.getAllBuildings();
+        cardsContainer.add(AsyncLoader.loadingPlaceholder("Đang tải danh sách tòa nhà..."), BorderLayout.CENTER);
+        cardsContainer.revalidate();
+        cardsContainer.repaint();
+
+        // 1 query GROUP BY cho tất cả tòa nhà (có cache trong BuildingDAO)
+        buildingLoader.load(buildingDAO::getAllBuildingsWithStats, this::showBuildings);
+    }
+
+    private void showBuildings(Map<Building, BuildingStats> buildings) {
+        cardsContainer.removeAll();
         
-        if (list.isEmpty()) {
-            cardsContainer.setLayout(new BorderLayout());
+        if (buildings.isEmpty()) {
             JLabel lblEmpty = new JLabel("<html><center>Chưa có tòa nhà nào.<br>Nhấn 'Thêm Tòa Nhà' để bắt đầu.</center></html>", SwingConstants.CENTER);
             lblEmpty.setFont(new Font("Segoe UI", Font.ITALIC, 16));
             lblEmpty.setForeground(Color.GRAY);
             cardsContainer.add(lblEmpty, BorderLayout.CENTER);
         } else {
-            cardsContainer.setLayout(new GridLayout(0, 2, 25, 25));
-            for (Building b : list) {
-                BuildingStats stats = buildingDAO.getBuildingStatistics(b.getId());
-                cardsContainer.add(new BuildingCard(
-                    b, 
-                    stats, 
-                    onBuildingSelect, 
-                    this::editBuilding, 
-                    this::deleteBuilding
-                ));
-            }
+            List<Map.Entry<Building, BuildingStats>> entries = new ArrayList<>(buildings.entrySet());
+            cardsContainer.add(cardGrid, BorderLayout.CENTER);
+            cardGrid.setItems(entries);
         }
         
         cardsContainer.revalidate();
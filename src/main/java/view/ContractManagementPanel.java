@@ -2,15 +2,17 @@ package view;
 
 import dao.ContractDAO;
 import dao.BuildingDAO;
-import dao.ApartmentDAO;
-import dao.ResidentDAO;
+import dao.ContractListViewDAO;
+import dao.ChangeLogDAO;
 import model.Contract;
 import model.Building;
-import model.Apartment;
-import model.Resident;
+import model.ContractListViewModel;
+import search.ContractFilterIndex;
 import util.ExcelExporter;
 import util.PermissionManager;
 import util.UIConstants;
+import util.AsyncLoader;
+import util.ChangeLogPoller;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -22,8 +24,12 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Contract Management Panel - FIXED FILTERS Fix: Lọc dựa trên status code
@@ -34,8 +40,7 @@ public class ContractManagementPanel extends JPanel {
 
     private ContractDAO contractDAO;
     private BuildingDAO buildingDAO;
-    private ApartmentDAO apartmentDAO;
-    private ResidentDAO residentDAO;
+    private ContractListViewDAO contractListViewDAO;
 
     private JLabel contextLabel;
     private JLabel countLabel;
@@ -56,8 +61,16 @@ public class ContractManagementPanel extends JPanel {
     private JPanel contentPanel;
 
     // Cache data
-    private List<Contract> allContracts;
+    private ContractFilterIndex contractIndex;   // Toàn bộ hợp đồng đã JOIN sẵn + chỉ mục lọc (null = chưa tải)
     private List<Building> buildings;
+    private List<Contract> displayedContracts = new ArrayList<>();   // Đúng thứ tự các dòng trong bảng
+
+    // Async loaders (load mới hủy load cũ)
+    private final AsyncLoader dataLoader = new AsyncLoader("ContractManagementPanel.contracts", this);
+    private final AsyncLoader changeLoader = new AsyncLoader("ContractManagementPanel.changes");
+    private final ChangeLogPoller.ChangeListener changeListener = this::onRemoteChanges;
+    // Id hợp đồng thay đổi từ máy khác chưa áp dụng: gộp các ChangeSet đến khi đang query
+    private final Set<Long> pendingChangedIds = new LinkedHashSet<>();
 
     private SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
 
@@ -67,8 +80,7 @@ public class ContractManagementPanel extends JPanel {
     public ContractManagementPanel() {
         this.contractDAO = new ContractDAO();
         this.buildingDAO = new BuildingDAO();
-        this.apartmentDAO = new ApartmentDAO();
-        this.residentDAO = new ResidentDAO();
+        this.contractListViewDAO = new ContractListViewDAO();
 
         setLayout(new BorderLayout());
         setBackground(UIConstants.BACKGROUND_COLOR);
@@ -78,6 +90,19 @@ public class ContractManagementPanel extends JPanel {
         loadInitialData();
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        ChangeLogPoller.getInstance().addListener(changeListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        ChangeLogPoller.getInstance().removeListener(changeListener);
+        changeLoader.cancel();
+        super.removeNotify();
+    }
+
     private void createUI() {
         contentPanel = new JPanel(new BorderLayout(0, 20));
         contentPanel.setBackground(UIConstants.BACKGROUND_COLOR);
@@ -489,112 +514,224 @@ public class ContractManagementPanel extends JPanel {
         }
     }
 
-    // ✅ FIXED: Apply Filters using robust logic
+    // ✅ Lọc hoàn toàn trong bộ nhớ qua ContractFilterIndex (không query DB) nên chạy thẳng trên EDT
     private void applyFilters() {
-        if (allContracts == null) {
+        if (contractIndex == null) {
             return;
         }
-        String searchText = searchField.getText().trim().toLowerCase();
-        final String keyword = searchText.equals("tìm số hđ, chủ hộ, căn hộ...") ? "" : searchText;
-        final BuildingDisplay selectedBuilding = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
-        final String selectedType = (String) typeFilterCombo.getSelectedItem();
-
-        List<Contract> filtered = allContracts.stream().filter(contract -> {
-            // 1. Status Filter (Using Logic, not Text)
-            String category = getContractCategory(contract);
-            boolean showThis = false;
-
-            if (chkShowActive.isSelected() && "ACTIVE".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowExpiring.isSelected() && "EXPIRING".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowExpired.isSelected() && "EXPIRED".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowTerminated.isSelected() && "TERMINATED".equals(category)) {
-                showThis = true;
-            }
+        List<ContractListViewModel> filtered = currentFilter().apply(contractIndex);
+        List<Object[]> rows = new ArrayList<>(filtered.size());
+        for (ContractListViewModel item : filtered) {
+            rows.add(buildRow(item));
+        }
+        displayContracts(new FilterResult(toContracts(filtered), rows));
+    }
 
-            if (!showThis) {
-                return false;
-            }
+    /**
+     * Chụp điều kiện lọc hiện tại (gọi trên EDT)
+     */
+    private ContractFilter currentFilter() {
+        ContractFilter filter = new ContractFilter();
+        String searchText = searchField.getText().trim();
+        filter.keyword = searchText.equalsIgnoreCase("Tìm số HĐ, chủ hộ, căn hộ...") ? "" : searchText;
+        BuildingDisplay selectedBuilding = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
+        filter.buildingId = selectedBuilding != null ? selectedBuilding.building.getId() : null;
+        String selectedType = (String) typeFilterCombo.getSelectedItem();
+        filter.contractType = "Tất cả".equals(selectedType) ? null : selectedType;
+        filter.showActive = chkShowActive.isSelected();
+        filter.showExpiring = chkShowExpiring.isSelected();
+        filter.showExpired = chkShowExpired.isSelected();
+        filter.showTerminated = chkShowTerminated.isSelected();
+        return filter;
+    }
 
-            // 2. Keyword Filter
-            if (!keyword.isEmpty()) {
-                String contractNumber = contract.getContractNumber() != null ? contract.getContractNumber().toLowerCase() : "";
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                String apartmentNumber = apt != null ? apt.getRoomNumber().toLowerCase() : "";
-                Resident resident = residentDAO.getResidentById(contract.getResidentId());
-                String residentName = resident != null ? resident.getFullName().toLowerCase() : "";
-                if (!contractNumber.contains(keyword) && !apartmentNumber.contains(keyword) && !residentName.contains(keyword)) {
-                    return false;
+    /**
+     * Điều kiện lọc: tòa nhà / loại / từ khóa qua chỉ mục, trạng thái (theo ngày hiện tại) lọc sau
+     */
+    private class ContractFilter {
+        String keyword;
+        Long buildingId;       // null = tất cả
+        String contractType;   // null = tất cả
+        boolean showActive;
+        boolean showExpiring;
+        boolean showExpired;
+        boolean showTerminated;
+
+        List<ContractListViewModel> apply(ContractFilterIndex index) {
+            List<ContractListViewModel> candidates = index.find(buildingId, contractType, keyword);
+            List<ContractListViewModel> result = new ArrayList<>(candidates.size());
+            for (ContractListViewModel item : candidates) {
+                if (matchesStatus(item.getContract())) {
+                    result.add(item);
                 }
             }
+            return result;
+        }
 
-            // 3. Building Filter
-            if (selectedBuilding != null && selectedBuilding.building.getId() != null) {
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                if (apt == null) {
-                    return false;
-                }
-                List<Apartment> buildingApts = apartmentDAO.getApartmentsByBuildingId(selectedBuilding.building.getId());
-                boolean inBuilding = buildingApts.stream().anyMatch(a -> a.getId().equals(apt.getId()));
-                if (!inBuilding) {
+        // Status Filter (Using Logic, not Text)
+        boolean matchesStatus(Contract contract) {
+            switch (getContractCategory(contract)) {
+                case "ACTIVE":
+                    return showActive;
+                case "EXPIRING":
+                    return showExpiring;
+                case "EXPIRED":
+                    return showExpired;
+                case "TERMINATED":
+                    return showTerminated;
+                default:
                     return false;
-                }
             }
+        }
+    }
 
-            // 4. Type Filter
-            if (!"Tất cả".equals(selectedType)) {
-                if (!selectedType.equals(contract.getContractTypeDisplay())) {
-                    return false;
-                }
+    private static List<Contract> toContracts(List<ContractListViewModel> items) {
+        List<Contract> contracts = new ArrayList<>(items.size());
+        for (ContractListViewModel item : items) {
+            contracts.add(item.getContract());
+        }
+        return contracts;
+    }
+
+    private Object[] buildRow(ContractListViewModel item) {
+        Contract contract = item.getContract();
+        String apartmentNumber = item.getRoomNumber() != null ? item.getRoomNumber() : "N/A";
+        String residentName = item.getResidentName() != null ? item.getResidentName() : "N/A";
+
+        String startDateStr = "";
+        String endDateStr = "";
+        if (contract.isRental()) {
+            startDateStr = contract.getStartDate() != null ? dateFormat.format(contract.getStartDate()) : "";
+            endDateStr = contract.getEndDate() != null ? dateFormat.format(contract.getEndDate()) : "Vô thời hạn";
+        } else {
+            startDateStr = contract.getSignedDate() != null ? "Ký: " + dateFormat.format(contract.getSignedDate()) : "N/A";
+            endDateStr = "—";
+        }
+
+        // ✅ Use standardized status string
+        String statusStr = getStatusDisplayString(contract);
+
+        return new Object[]{
+            contract.getContractNumber(), apartmentNumber, residentName, contract.getContractTypeDisplay(),
+            startDateStr, endDateStr, statusStr, "👁️ Chi tiết"
+        };
+    }
+
+    private void displayContracts(FilterResult result) {
+        displayedContracts = result.contracts;
+        if (result.rows != null) { // null: bảng đã được cập nhật từng dòng
+            tableModel.setRowCount(0);
+            for (Object[] row : result.rows) {
+                tableModel.addRow(row);
             }
-            return true;
-        }).collect(Collectors.toList());
+        }
+        int shown = result.contracts.size();
+        countLabel.setText(shown == contractIndex.size()
+                ? "📋 Tổng số: " + shown + " hợp đồng"
+                : "🔍 Hiển thị: " + shown + "/" + contractIndex.size() + " hợp đồng");
+    }
 
-        displayContracts(filtered);
+    // Kết quả lọc: hợp đồng + dữ liệu dòng tương ứng
+    private static class FilterResult {
+        final List<Contract> contracts;
+        final List<Object[]> rows;
+
+        FilterResult(List<Contract> contracts, List<Object[]> rows) {
+            this.contracts = contracts;
+            this.rows = rows;
+        }
     }
 
-    private void displayContracts(List<Contract> contracts) {
-        tableModel.setRowCount(0);
-        for (Contract contract : contracts) {
-            Apartment apartment = apartmentDAO.getApartmentById(contract.getApartmentId());
-            String apartmentNumber = apartment != null ? apartment.getRoomNumber() : "N/A";
-            Resident resident = residentDAO.getResidentById(contract.getResidentId());
-            String residentName = resident != null ? resident.getFullName() : "N/A";
+    /**
+     * ===== THAY ĐỔI TỪ MÁY KHÁC (change_log) =====
+     * Chỉ query lại các hợp đồng bị thay đổi, dựng lại chỉ mục ở background rồi
+     * cập nhật đúng các dòng đó; thứ tự dòng thay đổi (thêm mới...) thì hiển thị lại cả bảng.
+     * Id của các ChangeSet liên tiếp được gộp: query mới (hủy query cũ) đọc cả id của query cũ.
+     */
+    private void onRemoteChanges(ChangeLogPoller.ChangeSet changes) {
+        pendingChangedIds.addAll(changes.getIds(ChangeLogDAO.CONTRACT));
+        if (contractIndex != null && !dataLoader.isLoading()) {
+            flushRemoteChanges(); // Đang tải -> áp dụng khi tải xong
+        }
+    }
 
-            String startDateStr = "";
-            String endDateStr = "";
-            if (contract.isRental()) {
-                startDateStr = contract.getStartDate() != null ? dateFormat.format(contract.getStartDate()) : "";
-                endDateStr = contract.getEndDate() != null ? dateFormat.format(contract.getEndDate()) : "Vô thời hạn";
-            } else {
-                startDateStr = contract.getSignedDate() != null ? "Ký: " + dateFormat.format(contract.getSignedDate()) : "N/A";
-                endDateStr = "—";
+    private void flushRemoteChanges() {
+        if (pendingChangedIds.isEmpty() || contractIndex == null) {
+            return;
+        }
+        List<Long> changedIds = new ArrayList<>(pendingChangedIds);
+
+        final ContractFilterIndex index = contractIndex;
+        changeLoader.load(() -> index.withChanges(changedIds, contractListViewDAO.getByIds(changedIds)), updated -> {
+            if (contractIndex != index || dataLoader.isLoading()) {
+                return; // Đã / đang tải lại toàn bộ: id còn trong pendingChangedIds, áp dụng sau
+            }
+            pendingChangedIds.removeAll(changedIds);
+            applyRemoteChanges(updated, changedIds);
+        });
+    }
+
+    private void applyRemoteChanges(ContractFilterIndex updated, List<Long> changedIds) {
+        contractIndex = updated;
+
+        List<ContractListViewModel> filtered = currentFilter().apply(updated);
+        List<Contract> shown = toContracts(filtered);
+
+        if (contractTable.isEditing()) {
+            contractTable.getCellEditor().cancelCellEditing();
+        }
+
+        Map<Long, Integer> shownRows = new HashMap<>();
+        for (int row = 0; row < shown.size(); row++) {
+            shownRows.put(shown.get(row).getId(), row);
+        }
+
+        // Bỏ các dòng biến mất (đã xóa / không còn khớp bộ lọc), từ dưới lên
+        List<Contract> remaining = new ArrayList<>(displayedContracts);
+        for (int row = remaining.size() - 1; row >= 0; row--) {
+            if (!shownRows.containsKey(remaining.get(row).getId())) {
+                remaining.remove(row);
+                tableModel.removeRow(row);
             }
+        }
 
-            // ✅ Use standardized status string
-            String statusStr = getStatusDisplayString(contract);
+        if (!sameOrder(remaining, shown)) {
+            // Có dòng mới / đổi vị trí
+            applyFilters();
+            return;
+        }
 
-            Object[] row = {
-                contract.getContractNumber(), apartmentNumber, residentName, contract.getContractTypeDisplay(),
-                startDateStr, endDateStr, statusStr, "👁️ Chi tiết"
-            };
-            tableModel.addRow(row);
+        // Cùng thứ tự: chỉ ghi lại các dòng bị thay đổi
+        for (Long id : changedIds) {
+            Integer row = shownRows.get(id);
+            if (row != null) {
+                Object[] values = buildRow(filtered.get(row));
+                for (int col = 0; col < values.length; col++) {
+                    tableModel.setValueAt(values[col], row, col);
+                }
+            }
         }
-        countLabel.setText(contracts.size() == allContracts.size()
-                ? "📋 Tổng số: " + contracts.size() + " hợp đồng"
-                : "🔍 Hiển thị: " + contracts.size() + "/" + allContracts.size() + " hợp đồng");
+        displayContracts(new FilterResult(shown, null));
+    }
+
+    private static boolean sameOrder(List<Contract> a, List<Contract> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).getId().equals(b.get(i).getId())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     // ✅ FIXED: Statistics using robust logic
     private void showStatistics() {
-        if (allContracts == null) {
+        if (contractIndex == null) {
             return;
         }
+        List<Contract> allContracts = toContracts(contractIndex.getAll());
         int totalContracts = allContracts.size();
 
         int activeCount = 0, expiringCount = 0, expiredCount = 0, terminatedCount = 0;
@@ -805,11 +942,34 @@ public class ContractManagementPanel extends JPanel {
     }
 
     private void loadInitialData() {
+        countLabel.setText("⏳ Đang tải dữ liệu...");
+
+        dataLoader.load(
+                // 1 query JOIN sẵn số phòng + chủ hộ, dựng chỉ mục lọc ở background
+                () -> new InitialData(buildingDAO.getAllBuildings(),
+                        ContractFilterIndex.build(contractListViewDAO.getAllContracts())),
+                data -> {
+                    showInitialData(data.buildings, data.contracts);
+                    flushRemoteChanges(); // Thay đổi đến trong lúc tải
+                });
+    }
+
+    private static class InitialData {
+        final List<Building> buildings;
+        final ContractFilterIndex contracts;
+
+        InitialData(List<Building> buildings, ContractFilterIndex contracts) {
+            this.buildings = buildings;
+            this.contracts = contracts;
+        }
+    }
+
+    private void showInitialData(List<Building> loadedBuildings, ContractFilterIndex loadedContracts) {
         isUpdatingCombos = true;
 
         try {
             // Load buildings
-            buildings = buildingDAO.getAllBuildings();
+            buildings = loadedBuildings;
             buildingFilterCombo.removeAllItems();
             Long filterId = permissionManager.getBuildingFilter();
 
@@ -831,7 +991,7 @@ public class ContractManagementPanel extends JPanel {
             }
 
             // Load all contracts
-            allContracts = contractDAO.getAllContracts();
+            contractIndex = loadedContracts;
 
         } finally {
             isUpdatingCombos = false;
@@ -901,61 +1061,10 @@ public class ContractManagementPanel extends JPanel {
 
     // ✅ Helper method to get filtered contracts matching current table
     private List<Contract> getFilteredContracts() {
-        if (allContracts == null) {
+        if (contractIndex == null) {
             return null;
         }
-        String searchText = searchField.getText().trim().toLowerCase();
-        final String keyword = searchText.equals("tìm số hđ, chủ hộ, căn hộ...") ? "" : searchText;
-
-        final BuildingDisplay selectedBuilding = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
-        final String selectedType = (String) typeFilterCombo.getSelectedItem();
-
-        return allContracts.stream().filter(contract -> {
-            String category = getContractCategory(contract);
-            boolean showThis = false;
-            if (chkShowActive.isSelected() && "ACTIVE".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowExpiring.isSelected() && "EXPIRING".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowExpired.isSelected() && "EXPIRED".equals(category)) {
-                showThis = true;
-            }
-            if (chkShowTerminated.isSelected() && "TERMINATED".equals(category)) {
-                showThis = true;
-            }
-            if (!showThis) {
-                return false;
-            }
-
-            if (!keyword.isEmpty()) {
-                String contractNumber = contract.getContractNumber() != null ? contract.getContractNumber().toLowerCase() : "";
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                String apartmentNumber = apt != null ? apt.getRoomNumber().toLowerCase() : "";
-                Resident resident = residentDAO.getResidentById(contract.getResidentId());
-                String residentName = resident != null ? resident.getFullName().toLowerCase() : "";
-                if (!contractNumber.contains(keyword) && !apartmentNumber.contains(keyword) && !residentName.contains(keyword)) {
-                    return false;
-                }
-            }
-            if (selectedBuilding != null && selectedBuilding.building.getId() != null) {
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                if (apt == null) {
-                    return false;
-                }
-                List<Apartment> buildingApts = apartmentDAO.getApartmentsByBuildingId(selectedBuilding.building.getId());
-                if (buildingApts.stream().noneMatch(a -> a.getId().equals(apt.getId()))) {
-                    return false;
-                }
-            }
-            if (!"Tất cả".equals(selectedType)) {
-                if (!selectedType.equals(contract.getContractTypeDisplay())) {
-                    return false;
-                }
-            }
-            return true;
-        }).collect(Collectors.toList());
+        return displayedContracts;
     }
 
     private void showCreateContractDialog() {
@@ -1,6 +1,8 @@
 package view;
 
 import dao.*;
+import util.AsyncLoader;
+import util.ChangeLogPoller;
 import javax.swing.*;
 import java.awt.*;
 import java.math.BigDecimal;
@@ -10,6 +12,13 @@ import java.util.List;
 
 public class DashboardPanel extends JPanel {
 
+    // Live mode: tự làm mới khi đang hiển thị, chu kỳ -Ddashboard.refresh.ms (mặc định 15000 ms)
+    public static final String REFRESH_INTERVAL_PROPERTY = "dashboard.refresh.ms";
+    private static final int DEFAULT_REFRESH_MS = 15_000;
+    private static final int MIN_REFRESH_MS = 2_000;
+    // Ngân sách cập nhật giao diện mỗi lần làm mới
+    private static final long EDT_BUDGET_NANOS = 5_000_000;
+
     private final Color CARD_BG = Color.WHITE;
     private final Color PRIMARY_COLOR = new Color(76, 132, 255);
     private final Color SUCCESS_COLOR = new Color(40, 167, 69);
@@ -25,6 +34,23 @@ public class DashboardPanel extends JPanel {
     private ResidentDAO residentDAO;
     private ContractDAO contractDAO;
     private InvoiceDAO invoiceDAO;
+    private DashboardDAO dashboardDAO;
+
+    // Nhãn giá trị của các thẻ KPI (theo tiêu đề thẻ), được điền sau khi tải xong
+    private final Map<String, JLabel> valueLabels = new HashMap<>();
+    private JPanel revenueChartContent;
+    private JPanel invoiceChartContent;
+    private LineChartPanel revenueChart;
+    private PieChartPanel invoiceChart;
+
+    private final AsyncLoader dashboardLoader = new AsyncLoader("DashboardPanel.summary", this);
+    private final AsyncLoader refreshLoader = new AsyncLoader("DashboardPanel.refresh");
+    private final javax.swing.Timer refreshTimer = new javax.swing.Timer(getRefreshIntervalMillis(), e -> refreshChanges());
+    // Thay đổi từ máy khác (change_log) -> làm mới ngay, không chờ hết chu kỳ
+    private final ChangeLogPoller.ChangeListener changeListener = changes -> refreshChanges();
+
+    // Số liệu đang hiển thị (null = chưa tải xong)
+    private DashboardData current;
 
     public DashboardPanel(DashboardNavigator navigator) {
         this.navigator = navigator;
@@ -36,6 +62,7 @@ public class DashboardPanel extends JPanel {
         residentDAO = new ResidentDAO();
         contractDAO = new ContractDAO();
         invoiceDAO = new InvoiceDAO();
+        dashboardDAO = new DashboardDAO();
 
         // Create scrollable content
         JPanel contentPanel = createContentPanel();
@@ -44,6 +71,211 @@ public class DashboardPanel extends JPanel {
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         
         add(scrollPane, BorderLayout.CENTER);
+
+        loadDashboardData();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refreshTimer.start();
+        ChangeLogPoller.getInstance().addListener(changeListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        refreshTimer.stop();
+        ChangeLogPoller.getInstance().removeListener(changeListener);
+        refreshLoader.cancel();
+        super.removeNotify();
+    }
+
+    /**
+     * Tải toàn bộ số liệu dashboard ở background rồi điền vào các thẻ / biểu đồ
+     */
+    private void loadDashboardData() {
+        dashboardLoader.load(() -> {
+            // 1 query trên bảng tổng hợp (V6); nếu chưa có thì đếm trực tiếp như trước
+            DashboardDAO.DashboardSummary summary = dashboardDAO.getSummary();
+            return summary != null ? fromSummary(summary) : countDashboardData();
+        }, this::showDashboardData);
+    }
+
+    /**
+     * Live mode: chỉ đọc các dòng tổng hợp đổi từ lần trước (DashboardDAO.getChangesSince),
+     * không có gì đổi thì không chạm vào giao diện. Tạm dừng khi tab không hiển thị,
+     * và khi dashboard đang đếm trực tiếp (không có bảng tổng hợp).
+     */
+    private void refreshChanges() {
+        if (!isShowing() || current == null || current.summary == null
+                || dashboardLoader.isLoading() || refreshLoader.isLoading()) {
+            return;
+        }
+
+        DashboardDAO.DashboardSummary previous = current.summary;
+        refreshLoader.load(() -> {
+            DashboardDAO.DashboardSummary next = dashboardDAO.getChangesSince(previous);
+            return next == null || next == previous ? null : fromSummary(next);
+        }, data -> {
+            if (data != null) {
+                showDashboardData(data);
+            }
+        });
+    }
+
+    private DashboardData fromSummary(DashboardDAO.DashboardSummary summary) {
+        DashboardData data = new DashboardData();
+        data.summary = summary;
+        data.buildings = summary.buildings;
+        data.apartments = summary.apartments;
+        data.availableApartments = summary.availableApartments;
+        data.rentedApartments = summary.rentedApartments;
+        data.residents = summary.residents;
+        data.activeContracts = summary.activeContracts;
+        data.totalRevenue = summary.totalRevenue;
+        data.unpaidInvoices = summary.unpaidInvoices;
+
+        // Doanh thu 12 tháng gần nhất
+        for (int i = 11; i >= 0; i--) {
+            Calendar cal = Calendar.getInstance();
+            cal.add(Calendar.MONTH, -i);
+            int month = cal.get(Calendar.MONTH) + 1;
+            int year = cal.get(Calendar.YEAR);
+
+            data.revenueLabels.add(month + "/" + (year % 100));
+            data.revenueValues.add(summary.getMonthlyRevenue(month, year));
+        }
+
+        data.paidInvoices = summary.paidInvoices;
+        data.unpaidChartInvoices = summary.unpaidInvoices;
+        return data;
+    }
+
+    /**
+     * Đếm trực tiếp trên các bảng gốc (khi bảng tổng hợp không đọc được)
+     */
+    private DashboardData countDashboardData() {
+        DashboardData data = new DashboardData();
+        data.buildings = buildingDAO.countBuildings();
+        data.apartments = apartmentDAO.countApartments();
+        data.availableApartments = apartmentDAO.countAvailableApartments();
+        data.rentedApartments = apartmentDAO.countRentedApartments();
+        data.residents = residentDAO.countResidents();
+        data.activeContracts = contractDAO.countActiveContracts();
+        data.totalRevenue = invoiceDAO.getTotalRevenue();
+        data.unpaidInvoices = invoiceDAO.countUnpaidInvoices();
+
+        // Doanh thu 12 tháng gần nhất
+        for (int i = 11; i >= 0; i--) {
+            Calendar cal = Calendar.getInstance();
+            cal.add(Calendar.MONTH, -i);
+            int month = cal.get(Calendar.MONTH) + 1;
+            int year = cal.get(Calendar.YEAR);
+
+            data.revenueLabels.add(month + "/" + (year % 100));
+            data.revenueValues.add(invoiceDAO.getMonthlyRevenue(month, year));
+        }
+
+        List<model.Invoice> allInvoices = invoiceDAO.getAllInvoices();
+        data.paidInvoices = (int) allInvoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
+        data.unpaidChartInvoices = (int) allInvoices.stream().filter(i -> "UNPAID".equals(i.getStatus())).count();
+        return data;
+    }
+
+    /**
+     * Điền số liệu lên thẻ / biểu đồ. Khi làm mới chỉ cập nhật thẻ có giá trị khác
+     * và vẽ lại biểu đồ có dữ liệu khác (không tạo lại component).
+     */
+    private void showDashboardData(DashboardData data) {
+        long start = System.nanoTime();
+        DashboardData previous = current;
+        current = data;
+
+        setValue("Tòa Nhà", String.valueOf(data.buildings));
+        setValue("Tổng Căn Hộ", String.valueOf(data.apartments));
+        setValue("Đang Trống", String.valueOf(data.availableApartments));
+        setValue("Đã Cho Thuê", String.valueOf(data.rentedApartments));
+        setValue("Cư Dân", String.valueOf(data.residents));
+        setValue("Hợp Đồng", String.valueOf(data.activeContracts));
+        setValue("Tổng Doanh Thu", formatCurrency(data.totalRevenue));
+        setValue("Hóa Đơn Chưa Thu", String.valueOf(data.unpaidInvoices));
+
+        if (revenueChart == null) {
+            revenueChart = new LineChartPanel(data.revenueLabels, data.revenueValues, SUCCESS_COLOR);
+            replaceContent(revenueChartContent, revenueChart);
+        } else if (!data.revenueLabels.equals(previous.revenueLabels) || !data.revenueValues.equals(previous.revenueValues)) {
+            revenueChart.setData(data.revenueLabels, data.revenueValues);
+        }
+
+        if (invoiceChart == null) {
+            invoiceChart = createPieChart(data.paidInvoices, data.unpaidChartInvoices);
+            replaceContent(invoiceChartContent, invoiceChart);
+        } else if (data.paidInvoices != previous.paidInvoices || data.unpaidChartInvoices != previous.unpaidChartInvoices) {
+            invoiceChart.setData(data.paidInvoices, data.unpaidChartInvoices);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        if (previous != null && elapsed > EDT_BUDGET_NANOS) {
+            System.err.println("⚠️ Dashboard refresh took " + (elapsed / 1_000_000) + " ms on EDT");
+        }
+    }
+
+    private void setValue(String cardTitle, String value) {
+        JLabel label = valueLabels.get(cardTitle);
+        if (label != null && !value.equals(label.getText())) {
+            label.setText(value);
+        }
+    }
+
+    private void replaceContent(JPanel container, JComponent content) {
+        container.removeAll();
+        container.add(content, BorderLayout.CENTER);
+        container.revalidate();
+        container.repaint();
+    }
+
+    /**
+     * Số liệu dashboard được tải ở background
+     */
+    private static class DashboardData {
+        int buildings;
+        int apartments;
+        int availableApartments;
+        int rentedApartments;
+        int residents;
+        int activeContracts;
+        BigDecimal totalRevenue;
+        int unpaidInvoices;
+        List<String> revenueLabels = new ArrayList<>();
+        List<BigDecimal> revenueValues = new ArrayList<>();
+        int paidInvoices;
+        int unpaidChartInvoices;
+        DashboardDAO.DashboardSummary summary; // null = đếm trực tiếp (không có live mode)
+    }
+
+    private static int getRefreshIntervalMillis() {
+        String value = System.getProperty(REFRESH_INTERVAL_PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_REFRESH_MS;
+        }
+        try {
+            return Math.max(MIN_REFRESH_MS, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("⚠️ Invalid " + REFRESH_INTERVAL_PROPERTY + " '" + value + "', using " + DEFAULT_REFRESH_MS);
+            return DEFAULT_REFRESH_MS;
+        }
+    }
+
+    /**
+     * Khung chứa biểu đồ, hiển thị "Đang tải..." cho đến khi có dữ liệu
+     */
+    private JPanel createChartContainer() {
+        JPanel container = new JPanel(new BorderLayout());
+        container.setBackground(CARD_BG);
+        container.setPreferredSize(new Dimension(500, 280));
+        container.setMinimumSize(new Dimension(400, 250));
+        container.add(AsyncLoader.loadingPlaceholder("Đang tải biểu đồ..."), BorderLayout.CENTER);
+        return container;
     }
 
     private JPanel createContentPanel() {
@@ -95,14 +327,11 @@ public class DashboardPanel extends JPanel {
         row1.setBackground(new Color(245, 247, 250));
         row1.setMaximumSize(new Dimension(Integer.MAX_VALUE, 120));
         
-        row1.add(createStatCard("Tòa Nhà",
-                String.valueOf(buildingDAO.countBuildings()),
+        row1.add(createStatCard("Tòa Nhà", "...",
                 "🏢", PRIMARY_COLOR, navigator::goToBuildings));
-        row1.add(createStatCard("Tổng Căn Hộ",
-                String.valueOf(apartmentDAO.countApartments()),
+        row1.add(createStatCard("Tổng Căn Hộ", "...",
                 "🏠", INFO_COLOR, navigator::goToApartments));
-        row1.add(createStatCard("Đang Trống",
-                String.valueOf(apartmentDAO.countAvailableApartments()),
+        row1.add(createStatCard("Đang Trống", "...",
                 "✓", SUCCESS_COLOR, navigator::goToApartments));
 
         // Row 2: 3 cards
@@ -110,14 +339,11 @@ public class DashboardPanel extends JPanel {
         row2.setBackground(new Color(245, 247, 250));
         row2.setMaximumSize(new Dimension(Integer.MAX_VALUE, 120));
         
-        row2.add(createStatCard("Đã Cho Thuê",
-                String.valueOf(apartmentDAO.countRentedApartments()),
+        row2.add(createStatCard("Đã Cho Thuê", "...",
                 "☑", WARNING_COLOR, navigator::goToContracts));
-        row2.add(createStatCard("Cư Dân",
-                String.valueOf(residentDAO.countResidents()),
+        row2.add(createStatCard("Cư Dân", "...",
                 "👥", PURPLE_COLOR, navigator::goToResidents));
-        row2.add(createStatCard("Hợp Đồng",
-                String.valueOf(contractDAO.countActiveContracts()),
+        row2.add(createStatCard("Hợp Đồng", "...",
                 "📋", PRIMARY_COLOR, navigator::goToContracts));
 
         // Row 3: 2 larger cards
@@ -172,6 +398,7 @@ public class DashboardPanel extends JPanel {
         lblTitle.setAlignmentX(Component.LEFT_ALIGNMENT);
 
         JLabel lblValue = new JLabel(value);
+        valueLabels.put(title, lblValue);
         lblValue.setFont(new Font("Segoe UI", Font.BOLD, 32));
         lblValue.setForeground(new Color(33, 37, 41));
         lblValue.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -230,8 +457,8 @@ public class DashboardPanel extends JPanel {
         lblTitle.setForeground(new Color(108, 117, 125));
         lblTitle.setAlignmentX(Component.LEFT_ALIGNMENT);
 
-        BigDecimal revenue = invoiceDAO.getTotalRevenue();
-        JLabel lblValue = new JLabel(formatCurrency(revenue));
+        JLabel lblValue = new JLabel("...");
+        valueLabels.put("Tổng Doanh Thu", lblValue);
         lblValue.setFont(new Font("Segoe UI", Font.BOLD, 36));
         lblValue.setForeground(SUCCESS_COLOR);
         lblValue.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -265,7 +492,8 @@ public class DashboardPanel extends JPanel {
         lblTitle.setForeground(new Color(108, 117, 125));
         lblTitle.setAlignmentX(Component.LEFT_ALIGNMENT);
 
-        JLabel lblValue = new JLabel(String.valueOf(invoiceDAO.countUnpaidInvoices()));
+        JLabel lblValue = new JLabel("...");
+        valueLabels.put("Hóa Đơn Chưa Thu", lblValue);
         lblValue.setFont(new Font("Segoe UI", Font.BOLD, 36));
         lblValue.setForeground(DANGER_COLOR);
         lblValue.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -310,8 +538,9 @@ public class DashboardPanel extends JPanel {
         title.setFont(new Font("Segoe UI", Font.BOLD, 16));
         title.setForeground(new Color(33, 37, 41));
 
-        // Chart content
-        JPanel chartContent = createLineChart();
+        // Chart content (điền sau khi tải xong)
+        revenueChartContent = createChartContainer();
+        JPanel chartContent = revenueChartContent;
 
         chartPanel.add(title, BorderLayout.NORTH);
         chartPanel.add(Box.createVerticalStrut(15), BorderLayout.AFTER_LINE_ENDS);
@@ -320,27 +549,6 @@ public class DashboardPanel extends JPanel {
         return chartPanel;
     }
 
-    private JPanel createLineChart() {
-        // Get revenue data for last 12 months
-        Calendar cal = Calendar.getInstance();
-
-        List<String> labels = new ArrayList<>();
-        List<BigDecimal> values = new ArrayList<>();
-
-        for (int i = 11; i >= 0; i--) {
-            cal = Calendar.getInstance();
-            cal.add(Calendar.MONTH, -i);
-            int month = cal.get(Calendar.MONTH) + 1;
-            int year = cal.get(Calendar.YEAR);
-
-            labels.add(month + "/" + (year % 100));
-            BigDecimal revenue = invoiceDAO.getMonthlyRevenue(month, year);
-            values.add(revenue);
-        }
-
-        return new LineChartPanel(labels, values, SUCCESS_COLOR);
-    }
-
     private JPanel createInvoiceStatusChart() {
         JPanel chartPanel = new JPanel(new BorderLayout());
         chartPanel.setBackground(CARD_BG);
@@ -354,13 +562,9 @@ public class DashboardPanel extends JPanel {
         title.setFont(new Font("Segoe UI", Font.BOLD, 16));
         title.setForeground(new Color(33, 37, 41));
 
-        // Get data
-        List<model.Invoice> allInvoices = invoiceDAO.getAllInvoices();
-        int paid = (int) allInvoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
-        int unpaid = (int) allInvoices.stream().filter(i -> "UNPAID".equals(i.getStatus())).count();
-
-        // Chart content
-        JPanel chartContent = createPieChart(paid, unpaid);
+        // Chart content (điền sau khi tải xong)
+        invoiceChartContent = createChartContainer();
+        JPanel chartContent = invoiceChartContent;
 
         chartPanel.add(title, BorderLayout.NORTH);
         chartPanel.add(Box.createVerticalStrut(15), BorderLayout.AFTER_LINE_ENDS);
@@ -369,7 +573,7 @@ public class DashboardPanel extends JPanel {
         return chartPanel;
     }
 
-    private JPanel createPieChart(int paid, int unpaid) {
+    private PieChartPanel createPieChart(int paid, int unpaid) {
         return new PieChartPanel(paid, unpaid, SUCCESS_COLOR, DANGER_COLOR);
     }
 
@@ -426,6 +630,13 @@ public class DashboardPanel extends JPanel {
             setMinimumSize(new Dimension(400, 250));
         }
 
+        // Live mode: đổi dữ liệu rồi vẽ lại, kích thước không đổi nên không cần revalidate
+        public void setData(List<String> labels, List<BigDecimal> values) {
+            this.labels = labels;
+            this.values = values;
+            repaint();
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
@@ -587,6 +798,12 @@ public class DashboardPanel extends JPanel {
             setMinimumSize(new Dimension(400, 250));
         }
 
+        public void setData(int paid, int unpaid) {
+            this.paid = paid;
+            this.unpaid = unpaid;
+            repaint();
+        }
+
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g);
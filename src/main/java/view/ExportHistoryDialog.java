@@ -0,0 +1,97 @@
+package view;
+
+import util.ExportJob;
+import util.ExportJobManager;
+import util.UIConstants;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Lịch sử xuất báo cáo (ExportJobManager): job đang chạy + các job đã xong gần nhất
+ * Tự cập nhật khi có job đổi trạng thái.
+ */
+public class ExportHistoryDialog extends JDialog {
+
+    private static final String[] COLUMNS = {"#", "Báo cáo", "Trạng thái", "Bắt đầu", "Thời gian", "Số dòng", "Kích thước", "File"};
+
+    private final DefaultTableModel tableModel;
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("dd/MM HH:mm:ss");
+    private final Consumer<ExportJob> jobListener = job -> reload();
+
+    public ExportHistoryDialog(Window owner) {
+        super(owner, "Lịch Sử Xuất Báo Cáo", ModalityType.MODELESS);
+
+        tableModel = new DefaultTableModel(COLUMNS, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+
+        JTable table = new JTable(tableModel);
+        table.setRowHeight(28);
+        table.setFont(UIConstants.FONT_SMALL);
+        table.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
+        table.getColumnModel().getColumn(0).setMaxWidth(50);
+        table.getColumnModel().getColumn(7).setPreferredWidth(260);
+
+        JPanel content = new JPanel(new BorderLayout());
+        content.setBorder(new EmptyBorder(10, 10, 10, 10));
+        content.add(new JScrollPane(table), BorderLayout.CENTER);
+        setContentPane(content);
+
+        ExportJobManager.getInstance().addListener(jobListener);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        reload();
+        setSize(900, 400);
+        setLocationRelativeTo(owner);
+    }
+
+    @Override
+    public void dispose() {
+        ExportJobManager.getInstance().removeListener(jobListener);
+        super.dispose();
+    }
+
+    private void reload() {
+        tableModel.setRowCount(0);
+
+        ExportJobManager manager = ExportJobManager.getInstance();
+        addRows(manager.getActiveJobs());
+        addRows(manager.getHistory());
+    }
+
+    private void addRows(List<ExportJob> jobs) {
+        for (ExportJob job : jobs) {
+            String status = job.getStatus().getDisplayName();
+            if (job.getError() != null) {
+                status += " (" + job.getError() + ")";
+            }
+            tableModel.addRow(new Object[]{
+                job.getId(),
+                job.getTitle(),
+                status,
+                job.getStartedAt() > 0 ? timeFormat.format(new Date(job.getStartedAt())) : "-",
+                String.format("%.1f s", job.getDurationMillis() / 1000.0),
+                job.getRowsWritten(),
+                formatSize(job.getFileSize()),
+                job.getFile() != null ? job.getFile().getAbsolutePath() : ""
+            });
+        }
+    }
+
+    private static String formatSize(long bytes) {
+        if (bytes <= 0) return "-";
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,144 @@
+package view;
+
+import util.ExportJob;
+import util.ExportJobManager;
+import util.ModernButton;
+import util.UIConstants;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.text.DecimalFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Hộp thoại tiến độ cho một ExportJob (không modal)
+ * Hiển thị giai đoạn, số dòng đã ghi, thời gian chạy; nút Hủy / Chạy nền.
+ * Cập nhật bằng Swing Timer đọc trạng thái job (không chặn EDT), khi job xong gọi onFinished
+ * kể cả khi hộp thoại đã được ẩn bằng "Chạy nền".
+ *
+ * Mỗi job chỉ có một hộp thoại (showFor): mở lại job đang chạy sẽ hiện lại hộp thoại đã ẩn,
+ * nên onFinished chỉ được gọi một lần.
+ */
+public class ExportProgressDialog extends JDialog {
+
+    private static final int REFRESH_MS = 250;
+
+    // Hộp thoại của các job chưa xong (chỉ truy cập trên EDT)
+    private static final Map<Long, ExportProgressDialog> openDialogs = new HashMap<>();
+
+    private final ExportJob job;
+    private final Consumer<ExportJob> onFinished;
+    private final Timer refreshTimer;
+    private final DecimalFormat numberFormat = new DecimalFormat("#,##0");
+
+    private JLabel lblPhase;
+    private JLabel lblRows;
+    private JLabel lblElapsed;
+    private ModernButton btnCancel;
+
+    /**
+     * Hiện hộp thoại tiến độ của job: dùng lại hộp thoại đã có (kể cả đang ẩn do "Chạy nền"),
+     * chỉ tạo mới nếu job chưa có hộp thoại
+     */
+    public static void showFor(Window owner, ExportJob job, Consumer<ExportJob> onFinished) {
+        ExportProgressDialog dialog = openDialogs.get(job.getId());
+        if (dialog == null) {
+            dialog = new ExportProgressDialog(owner, job, onFinished);
+            if (job.isFinished()) {
+                return; // Constructor đã gọi onFinished
+            }
+            openDialogs.put(job.getId(), dialog);
+        }
+        dialog.setVisible(true);
+        dialog.toFront();
+    }
+
+    private ExportProgressDialog(Window owner, ExportJob job, Consumer<ExportJob> onFinished) {
+        super(owner, job.getTitle(), ModalityType.MODELESS);
+        this.job = job;
+        this.onFinished = onFinished;
+
+        initComponents();
+
+        setDefaultCloseOperation(HIDE_ON_CLOSE);
+        pack();
+        setLocationRelativeTo(owner);
+
+        refreshTimer = new Timer(REFRESH_MS, e -> refresh());
+        refreshTimer.start();
+        refresh();
+    }
+
+    private void initComponents() {
+        JPanel content = new JPanel(new BorderLayout(0, 12));
+        content.setBackground(Color.WHITE);
+        content.setBorder(new EmptyBorder(20, 25, 20, 25));
+
+        JLabel lblTitle = new JLabel("📄 " + job.getTitle());
+        lblTitle.setFont(UIConstants.FONT_HEADING);
+        content.add(lblTitle, BorderLayout.NORTH);
+
+        JPanel info = new JPanel(new GridLayout(0, 1, 0, 6));
+        info.setOpaque(false);
+
+        lblPhase = new JLabel();
+        lblPhase.setFont(UIConstants.FONT_REGULAR);
+        lblRows = new JLabel();
+        lblRows.setFont(UIConstants.FONT_SMALL);
+        lblRows.setForeground(UIConstants.TEXT_SECONDARY);
+        lblElapsed = new JLabel();
+        lblElapsed.setFont(UIConstants.FONT_SMALL);
+        lblElapsed.setForeground(UIConstants.TEXT_SECONDARY);
+
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setPreferredSize(new Dimension(340, 8));
+
+        info.add(lblPhase);
+        info.add(progressBar);
+        info.add(lblRows);
+        info.add(lblElapsed);
+        content.add(info, BorderLayout.CENTER);
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        buttons.setOpaque(false);
+
+        ModernButton btnBackground = new ModernButton("Chạy nền", UIConstants.INFO_COLOR);
+        btnBackground.setToolTipText("Ẩn hộp thoại, báo cáo vẫn tiếp tục được xuất");
+        btnBackground.addActionListener(e -> setVisible(false));
+
+        btnCancel = new ModernButton("Hủy", UIConstants.DANGER_COLOR);
+        btnCancel.addActionListener(e -> {
+            btnCancel.setEnabled(false);
+            ExportJobManager.getInstance().cancel(job);
+        });
+
+        buttons.add(btnBackground);
+        buttons.add(btnCancel);
+        content.add(buttons, BorderLayout.SOUTH);
+
+        setContentPane(content);
+    }
+
+    private void refresh() {
+        String phase = job.isCancelRequested() && !job.isFinished() ? "Đang hủy..." : job.getPhase();
+        if (job.getStatus() == ExportJob.Status.QUEUED && !job.isCancelRequested()) {
+            phase = "Đang chờ trong hàng đợi...";
+        }
+        lblPhase.setText(phase);
+        lblRows.setText("Đã ghi: " + numberFormat.format(job.getRowsWritten()) + " dòng");
+        lblElapsed.setText(String.format("Thời gian: %.1f giây", job.getDurationMillis() / 1000.0));
+
+        if (job.isFinished()) {
+            refreshTimer.stop();
+            openDialogs.remove(job.getId(), this);
+            dispose();
+            if (onFinished != null) {
+                onFinished.accept(job);
+            }
+        }
+    }
+}
@@ -23,25 +23,41 @@ public class FloorCard extends JPanel {
     private Consumer<Floor> onEdit;
     private Consumer<Floor> onDelete;
 
+    // Kích thước thẻ (VirtualCardGrid dùng làm kích thước ô)
+    public static final int CARD_WIDTH = 300;
+    public static final int CARD_HEIGHT = 160;
+
+    // Thành phần con dựng 1 lần trong constructor, bind() chỉ đổi nội dung
+    private final JLabel lblName = new JLabel();
+    private final StatusBadge badge = new StatusBadge();
+    private final JLabel lblTotal = new JLabel();
+    private final OccupancyBar progressBar = new OccupancyBar();
+    private final JButton btnEdit;
+    private final JButton btnDelete;
+
+    private static final Icon ICON_EDIT = new CardIcon("EDIT", 20, new Color(117, 117, 117));
+    private static final Icon ICON_DELETE = new CardIcon("DELETE", 20, new Color(239, 83, 80));
+    private static final Icon ICON_EDIT_LOCKED = new CardIcon("EDIT", 20, Color.LIGHT_GRAY);
+    private static final Icon ICON_DELETE_LOCKED = new CardIcon("DELETE", 20, Color.LIGHT_GRAY);
+
     public FloorCard(Floor floor, FloorStats stats, boolean isBuildingMaintenance, 
                      Consumer<Floor> onSelect, Consumer<Floor> onEdit, Consumer<Floor> onDelete) {
-        this.floor = floor;
-        this.stats = stats;
-        this.isBuildingMaintenance = isBuildingMaintenance;
+        this(onSelect, onEdit, onDelete);
+        bind(floor, stats, isBuildingMaintenance);
+    }
+
+    /**
+     * Thẻ rỗng, dữ liệu gắn sau bằng bind() (thẻ được VirtualCardGrid dùng lại)
+     */
+    public FloorCard(Consumer<Floor> onSelect, Consumer<Floor> onEdit, Consumer<Floor> onDelete) {
         this.onSelect = onSelect;
         this.onEdit = onEdit;
         this.onDelete = onDelete;
 
         setOpaque(false);
-        setPreferredSize(new Dimension(300, 160));
-        
-        // Thiết lập sự kiện click
-        if (isBuildingMaintenance) {
-            this.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
-        } else {
-            this.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        }
+        setPreferredSize(new Dimension(CARD_WIDTH, CARD_HEIGHT));
 
+        // Thiết lập sự kiện click
         this.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
@@ -69,14 +85,63 @@ public class FloorCard extends JPanel {
             }
         });
 
+        btnEdit = createIconButton();
+        btnDelete = createIconButton();
         initCardUI();
+    }
+
+    /**
+     * Gắn tầng khác vào thẻ: chỉ đổi chữ, màu, trạng thái nút (không dựng lại component con)
+     */
+    public void bind(Floor floor, FloorStats stats, boolean isBuildingMaintenance) {
+        this.floor = floor;
+        this.stats = stats;
+        this.isBuildingMaintenance = isBuildingMaintenance;
+
+        if (isBuildingMaintenance) {
+            this.setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+        } else {
+            this.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        }
+
+        setBackground(null);
+
+        lblName.setText(floor.getName());
+        lblName.setForeground(isMaintenance(floor.getStatus()) ? Color.GRAY : new Color(33, 33, 33));
+
+        // Badge
+        String statusText = floor.getStatus();
+        if (statusText == null || statusText.isEmpty()) statusText = "Hoạt động";
+        if (isMaintenance(statusText)) {
+            badge.setStatus("Bảo trì", new Color(255, 243, 224), new Color(239, 108, 0));
+        } else {
+            badge.setStatus("Hoạt động", new Color(232, 245, 233), new Color(46, 125, 50));
+        }
+
+        // ✅ FIX: Hiển thị tổng số căn hộ
+        lblTotal.setText("Tổng số căn: " + stats.totalApartments);
+
+        // ✅ FIX: Progress bar tính cả RENTED + OWNED
+        int occupiedApartments = stats.rentedApartments + stats.ownedApartments;
+        progressBar.setValues(occupiedApartments, stats.totalApartments,
+                stats.rentedApartments, stats.ownedApartments);
+
+        btnEdit.setEnabled(!isBuildingMaintenance);
+        btnDelete.setEnabled(!isBuildingMaintenance);
+        btnEdit.setIcon(isBuildingMaintenance ? ICON_EDIT_LOCKED : ICON_EDIT);
+        btnDelete.setIcon(isBuildingMaintenance ? ICON_DELETE_LOCKED : ICON_DELETE);
 
         // Tooltip
         if (isBuildingMaintenance) {
             setToolTipText("🔒 Tòa nhà đang bảo trì - Tạm thời bị khóa");
         } else if (isMaintenance(floor.getStatus())) {
             setToolTipText("⚠️ Tầng đang bảo trì - Click để quản lý căn hộ");
+        } else {
+            setToolTipText(null);
         }
+
+        revalidate();
+        repaint();
     }
 
     private boolean isMaintenance(String status) {
@@ -93,26 +158,9 @@ public class FloorCard extends JPanel {
         JPanel topPanel = new JPanel(new BorderLayout());
         topPanel.setOpaque(false);
 
-        JLabel lblName = new JLabel(floor.getName());
         lblName.setFont(new Font("Segoe UI", Font.BOLD, 18));
-        if (isMaintenance(floor.getStatus())) {
-            lblName.setForeground(Color.GRAY);
-        } else {
-            lblName.setForeground(new Color(33, 33, 33));
-        }
         topPanel.add(lblName, BorderLayout.WEST);
 
-        // Badge
-        String statusText = floor.getStatus();
-        if (statusText == null || statusText.isEmpty()) statusText = "Hoạt động";
-
-        StatusBadge badge;
-        if (isMaintenance(statusText)) {
-            badge = new StatusBadge("Bảo trì", new Color(255, 243, 224), new Color(239, 108, 0));
-        } else {
-            badge = new StatusBadge("Hoạt động", new Color(232, 245, 233), new Color(46, 125, 50));
-        }
-
         JPanel badgePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
         badgePanel.setOpaque(false);
         badgePanel.add(badge);
@@ -126,8 +174,6 @@ public class FloorCard extends JPanel {
         centerContent.setOpaque(false);
         centerContent.setBorder(new EmptyBorder(10, 0, 0, 0)); 
 
-        // ✅ FIX: Hiển thị tổng số căn hộ
-        JLabel lblTotal = new JLabel("Tổng số căn: " + stats.totalApartments);
         lblTotal.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         lblTotal.setForeground(Color.GRAY);
         lblTotal.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -135,14 +181,6 @@ public class FloorCard extends JPanel {
         centerContent.add(lblTotal);
         centerContent.add(Box.createVerticalStrut(10)); 
 
-        // ✅ FIX: Progress bar tính cả RENTED + OWNED
-        int occupiedApartments = stats.rentedApartments + stats.ownedApartments;
-        OccupancyBar progressBar = new OccupancyBar(
-            occupiedApartments, 
-            stats.totalApartments,
-            stats.rentedApartments,
-            stats.ownedApartments
-        );
         progressBar.setAlignmentX(Component.LEFT_ALIGNMENT);
         centerContent.add(progressBar);
         
@@ -153,19 +191,12 @@ public class FloorCard extends JPanel {
         actionPanel.setOpaque(false);
         actionPanel.setBorder(new EmptyBorder(5, 0, 0, 0));
 
-        JButton btnEdit = createIconButton("EDIT", new Color(117, 117, 117));
-        JButton btnDelete = createIconButton("DELETE", new Color(239, 83, 80));
-
-        if (isBuildingMaintenance) {
-            btnEdit.setEnabled(false);
-            btnDelete.setEnabled(false);
-        } else {
-            btnEdit.addActionListener(e -> { if (onEdit != null) onEdit.accept(floor); });
-            btnDelete.addActionListener(e -> { if (onDelete != null) onDelete.accept(floor); });
-            
-            btnEdit.addMouseListener(new MouseAdapter() { @Override public void mousePressed(MouseEvent e) { e.consume(); } });
-            btnDelete.addMouseListener(new MouseAdapter() { @Override public void mousePressed(MouseEvent e) { e.consume(); } });
-        }
+        // Nút bị khóa khi tòa nhà bảo trì (setEnabled trong bind)
+        btnEdit.addActionListener(e -> { if (onEdit != null && !isBuildingMaintenance) onEdit.accept(floor); });
+        btnDelete.addActionListener(e -> { if (onDelete != null && !isBuildingMaintenance) onDelete.accept(floor); });
+        
+        btnEdit.addMouseListener(new MouseAdapter() { @Override public void mousePressed(MouseEvent e) { e.consume(); } });
+        btnDelete.addMouseListener(new MouseAdapter() { @Override public void mousePressed(MouseEvent e) { e.consume(); } });
 
         actionPanel.add(btnEdit);
         actionPanel.add(btnDelete);
@@ -197,9 +228,8 @@ public class FloorCard extends JPanel {
         super.paintComponent(g);
     }
 
-    private JButton createIconButton(String iconType, Color color) {
-        Color iconColor = isBuildingMaintenance ? Color.LIGHT_GRAY : color;
-        JButton btn = new JButton(new CardIcon(iconType, 20, iconColor));
+    private JButton createIconButton() {
+        JButton btn = new JButton();
         btn.setPreferredSize(new Dimension(30, 30));
         btn.setBorderPainted(false);
         btn.setContentAreaFilled(false);
@@ -211,14 +241,16 @@ public class FloorCard extends JPanel {
     // --- INNER CLASSES ---
 
     private static class StatusBadge extends JLabel {
-        private Color bgColor, textColor;
-        public StatusBadge(String text, Color bg, Color txt) {
-            super(text); 
+        private Color bgColor = Color.WHITE;
+        public StatusBadge() {
             setFont(new Font("Segoe UI", Font.BOLD, 10));
             setBorder(new EmptyBorder(2, 8, 2, 8));
+        }
+        void setStatus(String text, Color bg, Color txt) {
             this.bgColor = bg;
-            this.textColor = txt;
-            setForeground(textColor);
+            setText(text);
+            setForeground(txt);
+            repaint();
         }
         @Override protected void paintComponent(Graphics g) {
             Graphics2D g2 = (Graphics2D) g.create(); 
@@ -236,13 +268,17 @@ public class FloorCard extends JPanel {
     private static class OccupancyBar extends JPanel {
         int occupied, total, rented, owned;
 
-        public OccupancyBar(int occupied, int total, int rented, int owned) {
+        public OccupancyBar() {
+            setPreferredSize(new Dimension(200, 26)); 
+            setOpaque(false);
+        }
+
+        void setValues(int occupied, int total, int rented, int owned) {
             this.occupied = occupied; // RENTED + OWNED
             this.total = total;
             this.rented = rented;
             this.owned = owned;
-            setPreferredSize(new Dimension(200, 26)); 
-            setOpaque(false);
+            repaint();
         }
 
         @Override
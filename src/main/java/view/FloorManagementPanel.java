@@ -5,6 +5,7 @@ import dao.FloorDAO;
 import model.Building;
 import model.Floor;
 import util.UIConstants;
+import util.VirtualCardGrid;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -20,6 +21,9 @@ public class FloorManagementPanel extends JPanel {
     private FloorDAO floorDAO;
     private BuildingDAO buildingDAO;
     private JPanel cardsContainer;
+    // Lưới thẻ ảo: chỉ dựng thẻ của các tầng đang nhìn thấy
+    private VirtualCardGrid<dao.FloorDAO.FloorWithStats, FloorCard> cardGrid;
+    private boolean isBuildingMaintenance = false;
     private Building currentBuilding; 
     
     private JComboBox<Building> cbbBuilding;
@@ -140,9 +144,25 @@ public class FloorManagementPanel extends JPanel {
         // === CONTENT ===
         JPanel wrapperPanel = new JPanel(new BorderLayout());
         wrapperPanel.setBackground(UIConstants.BACKGROUND_COLOR);
-        cardsContainer = new JPanel(new GridLayout(0, 3, 20, 20));
+        cardsContainer = new JPanel(new BorderLayout());
         cardsContainer.setBackground(UIConstants.BACKGROUND_COLOR);
         cardsContainer.setBorder(new EmptyBorder(10, 0, 10, 0));
+
+        cardGrid = new VirtualCardGrid<>(new VirtualCardGrid.CardBinder<dao.FloorDAO.FloorWithStats, FloorCard>() {
+            @Override
+            public FloorCard createCard() {
+                return new FloorCard(
+                    onFloorSelect,
+                    FloorManagementPanel.this::editFloor,
+                    FloorManagementPanel.this::deleteFloor
+                );
+            }
+
+            @Override
+            public void bindCard(FloorCard card, dao.FloorDAO.FloorWithStats item) {
+                card.bind(item.floor, item.stats, isBuildingMaintenance);
+            }
+        }, 3, FloorCard.CARD_WIDTH, FloorCard.CARD_HEIGHT, 20, 20);
         wrapperPanel.add(cardsContainer, BorderLayout.NORTH);
 
         JScrollPane scrollPane = new JScrollPane(wrapperPanel);
@@ -213,8 +233,8 @@ public class FloorManagementPanel extends JPanel {
 
         // Kiểm tra Tòa nhà bảo trì -> Chặn thêm mới, nhưng vẫn cho xem (hoặc chặn tùy logic của bạn)
         // Ở đây ta chặn nút thêm, nhưng vẫn load danh sách để xem
-        boolean isBuildingMaintenance = "Đang bảo trì".equals(currentBuilding.getStatus()) || 
-                                        "MAINTENANCE".equalsIgnoreCase(currentBuilding.getStatus());
+        isBuildingMaintenance = "Đang bảo trì".equals(currentBuilding.getStatus()) || 
+                                "MAINTENANCE".equalsIgnoreCase(currentBuilding.getStatus());
         
         if (isBuildingMaintenance) {
             setButtonsEnabled(false); // Khóa chức năng thêm khi tòa nhà bảo trì
@@ -241,17 +261,8 @@ public class FloorManagementPanel extends JPanel {
                     if (data.isEmpty()) {
                         showEmptyMessage("Tòa nhà này chưa có tầng nào.", false);
                     } else {
-                        for (dao.FloorDAO.FloorWithStats item : data) {
-                            FloorCard card = new FloorCard(
-                                item.floor, 
-                                item.stats, 
-                                isBuildingMaintenance, 
-                                onFloorSelect, 
-                                FloorManagementPanel.this::editFloor, 
-                                FloorManagementPanel.this::deleteFloor
-                            );
-                            cardsContainer.add(card);
-                        }
+                        cardsContainer.add(cardGrid, BorderLayout.CENTER);
+                        cardGrid.setItems(data);
                     }
                     cardsContainer.revalidate();
                     cardsContainer.repaint();
@@ -314,7 +325,7 @@ public class FloorManagementPanel extends JPanel {
         centerWrapper.setBackground(UIConstants.BACKGROUND_COLOR);
         centerWrapper.add(msgPanel);
         
-        cardsContainer.add(centerWrapper);
+        cardsContainer.add(centerWrapper, BorderLayout.CENTER);
     }
 
     private void showBatchAddDialog() {
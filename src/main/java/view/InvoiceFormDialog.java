@@ -28,6 +28,7 @@ public class InvoiceFormDialog extends JDialog {
     private ResidentDAO residentDAO;
     private ServiceDAO serviceDAO;
     private ContractServiceDAO contractServiceDAO;
+    private ServiceUsageDAO serviceUsageDAO;
 
     private JRadioButton rbServicesOnly;
     private JRadioButton rbXXX;
@@ -82,8 +83,11 @@ public class InvoiceFormDialog extends JDialog {
         JTextField txtQuantity;
         JLabel lblAmount;
         Service service;
+        // Người dùng đã tự sửa số lượng -> đổi kỳ không ghi đè
+        boolean quantityEdited = false;
+        private boolean settingQuantity = false;
 
-        ServiceRow(Service service) {
+        ServiceRow(Service service, ServiceUsage usage) {
             this.service = service;
             this.chkEnabled = new JCheckBox();
             this.lblServiceName = new JLabel(service.getName());
@@ -96,6 +100,9 @@ public class InvoiceFormDialog extends JDialog {
             this.txtQuantity.setFont(new Font("Segoe UI", Font.PLAIN, 14));
             this.txtQuantity.setHorizontalAlignment(JTextField.CENTER);
 
+            // ✅ Số lượng theo chỉ số đã nhập trong kỳ (service_usage)
+            setUsageQuantity(usage);
+
             this.lblAmount = new JLabel("0");
             this.lblAmount.setHorizontalAlignment(SwingConstants.CENTER);
 
@@ -115,6 +122,52 @@ public class InvoiceFormDialog extends JDialog {
                 }
             });
             txtQuantity.addActionListener(e -> calculateAmount());
+            txtQuantity.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+                public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                    markEdited();
+                }
+
+                public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                    markEdited();
+                }
+
+                public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                    markEdited();
+                }
+            });
+        }
+
+        private void markEdited() {
+            if (!settingQuantity) {
+                quantityEdited = true;
+            }
+        }
+
+        private void setUsageQuantity(ServiceUsage usage) {
+            settingQuantity = true;
+            try {
+                if (usage != null && usage.getActualUsage() != null) {
+                    txtQuantity.setText(String.valueOf(usage.getActualUsage()));
+                    txtQuantity.setToolTipText("Chỉ số: " + usage.getOldIndex() + " → " + usage.getNewIndex());
+                } else {
+                    txtQuantity.setText("1.0");
+                    txtQuantity.setToolTipText(null);
+                }
+            } finally {
+                settingQuantity = false;
+            }
+        }
+
+        /**
+         * Đổi kỳ: cập nhật số lượng theo chỉ số của kỳ mới, trừ khi người dùng đã tự sửa
+         * (dấu chọn / đơn giá giữ nguyên)
+         */
+        void applyUsage(ServiceUsage usage) {
+            if (quantityEdited) {
+                return;
+            }
+            setUsageQuantity(usage);
+            calculateAmount();
         }
 
         void updateServiceRow() {
@@ -224,6 +277,7 @@ public class InvoiceFormDialog extends JDialog {
         this.residentDAO = new ResidentDAO();
         this.serviceDAO = new ServiceDAO();
         this.contractServiceDAO = new ContractServiceDAO();
+        this.serviceUsageDAO = new ServiceUsageDAO();
         this.serviceRows = new ArrayList<>();
     }
 
@@ -341,6 +395,8 @@ public class InvoiceFormDialog extends JDialog {
         spnMonth = new JSpinner(monthModel);
         spnMonth.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         ((JSpinner.DefaultEditor) spnMonth.getEditor()).getTextField().setHorizontalAlignment(JTextField.CENTER);
+        // Đổi kỳ -> chỉ cập nhật số lượng theo chỉ số của kỳ mới (giữ các dòng dịch vụ đã chỉnh)
+        spnMonth.addChangeListener(e -> onPeriodChanged());
         section.add(spnMonth, gbc);
 
         gbc.gridx = 2;
@@ -355,6 +411,19 @@ public class InvoiceFormDialog extends JDialog {
         txtYear.setHorizontalAlignment(JTextField.CENTER);
         txtYear.setEditable(false);
         txtYear.setBackground(new Color(245, 245, 245));
+        txtYear.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            public void changedUpdate(javax.swing.event.DocumentEvent e) {
+                onPeriodChanged();
+            }
+
+            public void removeUpdate(javax.swing.event.DocumentEvent e) {
+                onPeriodChanged();
+            }
+
+            public void insertUpdate(javax.swing.event.DocumentEvent e) {
+                onPeriodChanged();
+            }
+        });
 
         section.add(txtYear, gbc);
 
@@ -761,10 +830,16 @@ public class InvoiceFormDialog extends JDialog {
         // Get contract services
         List<ContractService> contractServices = contractServiceDAO.getActiveServicesByContract(selectedContract.getId());
 
+        // Chỉ số trong kỳ đang chọn (nếu đã nhập)
+        Map<Long, ServiceUsage> usages = loadPeriodUsages();
+        if (usages == null) {
+            usages = new HashMap<>(); // Năm chưa hợp lệ -> số lượng mặc định
+        }
+
         for (ContractService cs : contractServices) {
             Service service = serviceDAO.getServiceById(cs.getServiceId());
             if (service != null) {
-                addServiceRow(service);
+                addServiceRow(service, usages.get(service.getId()));
             }
         }
 
@@ -772,8 +847,46 @@ public class InvoiceFormDialog extends JDialog {
         servicesSection.repaint();
     }
 
-    private void addServiceRow(Service service) {
-        ServiceRow row = new ServiceRow(service);
+    /**
+     * Chỉ số (service_usage) của hợp đồng trong kỳ đang chọn, theo service id
+     *
+     * @return null nếu năm chưa hợp lệ
+     */
+    private Map<Long, ServiceUsage> loadPeriodUsages() {
+        int year;
+        try {
+            year = Integer.parseInt(txtYear.getText().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Map<Long, ServiceUsage> usages = new HashMap<>();
+        for (ServiceUsage usage : serviceUsageDAO.getUsageByContract(
+                selectedContract.getId(), (Integer) spnMonth.getValue(), year)) {
+            usages.put(usage.getServiceId(), usage);
+        }
+        return usages;
+    }
+
+    /**
+     * Đổi tháng / năm: chỉ đọc lại chỉ số của kỳ mới và cập nhật số lượng các dòng dịch vụ
+     * chưa bị sửa tay (không dựng lại các dòng như khi đổi hợp đồng)
+     */
+    private void onPeriodChanged() {
+        if (!uiReady || selectedContract == null || serviceRows.isEmpty()) {
+            return;
+        }
+        Map<Long, ServiceUsage> usages = loadPeriodUsages();
+        if (usages == null) {
+            return;
+        }
+        for (ServiceRow row : serviceRows) {
+            row.applyUsage(usages.get(row.service.getId()));
+        }
+        calculateTotal();
+    }
+
+    private void addServiceRow(Service service, ServiceUsage usage) {
+        ServiceRow row = new ServiceRow(service, usage);
 
         JPanel rowPanel = new JPanel(new GridLayout(1, 5, 5, 0));
         rowPanel.setBackground(Color.WHITE);
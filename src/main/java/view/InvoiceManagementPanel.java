@@ -2,12 +2,18 @@ package view;
 
 import dao.*;
 import model.*;
+import service.BillingRunService;
 import util.UIConstants;
 import util.ModernButton;
+import util.AsyncLoader;
+import util.ChangeLogPoller;
+import util.BuildingContext;
+import util.MeterReadingImporter;
+import util.PagedTableModel;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
@@ -19,7 +25,6 @@ import java.util.List;
 import java.util.Calendar;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
-import javax.swing.table.TableRowSorter;
 
 /**
  * Invoice Management Panel - Cải tiến Tích hợp đầy đủ với InvoiceFormDialog và
@@ -27,23 +32,31 @@ import javax.swing.table.TableRowSorter;
  */
 public class InvoiceManagementPanel extends JPanel {
 
+    // Bảng hóa đơn tải từng trang khi cuộn (không nạp toàn bộ hóa đơn vào bộ nhớ)
+    private static final int PAGE_SIZE = 100;
+    private static final int PAGE_CACHE_SIZE = 8;
+    private static final int COL_PERIOD = 4;
+    private static final int COL_AMOUNT = 5;
+
     // DAOs
     private InvoiceDAO invoiceDAO;
-    private ApartmentDAO apartmentDAO;
-    private ContractDAO contractDAO;
-    private ResidentDAO residentDAO;
+    private InvoiceListViewDAO invoiceListViewDAO;
+    private DashboardDAO dashboardDAO;
     private JPanel mainContainer;
 
     // Tables
     private JTable invoiceTable;
-    private DefaultTableModel tableModel;
+    private PagedTableModel<InvoiceListViewModel, InvoiceListViewDAO.InvoicePageKey> tableModel;
 
     // Filters
     private JComboBox<Integer> monthCombo;
     private JComboBox<Integer> yearCombo;
     private JComboBox<String> statusCombo;
     private JTextField txtSearch;
-    private TableRowSorter<DefaultTableModel> sorter;
+
+    // Bộ lọc + thứ tự đang hiển thị (thực hiện trong SQL)
+    private InvoiceListViewDAO.InvoicePageFilter currentFilter = new InvoiceListViewDAO.InvoicePageFilter();
+    private InvoiceListViewDAO.InvoiceSort currentSort = InvoiceListViewDAO.InvoiceSort.PERIOD_DESC;
     // Selected data
     private Invoice selectedInvoice = null;
 
@@ -53,6 +66,8 @@ public class InvoiceManagementPanel extends JPanel {
 
     // Buttons
     private ModernButton btnCreate;
+    private ModernButton btnBillingRun;
+    private ModernButton btnImportReadings;
     private ModernButton btnView;
     private ModernButton btnPay;
     private ModernButton btnCancel;
@@ -62,6 +77,13 @@ public class InvoiceManagementPanel extends JPanel {
     private JLabel lblUnpaidInvoices;
     private JLabel lblTotalRevenue;
 
+    // Async loaders (load mới hủy load cũ)
+    private final AsyncLoader statisticsLoader = new AsyncLoader("InvoiceManagementPanel.statistics");
+    private final AsyncLoader billingRunLoader = new AsyncLoader("InvoiceManagementPanel.billingRun", this);
+    private final AsyncLoader importReadingsLoader = new AsyncLoader("InvoiceManagementPanel.importReadings", this);
+
+    private final ChangeLogPoller.ChangeListener changeListener = this::onRemoteChanges;
+
     public InvoiceManagementPanel() {
         initializeDAOs();
 
@@ -100,11 +122,23 @@ public class InvoiceManagementPanel extends JPanel {
         updateStatistics();
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        ChangeLogPoller.getInstance().addListener(changeListener);
+    }
+
+    @Override
+    public void removeNotify() {
+        ChangeLogPoller.getInstance().removeListener(changeListener);
+        tableModel.cancel();
+        super.removeNotify();
+    }
+
     private void initializeDAOs() {
         this.invoiceDAO = new InvoiceDAO();
-        this.apartmentDAO = new ApartmentDAO();
-        this.contractDAO = new ContractDAO();
-        this.residentDAO = new ResidentDAO();
+        this.invoiceListViewDAO = new InvoiceListViewDAO();
+        this.dashboardDAO = new DashboardDAO();
     }
 
     /**
@@ -308,24 +342,14 @@ public class InvoiceManagementPanel extends JPanel {
             "Tháng/Năm", "Tổng tiền", "Trạng thái", "Ngày TT"
         };
 
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                if (columnIndex == 0) {
-                    return Long.class;
-                }
-                if (columnIndex == 5) {
-                    return BigDecimal.class;
-                }
-                return String.class;
-            }
+        Class<?>[] columnClasses = {
+            Long.class, String.class, String.class, String.class,
+            String.class, BigDecimal.class, String.class, String.class
         };
 
+        tableModel = new PagedTableModel<>("InvoiceManagementPanel.invoices", columns, columnClasses,
+                this::buildRow, PAGE_SIZE, PAGE_CACHE_SIZE, this);
+
         invoiceTable = new JTable(tableModel);
         invoiceTable.setFont(new Font("Segoe UI", Font.PLAIN, 13));
         invoiceTable.setRowHeight(40);
@@ -335,12 +359,18 @@ public class InvoiceManagementPanel extends JPanel {
         invoiceTable.setShowGrid(true);
         invoiceTable.setGridColor(new Color(240, 240, 240));
 
-        // ===== SORTER (SORT THEO ID) =====
-        sorter = new TableRowSorter<>(tableModel);
-        sorter.setSortKeys(List.of(
-                new RowSorter.SortKey(0, SortOrder.DESCENDING)
-        ));
-        invoiceTable.setRowSorter(sorter);
+        // ===== SẮP XẾP (ORDER BY trong SQL) =====
+        // Bấm tiêu đề "Tháng/Năm" hoặc "Tổng tiền" để đổi thứ tự, bấm lại để đảo chiều
+        invoiceTable.getTableHeader().setReorderingAllowed(false);
+        invoiceTable.getTableHeader().addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent evt) {
+                int column = invoiceTable.columnAtPoint(evt.getPoint());
+                if (column == COL_PERIOD || column == COL_AMOUNT) {
+                    changeSort(column);
+                }
+            }
+        });
 
         // ===== COLUMN MODEL =====
         TableColumnModel colModel = invoiceTable.getColumnModel();
@@ -358,6 +388,7 @@ public class InvoiceManagementPanel extends JPanel {
         colModel.getColumn(5).setPreferredWidth(120);
         colModel.getColumn(6).setPreferredWidth(120);
         colModel.getColumn(7).setPreferredWidth(100);
+        updateSortHeaders();
 
         // ===== RENDERERS =====
         DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
@@ -440,8 +471,10 @@ public class InvoiceManagementPanel extends JPanel {
             return;
         }
 
-        int modelRow = invoiceTable.convertRowIndexToModel(viewRow);
-        Long invoiceId = (Long) tableModel.getValueAt(modelRow, 0);
+        Long invoiceId = (Long) tableModel.getValueAt(viewRow, 0);
+        if (invoiceId == null) {
+            return; // Trang chưa tải xong
+        }
 
         JFrame parent = (JFrame) SwingUtilities.getWindowAncestor(this);
         InvoiceDetailDialog dialog
@@ -477,6 +510,26 @@ public class InvoiceManagementPanel extends JPanel {
         panel.add(btnCreate);
         panel.add(Box.createVerticalStrut(10));
 
+        // Billing run button (tạo hóa đơn cả kỳ)
+        btnBillingRun = new ModernButton("📑 Tạo HĐ Cả Kỳ", new Color(0, 121, 107));
+        btnBillingRun.setAlignmentX(Component.CENTER_ALIGNMENT);
+        btnBillingRun.setMaximumSize(new Dimension(190, 45));
+        btnBillingRun.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        btnBillingRun.setToolTipText("Tạo hóa đơn cho tất cả hợp đồng đang hiệu lực trong tháng đang chọn");
+        btnBillingRun.addActionListener(e -> runBillingForPeriod());
+        panel.add(btnBillingRun);
+        panel.add(Box.createVerticalStrut(10));
+
+        // Import meter readings button (nhập chỉ số điện / nước của kỳ)
+        btnImportReadings = new ModernButton("📥 Nhập Chỉ Số", new Color(0, 137, 123));
+        btnImportReadings.setAlignmentX(Component.CENTER_ALIGNMENT);
+        btnImportReadings.setMaximumSize(new Dimension(190, 45));
+        btnImportReadings.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        btnImportReadings.setToolTipText("Nhập chỉ số điện / nước từ file CSV hoặc Excel cho tháng đang chọn");
+        btnImportReadings.addActionListener(e -> importMeterReadings());
+        panel.add(btnImportReadings);
+        panel.add(Box.createVerticalStrut(10));
+
         // View detail button
         btnView = new ModernButton("👁️ Xem Chi Tiết", new Color(76, 175, 80));
         btnView.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -526,36 +579,14 @@ public class InvoiceManagementPanel extends JPanel {
      * ===== DATA LOADING =====
      */
     private void loadInvoices() {
-        tableModel.setRowCount(0);
-        List<Invoice> invoices = invoiceDAO.getAllInvoices();
-
-        for (Invoice invoice : invoices) {
-            addInvoiceToTable(invoice);
-        }
+        // Tất cả hóa đơn (trừ đã hủy) của mọi kỳ
+        showInvoices(new InvoiceListViewDAO.InvoicePageFilter(), false);
     }
 
-    private void addInvoiceToTable(Invoice invoice) {
-        Contract contract = contractDAO.getContractById(invoice.getContractId());
-
-        String contractNumber = "N/A";
-        String apartmentInfo = "N/A";
-        String residentInfo = "N/A";
-
-        if (contract != null) {
-            contractNumber = contract.getContractNumber() != null ? contract.getContractNumber() : "N/A";
-
-            // Get apartment info
-            Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-            if (apt != null) {
-                apartmentInfo = apt.getRoomNumber();
-            }
-
-            // Get resident info
-            Resident res = residentDAO.getResidentById(contract.getResidentId());
-            if (res != null) {
-                residentInfo = res.getFullName();
-            }
-        }
+    private Object[] buildRow(InvoiceListViewModel invoice) {
+        String contractNumber = invoice.getContractNumber() != null ? invoice.getContractNumber() : "N/A";
+        String apartmentInfo = invoice.getRoomNumber() != null ? invoice.getRoomNumber() : "N/A";
+        String residentInfo = invoice.getResidentName() != null ? invoice.getResidentName() : "N/A";
 
         String monthYear = String.format("Tháng %d/%d", invoice.getMonth(), invoice.getYear());
 
@@ -576,8 +607,8 @@ public class InvoiceManagementPanel extends JPanel {
             paymentDate = dateFormat.format(invoice.getPaymentDate());
         }
 
-        Object[] row = {
-            invoice.getId(),
+        return new Object[]{
+            invoice.getInvoiceId(),
             contractNumber,
             apartmentInfo,
             residentInfo,
@@ -586,100 +617,189 @@ public class InvoiceManagementPanel extends JPanel {
             statusDisplay,
             paymentDate
         };
-
-        tableModel.addRow(row);
     }
 
     private void filterInvoices() {
-        tableModel.setRowCount(0);
-
         Integer selectedMonth = (Integer) monthCombo.getSelectedItem();
         Integer selectedYear = (Integer) yearCombo.getSelectedItem();
         String selectedStatus = (String) statusCombo.getSelectedItem();
-        String searchText = txtSearch.getText().trim().toLowerCase();
 
-        List<Invoice> invoices;
+        InvoiceListViewDAO.InvoicePageFilter filter = new InvoiceListViewDAO.InvoicePageFilter();
+        filter.month = selectedMonth != null ? selectedMonth : 0;
+        filter.year = selectedYear;
+        filter.status = toStatusFilter(selectedStatus);
+        filter.keyword = txtSearch.getText().trim();
+        showInvoices(filter, true);
 
-        // Filter by month/year
-        if (selectedMonth == 0) {
-            // All months of selected year
-            invoices = invoiceDAO.getAllInvoices();
-            invoices.removeIf(inv -> inv.getYear() != selectedYear);
-        } else {
-            invoices = invoiceDAO.getInvoicesByMonth(selectedMonth, selectedYear);
+        updateStatistics();
+    }
+
+    /**
+     * Trạng thái trong combo -> giá trị cột status (null = tất cả trừ đã hủy)
+     */
+    private static String toStatusFilter(String selectedStatus) {
+        if (selectedStatus == null) {
+            return null;
+        }
+        switch (selectedStatus) {
+            case "Chưa thanh toán":
+                return "UNPAID";
+            case "Đã thanh toán":
+                return "PAID";
+            case "Đã hủy":
+                return "CANCELED";
+            default:
+                return null;
         }
+    }
 
-        // Filter by status
-        if (!"Tất cả".equals(selectedStatus)) {
-            String statusFilter;
-            switch (selectedStatus) {
-                case "Đã thanh toán":
-                    statusFilter = "PAID";
-                    break;
-                case "Đã hủy":
-                    statusFilter = "CANCELED";
-                    break;
-                default:
-                    statusFilter = "UNPAID";
+    private void showInvoices(InvoiceListViewDAO.InvoicePageFilter filter, boolean notifyEmpty) {
+        filter.sort = currentSort;
+        currentFilter = filter;
+        tableModel.reload(createPageSource(filter), rowCount -> {
+            onInvoiceSelected();
+            if (notifyEmpty && rowCount == 0) {
+                JOptionPane.showMessageDialog(this,
+                        "Không tìm thấy hóa đơn nào!",
+                        "Thông báo",
+                        JOptionPane.INFORMATION_MESSAGE);
             }
-            invoices.removeIf(inv -> !statusFilter.equals(inv.getStatus()));
-        }
+        });
+    }
 
-        // Filter by search text
-        if (!searchText.isEmpty()) {
-            invoices.removeIf(inv -> {
-                Contract contract = contractDAO.getContractById(inv.getContractId());
-                if (contract == null) {
-                    return true;
-                }
+    private PagedTableModel.PageSource<InvoiceListViewModel, InvoiceListViewDAO.InvoicePageKey> createPageSource(
+            InvoiceListViewDAO.InvoicePageFilter filter) {
+        return new PagedTableModel.PageSource<InvoiceListViewModel, InvoiceListViewDAO.InvoicePageKey>() {
+            @Override
+            public int count() {
+                return invoiceListViewDAO.countInvoices(filter);
+            }
 
-                Apartment apt = apartmentDAO.getApartmentById(contract.getApartmentId());
-                Resident res = residentDAO.getResidentById(contract.getResidentId());
+            @Override
+            public List<InvoiceListViewModel> fetchAfter(InvoiceListViewDAO.InvoicePageKey afterKey, int limit) {
+                return invoiceListViewDAO.getInvoicesPage(filter, afterKey, limit);
+            }
 
-                String aptNumber = apt != null ? apt.getRoomNumber().toLowerCase() : "";
-                String resName = res != null ? res.getFullName().toLowerCase() : "";
-                String contractNum = contract.getContractNumber() != null
-                        ? contract.getContractNumber().toLowerCase() : "";
+            @Override
+            public List<InvoiceListViewModel> fetchAt(int offset, int limit) {
+                return invoiceListViewDAO.getInvoicesPageAt(filter, offset, limit);
+            }
 
-                return !aptNumber.contains(searchText)
-                        && !resName.contains(searchText)
-                        && !contractNum.contains(searchText);
-            });
-        }
+            @Override
+            public InvoiceListViewDAO.InvoicePageKey keyOf(InvoiceListViewModel item) {
+                return InvoiceListViewDAO.InvoicePageKey.of(item);
+            }
+        };
+    }
 
-        for (Invoice invoice : invoices) {
-            addInvoiceToTable(invoice);
+    /**
+     * Đổi thứ tự theo cột được bấm, tải lại danh sách với bộ lọc hiện tại
+     */
+    private void changeSort(int column) {
+        InvoiceListViewDAO.InvoiceSort sort;
+        if (column == COL_AMOUNT) {
+            sort = currentSort == InvoiceListViewDAO.InvoiceSort.AMOUNT_DESC
+                    ? InvoiceListViewDAO.InvoiceSort.AMOUNT_ASC
+                    : InvoiceListViewDAO.InvoiceSort.AMOUNT_DESC;
+        } else {
+            sort = currentSort == InvoiceListViewDAO.InvoiceSort.PERIOD_DESC
+                    ? InvoiceListViewDAO.InvoiceSort.PERIOD_ASC
+                    : InvoiceListViewDAO.InvoiceSort.PERIOD_DESC;
         }
+        currentSort = sort;
+        updateSortHeaders();
+        showInvoices(currentFilter, false);
+    }
 
-        if (tableModel.getRowCount() == 0) {
-            JOptionPane.showMessageDialog(this,
-                    "Không tìm thấy hóa đơn nào!",
-                    "Thông báo",
-                    JOptionPane.INFORMATION_MESSAGE);
+    private void updateSortHeaders() {
+        TableColumnModel colModel = invoiceTable.getColumnModel();
+        String periodArrow = "";
+        String amountArrow = "";
+        switch (currentSort) {
+            case PERIOD_DESC:
+                periodArrow = " ▼";
+                break;
+            case PERIOD_ASC:
+                periodArrow = " ▲";
+                break;
+            case AMOUNT_DESC:
+                amountArrow = " ▼";
+                break;
+            default:
+                amountArrow = " ▲";
         }
+        colModel.getColumn(COL_PERIOD).setHeaderValue(tableModel.getColumnName(COL_PERIOD) + periodArrow);
+        colModel.getColumn(COL_AMOUNT).setHeaderValue(tableModel.getColumnName(COL_AMOUNT) + amountArrow);
+        invoiceTable.getTableHeader().repaint();
+    }
 
+    /**
+     * ===== THAY ĐỔI TỪ MÁY KHÁC (change_log) =====
+     * Đọc lại số dòng và các trang đang giữ trong bộ nhớ (vài trăm dòng), không tải lại cả danh sách.
+     */
+    private void onRemoteChanges(ChangeLogPoller.ChangeSet changes) {
+        if (!changes.contains(ChangeLogDAO.INVOICE)) {
+            return;
+        }
+        // Đang tải lại: PagedTableModel xếp refresh chạy sau lần tải đó (không bỏ thay đổi)
+        // selectedInvoice được đọc lúc chọn dòng -> đọc lại để nút Thanh toán / Hủy đúng trạng thái
+        tableModel.refresh(this::onInvoiceSelected);
         updateStatistics();
     }
 
     private void updateStatistics() {
-        List<Invoice> allInvoices = invoiceDAO.getAllInvoices();
+        lblTotalInvoices.setText("...");
+        lblUnpaidInvoices.setText("...");
+        lblTotalRevenue.setText("...");
+        statisticsLoader.load(() -> {
+            // Bảng tổng hợp doanh thu theo kỳ (monthly_revenue_summary), toàn hệ thống
+            DashboardDAO.DashboardSummary summary = dashboardDAO.getSummary(null);
+            if (summary != null) {
+                return new InvoiceStatistics(summary.paidInvoices + summary.unpaidInvoices,
+                        summary.unpaidInvoices, summary.totalRevenue);
+            }
+            // Chưa có bảng tổng hợp (chưa chạy migration V6): tính từ bảng invoices
+            return InvoiceStatistics.of(invoiceDAO.getAllInvoices());
+        }, this::showStatistics);
+    }
+
+    /**
+     * Số liệu 3 thẻ thống kê (hóa đơn đã hủy không tính)
+     */
+    private static class InvoiceStatistics {
+
+        final long totalCount;
+        final long unpaidCount;
+        final BigDecimal totalRevenue;
+
+        InvoiceStatistics(long totalCount, long unpaidCount, BigDecimal totalRevenue) {
+            this.totalCount = totalCount;
+            this.unpaidCount = unpaidCount;
+            this.totalRevenue = totalRevenue;
+        }
 
-        long totalCount = allInvoices.stream()
-                .filter(inv -> !"CANCELED".equals(inv.getStatus()))
-                .count();
+        static InvoiceStatistics of(List<Invoice> allInvoices) {
+            long totalCount = allInvoices.stream()
+                    .filter(inv -> !"CANCELED".equals(inv.getStatus()))
+                    .count();
 
-        long unpaidCount = allInvoices.stream()
-                .filter(inv -> "UNPAID".equals(inv.getStatus()))
-                .count();
+            long unpaidCount = allInvoices.stream()
+                    .filter(inv -> "UNPAID".equals(inv.getStatus()))
+                    .count();
 
-        BigDecimal totalRevenue = allInvoices.stream()
-                .filter(inv -> "PAID".equals(inv.getStatus()))
-                .map(Invoice::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal totalRevenue = allInvoices.stream()
+                    .filter(inv -> "PAID".equals(inv.getStatus()))
+                    .map(Invoice::getTotalAmount)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
 
-        lblTotalInvoices.setText(String.valueOf(totalCount));
-        lblUnpaidInvoices.setText(String.valueOf(unpaidCount));
-        lblTotalRevenue.setText(moneyFormat.format(totalRevenue) + " VNĐ");
+            return new InvoiceStatistics(totalCount, unpaidCount, totalRevenue);
+        }
+    }
+
+    private void showStatistics(InvoiceStatistics stats) {
+        lblTotalInvoices.setText(String.valueOf(stats.totalCount));
+        lblUnpaidInvoices.setText(String.valueOf(stats.unpaidCount));
+        lblTotalRevenue.setText(moneyFormat.format(stats.totalRevenue) + " VNĐ");
     }
 
     /**
@@ -695,10 +815,15 @@ public class InvoiceManagementPanel extends JPanel {
             return;
         }
 
-        int modelRow = invoiceTable.convertRowIndexToModel(viewRow);
-        Long invoiceId = (Long) tableModel.getValueAt(modelRow, 0);
-
-        selectedInvoice = invoiceDAO.getInvoiceById(invoiceId);
+        Long invoiceId = (Long) tableModel.getValueAt(viewRow, 0);
+        selectedInvoice = invoiceId != null ? invoiceDAO.getInvoiceById(invoiceId) : null;
+        if (selectedInvoice == null) {
+            // Dòng chưa tải xong hoặc hóa đơn vừa bị xóa
+            btnView.setEnabled(false);
+            btnPay.setEnabled(false);
+            btnCancel.setEnabled(false);
+            return;
+        }
 
         btnView.setEnabled(true);
         btnCancel.setEnabled(true);
@@ -723,6 +848,117 @@ public class InvoiceManagementPanel extends JPanel {
         }
     }
 
+    /**
+     * Tạo hóa đơn cho tất cả hợp đồng ACTIVE của tháng/năm đang chọn (tòa nhà đang chọn nếu có)
+     */
+    private void runBillingForPeriod() {
+        Integer month = (Integer) monthCombo.getSelectedItem();
+        Integer year = (Integer) yearCombo.getSelectedItem();
+        if (month == null || month == 0 || year == null) {
+            JOptionPane.showMessageDialog(this,
+                    "Vui lòng chọn tháng cụ thể để tạo hóa đơn!",
+                    "Cảnh báo",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        Long buildingId = BuildingContext.getInstance().getCurrentBuildingId();
+        String scope = buildingId != null
+                ? "tòa nhà " + BuildingContext.getInstance().getCurrentBuilding().getName()
+                : "tất cả tòa nhà";
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+                String.format("Tạo hóa đơn tháng %d/%d cho tất cả hợp đồng đang hiệu lực (%s)?\n\n"
+                        + "Hợp đồng đã có hóa đơn trong kỳ sẽ được bỏ qua.", month, year, scope),
+                "Xác nhận tạo hóa đơn cả kỳ",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.QUESTION_MESSAGE);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        btnBillingRun.setEnabled(false);
+        billingRunLoader.load(
+                () -> new BillingRunService().run(month, year, buildingId),
+                result -> {
+                    btnBillingRun.setEnabled(true);
+                    loadInvoices();
+                    updateStatistics();
+                    JOptionPane.showMessageDialog(this,
+                            String.format("Đã tạo %d hóa đơn (tổng %s VNĐ)\n"
+                                    + "Bỏ qua: %d đã có hóa đơn, %d ngoài kỳ hợp đồng, %d không có khoản thu\n"
+                                    + "Lỗi: %d\n\nThời gian: %.1f giây (%.0f hợp đồng/giây)",
+                                    result.created, moneyFormat.format(result.totalAmount),
+                                    result.skippedAlreadyBilled, result.skippedOutOfPeriod, result.skippedEmpty,
+                                    result.failed, result.getTotalMillis() / 1000.0, result.getContractsPerSecond()),
+                            "Kết quả tạo hóa đơn",
+                            result.failed == 0 ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+                },
+                ex -> {
+                    btnBillingRun.setEnabled(true);
+                    ex.printStackTrace();
+                    JOptionPane.showMessageDialog(this,
+                            "Tạo hóa đơn thất bại: " + ex.getMessage(),
+                            "Lỗi",
+                            JOptionPane.ERROR_MESSAGE);
+                });
+    }
+
+    private void importMeterReadings() {
+        Integer month = (Integer) monthCombo.getSelectedItem();
+        Integer year = (Integer) yearCombo.getSelectedItem();
+        if (month == null || month == 0 || year == null) {
+            JOptionPane.showMessageDialog(this,
+                    "Vui lòng chọn tháng cụ thể để nhập chỉ số!",
+                    "Cảnh báo",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle(String.format("Nhập Chỉ Số Tháng %d/%d", month, year));
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV / Excel (*.csv, *.xlsx)", "csv", "xlsx"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        java.nio.file.Path file = fileChooser.getSelectedFile().toPath();
+
+        btnImportReadings.setEnabled(false);
+        importReadingsLoader.load(
+                () -> new MeterReadingImporter().importFile(file, month, year),
+                result -> {
+                    btnImportReadings.setEnabled(true);
+                    StringBuilder message = new StringBuilder(String.format(
+                            "Đã nhập %d / %d chỉ số tháng %d/%d\n"
+                                    + "Bỏ qua: %d dòng không hợp lệ, lỗi ghi: %d\n\nThời gian: %.1f giây (%.0f dòng/giây)",
+                            result.imported, result.totalRows, month, year, result.rejected, result.failed,
+                            result.getTotalMillis() / 1000.0, result.getRowsPerSecond()));
+                    int shown = Math.min(10, result.errors.size());
+                    if (shown > 0) {
+                        message.append("\n\nChi tiết:");
+                        for (int i = 0; i < shown; i++) {
+                            message.append("\n• ").append(result.errors.get(i));
+                        }
+                        if (result.rejected + result.failed > shown) {
+                            message.append("\n...");
+                        }
+                    }
+                    JOptionPane.showMessageDialog(this,
+                            message.toString(),
+                            "Kết quả nhập chỉ số",
+                            result.rejected + result.failed == 0
+                                    ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+                },
+                ex -> {
+                    btnImportReadings.setEnabled(true);
+                    ex.printStackTrace();
+                    JOptionPane.showMessageDialog(this,
+                            "Nhập chỉ số thất bại: " + ex.getMessage(),
+                            "Lỗi",
+                            JOptionPane.ERROR_MESSAGE);
+                });
+    }
+
     private void viewInvoiceDetail() {
         if (selectedInvoice == null) {
             JOptionPane.showMessageDialog(this,
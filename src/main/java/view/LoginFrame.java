@@ -1,5 +1,6 @@
 package view;
 
+import connection.SchemaMigrator;
 import dao.UserDAO;
 import model.User;
 import util.SessionManager;
@@ -486,6 +487,9 @@ public class LoginFrame extends JFrame {
     }
     
     public static void main(String[] args) {
+        // Cập nhật schema (index, bảng mới...) trước khi mở giao diện
+        SchemaMigrator.migrate();
+        
         SwingUtilities.invokeLater(() -> new LoginFrame());
     }
 }
\ No newline at end of file
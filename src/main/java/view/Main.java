@@ -1,5 +1,6 @@
 package view;
 
+import connection.SchemaMigrator;
 import javax.swing.*;
 
 /**
@@ -16,6 +17,9 @@ public class Main {
             e.printStackTrace();
         }
         
+        // Apply pending schema migrations
+        SchemaMigrator.migrate();
+        
         // Start with login screen
         SwingUtilities.invokeLater(() -> {
             new LoginFrame();
@@ -12,6 +12,7 @@ import model.Building;
 import model.Floor;
 import model.User;
 import util.SessionManager;
+import util.ChangeLogPoller;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -50,6 +51,9 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
         createContentArea();
         testDatabaseConnection();
 
+        // Nhận thay đổi từ các máy khác (change_log) để làm mới cache + màn hình đang mở
+        ChangeLogPoller.getInstance().start();
+
         showDashboardPanel();
     }
 
@@ -589,6 +593,7 @@ public class MainDashboard extends JFrame implements DashboardNavigator {
     private void performLogout() {
         if (JOptionPane.showConfirmDialog(this, "Bạn có chắc chắn muốn đăng xuất?", "Xác Nhận", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
             SessionManager.getInstance().logout();
+            ChangeLogPoller.getInstance().stop();
             SwingUtilities.invokeLater(() -> {
                 new LoginFrame();
                 dispose();
@@ -2,9 +2,12 @@ package view;
 
 import dao.*;
 import model.*;
+import util.AsyncLoader;
 import util.UIConstants;
 import util.ModernButton;
 import util.ReportExportService;
+import util.ExportJob;
+import util.ExportJobManager;
 
 import javax.swing.*;
 import javax.swing.border.*;
@@ -16,6 +19,7 @@ import java.math.BigDecimal;
 import java.text.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 // JFreeChart imports
 import org.jfree.chart.*;
@@ -50,6 +54,19 @@ public class ReportPanel extends JPanel {
     private JComboBox<Integer> fromMonthCombo;
     private JComboBox<Integer> toMonthCombo;
     
+    // Chart datasets (cập nhật mỗi lần load báo cáo doanh thu)
+    private DefaultCategoryDataset revenueLineDataset = new DefaultCategoryDataset();
+    private DefaultCategoryDataset revenueBarDataset = new DefaultCategoryDataset();
+    private DefaultPieDataset serviceRevenueDataset = new DefaultPieDataset();
+    private DefaultPieDataset invoiceStatusDataset = new DefaultPieDataset();
+    private JPanel occupancyPanel;
+    
+    // Mỗi báo cáo tải ở background, lần "Cập Nhật" mới hủy lần tải cũ
+    private final AsyncLoader revenueLoader = new AsyncLoader("ReportPanel.revenue", this);
+    private final AsyncLoader debtLoader = new AsyncLoader("ReportPanel.invoiceDebt", this);
+    private final AsyncLoader serviceLoader = new AsyncLoader("ReportPanel.service", this);
+    private final AsyncLoader apartmentLoader = new AsyncLoader("ReportPanel.apartmentContract", this);
+    
     // Formatters
     private NumberFormat currencyFormat;
     private DecimalFormat numberFormat;
@@ -228,22 +245,12 @@ public class ReportPanel extends JPanel {
     }
     
     private ChartPanel createRevenueLineChart() {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        
-        int year = (Integer) yearCombo.getSelectedItem();
-        int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
-        int toMonth = (Integer) toMonthCombo.getSelectedItem();
-        
-        for (int month = fromMonth; month <= toMonth; month++) {
-            BigDecimal revenue = invoiceDAO.getMonthlyRevenue(month, year);
-            dataset.addValue(revenue.doubleValue() / 1000000.0, "Doanh Thu", "T" + month);
-        }
-        
+        // Dữ liệu được đổ vào trong loadRevenueReport()
         JFreeChart chart = ChartFactory.createLineChart(
             null,
             "Tháng",
             "Doanh Thu (Triệu VNĐ)",
-            dataset,
+            revenueLineDataset,
             PlotOrientation.VERTICAL,
             false,
             true,
@@ -256,22 +263,12 @@ public class ReportPanel extends JPanel {
     }
     
     private ChartPanel createRevenueBarChart() {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        
-        int year = (Integer) yearCombo.getSelectedItem();
-        int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
-        int toMonth = (Integer) toMonthCombo.getSelectedItem();
-        
-        for (int month = fromMonth; month <= toMonth; month++) {
-            BigDecimal revenue = invoiceDAO.getMonthlyRevenue(month, year);
-            dataset.addValue(revenue.doubleValue() / 1000000.0, "Doanh Thu", "T" + month);
-        }
-        
+        // Dữ liệu được đổ vào trong loadRevenueReport()
         JFreeChart chart = ChartFactory.createBarChart(
             null,
             "Tháng",
             "Doanh Thu (Triệu VNĐ)",
-            dataset,
+            revenueBarDataset,
             PlotOrientation.VERTICAL,
             false,
             true,
@@ -344,27 +341,10 @@ public class ReportPanel extends JPanel {
     }
     
     private ChartPanel createInvoiceStatusDonutChart() {
-        DefaultPieDataset dataset = new DefaultPieDataset();
-        
-        int year = (Integer) yearCombo.getSelectedItem();
-        List<Invoice> allInvoices = new ArrayList<>();
-        
-        int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
-        int toMonth = (Integer) toMonthCombo.getSelectedItem();
-        
-        for (int month = fromMonth; month <= toMonth; month++) {
-            allInvoices.addAll(invoiceDAO.getInvoicesByMonth(month, year));
-        }
-        
-        long paid = allInvoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
-        long unpaid = allInvoices.stream().filter(i -> "UNPAID".equals(i.getStatus())).count();
-        
-        dataset.setValue("Đã Thanh Toán", paid);
-        dataset.setValue("Chưa Thanh Toán", unpaid);
-        
+        // Dữ liệu được đổ vào trong loadInvoiceDebtReport()
         JFreeChart chart = ChartFactory.createPieChart(
             null,
-            dataset,
+            invoiceStatusDataset,
             true,
             true,
             false
@@ -433,19 +413,10 @@ public class ReportPanel extends JPanel {
     }
     
     private ChartPanel createServiceRevenuePieChart() {
-        DefaultPieDataset dataset = new DefaultPieDataset();
-        
-        // Lấy dữ liệu từ invoice_details
-        int year = (Integer) yearCombo.getSelectedItem();
-        Map<String, BigDecimal> serviceRevenue = getServiceRevenue(year);
-        
-        for (Map.Entry<String, BigDecimal> entry : serviceRevenue.entrySet()) {
-            dataset.setValue(entry.getKey(), entry.getValue());
-        }
-        
+        // Dữ liệu được đổ vào trong loadServiceReport()
         JFreeChart chart = ChartFactory.createPieChart(
             null,
-            dataset,
+            serviceRevenueDataset,
             true,
             true,
             false
@@ -509,45 +480,45 @@ public class ReportPanel extends JPanel {
     }
     
     private JPanel createOccupancyProgressPanel() {
-        JPanel panel = new JPanel();
-        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
-        panel.setBackground(Color.WHITE);
-        panel.setBorder(createChartBorder("Tỷ Lệ Lấp Đầy Theo Tòa"));
+        occupancyPanel = new JPanel();
+        occupancyPanel.setLayout(new BoxLayout(occupancyPanel, BoxLayout.Y_AXIS));
+        occupancyPanel.setBackground(Color.WHITE);
+        occupancyPanel.setBorder(createChartBorder("Tỷ Lệ Lấp Đầy Theo Tòa"));
         
-        List<Building> buildings = buildingDAO.getAllBuildings();
+        // Các dòng tiến độ được tạo trong loadApartmentContractReport()
+        return occupancyPanel;
+    }
+    
+    private void updateOccupancyPanel(List<OccupancyRow> rows) {
+        occupancyPanel.removeAll();
         
-        for (Building building : buildings) {
-            List<Apartment> apartments = apartmentDAO.getApartmentsByBuildingId(building.getId());
-            int total = apartments.size();
-            int rented = (int) apartments.stream().filter(a -> "RENTED".equals(a.getStatus())).count();
+        for (OccupancyRow row : rows) {
+            double percent = (row.rented * 100.0) / row.total;
             
-            if (total > 0) {
-                double percent = (rented * 100.0) / total;
-                
-                JPanel rowPanel = new JPanel(new BorderLayout(10, 0));
-                rowPanel.setBackground(Color.WHITE);
-                rowPanel.setBorder(new EmptyBorder(10, 15, 10, 15));
-                rowPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 50));
-                
-                JLabel nameLabel = new JLabel(building.getName());
-                nameLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
-                nameLabel.setPreferredSize(new Dimension(150, 30));
-                
-                JProgressBar progressBar = new JProgressBar(0, 100);
-                progressBar.setValue((int) percent);
-                progressBar.setStringPainted(true);
-                progressBar.setString(String.format("%d/%d (%.1f%%)", rented, total, percent));
-                progressBar.setFont(new Font("Segoe UI", Font.BOLD, 12));
-                progressBar.setForeground(percent > 80 ? COLOR_SUCCESS : (percent > 50 ? COLOR_WARNING : COLOR_DANGER));
-                
-                rowPanel.add(nameLabel, BorderLayout.WEST);
-                rowPanel.add(progressBar, BorderLayout.CENTER);
-                
-                panel.add(rowPanel);
-            }
+            JPanel rowPanel = new JPanel(new BorderLayout(10, 0));
+            rowPanel.setBackground(Color.WHITE);
+            rowPanel.setBorder(new EmptyBorder(10, 15, 10, 15));
+            rowPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 50));
+            
+            JLabel nameLabel = new JLabel(row.buildingName);
+            nameLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+            nameLabel.setPreferredSize(new Dimension(150, 30));
+            
+            JProgressBar progressBar = new JProgressBar(0, 100);
+            progressBar.setValue((int) percent);
+            progressBar.setStringPainted(true);
+            progressBar.setString(String.format("%d/%d (%.1f%%)", row.rented, row.total, percent));
+            progressBar.setFont(new Font("Segoe UI", Font.BOLD, 12));
+            progressBar.setForeground(percent > 80 ? COLOR_SUCCESS : (percent > 50 ? COLOR_WARNING : COLOR_DANGER));
+            
+            rowPanel.add(nameLabel, BorderLayout.WEST);
+            rowPanel.add(progressBar, BorderLayout.CENTER);
+            
+            occupancyPanel.add(rowPanel);
         }
         
-        return panel;
+        occupancyPanel.revalidate();
+        occupancyPanel.repaint();
     }
     
     private JScrollPane createContractStatusTable() {
@@ -613,6 +584,13 @@ public class ReportPanel extends JPanel {
         gbc.gridx = 0; gbc.gridy = 2; gbc.gridwidth = 2;
         panel.add(info, gbc);
         
+        // Export history
+        ModernButton btnHistory = new ModernButton("🕘 Lịch sử xuất", COLOR_PRIMARY);
+        btnHistory.addActionListener(e ->
+            new ExportHistoryDialog(SwingUtilities.getWindowAncestor(this)).setVisible(true));
+        gbc.gridy = 3; gbc.fill = GridBagConstraints.NONE;
+        panel.add(btnHistory, gbc);
+        
         return panel;
     }
     
@@ -698,22 +676,41 @@ public class ReportPanel extends JPanel {
         int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
         int toMonth = (Integer) toMonthCombo.getSelectedItem();
         
+        // 1 query cho cả kỳ báo cáo (mở rộng thêm tháng trước nếu cần cho thẻ "Tháng Trước")
+        int queryFromMonth = Math.max(1, Math.min(fromMonth, toMonth - 1));
+        revenueLoader.load(
+            () -> invoiceDAO.getRevenueSeries(year, queryFromMonth, toMonth),
+            rows -> showRevenueReport(year, fromMonth, toMonth, rows)
+        );
+    }
+    
+    private void showRevenueReport(int year, int fromMonth, int toMonth, List<InvoiceDAO.MonthlyRevenue> rows) {
+        Map<Integer, InvoiceDAO.MonthlyRevenue> byMonth = new HashMap<>();
+        for (InvoiceDAO.MonthlyRevenue row : rows) {
+            byMonth.put(row.month, row);
+        }
+        
+        List<InvoiceDAO.MonthlyRevenue> series = new ArrayList<>();
+        for (int month = fromMonth; month <= toMonth; month++) {
+            series.add(byMonth.get(month));
+        }
+        
         // Calculate stats
         BigDecimal totalRevenue = BigDecimal.ZERO;
-        BigDecimal thisMonthRevenue = invoiceDAO.getMonthlyRevenue(toMonth, year);
-        BigDecimal lastMonthRevenue = toMonth > 1 ? 
-            invoiceDAO.getMonthlyRevenue(toMonth - 1, year) : BigDecimal.ZERO;
+        BigDecimal thisMonthRevenue = byMonth.containsKey(toMonth) ?
+            byMonth.get(toMonth).paidAmount : BigDecimal.ZERO;
+        BigDecimal lastMonthRevenue = toMonth > 1 && byMonth.containsKey(toMonth - 1) ?
+            byMonth.get(toMonth - 1).paidAmount : BigDecimal.ZERO;
         
         BigDecimal topMonthRevenue = BigDecimal.ZERO;
         int topMonth = fromMonth;
         
-        for (int month = fromMonth; month <= toMonth; month++) {
-            BigDecimal revenue = invoiceDAO.getMonthlyRevenue(month, year);
-            totalRevenue = totalRevenue.add(revenue);
+        for (InvoiceDAO.MonthlyRevenue row : series) {
+            totalRevenue = totalRevenue.add(row.paidAmount);
             
-            if (revenue.compareTo(topMonthRevenue) > 0) {
-                topMonthRevenue = revenue;
-                topMonth = month;
+            if (row.paidAmount.compareTo(topMonthRevenue) > 0) {
+                topMonthRevenue = row.paidAmount;
+                topMonth = row.month;
             }
         }
         
@@ -723,34 +720,41 @@ public class ReportPanel extends JPanel {
         updateStatCard("last_month", formatMoney(lastMonthRevenue));
         updateStatCard("top_month", "T" + topMonth + ": " + formatMoney(topMonthRevenue));
         
+        // Update charts
+        updateRevenueCharts(series);
+        
         // Update table
-        updateRevenueTable(year, fromMonth, toMonth, totalRevenue);
+        updateRevenueTable(year, series, totalRevenue);
     }
     
-    private void updateRevenueTable(int year, int fromMonth, int toMonth, BigDecimal totalRevenue) {
+    private void updateRevenueCharts(List<InvoiceDAO.MonthlyRevenue> series) {
+        revenueLineDataset.clear();
+        revenueBarDataset.clear();
+        
+        for (InvoiceDAO.MonthlyRevenue row : series) {
+            double millions = row.paidAmount.doubleValue() / 1000000.0;
+            revenueLineDataset.addValue(millions, "Doanh Thu", "T" + row.month);
+            revenueBarDataset.addValue(millions, "Doanh Thu", "T" + row.month);
+        }
+    }
+    
+    private void updateRevenueTable(int year, List<InvoiceDAO.MonthlyRevenue> series, BigDecimal totalRevenue) {
         JTable table = findTableByName("revenue_table");
         if (table == null) return;
         
         DefaultTableModel model = (DefaultTableModel) table.getModel();
         model.setRowCount(0);
         
-        for (int month = fromMonth; month <= toMonth; month++) {
-            List<Invoice> invoices = invoiceDAO.getInvoicesByMonth(month, year);
-            
-            int totalInvoices = invoices.size();
-            long paidCount = invoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
-            long unpaidCount = totalInvoices - paidCount;
-            
-            BigDecimal revenue = invoiceDAO.getMonthlyRevenue(month, year);
+        for (InvoiceDAO.MonthlyRevenue row : series) {
             double percent = totalRevenue.compareTo(BigDecimal.ZERO) > 0 ?
-                (revenue.doubleValue() / totalRevenue.doubleValue() * 100) : 0;
+                (row.paidAmount.doubleValue() / totalRevenue.doubleValue() * 100) : 0;
             
             model.addRow(new Object[]{
-                "Tháng " + month + "/" + year,
-                totalInvoices,
-                paidCount,
-                unpaidCount,
-                formatMoney(revenue),
+                "Tháng " + row.month + "/" + year,
+                row.totalInvoices,
+                row.paidCount,
+                row.unpaidCount,
+                formatMoney(row.paidAmount),
                 String.format("%.1f%%", percent)
             });
         }
@@ -761,11 +765,18 @@ public class ReportPanel extends JPanel {
         int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
         int toMonth = (Integer) toMonthCombo.getSelectedItem();
         
-        List<Invoice> allInvoices = new ArrayList<>();
-        for (int month = fromMonth; month <= toMonth; month++) {
-            allInvoices.addAll(invoiceDAO.getInvoicesByMonth(month, year));
-        }
-        
+        debtLoader.load(() -> {
+            DebtReport report = new DebtReport();
+            for (int month = fromMonth; month <= toMonth; month++) {
+                report.invoices.addAll(invoiceDAO.getInvoicesByMonth(month, year));
+            }
+            report.debtRows = buildDebtRows(report.invoices);
+            return report;
+        }, this::showInvoiceDebtReport);
+    }
+    
+    private void showInvoiceDebtReport(DebtReport report) {
+        List<Invoice> allInvoices = report.invoices;
         long paid = allInvoices.stream().filter(i -> "PAID".equals(i.getStatus())).count();
         long unpaid = allInvoices.stream().filter(i -> "UNPAID".equals(i.getStatus())).count();
         
@@ -774,15 +785,25 @@ public class ReportPanel extends JPanel {
         updateStatCard("unpaid_invoices", String.valueOf(unpaid));
         updateStatCard("overdue_invoices", "0"); // TODO: Calculate overdue
         
-        updateDebtTable(allInvoices);
-    }
-    
-    private void updateDebtTable(List<Invoice> unpaidInvoices) {
+        invoiceStatusDataset.clear();
+        invoiceStatusDataset.setValue("Đã Thanh Toán", paid);
+        invoiceStatusDataset.setValue("Chưa Thanh Toán", unpaid);
+        
         JTable table = findTableByName("debt_table");
         if (table == null) return;
         
         DefaultTableModel model = (DefaultTableModel) table.getModel();
         model.setRowCount(0);
+        for (Object[] row : report.debtRows) {
+            model.addRow(row);
+        }
+    }
+    
+    /**
+     * Dòng bảng công nợ (chạy ở background vì cần tra cứu hợp đồng / căn hộ / cư dân)
+     */
+    private List<Object[]> buildDebtRows(List<Invoice> unpaidInvoices) {
+        List<Object[]> rows = new ArrayList<>();
         
         // Group by contract
         Map<Long, List<Invoice>> debtByContract = new HashMap<>();
@@ -804,18 +825,38 @@ public class ReportPanel extends JPanel {
                 .map(Invoice::getTotalAmount)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
             
-            model.addRow(new Object[]{
+            rows.add(new Object[]{
                 apt != null ? apt.getRoomNumber() : "N/A",
                 res != null ? res.getFullName() : "N/A",
                 formatMoney(totalDebt),
                 entry.getValue().size()
             });
         }
+        return rows;
+    }
+    
+    private static class DebtReport {
+        List<Invoice> invoices = new ArrayList<>();
+        List<Object[]> debtRows = new ArrayList<>();
     }
     
     private void loadServiceReport() {
         int year = (Integer) yearCombo.getSelectedItem();
-        Map<String, BigDecimal> serviceRevenue = getServiceRevenue(year);
+        int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
+        int toMonth = (Integer) toMonthCombo.getSelectedItem();
+        
+        // Tổng hợp theo dịch vụ bằng 1 query GROUP BY (tất cả tòa nhà)
+        serviceLoader.load(
+            () -> invoiceDAO.getServiceRevenueBreakdown(year, fromMonth, toMonth, null),
+            this::showServiceReport
+        );
+    }
+    
+    private void showServiceReport(Map<String, BigDecimal> serviceRevenue) {
+        serviceRevenueDataset.clear();
+        for (Map.Entry<String, BigDecimal> entry : serviceRevenue.entrySet()) {
+            serviceRevenueDataset.setValue(entry.getKey(), entry.getValue());
+        }
         
         BigDecimal total = serviceRevenue.values().stream()
             .reduce(BigDecimal.ZERO, BigDecimal::add);
@@ -838,65 +879,93 @@ public class ReportPanel extends JPanel {
         }
     }
     
-    private Map<String, BigDecimal> getServiceRevenue(int year) {
-        Map<String, BigDecimal> result = new HashMap<>();
-        
-        // Get all invoices of year
-        List<Invoice> invoices = new ArrayList<>();
-        for (int month = 1; month <= 12; month++) {
-            invoices.addAll(invoiceDAO.getInvoicesByMonth(month, year));
-        }
-        
-        // Get invoice details and group by service
-        for (Invoice invoice : invoices) {
-            if (!"PAID".equals(invoice.getStatus())) continue;
+    private void loadApartmentContractReport() {
+        apartmentLoader.load(() -> {
+            ApartmentContractReport report = new ApartmentContractReport();
+            report.totalApartments = apartmentDAO.countApartments();
+            report.rentedApartments = apartmentDAO.countRentedApartments();
+            report.availableApartments = apartmentDAO.countAvailableApartments();
             
-            List<InvoiceDetail> details = invoiceDAO.getInvoiceDetails(invoice.getId());
-            for (InvoiceDetail detail : details) {
-                String serviceName = detail.getServiceName();
-                BigDecimal amount = detail.getAmount();
-                
-                result.merge(serviceName, amount, BigDecimal::add);
+            for (Building building : buildingDAO.getAllBuildings()) {
+                List<Apartment> apartments = apartmentDAO.getApartmentsByBuildingId(building.getId());
+                int total = apartments.size();
+                if (total > 0) {
+                    int rented = (int) apartments.stream().filter(a -> "RENTED".equals(a.getStatus())).count();
+                    report.occupancy.add(new OccupancyRow(building.getName(), rented, total));
+                }
             }
-        }
-        
-        return result;
+            
+            report.activeContracts = contractDAO.countContractsByStatus("ACTIVE");
+            report.expiredContracts = contractDAO.countContractsByStatus("EXPIRED");
+            report.expiringContracts = contractDAO.countExpiringContracts(30);
+            return report;
+        }, this::showApartmentContractReport);
     }
     
-    private void loadApartmentContractReport() {
-        int totalApt = apartmentDAO.countApartments();
-        int rented = apartmentDAO.countRentedApartments();
-        int available = apartmentDAO.countAvailableApartments();
+    private void showApartmentContractReport(ApartmentContractReport report) {
+        int totalApt = report.totalApartments;
+        int rented = report.rentedApartments;
         double rate = totalApt > 0 ? (rented * 100.0 / totalApt) : 0;
         
         updateStatCard("total_apartments", String.valueOf(totalApt));
         updateStatCard("rented_apartments", String.valueOf(rented));
-        updateStatCard("available_apartments", String.valueOf(available));
+        updateStatCard("available_apartments", String.valueOf(report.availableApartments));
         updateStatCard("occupancy_rate", String.format("%.1f%%", rate));
         
-        updateContractStatusTable();
+        updateOccupancyPanel(report.occupancy);
+        updateContractStatusTable(report);
     }
     
-    private void updateContractStatusTable() {
+    private void updateContractStatusTable(ApartmentContractReport report) {
         JTable table = findTableByName("contract_status_table");
         if (table == null) return;
         
         DefaultTableModel model = (DefaultTableModel) table.getModel();
         model.setRowCount(0);
         
-        int active = contractDAO.countContractsByStatus("ACTIVE");
-        int expired = contractDAO.countContractsByStatus("EXPIRED");
-        List<Contract> expiring = contractDAO.getExpiringContracts(30);
-        
-        model.addRow(new Object[]{"Đang hiệu lực", active, "Hợp đồng đang hoạt động"});
-        model.addRow(new Object[]{"Sắp hết hạn", expiring.size(), "Còn <= 30 ngày"});
-        model.addRow(new Object[]{"Đã hết hạn", expired, "Cần gia hạn hoặc kết thúc"});
+        model.addRow(new Object[]{"Đang hiệu lực", report.activeContracts, "Hợp đồng đang hoạt động"});
+        model.addRow(new Object[]{"Sắp hết hạn", report.expiringContracts, "Còn <= 30 ngày"});
+        model.addRow(new Object[]{"Đã hết hạn", report.expiredContracts, "Cần gia hạn hoặc kết thúc"});
+    }
+    
+    private static class OccupancyRow {
+        final String buildingName;
+        final int rented;
+        final int total;
+        
+        OccupancyRow(String buildingName, int rented, int total) {
+            this.buildingName = buildingName;
+            this.rented = rented;
+            this.total = total;
+        }
+    }
+    
+    private static class ApartmentContractReport {
+        int totalApartments;
+        int rentedApartments;
+        int availableApartments;
+        List<OccupancyRow> occupancy = new ArrayList<>();
+        int activeContracts;
+        int expiredContracts;
+        int expiringContracts;
     }
     
     /**
      * ===== EXPORT FUNCTIONS =====
      */
     private void exportToExcel() {
+        int year = (Integer) yearCombo.getSelectedItem();
+        int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
+        int toMonth = (Integer) toMonthCombo.getSelectedItem();
+
+        // Cùng kỳ báo cáo đang xuất -> mở lại tiến độ, không xuất lần hai
+        ExportJob running = ExportJobManager.getInstance()
+            .findActive(ReportExportService.excelJobKey(year, fromMonth, toMonth));
+        if (running != null) {
+            showExportProgress(running, "Excel");
+            return;
+        }
+
         // File chooser
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Xuất Báo Cáo Excel");
@@ -914,80 +983,28 @@ public class ReportPanel extends JPanel {
                 filepath += ".xlsx";
             }
             
-            // Show progress
-            JDialog progressDialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), 
-                "Đang xuất Excel...", true);
-            JProgressBar progressBar = new JProgressBar();
-            progressBar.setIndeterminate(true);
-            progressDialog.add(progressBar);
-            progressDialog.setSize(300, 100);
-            progressDialog.setLocationRelativeTo(this);
-            
-            // Export in background thread
-            final String finalPath = filepath;
-            SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
-                @Override
-                protected Boolean doInBackground() throws Exception {
-                    int year = (Integer) yearCombo.getSelectedItem();
-                    int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
-                    int toMonth = (Integer) toMonthCombo.getSelectedItem();
-                    
-                    ReportExportService exportService = new ReportExportService();
-                    return exportService.exportToExcel(finalPath, year, fromMonth, toMonth);
-                }
-                
-                @Override
-                protected void done() {
-                    progressDialog.dispose();
-                    try {
-                        boolean success = get();
-                        if (success) {
-                            int choice = JOptionPane.showConfirmDialog(
-                                ReportPanel.this,
-                                "Xuất Excel thành công!\n\nBạn có muốn mở file không?",
-                                "Thành công",
-                                JOptionPane.YES_NO_OPTION,
-                                JOptionPane.INFORMATION_MESSAGE
-                            );
-                            
-                            if (choice == JOptionPane.YES_OPTION) {
-                                try {
-                                    Desktop.getDesktop().open(new File(finalPath));
-                                } catch (Exception e) {
-                                    JOptionPane.showMessageDialog(
-                                        ReportPanel.this,
-                                        "Không thể mở file. Vui lòng mở thủ công:\n" + finalPath,
-                                        "Thông báo",
-                                        JOptionPane.INFORMATION_MESSAGE
-                                    );
-                                }
-                            }
-                        } else {
-                            JOptionPane.showMessageDialog(
-                                ReportPanel.this,
-                                "Xuất Excel thất bại!",
-                                "Lỗi",
-                                JOptionPane.ERROR_MESSAGE
-                            );
-                        }
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        JOptionPane.showMessageDialog(
-                            ReportPanel.this,
-                            "Lỗi: " + e.getMessage(),
-                            "Lỗi",
-                            JOptionPane.ERROR_MESSAGE
-                        );
-                    }
-                }
-            };
-            
-            worker.execute();
-            progressDialog.setVisible(true);
+            try {
+                ExportJob job = new ReportExportService()
+                    .submitExcelExport(new File(filepath), year, fromMonth, toMonth);
+                showExportProgress(job, "Excel");
+            } catch (RejectedExecutionException e) {
+                showExportQueueFull();
+            }
         }
     }
     
     private void exportToPDF() {
+        int year = (Integer) yearCombo.getSelectedItem();
+        int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
+        int toMonth = (Integer) toMonthCombo.getSelectedItem();
+
+        ExportJob running = ExportJobManager.getInstance()
+            .findActive(ReportExportService.pdfJobKey(year, fromMonth, toMonth));
+        if (running != null) {
+            showExportProgress(running, "PDF");
+            return;
+        }
+
         // File chooser
         JFileChooser fileChooser = new JFileChooser();
         fileChooser.setDialogTitle("Xuất Báo Cáo PDF");
@@ -1005,79 +1022,76 @@ public class ReportPanel extends JPanel {
                 filepath += ".pdf";
             }
             
-            // Show progress
-            JDialog progressDialog = new JDialog((Frame) SwingUtilities.getWindowAncestor(this), 
-                "Đang xuất PDF...", true);
-            JProgressBar progressBar = new JProgressBar();
-            progressBar.setIndeterminate(true);
-            progressDialog.add(progressBar);
-            progressDialog.setSize(300, 100);
-            progressDialog.setLocationRelativeTo(this);
-            
-            // Export in background thread
-            final String finalPath = filepath;
-            SwingWorker<Boolean, Void> worker = new SwingWorker<Boolean, Void>() {
-                @Override
-                protected Boolean doInBackground() throws Exception {
-                    int year = (Integer) yearCombo.getSelectedItem();
-                    int fromMonth = (Integer) fromMonthCombo.getSelectedItem();
-                    int toMonth = (Integer) toMonthCombo.getSelectedItem();
-                    
-                    ReportExportService exportService = new ReportExportService();
-                    return exportService.exportToPDF(finalPath, year, fromMonth, toMonth);
-                }
+            try {
+                ExportJob job = new ReportExportService()
+                    .submitPdfExport(new File(filepath), year, fromMonth, toMonth);
+                showExportProgress(job, "PDF");
+            } catch (RejectedExecutionException e) {
+                showExportQueueFull();
+            }
+        }
+    }
+    
+    /**
+     * Hộp thoại tiến độ (không modal) - người dùng có thể "Chạy nền" và tiếp tục làm việc,
+     * thông báo kết quả hiện khi job xong
+     */
+    private void showExportProgress(ExportJob job, String format) {
+        ExportProgressDialog.showFor(SwingUtilities.getWindowAncestor(this), job,
+            finished -> onExportFinished(finished, format));
+    }
+    
+    private void onExportFinished(ExportJob job, String format) {
+        switch (job.getStatus()) {
+            case COMPLETED:
+                int choice = JOptionPane.showConfirmDialog(
+                    ReportPanel.this,
+                    "Xuất " + format + " thành công!\n\nBạn có muốn mở file không?",
+                    "Thành công",
+                    JOptionPane.YES_NO_OPTION,
+                    JOptionPane.INFORMATION_MESSAGE
+                );
                 
-                @Override
-                protected void done() {
-                    progressDialog.dispose();
+                if (choice == JOptionPane.YES_OPTION) {
                     try {
-                        boolean success = get();
-                        if (success) {
-                            int choice = JOptionPane.showConfirmDialog(
-                                ReportPanel.this,
-                                "Xuất PDF thành công!\n\nBạn có muốn mở file không?",
-                                "Thành công",
-                                JOptionPane.YES_NO_OPTION,
-                                JOptionPane.INFORMATION_MESSAGE
-                            );
-                            
-                            if (choice == JOptionPane.YES_OPTION) {
-                                try {
-                                    Desktop.getDesktop().open(new File(finalPath));
-                                } catch (Exception e) {
-                                    JOptionPane.showMessageDialog(
-                                        ReportPanel.this,
-                                        "Không thể mở file. Vui lòng mở thủ công:\n" + finalPath,
-                                        "Thông báo",
-                                        JOptionPane.INFORMATION_MESSAGE
-                                    );
-                                }
-                            }
-                        } else {
-                            JOptionPane.showMessageDialog(
-                                ReportPanel.this,
-                                "Xuất PDF thất bại!",
-                                "Lỗi",
-                                JOptionPane.ERROR_MESSAGE
-                            );
-                        }
+                        Desktop.getDesktop().open(job.getFile());
                     } catch (Exception e) {
-                        e.printStackTrace();
                         JOptionPane.showMessageDialog(
                             ReportPanel.this,
-                            "Lỗi: " + e.getMessage(),
-                            "Lỗi",
-                            JOptionPane.ERROR_MESSAGE
+                            "Không thể mở file. Vui lòng mở thủ công:\n" + job.getFile().getAbsolutePath(),
+                            "Thông báo",
+                            JOptionPane.INFORMATION_MESSAGE
                         );
                     }
                 }
-            };
-            
-            worker.execute();
-            progressDialog.setVisible(true);
+                break;
+            case CANCELLED:
+                JOptionPane.showMessageDialog(
+                    ReportPanel.this,
+                    "Đã hủy xuất " + format + ".",
+                    "Thông báo",
+                    JOptionPane.INFORMATION_MESSAGE
+                );
+                break;
+            default:
+                JOptionPane.showMessageDialog(
+                    ReportPanel.this,
+                    "Xuất " + format + " thất bại!" + (job.getError() != null ? "\n" + job.getError() : ""),
+                    "Lỗi",
+                    JOptionPane.ERROR_MESSAGE
+                );
         }
     }
     
+    private void showExportQueueFull() {
+        JOptionPane.showMessageDialog(
+            this,
+            "Đang có quá nhiều báo cáo chờ xuất.\nVui lòng thử lại sau khi các báo cáo hiện tại hoàn tất.",
+            "Hàng đợi đầy",
+            JOptionPane.WARNING_MESSAGE
+        );
+    }
+    
     /**
      * ===== UTILITIES =====
      */
@@ -4,18 +4,28 @@ import dao.ContractHouseholdViewDAO;
 import dao.FloorDAO;
 import dao.ApartmentDAO;
 import dao.BuildingDAO;
+import dao.ResidentViewDAO;
 
 import model.ContractHouseholdViewModel;
 import model.Building;
 import model.Floor;
 import model.Apartment;
 import model.Resident;
+import model.ResidentViewModel;
+import search.HouseholdFilterEngine;
+import util.AsyncLoader;
 import util.BuildingContext;
+import util.ExportJob;
+import util.ExportJobManager;
+import util.ExportProgress;
+import util.PagedTableModel;
 import util.PermissionManager;
 import util.UIConstants;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
@@ -25,7 +35,6 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.text.SimpleDateFormat;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Resident Management Panel
@@ -38,6 +47,7 @@ public class ResidentManagementPanel extends JPanel
     private FloorDAO floorDAO;
     private ApartmentDAO apartmentDAO;
     private BuildingDAO buildingDAO;
+    private ResidentViewDAO residentViewDAO;
     private PermissionManager permissionManager;
    
     
@@ -48,6 +58,15 @@ public class ResidentManagementPanel extends JPanel
     private JTable contractTable;
     private DefaultTableModel tableModel;
     private JTextField searchField;
+    private JScrollPane tableScrollPane;
+    
+    // ✅ Xem theo từng cư dân: bảng phân trang (COUNT + trang đầu 1 lần UNION ALL, trang sau theo keyset)
+    private static final int RESIDENT_PAGE_SIZE = 100;
+    private static final int RESIDENT_PAGE_CACHE_SIZE = 8;
+    private JTable residentTable;
+    private PagedTableModel<ResidentViewModel, ResidentViewDAO.ResidentPageKey> residentTableModel;
+    private JRadioButton rbViewHouseholds;
+    private JRadioButton rbViewResidents;
     
     // Filter components
     private JComboBox<BuildingDisplay> buildingFilterCombo;
@@ -73,6 +92,19 @@ public class ResidentManagementPanel extends JPanel
     private List<Floor> floors;
     private List<Apartment> apartments;
     
+    // Bộ lọc trong bộ nhớ (tra tầng / phòng + thu hẹp dần theo từ khóa)
+    private HouseholdFilterEngine filterEngine;
+    // Danh sách đang hiển thị trên bảng (dòng i của bảng = phần tử i)
+    private List<ContractHouseholdViewModel> displayedContracts = java.util.Collections.emptyList();
+    
+    // Gõ tìm kiếm: chỉ lọc khi ngừng gõ SEARCH_DEBOUNCE_MS
+    private static final int SEARCH_DEBOUNCE_MS = 150;
+    private Timer searchDebounceTimer;
+    
+    // Danh sách tòa nhà / dữ liệu hộ của tòa nhà đọc ở background
+    private final AsyncLoader buildingLoader = new AsyncLoader("ResidentManagementPanel.buildings", this);
+    private final AsyncLoader householdLoader = new AsyncLoader("ResidentManagementPanel.households", this);
+    
     private SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
     
     // Flag to prevent infinite loop
@@ -83,6 +115,7 @@ public class ResidentManagementPanel extends JPanel
         this.floorDAO = new FloorDAO();
         this.apartmentDAO = new ApartmentDAO();
         this.buildingDAO = new BuildingDAO();
+        this.residentViewDAO = new ResidentViewDAO();
         
         this.buildingContext = BuildingContext.getInstance();
         
@@ -289,6 +322,15 @@ public class ResidentManagementPanel extends JPanel
     
     searchField.addActionListener(e -> applyFilters());
     
+    // Lọc theo từng phím gõ (debounce)
+    searchDebounceTimer = new Timer(SEARCH_DEBOUNCE_MS, e -> applyFilters());
+    searchDebounceTimer.setRepeats(false);
+    searchField.getDocument().addDocumentListener(new DocumentListener() {
+        public void insertUpdate(DocumentEvent e) { searchDebounceTimer.restart(); }
+        public void removeUpdate(DocumentEvent e) { searchDebounceTimer.restart(); }
+        public void changedUpdate(DocumentEvent e) { searchDebounceTimer.restart(); }
+    });
+    
     JButton searchBtn = createModernButton("🔍 Tìm", new Color(33, 150, 243));
     searchBtn.setPreferredSize(new Dimension(100, 42));
     searchBtn.addActionListener(e -> applyFilters());
@@ -432,6 +474,25 @@ public class ResidentManagementPanel extends JPanel
         row2.add(Box.createHorizontalStrut(15));
         row2.add(rbShowAll);
 
+        // ✅ Xem theo hộ gia đình / từng cư dân (chủ hộ + thành viên)
+        JLabel viewLabel = new JLabel("👤 Xem theo:");
+        viewLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        viewLabel.setForeground(new Color(66, 66, 66));
+
+        ButtonGroup viewButtonGroup = new ButtonGroup();
+        rbViewHouseholds = createViewRadioButton("Hộ gia đình");
+        rbViewResidents = createViewRadioButton("Cư dân");
+        viewButtonGroup.add(rbViewHouseholds);
+        viewButtonGroup.add(rbViewResidents);
+        rbViewHouseholds.setSelected(true);
+
+        row2.add(Box.createHorizontalStrut(40));
+        row2.add(viewLabel);
+        row2.add(Box.createHorizontalStrut(15));
+        row2.add(rbViewHouseholds);
+        row2.add(Box.createHorizontalStrut(15));
+        row2.add(rbViewResidents);
+
         mainFilterPanel.add(row1);
         mainFilterPanel.add(Box.createVerticalStrut(12));
         mainFilterPanel.add(row2);
@@ -450,6 +511,17 @@ public class ResidentManagementPanel extends JPanel
         return radioButton;
     }
 
+    private JRadioButton createViewRadioButton(String text) {
+        JRadioButton radioButton = new JRadioButton(text);
+        radioButton.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        radioButton.setForeground(new Color(66, 66, 66));
+        radioButton.setBackground(Color.WHITE);
+        radioButton.setFocusPainted(false);
+        radioButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        radioButton.addActionListener(e -> onViewModeChanged());
+        return radioButton;
+    }
+
     private JCheckBox createStatusCheckbox(String text, Color color, boolean selected) {
         JCheckBox checkbox = new JCheckBox(text);
         checkbox.setSelected(selected);
@@ -502,35 +574,7 @@ public class ResidentManagementPanel extends JPanel
         }
         
         // Status column renderer
-        contractTable.getColumnModel().getColumn(6).setCellRenderer(new DefaultTableCellRenderer() {
-            @Override
-            public Component getTableCellRendererComponent(JTable table, Object value,
-                    boolean isSelected, boolean hasFocus, int row, int column) {
-                Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-                
-                String status = (String) value;
-                JLabel label = (JLabel) c;
-                label.setOpaque(true);
-                label.setHorizontalAlignment(SwingConstants.CENTER);
-                label.setFont(new Font("Segoe UI", Font.BOLD, 12));
-                
-                if ("Đang ở".equals(status)) {
-                    if (!isSelected) {
-                        label.setBackground(new Color(232, 245, 233));
-                        label.setForeground(new Color(46, 125, 50));
-                    }
-                    label.setText("● Đang ở");
-                } else {
-                    if (!isSelected) {
-                        label.setBackground(new Color(250, 250, 250));
-                        label.setForeground(new Color(158, 158, 158));
-                    }
-                    label.setText("○ Đã chuyển");
-                }
-                
-                return label;
-            }
-        });
+        contractTable.getColumnModel().getColumn(6).setCellRenderer(new StatusCellRenderer());
         
         // Button renderer and editor for "Thao tác" column
         contractTable.getColumnModel().getColumn(7).setCellRenderer(new ButtonRenderer());
@@ -546,6 +590,8 @@ public class ResidentManagementPanel extends JPanel
         // Center align header
         ((DefaultTableCellRenderer) header.getDefaultRenderer()).setHorizontalAlignment(SwingConstants.CENTER);
         
+        createResidentTable();
+        
         // Column widths
         contractTable.getColumnModel().getColumn(0).setPreferredWidth(100);  // Căn hộ
         contractTable.getColumnModel().getColumn(1).setPreferredWidth(120);  // Tầng
@@ -556,15 +602,103 @@ public class ResidentManagementPanel extends JPanel
         contractTable.getColumnModel().getColumn(6).setPreferredWidth(120);  // Trạng thái
         contractTable.getColumnModel().getColumn(7).setPreferredWidth(130);  // Thao tác
         
-        JScrollPane scrollPane = new JScrollPane(contractTable);
-        scrollPane.setBorder(null);
-        scrollPane.getViewport().setBackground(Color.WHITE);
+        tableScrollPane = new JScrollPane(contractTable);
+        tableScrollPane.setBorder(null);
+        tableScrollPane.getViewport().setBackground(Color.WHITE);
         
-        tablePanel.add(scrollPane, BorderLayout.CENTER);
+        tablePanel.add(tableScrollPane, BorderLayout.CENTER);
         
         return tablePanel;
     }
     
+    /**
+     * Bảng "Xem theo cư dân": PagedTableModel, chỉ trang đang nhìn thấy được đọc từ DB
+     */
+    private void createResidentTable() {
+        String[] columns = {"Căn hộ", "Tầng", "Họ tên", "Vai trò", "Quan hệ", "SĐT", "CCCD", "Trạng thái"};
+        Class<?>[] columnClasses = {
+            String.class, String.class, String.class, String.class,
+            String.class, String.class, String.class, String.class
+        };
+        
+        residentTableModel = new PagedTableModel<>("ResidentManagementPanel.residents", columns, columnClasses,
+                this::buildResidentRow, RESIDENT_PAGE_SIZE, RESIDENT_PAGE_CACHE_SIZE, this);
+        
+        residentTable = new JTable(residentTableModel);
+        residentTable.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        residentTable.setRowHeight(50);
+        residentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        residentTable.setShowGrid(false);
+        residentTable.setIntercellSpacing(new Dimension(0, 0));
+        residentTable.setSelectionBackground(new Color(232, 245, 253));
+        residentTable.setSelectionForeground(new Color(33, 33, 33));
+        
+        DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
+        centerRenderer.setHorizontalAlignment(SwingConstants.CENTER);
+        for (int i = 0; i < residentTable.getColumnCount() - 1; i++) {
+            residentTable.getColumnModel().getColumn(i).setCellRenderer(centerRenderer);
+        }
+        residentTable.getColumnModel().getColumn(7).setCellRenderer(new StatusCellRenderer());
+        
+        JTableHeader header = residentTable.getTableHeader();
+        header.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        header.setBackground(new Color(250, 250, 250));
+        header.setForeground(new Color(66, 66, 66));
+        header.setBorder(BorderFactory.createMatteBorder(0, 0, 1, 0, new Color(224, 224, 224)));
+        header.setPreferredSize(new Dimension(header.getWidth(), 45));
+        header.setReorderingAllowed(false);
+        ((DefaultTableCellRenderer) header.getDefaultRenderer()).setHorizontalAlignment(SwingConstants.CENTER);
+    }
+    
+    private Object[] buildResidentRow(ResidentViewModel resident) {
+        return new Object[] {
+            resident.getApartmentNumber(),
+            resident.getFloorName() != null ? resident.getFloorName() : "",
+            resident.getFullName(),
+            resident.getRole(),
+            resident.getRelationship() != null ? resident.getRelationship() : "",
+            resident.getPhone() != null ? resident.getPhone() : "",
+            resident.getIdentityCard() != null ? resident.getIdentityCard() : "",
+            resident.getResidencyStatus()
+        };
+    }
+    
+    /**
+     * Renderer cột Trạng thái (dùng chung 2 bảng)
+     */
+    private static class StatusCellRenderer extends DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value,
+                boolean isSelected, boolean hasFocus, int row, int column) {
+            Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            
+            String status = (String) value;
+            JLabel label = (JLabel) c;
+            label.setOpaque(true);
+            label.setHorizontalAlignment(SwingConstants.CENTER);
+            label.setFont(new Font("Segoe UI", Font.BOLD, 12));
+            
+            if (status == null) {
+                // Dòng của trang chưa tải xong
+                label.setText("");
+            } else if ("Đang ở".equals(status)) {
+                if (!isSelected) {
+                    label.setBackground(new Color(232, 245, 233));
+                    label.setForeground(new Color(46, 125, 50));
+                }
+                label.setText("● Đang ở");
+            } else {
+                if (!isSelected) {
+                    label.setBackground(new Color(250, 250, 250));
+                    label.setForeground(new Color(158, 158, 158));
+                }
+                label.setText("○ Đã chuyển");
+            }
+            
+            return label;
+        }
+    }
+    
     /**
      * Inner class for Building display in combo box
      */
@@ -690,20 +824,20 @@ public class ResidentManagementPanel extends JPanel
     removeAll();
     add(contentPanel, BorderLayout.CENTER);
     
-    // Load all buildings for filter
-    loadBuildingsFilter();
-    
-    // If has context, select that building in filter
-    if (buildingContext.hasBuildingContext()) {
-        Building building = buildingContext.getCurrentBuilding();
-        selectBuildingInFilter(building.getId());
-    } else {
-        // ✅ FIX: Auto-select first building and load data
-        if (buildingFilterCombo.getItemCount() > 0) {
-            buildingFilterCombo.setSelectedIndex(0);
-            loadInitialData(); // ← THÊM DÒNG NÀY
+    // Load all buildings for filter (background), chọn tòa nhà khi đã có danh sách
+    loadBuildingsFilter(() -> {
+        // If has context, select that building in filter
+        if (buildingContext.hasBuildingContext()) {
+            Building building = buildingContext.getCurrentBuilding();
+            selectBuildingInFilter(building.getId());
+        } else {
+            // ✅ FIX: Auto-select first building and load data
+            if (buildingFilterCombo.getItemCount() > 0) {
+                buildingFilterCombo.setSelectedIndex(0);
+                loadInitialData(); // ← THÊM DÒNG NÀY
+            }
         }
-    }
+    });
     
     revalidate();
     repaint();
@@ -711,8 +845,12 @@ public class ResidentManagementPanel extends JPanel
 
     
     private void loadInitialData() {
+        // Ô tìm kiếm vừa được đặt lại -> không lọc thêm lần nữa sau debounce
+        searchDebounceTimer.stop();
         BuildingDisplay selected = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
         if (selected == null) {
+            householdLoader.cancel();
+            residentTableModel.cancel();
             tableModel.setRowCount(0);
             countLabel.setText("📋 Vui lòng chọn tòa nhà");
             contextLabel.setText("");
@@ -722,14 +860,36 @@ public class ResidentManagementPanel extends JPanel
         Long buildingId = selected.building.getId();
         contextLabel.setText("📍 " + selected.building.getName());
         
+        // Dữ liệu tòa nhà cũ không còn đúng trong lúc chờ
+        allContracts = null;
+        filterEngine = null;
+        displayedContracts = java.util.Collections.emptyList();
+        tableModel.setRowCount(0);
+        countLabel.setText("⏳ Đang tải dữ liệu...");
+        
+        // Xem theo cư dân: trang đầu hiện ngay, không chờ danh sách hộ của cả tòa nhà
+        if (isResidentView()) {
+            showResidents();
+        }
+        
+        householdLoader.load(() -> {
+            // Hợp đồng + tầng + căn hộ (cả tòa nhà, 1 lần), bảng tra phòng / tầng dựng ở background
+            List<ContractHouseholdViewModel> contracts = contractHouseholdDAO.getContractsByBuilding(buildingId);
+            List<Floor> buildingFloors = floorDAO.getFloorsByBuildingId(buildingId);
+            List<Apartment> buildingApartments = apartmentDAO.getApartmentsByBuildingId(buildingId);
+            return new HouseholdLoadResult(contracts, buildingFloors, buildingApartments,
+                    new HouseholdFilterEngine(contracts, buildingApartments));
+        }, this::showHouseholds);
+    }
+    
+    private void showHouseholds(HouseholdLoadResult result) {
         isUpdatingCombos = true;
         
         try {
-            // Load all contracts
-            allContracts = contractHouseholdDAO.getContractsByBuilding(buildingId);
-            
-            // Load floors
-            floors = floorDAO.getFloorsByBuildingId(buildingId);
+            allContracts = result.contracts;
+            floors = result.floors;
+            apartments = result.apartments;
+            filterEngine = result.filterEngine;
             
             // Populate floor filter
             floorFilterCombo.removeAllItems();
@@ -739,7 +899,6 @@ public class ResidentManagementPanel extends JPanel
                 floorFilterCombo.addItem(floorName);
             }
             
-            // Load apartments
             loadApartmentsForFloor(null);
             
         } finally {
@@ -747,32 +906,58 @@ public class ResidentManagementPanel extends JPanel
         }
         
         // ✅ FIX: Gọi applyFilters thay vì hiển thị tất cả
-        applyFilters();
+        // (xem theo cư dân: bảng phân trang đã tự tải, bảng hộ lọc khi chuyển lại)
+        if (!isResidentView()) {
+            applyFilters();
+        }
+    }
+    
+    // Kết quả load ở background cho một tòa nhà
+    private static class HouseholdLoadResult {
+        final List<ContractHouseholdViewModel> contracts;
+        final List<Floor> floors;
+        final List<Apartment> apartments;
+        final HouseholdFilterEngine filterEngine;
+        
+        HouseholdLoadResult(List<ContractHouseholdViewModel> contracts, List<Floor> floors,
+                            List<Apartment> apartments, HouseholdFilterEngine filterEngine) {
+            this.contracts = contracts;
+            this.floors = floors;
+            this.apartments = apartments;
+            this.filterEngine = filterEngine;
+        }
     }
     
     /**
-     * Load all buildings into filter dropdown
+     * Load all buildings into filter dropdown (background)
+     *
+     * @param onLoaded chạy trên EDT sau khi dropdown đã có danh sách
      */
-    private void loadBuildingsFilter() {
-        isUpdatingCombos = true;
+    private void loadBuildingsFilter(Runnable onLoaded) {
+        countLabel.setText("⏳ Đang tải dữ liệu...");
         
-        try {
-            buildingFilterCombo.removeAllItems();
+        buildingLoader.load(buildingDAO::getAllBuildings, buildings -> {
+            isUpdatingCombos = true;
             
-            List<Building> buildings = buildingDAO.getAllBuildings();
-            for (Building building : buildings) {
-                buildingFilterCombo.addItem(new BuildingDisplay(building));
+            try {
+                buildingFilterCombo.removeAllItems();
+                
+                for (Building building : buildings) {
+                    buildingFilterCombo.addItem(new BuildingDisplay(building));
+                }
+                
+                // If no buildings, show message
+                if (buildings.isEmpty()) {
+                    tableModel.setRowCount(0);
+                    countLabel.setText("📋 Không có tòa nhà nào");
+                    contextLabel.setText("");
+                }
+            } finally {
+                isUpdatingCombos = false;
             }
             
-            // If no buildings, show message
-            if (buildings.isEmpty()) {
-                tableModel.setRowCount(0);
-                countLabel.setText("📋 Không có tòa nhà nào");
-                contextLabel.setText("");
-            }
-        } finally {
-            isUpdatingCombos = false;
-        }
+            onLoaded.run();
+        });
     }
     
     /**
@@ -832,22 +1017,23 @@ public class ResidentManagementPanel extends JPanel
     }
     
     private void onFloorFilterChanged() {
+        loadApartmentsForFloor(getSelectedFloorId());
+        applyFilters();
+    }
+    
+    /**
+     * @return id tầng đang chọn, null nếu "Tất cả"
+     */
+    private Long getSelectedFloorId() {
         String selectedFloor = (String) floorFilterCombo.getSelectedItem();
-        
-        if ("Tất cả".equals(selectedFloor)) {
-            loadApartmentsForFloor(null);
-        } else {
-            Floor floor = floors.stream()
-                .filter(f -> selectedFloor.equals(getFloorDisplayName(f)))
-                .findFirst()
-                .orElse(null);
-            
-            if (floor != null) {
-                loadApartmentsForFloor(floor.getId());
-            }
+        if (selectedFloor == null || "Tất cả".equals(selectedFloor) || floors == null) {
+            return null;
         }
-        
-        applyFilters();
+        return floors.stream()
+            .filter(f -> selectedFloor.equals(getFloorDisplayName(f)))
+            .map(Floor::getId)
+            .findFirst()
+            .orElse(null);
     }
     
     private void loadApartmentsForFloor(Long floorId) {
@@ -857,21 +1043,13 @@ public class ResidentManagementPanel extends JPanel
             apartmentFilterCombo.removeAllItems();
             apartmentFilterCombo.addItem("Tất cả");
             
-            BuildingDisplay selected = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
-            if (selected == null) {
+            if (filterEngine == null) {
                 return;
             }
             
-            Long buildingId = selected.building.getId();
-            
-            if (floorId == null) {
-                apartments = apartmentDAO.getApartmentsByBuildingId(buildingId);
-            } else {
-                apartments = apartmentDAO.getApartmentsByFloorId(floorId);
-            }
-            
-            for (Apartment apt : apartments) {
-                apartmentFilterCombo.addItem(apt.getRoomNumber());
+            // Danh sách phòng lấy từ bảng tra tầng → phòng (không query lại DB)
+            for (String roomNumber : filterEngine.getRooms(floorId)) {
+                apartmentFilterCombo.addItem(roomNumber);
             }
         } finally {
             isUpdatingCombos = false;
@@ -879,73 +1057,185 @@ public class ResidentManagementPanel extends JPanel
     }
     
     private void applyFilters() {
-    if (allContracts == null) return;
+    searchDebounceTimer.stop();
+    if (isResidentView()) {
+        showResidents();
+        return;
+    }
+    if (filterEngine == null) return;
     
-    String searchText = searchField.getText().trim().toLowerCase();
-    final String keyword = searchText.equals("tìm theo tên, sđt, căn hộ...") ? "" : searchText;
+    final String keyword = getSearchKeyword();
     
-    final String selectedFloor = (String) floorFilterCombo.getSelectedItem();
     final String selectedApartment = (String) apartmentFilterCombo.getSelectedItem();
+    final String roomNumber = selectedApartment == null || "Tất cả".equals(selectedApartment) ? null : selectedApartment;
+    
+    // Radio button status filter ("Tất cả" → không lọc trạng thái)
+    String residencyStatus = null;
+    if (rbShowLiving.isSelected()) {
+        residencyStatus = "Đang ở";
+    } else if (rbShowMoved.isSelected()) {
+        residencyStatus = "Đã chuyển đi";
+    }
+    
+    displayContracts(filterEngine.filter(getSelectedFloorId(), roomNumber, residencyStatus, keyword));
+}
     
-    List<ContractHouseholdViewModel> filtered = allContracts.stream()
-        .filter(c -> {
-            // ✅ NEW: Radio button status filter
-            String residencyStatus = c.getResidencyStatus();
+    private String getSearchKeyword() {
+        String searchText = searchField.getText().trim();
+        return searchText.equalsIgnoreCase("Tìm theo tên, SĐT, căn hộ...") ? "" : searchText;
+    }
+    
+    private boolean isResidentView() {
+        return rbViewResidents.isSelected();
+    }
+    
+    /**
+     * Đổi bảng Hộ gia đình / Cư dân. Bộ lọc tầng / căn hộ chỉ áp dụng cho bảng hộ.
+     */
+    private void onViewModeChanged() {
+        boolean residentView = isResidentView();
+        floorFilterCombo.setEnabled(!residentView);
+        apartmentFilterCombo.setEnabled(!residentView);
+        tableScrollPane.setViewportView(residentView ? residentTable : contractTable);
+        
+        if (residentView) {
+            showResidents();
+        } else {
+            residentTableModel.cancel();
+            if (filterEngine == null) {
+                // Danh sách hộ chưa về (householdLoader đang chạy) hoặc chưa chọn tòa nhà
+                tableModel.setRowCount(0);
+                countLabel.setText(householdLoader.isLoading() ? "⏳ Đang tải dữ liệu..." : "📋 Vui lòng chọn tòa nhà");
+            } else {
+                applyFilters();
+            }
+        }
+    }
+    
+    /**
+     * Bảng cư dân của tòa nhà đang chọn (chủ hộ + thành viên), chạy nền qua PagedTableModel:
+     * - Không có từ khóa: COUNT + trang đầu (UNION ALL), cuộn tới đâu đọc trang tới đó theo keyset
+     * - Có từ khóa: searchResidents 1 lần (kết quả đã xếp hạng), bảng chia trang trong bộ nhớ
+     */
+    private void showResidents() {
+        BuildingDisplay selected = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
+        if (selected == null) {
+            return;
+        }
+        
+        ResidentViewDAO.ResidencyFilter residency = ResidentViewDAO.ResidencyFilter.ALL;
+        if (rbShowLiving.isSelected()) {
+            residency = ResidentViewDAO.ResidencyFilter.LIVING;
+        } else if (rbShowMoved.isSelected()) {
+            residency = ResidentViewDAO.ResidencyFilter.MOVED;
+        }
+        
+        String keyword = getSearchKeyword();
+        PagedTableModel.PageSource<ResidentViewModel, ResidentViewDAO.ResidentPageKey> source = keyword.isEmpty()
+                ? createResidentPageSource(selected.building.getId(), residency)
+                : new ResidentSearchSource(residentViewDAO, selected.building.getId(), residency, keyword);
+        
+        countLabel.setText("⏳ Đang tải dữ liệu...");
+        residentTableModel.reload(source, rowCount -> {
+            if (keyword.isEmpty()) {
+                countLabel.setText("📋 Tổng số: " + rowCount + " cư dân");
+            } else {
+                countLabel.setText("🔍 Tìm thấy: " + rowCount + " cư dân");
+            }
+        });
+    }
+    
+    private PagedTableModel.PageSource<ResidentViewModel, ResidentViewDAO.ResidentPageKey> createResidentPageSource(
+            Long buildingId, ResidentViewDAO.ResidencyFilter residency) {
+        return new PagedTableModel.PageSource<ResidentViewModel, ResidentViewDAO.ResidentPageKey>() {
+            @Override
+            public int count() {
+                return residentViewDAO.countResidentsByBuilding(buildingId, residency);
+            }
             
-            // Nếu chọn "Tất cả" → không filter status
-            if (rbShowAll.isSelected()) {
-                // Show all - no status filter
-            } else if (rbShowLiving.isSelected()) {
-                if (!"Đang ở".equals(residencyStatus)) {
-                    return false;
-                }
-            } else if (rbShowMoved.isSelected()) {
-                if (!"Đã chuyển đi".equals(residencyStatus)) {
-                    return false;
-                }
+            @Override
+            public List<ResidentViewModel> fetchAfter(ResidentViewDAO.ResidentPageKey afterKey, int limit) {
+                return residentViewDAO.getResidentsPage(buildingId, residency, afterKey, limit);
             }
             
-            // Keyword filter
-            if (!keyword.isEmpty()) {
-                String residentName = c.getResidentFullName() != null ? c.getResidentFullName().toLowerCase() : "";
-                String phone = c.getResidentPhone() != null ? c.getResidentPhone().toLowerCase() : "";
-                String apartment = c.getApartmentNumber() != null ? c.getApartmentNumber().toLowerCase() : "";
-                
-                // ✅ FIX: Lọc tầng an toàn hơn (dựa vào danh sách apartments đã load)
-                if (!"Tất cả".equals(selectedFloor)) {
-                    // Thay vì so sánh chuỗi tên tầng (có thể lỗi nếu DB tên tầng NULL)
-                    // Ta kiểm tra xem căn hộ của hợp đồng này có nằm trong danh sách căn hộ của tầng đang chọn không
-                    if (apartments != null) {
-                        boolean apartmentInFloor = apartments.stream()
-                            .anyMatch(a -> a.getRoomNumber().equals(c.getApartmentNumber()));
-                        if (!apartmentInFloor) return false;
-                    }
-                }
+            @Override
+            public List<ResidentViewModel> fetchAt(int offset, int limit) {
+                return residentViewDAO.getResidentsPageAt(buildingId, residency, offset, limit);
             }
             
-            // Floor filter
-            if (!"Tất cả".equals(selectedFloor)) {
-                String contractFloor = c.getFloorName() != null ? c.getFloorName() : "";
-                if (!selectedFloor.equals(contractFloor)) {
-                    return false;
+            @Override
+            public ResidentViewDAO.ResidentPageKey keyOf(ResidentViewModel item) {
+                return ResidentViewDAO.ResidentPageKey.of(item);
+            }
+        };
+    }
+    
+    /**
+     * Kết quả tìm kiếm cư dân: đọc 1 lần trong count() (chạy nền), các trang cắt từ danh sách đó
+     */
+    private static class ResidentSearchSource
+            implements PagedTableModel.PageSource<ResidentViewModel, ResidentViewDAO.ResidentPageKey> {
+        private final ResidentViewDAO dao;
+        private final Long buildingId;
+        private final ResidentViewDAO.ResidencyFilter residency;
+        private final String keyword;
+        private volatile List<ResidentViewModel> results = java.util.Collections.emptyList();
+        
+        ResidentSearchSource(ResidentViewDAO dao, Long buildingId,
+                             ResidentViewDAO.ResidencyFilter residency, String keyword) {
+            this.dao = dao;
+            this.buildingId = buildingId;
+            this.residency = residency;
+            this.keyword = keyword;
+        }
+        
+        @Override
+        public int count() {
+            List<ResidentViewModel> found = new java.util.ArrayList<>();
+            for (ResidentViewModel vm : dao.searchResidents(buildingId, keyword)) {
+                boolean living = "Đang ở".equals(vm.getResidencyStatus());
+                if (residency == ResidentViewDAO.ResidencyFilter.ALL
+                        || living == (residency == ResidentViewDAO.ResidencyFilter.LIVING)) {
+                    found.add(vm);
                 }
             }
-            
-            // Apartment filter
-            if (!"Tất cả".equals(selectedApartment)) {
-                if (!selectedApartment.equals(c.getApartmentNumber())) {
-                    return false;
+            results = found;
+            return found.size();
+        }
+        
+        @Override
+        public List<ResidentViewModel> fetchAfter(ResidentViewDAO.ResidentPageKey afterKey, int limit) {
+            List<ResidentViewModel> current = results;
+            int start = 0;
+            if (afterKey != null) {
+                while (start < current.size() && !afterKey.equals(keyOf(current.get(start)))) {
+                    start++;
                 }
+                start++;
             }
-            
-            return true;
-        })
-        .collect(Collectors.toList());
-    
-    displayContracts(filtered);
-}
+            return slice(current, start, limit);
+        }
+        
+        @Override
+        public List<ResidentViewModel> fetchAt(int offset, int limit) {
+            return slice(results, offset, limit);
+        }
+        
+        @Override
+        public ResidentViewDAO.ResidentPageKey keyOf(ResidentViewModel item) {
+            return ResidentViewDAO.ResidentPageKey.of(item);
+        }
+        
+        private static List<ResidentViewModel> slice(List<ResidentViewModel> list, int start, int limit) {
+            if (start >= list.size()) {
+                return java.util.Collections.emptyList();
+            }
+            return new java.util.ArrayList<>(list.subList(start, Math.min(list.size(), start + limit)));
+        }
+    }
     
     private void displayContracts(List<ContractHouseholdViewModel> contracts) {
+        displayedContracts = contracts;
         tableModel.setRowCount(0);
         
         for (ContractHouseholdViewModel contract : contracts) {
@@ -995,10 +1285,10 @@ public class ResidentManagementPanel extends JPanel
      * Show household detail dialog
      */
     private void showHouseholdDetail(int row) {
-    // ✅ FIX: Get filtered contracts list
-    List<ContractHouseholdViewModel> filteredContracts = getFilteredContracts();
+    // Dòng của bảng khớp danh sách đang hiển thị
+    List<ContractHouseholdViewModel> filteredContracts = displayedContracts;
     
-    if (row < 0 || filteredContracts == null || row >= filteredContracts.size()) {
+    if (row < 0 || row >= filteredContracts.size()) {
         return;
     }
     
@@ -1008,71 +1298,11 @@ public class ResidentManagementPanel extends JPanel
     HouseholdDetailDialog dialog = new HouseholdDetailDialog(parentFrame, household);
     dialog.setVisible(true);
 }
-
-// ✅ THÊM METHOD MỚI: Helper method to get filtered contracts
-private List<ContractHouseholdViewModel> getFilteredContracts() {
-    if (allContracts == null) return null;
-    
-    String searchText = searchField.getText().trim().toLowerCase();
-    final String keyword = searchText.equals("tìm theo tên, sđt, căn hộ...") ? "" : searchText;
-    
-    final String selectedFloor = (String) floorFilterCombo.getSelectedItem();
-    final String selectedApartment = (String) apartmentFilterCombo.getSelectedItem();
-    
-    return allContracts.stream()
-        .filter(c -> {
-            // ✅ Radio button status filter
-            String residencyStatus = c.getResidencyStatus();
-            
-            if (rbShowAll.isSelected()) {
-                // Show all
-            } else if (rbShowLiving.isSelected()) {
-                if (!"Đang ở".equals(residencyStatus)) {
-                    return false;
-                }
-            } else if (rbShowMoved.isSelected()) {
-                if (!"Đã chuyển đi".equals(residencyStatus)) {
-                    return false;
-                }
-            }
-            
-            // Keyword filter
-            if (!keyword.isEmpty()) {
-                String residentName = c.getResidentFullName() != null ? c.getResidentFullName().toLowerCase() : "";
-                String phone = c.getResidentPhone() != null ? c.getResidentPhone().toLowerCase() : "";
-                String apartment = c.getApartmentNumber() != null ? c.getApartmentNumber().toLowerCase() : "";
-                
-                if (!residentName.contains(keyword) && !phone.contains(keyword) && !apartment.contains(keyword)) {
-                    return false;
-                }
-                // ✅ FIX: Logic lọc tầng tương tự
-                if (!"Tất cả".equals(selectedFloor)) {
-                    if (apartments != null) {
-                        boolean apartmentInFloor = apartments.stream()
-                            .anyMatch(a -> a.getRoomNumber().equals(c.getApartmentNumber()));
-                        if (!apartmentInFloor) return false;
-                    }
-                }
-            }
-            
-            // Apartment filter
-            if (!"Tất cả".equals(selectedApartment)) {
-                if (!selectedApartment.equals(c.getApartmentNumber())) {
-                    return false;
-                }
-            }
-            
-            return true;
-        })
-        .collect(Collectors.toList());
-}
-
-    
    
     private void showStatistics() {
-        if (buildingFilterCombo.getSelectedItem() == null) return;
+        if (buildingFilterCombo.getSelectedItem() == null || allContracts == null) return;
         
-        int totalHouseholds = tableModel.getRowCount();
+        int totalHouseholds = isResidentView() ? allContracts.size() : tableModel.getRowCount();
         int livingCount = 0;
         int movedCount = 0;
         int totalPeople = 0;
@@ -1116,76 +1346,125 @@ private List<ContractHouseholdViewModel> getFilteredContracts() {
             return;
         }
         
-        try {
-            // Create file chooser
-            JFileChooser fileChooser = new JFileChooser();
-            fileChooser.setDialogTitle("Lưu file CSV");
-            fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV Files", "csv"));
+        BuildingDisplay selected = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
+        String buildingName = selected != null ? selected.building.getName().replaceAll("\\s+", "") : "TatCa";
+        String jobKey = "CSV:residents:" + buildingName;
+        
+        // Danh sách của tòa này đang được xuất -> mở lại tiến độ
+        ExportJob running = ExportJobManager.getInstance().findActive(jobKey);
+        if (running != null) {
+            showCsvExportProgress(running);
+            return;
+        }
+        
+        // Create file chooser
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Lưu file CSV");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV Files", "csv"));
+        
+        // Default filename
+        String defaultName = "DanhSachCuDan_" + buildingName + 
+            "_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date()) + ".csv";
+        fileChooser.setSelectedFile(new java.io.File(defaultName));
+        
+        int userSelection = fileChooser.showSaveDialog(this);
+        
+        if (userSelection == JFileChooser.APPROVE_OPTION) {
+            java.io.File selectedFile = fileChooser.getSelectedFile();
             
-            // Default filename
-            BuildingDisplay selected = (BuildingDisplay) buildingFilterCombo.getSelectedItem();
-            String buildingName = selected != null ? selected.building.getName().replaceAll("\\s+", "") : "TatCa";
-            String defaultName = "DanhSachCuDan_" + buildingName + 
-                "_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date()) + ".csv";
-            fileChooser.setSelectedFile(new java.io.File(defaultName));
+            // Ensure .csv extension
+            if (!selectedFile.getName().toLowerCase().endsWith(".csv")) {
+                selectedFile = new java.io.File(selectedFile.getAbsolutePath() + ".csv");
+            }
+            final java.io.File fileToSave = selectedFile;
             
-            int userSelection = fileChooser.showSaveDialog(this);
+            // Snapshot: allContracts có thể bị thay khi panel tải lại trong lúc đang ghi
+            final List<ContractHouseholdViewModel> rows = new java.util.ArrayList<>(allContracts);
             
-            if (userSelection == JFileChooser.APPROVE_OPTION) {
-                java.io.File fileToSave = fileChooser.getSelectedFile();
-                
-                // Ensure .csv extension
-                if (!fileToSave.getName().toLowerCase().endsWith(".csv")) {
-                    fileToSave = new java.io.File(fileToSave.getAbsolutePath() + ".csv");
-                }
-                
-                // Write CSV file with UTF-8 BOM for Excel compatibility
-                try (java.io.OutputStreamWriter writer = new java.io.OutputStreamWriter(
-                        new java.io.FileOutputStream(fileToSave), 
-                        java.nio.charset.StandardCharsets.UTF_8)) {
-                    
-                    // Write UTF-8 BOM
-                    writer.write('\ufeff');
-                    
-                    // Write header
-                    writer.write("Căn hộ,Tầng,Chủ hộ,SĐT,CCCD,Tổng số người,Trạng thái\n");
-                    
-                    // Write data rows
-                    for (ContractHouseholdViewModel contract : allContracts) {
-                        writer.write(String.format("%s,%s,%s,%s,%s,%s,%s\n",
-                            escapeCsv(contract.getApartmentNumber()),
-                            escapeCsv(contract.getFloorName() != null ? contract.getFloorName() : ""),
-                            escapeCsv(contract.getResidentFullName()),
-                            escapeCsv(contract.getResidentPhone() != null ? contract.getResidentPhone() : ""),
-                            escapeCsv(contract.getResidentIdentityCard() != null ? contract.getResidentIdentityCard() : ""),
-                            escapeCsv(contract.getTotalPeopleDisplay()),
-                            escapeCsv(contract.getResidencyStatus())
-                        ));
-                    }
-                }
-                
+            try {
+                ExportJob job = ExportJobManager.getInstance().submit(jobKey,
+                    "Danh sách cư dân " + (selected != null ? selected.building.getName() : ""),
+                    fileToSave,
+                    exportJob -> {
+                        writeResidentsCsv(exportJob.getWorkFile(), rows, exportJob);
+                        return true;
+                    });
+                showCsvExportProgress(job);
+            } catch (java.util.concurrent.RejectedExecutionException ex) {
                 JOptionPane.showMessageDialog(this,
-                    "Xuất CSV thành công!\n" + 
-                    "Đã lưu: " + fileToSave.getAbsolutePath() + "\n\n" +
-                    "File CSV có thể mở bằng Excel.",
-                    "Thành Công",
-                    JOptionPane.INFORMATION_MESSAGE);
-                
-                // Open file location
-                if (Desktop.isDesktopSupported()) {
-                    try {
-                        Desktop.getDesktop().open(fileToSave.getParentFile());
-                    } catch (Exception e) {
-                        // Ignore if cannot open folder
-                    }
-                }
+                    "Đang có quá nhiều báo cáo chờ xuất.\nVui lòng thử lại sau.",
+                    "Hàng đợi đầy",
+                    JOptionPane.WARNING_MESSAGE);
+            }
+        }
+    }
+    
+    /**
+     * Ghi CSV (chạy trên export worker, không đụng tới Swing)
+     */
+    private void writeResidentsCsv(java.io.File fileToSave, List<ContractHouseholdViewModel> rows,
+                                   ExportProgress progress) throws java.io.IOException {
+        progress.setPhase("Đang ghi danh sách cư dân");
+        
+        // Write CSV file with UTF-8 BOM for Excel compatibility
+        try (java.io.Writer writer = new java.io.BufferedWriter(new java.io.OutputStreamWriter(
+                new java.io.FileOutputStream(fileToSave), 
+                java.nio.charset.StandardCharsets.UTF_8))) {
+            
+            // Write UTF-8 BOM
+            writer.write('\ufeff');
+            
+            // Write header
+            writer.write("Căn hộ,Tầng,Chủ hộ,SĐT,CCCD,Tổng số người,Trạng thái\n");
+            
+            // Write data rows
+            for (ContractHouseholdViewModel contract : rows) {
+                progress.checkCancelled();
+                writer.write(String.format("%s,%s,%s,%s,%s,%s,%s\n",
+                    escapeCsv(contract.getApartmentNumber()),
+                    escapeCsv(contract.getFloorName() != null ? contract.getFloorName() : ""),
+                    escapeCsv(contract.getResidentFullName()),
+                    escapeCsv(contract.getResidentPhone() != null ? contract.getResidentPhone() : ""),
+                    escapeCsv(contract.getResidentIdentityCard() != null ? contract.getResidentIdentityCard() : ""),
+                    escapeCsv(contract.getTotalPeopleDisplay()),
+                    escapeCsv(contract.getResidencyStatus())
+                ));
+                progress.addRows(1);
             }
-        } catch (Exception ex) {
-            ex.printStackTrace();
+        }
+    }
+    
+    private void showCsvExportProgress(ExportJob job) {
+        ExportProgressDialog.showFor(SwingUtilities.getWindowAncestor(this), job, this::onCsvExportFinished);
+    }
+    
+    private void onCsvExportFinished(ExportJob job) {
+        if (job.getStatus() == ExportJob.Status.CANCELLED) {
+            return;
+        }
+        if (job.getStatus() != ExportJob.Status.COMPLETED) {
             JOptionPane.showMessageDialog(this,
-                "Xuất file thất bại!\n" + ex.getMessage(),
+                "Xuất file thất bại!\n" + (job.getError() != null ? job.getError() : ""),
                 "Lỗi",
                 JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        java.io.File fileToSave = job.getFile();
+        JOptionPane.showMessageDialog(this,
+            "Xuất CSV thành công!\n" + 
+            "Đã lưu: " + fileToSave.getAbsolutePath() + "\n\n" +
+            "File CSV có thể mở bằng Excel.",
+            "Thành Công",
+            JOptionPane.INFORMATION_MESSAGE);
+        
+        // Open file location
+        if (Desktop.isDesktopSupported()) {
+            try {
+                Desktop.getDesktop().open(fileToSave.getParentFile());
+            } catch (Exception e) {
+                // Ignore if cannot open folder
+            }
         }
     }
     
@@ -0,0 +1,75 @@
+-- =========================
+-- V1: Composite indexes for hot DAO predicates
+-- =========================
+-- data.sql chỉ có PK, FK (MySQL tự tạo index 1 cột cho FK) và uk_contract_service.
+-- Mỗi index bên dưới kèm câu query nóng mà nó phục vụ và câu EXPLAIN để kiểm tra.
+-- Các dòng "Dự đoán trước / sau" là suy luận từ thứ tự cột của index, CHƯA được đối chiếu
+-- với EXPLAIN chạy trên MySQL (không có output EXPLAIN nào được lưu lại): hãy chạy các câu
+-- EXPLAIN này trên dữ liệu thật trước khi dựa vào chúng.
+
+-- -------------------------
+-- invoices: InvoiceDAO.getInvoicesByMonth / getMonthlyRevenue / getRevenueSeries /
+--           countUnpaidInvoicesByMonth / getRevenueByYear, InvoiceListViewDAO.getInvoicesByMonth
+-- -------------------------
+-- year đứng trước month để dùng được cho cả "year = ? AND month = ?" và
+-- "year = ? AND month BETWEEN ? AND ?" (getRevenueSeries); total_amount ở cuối
+-- giúp các phép SUM đọc thẳng từ index (covering), không cần quay lại bảng.
+--
+-- EXPLAIN SELECT SUM(total_amount) FROM invoices
+--   WHERE month = 5 AND year = 2025 AND status = 'PAID' AND is_deleted = 0;
+--   Dự đoán trước: type=ALL, key=NULL, Extra=Using where                (quét toàn bảng)
+--   Dự đoán sau:   type=ref, key=idx_invoices_period, Extra=Using index
+--
+-- EXPLAIN SELECT month, COUNT(*), SUM(CASE WHEN status = 'PAID' THEN total_amount ELSE 0 END)
+--   FROM invoices WHERE year = 2025 AND month BETWEEN 1 AND 12 AND is_deleted = 0 GROUP BY month;
+--   Dự đoán trước: type=ALL, key=NULL, Extra=Using where; Using temporary
+--   Dự đoán sau:   type=range, key=idx_invoices_period, Extra=Using where; Using index
+CREATE INDEX idx_invoices_period ON invoices (year, month, status, is_deleted, total_amount);
+
+-- -------------------------
+-- contracts: ContractDAO.getActiveContractByApartmentId / getActiveContractsByApartment
+-- -------------------------
+-- created_at ở cuối phục vụ "ORDER BY c.created_at DESC LIMIT 1" không cần filesort.
+--
+-- EXPLAIN SELECT c.*, r.full_name FROM contracts c JOIN residents r ON c.resident_id = r.id
+--   WHERE c.apartment_id = 1 AND c.status = 'ACTIVE' AND c.is_deleted = 0
+--   ORDER BY c.created_at DESC LIMIT 1;
+--   Dự đoán trước: c: type=ref, key=apartment_id (FK), Extra=Using where; Using filesort
+--   Dự đoán sau:   c: type=ref, key=idx_contracts_apartment_status, Extra=Using where; Backward index scan
+CREATE INDEX idx_contracts_apartment_status ON contracts (apartment_id, status, is_deleted, created_at);
+
+-- -------------------------
+-- apartments: ApartmentDAO.getApartmentsByFloorId, FloorDAO (đếm căn hộ theo tầng)
+-- -------------------------
+-- EXPLAIN SELECT * FROM apartments WHERE floor_id = 1 AND is_deleted = 0 ORDER BY room_number;
+--   Dự đoán trước: type=ref, key=floor_id (FK), Extra=Using where; Using filesort
+--   Dự đoán sau:   type=ref, key=idx_apartments_floor, Extra=Using index condition
+CREATE INDEX idx_apartments_floor ON apartments (floor_id, is_deleted, room_number);
+
+-- -------------------------
+-- floors: FloorDAO.getFloorsByBuildingId, ApartmentDAO.getApartmentsByBuildingId (JOIN floors)
+-- -------------------------
+-- EXPLAIN SELECT * FROM floors WHERE building_id = 1 AND is_deleted = 0 ORDER BY floor_number;
+--   Dự đoán trước: type=ref, key=building_id (FK), Extra=Using where; Using filesort
+--   Dự đoán sau:   type=ref, key=idx_floors_building, Extra=Using index condition
+CREATE INDEX idx_floors_building ON floors (building_id, is_deleted, floor_number);
+
+-- -------------------------
+-- household_members: HouseholdMemberDAO.getActiveByContractId,
+--                    ContractHouseholdViewDAO (subquery đếm thành viên GROUP BY contract_id)
+-- -------------------------
+-- EXPLAIN SELECT contract_id, COUNT(*), SUM(CASE WHEN is_active = 1 THEN 1 ELSE 0 END)
+--   FROM household_members GROUP BY contract_id;
+--   Dự đoán trước: type=index, key=contract_id (FK), Extra=NULL           (đọc lại từng dòng để lấy is_active)
+--   Dự đoán sau:   type=index, key=idx_household_contract_active, Extra=Using index
+CREATE INDEX idx_household_contract_active ON household_members (contract_id, is_active);
+
+-- -------------------------
+-- contracts.contract_number: ContractDAO.generateContractNumber (LIKE 'HDyyyyMMdd%')
+-- -------------------------
+-- Không tạo index mới: cột đã có UNIQUE index (contract_number) trong data.sql,
+-- LIKE với prefix cố định đã dùng được index đó theo range.
+--
+-- EXPLAIN SELECT MAX(CAST(SUBSTRING(contract_number, 12, 3) AS UNSIGNED)) FROM contracts
+--   WHERE contract_number LIKE CONCAT('HD', DATE_FORMAT(CURDATE(), '%Y%m%d'), '%');
+--   Dự đoán trước/sau: type=range, key=contract_number, Extra=Using where; Using index
@@ -0,0 +1,22 @@
+-- =========================
+-- V2: Index for expiring-contract lookup
+-- =========================
+-- ContractDAO.getExpiringContracts / countExpiringContracts (Dashboard, ReportPanel mỗi lần refresh):
+--   WHERE c.status = 'ACTIVE' AND c.contract_type = 'RENTAL'
+--     AND c.end_date >= CURDATE() AND c.end_date <= CURDATE() + INTERVAL ? DAY
+--     AND c.is_deleted = 0
+--   ORDER BY c.end_date ASC
+-- Hai cột so sánh bằng đứng trước, end_date là cột range cuối cùng -> quét đúng đoạn
+-- hợp đồng sắp hết hạn, đã sắp sẵn theo end_date (không filesort).
+--
+-- EXPLAIN SELECT c.* FROM contracts c
+--   WHERE c.status = 'ACTIVE' AND c.contract_type = 'RENTAL'
+--     AND c.end_date >= CURDATE() AND c.end_date <= CURDATE() + INTERVAL 30 DAY
+--     AND c.is_deleted = 0
+--   ORDER BY c.end_date ASC, c.id ASC LIMIT 50 OFFSET 0;
+--   Dự đoán trước (DATEDIFF(end_date, CURDATE()) BETWEEN 0 AND 30): type=ALL, key=NULL, Extra=Using where; Using filesort
+--   Dự đoán sau:   type=range, key=idx_contracts_expiring, Extra=Using index condition; Using where
+--
+-- Lưu ý: cột days_left của v_contract_summary (DATEDIFF) chỉ dùng để hiển thị;
+-- lọc theo end_date thay vì days_left để index trên được sử dụng.
+CREATE INDEX idx_contracts_expiring ON contracts (status, contract_type, end_date);
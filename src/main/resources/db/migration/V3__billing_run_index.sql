@@ -0,0 +1,16 @@
+-- =========================
+-- V3: Index for billing-run idempotency check
+-- =========================
+-- InvoiceDAO.insertInvoicesBatch (BillingRunService) kiểm tra lại trong mỗi transaction
+-- hợp đồng nào đã có hóa đơn trong kỳ:
+--   WHERE month = ? AND year = ? AND is_deleted = 0 AND status <> 'CANCELED'
+--     AND contract_id IN (?, ?, ...)
+-- contract_id đứng đầu -> mỗi id trong IN (...) là một lần tra cứu index,
+-- không phải quét toàn bộ hóa đơn của kỳ cho từng nhóm.
+--
+-- EXPLAIN SELECT DISTINCT contract_id FROM invoices
+--   WHERE month = 3 AND year = 2025 AND is_deleted = 0 AND status <> 'CANCELED'
+--     AND contract_id IN (1, 2, 3);
+--   Dự đoán trước: key=idx_invoices_period (quét cả kỳ), Extra=Using where; Using temporary
+--   Dự đoán sau:   type=range, key=idx_invoices_contract_period, Extra=Using where; Using index
+CREATE INDEX idx_invoices_contract_period ON invoices (contract_id, year, month, is_deleted, status);
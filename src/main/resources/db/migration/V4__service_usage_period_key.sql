@@ -0,0 +1,22 @@
+-- =========================
+-- V4: One meter reading per contract / service / period
+-- =========================
+-- ServiceUsageDAO.upsertBatch (MeterReadingImporter) ghi chỉ số bằng
+--   INSERT ... ON DUPLICATE KEY UPDATE
+-- nên cần unique key trên (contract_id, service_id, year, month): import lại cùng một file
+-- sẽ cập nhật chỉ số thay vì tạo dòng trùng.
+-- Key này cũng phục vụ tra cứu chỉ số tháng trước và chỉ số của kỳ khi lập hóa đơn:
+--   WHERE contract_id IN (?, ?, ...) AND year = ? AND month = ?
+--
+-- Trước khi có importer, service_usage chưa được ghi bởi ứng dụng; nếu có dòng trùng
+-- (nhập tay) thì giữ lại dòng mới nhất (id lớn nhất) để tạo được unique key.
+DELETE su FROM service_usage su
+  JOIN service_usage newer
+    ON newer.contract_id = su.contract_id AND newer.service_id = su.service_id
+   AND newer.year = su.year AND newer.month = su.month AND newer.id > su.id;
+
+-- EXPLAIN SELECT contract_id, service_id, new_index FROM service_usage
+--   WHERE contract_id IN (1, 2, 3) AND year = 2025 AND month = 2;
+--   Dự đoán trước: key=contract_id (index FK 1 cột), Extra=Using where
+--   Dự đoán sau:   type=range, key=uq_service_usage_period, Extra=Using index condition
+CREATE UNIQUE INDEX uq_service_usage_period ON service_usage (contract_id, service_id, year, month);
@@ -0,0 +1,19 @@
+-- =========================
+-- V5: Change log for cross-instance refresh
+-- =========================
+-- Các DAO ghi 1 dòng sau mỗi thay đổi (tòa nhà, tầng, căn hộ, dịch vụ, hợp đồng, hóa đơn).
+-- ChangeLogPoller trên mỗi máy đọc các dòng mới vài giây một lần:
+--   SELECT ... FROM change_log WHERE version > ? ORDER BY version LIMIT ?
+-- rồi xóa cache + cập nhật đúng các dòng / thẻ bị ảnh hưởng trên màn hình đang mở.
+--
+-- version: số thứ tự toàn cục (AUTO_INCREMENT), client chỉ cần nhớ version lớn nhất đã đọc
+-- entity_id NULL: thay đổi hàng loạt (vd. đổi trạng thái cả tòa) -> client tải lại cả loại dữ liệu
+-- Dòng cũ hơn 1 ngày được poller xóa định kỳ (idx_change_log_changed_at).
+CREATE TABLE IF NOT EXISTS change_log (
+  version BIGINT AUTO_INCREMENT PRIMARY KEY,
+  entity VARCHAR(32) NOT NULL,
+  entity_id BIGINT NULL,
+  action VARCHAR(16) NOT NULL,
+  changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  KEY idx_change_log_changed_at (changed_at)
+) ENGINE=InnoDB;
@@ -0,0 +1,35 @@
+-- =========================
+-- V6: Dashboard rollup tables
+-- =========================
+-- DashboardPanel trước đây chạy ~20 query mỗi lần mở (COUNT từng bảng, 12 lần doanh thu tháng,
+-- đọc toàn bộ hóa đơn để đếm PAID / UNPAID). Nay đọc 2 bảng tổng hợp này bằng 1 query
+-- (DashboardDAO.getSummary).
+--
+-- dashboard_summary: scope_id = 0 là toàn hệ thống, > 0 là buildings.id
+--   (căn hộ / hợp đồng đang hiệu lực theo tòa cho quản lý tòa nhà; buildings / residents chỉ ở dòng 0)
+-- monthly_revenue_summary: doanh thu + số hóa đơn PAID / UNPAID theo kỳ (year, month);
+--   tổng doanh thu / tổng hóa đơn chưa thu = SUM các kỳ.
+--
+-- Các DAO gọi DashboardDAO.refresh*() sau khi ghi: chỉ tính lại phần bị ảnh hưởng
+-- (vd. đúng 1 kỳ hóa đơn), không phải cả bảng. Dữ liệu ban đầu do DashboardDAO.rebuildAll()
+-- tạo khi đọc lần đầu (chưa có dòng scope_id = 0), nên câu lệnh tính toán chỉ nằm ở một nơi.
+CREATE TABLE IF NOT EXISTS dashboard_summary (
+  scope_id BIGINT NOT NULL PRIMARY KEY,
+  buildings INT NOT NULL DEFAULT 0,
+  apartments INT NOT NULL DEFAULT 0,
+  available_apartments INT NOT NULL DEFAULT 0,
+  rented_apartments INT NOT NULL DEFAULT 0,
+  residents INT NOT NULL DEFAULT 0,
+  active_contracts INT NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS monthly_revenue_summary (
+  year INT NOT NULL,
+  month INT NOT NULL,
+  paid_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+  paid_count INT NOT NULL DEFAULT 0,
+  unpaid_count INT NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  PRIMARY KEY (year, month)
+) ENGINE=InnoDB;
@@ -0,0 +1,25 @@
+-- =========================
+-- V7: Indexes for keyset pagination (tab Hóa Đơn / Hợp Đồng)
+-- =========================
+-- InvoiceListViewDAO.getInvoicesPage (bảng hóa đơn tải từng trang khi cuộn):
+--   WHERE i.is_deleted = 0 AND i.status <> 'CANCELED' [AND i.year = ? [AND i.month = ?]]
+--     AND (i.year < ? OR (i.year = ? AND (i.month < ? OR (i.month = ? AND i.id < ?))))
+--   ORDER BY i.year DESC, i.month DESC, i.id DESC LIMIT 100
+-- is_deleted so sánh bằng đứng trước, (year, month, id) đúng thứ tự sắp xếp -> quét ngược
+-- index từ khóa của trang trước, dừng sau 100 dòng (không OFFSET, không filesort).
+-- idx_invoices_period (year, month, status, ...) không dùng được cho ORDER BY ... id.
+--
+-- EXPLAIN SELECT i.id FROM invoices i
+--   WHERE i.is_deleted = 0 AND i.status <> 'CANCELED'
+--     AND (i.year < 2025 OR (i.year = 2025 AND (i.month < 6 OR (i.month = 6 AND i.id < 81234))))
+--   ORDER BY i.year DESC, i.month DESC, i.id DESC LIMIT 100;
+--   Dự đoán (chưa chạy EXPLAIN thật): type=range, key=idx_invoices_keyset, Extra=Using where; Backward index scan
+--   (thay cho LIMIT 100 OFFSET 50000: đọc rồi bỏ 50000 dòng đầu)
+--
+-- Sắp theo số tiền (total_amount, id) vẫn filesort trên tập đã lọc (LIMIT nhỏ -> priority queue).
+CREATE INDEX idx_invoices_keyset ON invoices (is_deleted, year, month, id);
+
+-- ContractListViewDAO.getContractsPage (nạp danh sách hợp đồng theo từng trang 1000 dòng):
+--   WHERE c.is_deleted = 0 AND (c.created_at < ? OR (c.created_at = ? AND c.id < ?) OR c.created_at IS NULL)
+--   ORDER BY c.created_at DESC, c.id DESC LIMIT 1000
+CREATE INDEX idx_contracts_keyset ON contracts (is_deleted, created_at, id);